@@ -25,9 +25,14 @@
 package com.fortify.client.fod.api.query;
 
 import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
 
 import javax.ws.rs.client.WebTarget;
 
+import org.apache.commons.lang.StringUtils;
+
 import com.fortify.client.fod.connection.FoDAuthenticatingRestConnection;
 import com.fortify.util.rest.json.JSONList;
 import com.fortify.util.rest.json.JSONMap;
@@ -58,12 +63,58 @@ public class FoDEntityQuery extends AbstractRestConnectionQuery<JSONMap> {
 		pagingData.setTotalAvailable( data.get("totalCount", Integer.class) );
 	}
 	
+	/**
+	 * If available, get the number of results for each value of the given field from
+	 * the 'filters' property in the response of a single-record request, which lists
+	 * the number of matching records for each value of each filterable field. If this 
+	 * property is not available for the given field, or if the response may not reflect
+	 * the actual results of this query, all results are processed to count them. 
+	 */
+	@Override
+	public Map<Object, Integer> groupBy(String propertyPath) {
+		if ( isServerSideAggregationSupported() ) {
+			Object filters = getSingleRecordResponse().get("filters");
+			if ( filters instanceof JSONList ) {
+				for ( JSONMap filter : ((JSONList)filters).asValueType(JSONMap.class) ) {
+					if ( propertyPath.equals(filter.get("fieldName")) && filter.get("fieldFilterValues") instanceof JSONList ) {
+						Map<Object, Integer> result = new LinkedHashMap<>();
+						for ( JSONMap value : ((JSONList)filter.get("fieldFilterValues")).asValueType(JSONMap.class) ) {
+							Object count = value.get("count");
+							result.put(value.get("value"), count instanceof Number ? ((Number)count).intValue() : 0);
+						}
+						return result;
+					}
+				}
+			}
+		}
+		return super.groupBy(propertyPath);
+	}
+	
 	@Override
 	protected JSONList getJSONListFromResponse(JSONMap json) {
 		Object data = json.get("items", Object.class);
 		return (data instanceof JSONList) ? (JSONList)data : new JSONList(Arrays.asList(data));
 	}
 	
+	/**
+	 * FoD doesn't return more than 50 records per request
+	 */
+	@Override
+	protected int getMaxPageSize() {
+		return 50;
+	}
+	
+	@Override
+	protected String getDataPropertyName() {
+		return "items";
+	}
+	
+	@Override
+	protected WebTarget updateWebTargetWithFields(WebTarget target, Collection<String> fields) {
+		// Passing a single null value removes any fields parameter already configured on the query
+		return target.queryParam("fields", (Object[])null).queryParam("fields", StringUtils.join(fields, ","));
+	}
+	
 	@Override
 	protected Class<JSONMap> getResponseTypeClass() {
 		return JSONMap.class;
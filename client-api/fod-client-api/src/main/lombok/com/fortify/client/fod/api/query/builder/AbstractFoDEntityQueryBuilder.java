@@ -28,9 +28,13 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 import java.util.Map.Entry;
 
+import javax.ws.rs.client.WebTarget;
+
 import org.apache.commons.lang.StringUtils;
+import org.glassfish.jersey.uri.UriComponent;
 
 import com.fortify.client.fod.api.query.FoDEntityQuery;
 import com.fortify.client.fod.connection.FoDAuthenticatingRestConnection;
@@ -55,6 +59,10 @@ import com.google.common.collect.ListMultimap;
  * concrete implementations can override these methods as 'public' to make the generic method available, 
  * and/or provide more specialized builder methods that call these generic methods, for example to support
  * specific fields to be added to the 'filter' parameter.</p>  
+ * 
+ * <p>Concrete implementations for endpoints that support the 'filters' parameter for filtering on
+ * arbitrary entity properties can override {@link #isParamFilterPushDownSupported()} to have 
+ * eligible client-side filters pushed down to the 'filters' parameter.</p>
  *  
  * @author Ruud Senden
  *
@@ -143,11 +151,73 @@ public abstract class AbstractFoDEntityQueryBuilder<T extends AbstractFoDEntityQ
 		paramFilter.paramFilterAnd(filter); return _this();
 	}
 	
+	/**
+	 * Indicate whether client-side filters may be pushed down to the 'filters' parameter
+	 * through {@link #pushDownFilter(Map)}. This default implementation returns false;
+	 * concrete implementations should override this method to return true if the
+	 * target endpoint supports filtering on arbitrary entity properties using
+	 * the 'filters' parameter.
+	 * 
+	 * @return
+	 */
+	protected boolean isParamFilterPushDownSupported() {
+		return false;
+	}
+	
+	/**
+	 * Push down the given equality constraints to the 'filters' parameter, if supported
+	 * by the current endpoint. Constraints are not pushed down if any of the values
+	 * contains a filter separator character, or if the 'filters' parameter already 
+	 * contains any of the given fields, as multiple values for a single field
+	 * would be OR-ed together. The constraints are appended to the 'filters' parameter
+	 * of the query target, without modifying the 'filters' parameter configured on 
+	 * this builder.
+	 */
+	@Override
+	protected IWebTargetUpdater pushDownFilter(Map<String, String> equalityConstraints) {
+		if ( !isParamFilterPushDownSupported() ) { return null; }
+		List<String> filters = new ArrayList<>(equalityConstraints.size());
+		for ( Map.Entry<String, String> entry : equalityConstraints.entrySet() ) {
+			if ( StringUtils.containsAny(entry.getValue(), "+|:") || paramFilter.containsField(entry.getKey()) ) {
+				return null;
+			}
+			filters.add(entry.getKey()+":"+entry.getValue());
+		}
+		return new FoDParamFilterAnd(StringUtils.join(filters, "+"));
+	}
+	
 	@Override
 	protected IJSONMapOnDemandLoader createOnDemandLoader(String uri) {
 		return new FoDJSONMapOnDemandLoaderRest(getConn(), uri);
 	}
 	
+	/**
+	 * {@link IWebTargetUpdater} implementation for appending the given
+	 * filter to the FoD 'filters' request parameter of a {@link WebTarget}.
+	 */
+	private static final class FoDParamFilterAnd implements IWebTargetUpdater {
+		private final String filter;
+		
+		public FoDParamFilterAnd(String filter) {
+			this.filter = filter;
+		}
+		
+		@Override
+		public WebTarget update(WebTarget target) {
+			String filters = UriComponent.decodeQuery(target.getUri(), true).getFirst("filters");
+			String value = StringUtils.isBlank(filters) ? filter : filters+"+"+filter;
+			// Passing a single null value removes the filters parameter already configured on the query;
+			// the value is fully encoded to avoid it being interpreted as a template or being re-decoded
+			return target.queryParam("filters", (Object[])null)
+					.queryParam("filters", UriComponent.encode(value, UriComponent.Type.QUERY_PARAM_SPACE_ENCODED));
+		}
+		
+		@Override
+		public String toString() {
+			return "filters+="+filter;
+		}
+	}
+	
 	/**
 	 * {@link IWebTargetUpdaterBuilder} implementation for adding the
 	 * FoD 'filter' request parameter.
@@ -164,6 +234,14 @@ public abstract class AbstractFoDEntityQueryBuilder<T extends AbstractFoDEntityQ
 			return this;
 		}
 		
+		public final boolean containsField(String field) {
+			if ( paramFilterAndsMap.containsKey(field) ) { return true; }
+			for ( String paramFilterAnd : paramFilterAndsList ) {
+				if ( paramFilterAnd.startsWith(field+":") ) { return true; }
+			}
+			return false;
+		}
+		
 		public final FoDParamFilter paramFilterAnd(String paramFilterAnd) {
 			paramFilterAndsList.add(paramFilterAnd);
 			return this;
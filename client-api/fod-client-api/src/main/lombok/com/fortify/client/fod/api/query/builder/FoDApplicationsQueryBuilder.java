@@ -60,6 +60,11 @@ public class FoDApplicationsQueryBuilder extends AbstractFoDEntityQueryBuilder<F
 		return super.paramFilterAnd(filter);
 	}
 	
+	@Override
+	protected boolean isParamFilterPushDownSupported() {
+		return true;
+	}
+	
 	@Override
 	public FoDApplicationsQueryBuilder paramOrderBy(String orderBy, FoDOrderByDirection orderByDirection) {
 		return super.paramOrderBy(orderBy, orderByDirection);
@@ -24,6 +24,8 @@
  ******************************************************************************/
 package com.fortify.client.fod.api.query.builder;
 
+import java.util.Map;
+
 import com.fortify.client.fod.api.query.FoDEntityQuery;
 import com.fortify.client.fod.connection.FoDAuthenticatingRestConnection;
 import com.fortify.util.rest.json.preprocessor.enrich.JSONMapEnrichWithDeepLink;
@@ -57,6 +59,11 @@ public class FoDReleaseVulnerabilitiesQueryBuilder extends AbstractFoDReleaseChi
 		return super.paramFilterAnd(filter);
 	}
 	
+	@Override
+	protected boolean isParamFilterPushDownSupported() {
+		return true;
+	}
+	
 	@Override
 	public FoDReleaseVulnerabilitiesQueryBuilder paramOrderBy(String orderBy, FoDOrderByDirection orderByDirection) {
 		return super.paramOrderBy(orderBy, orderByDirection);
@@ -78,6 +85,19 @@ public class FoDReleaseVulnerabilitiesQueryBuilder extends AbstractFoDReleaseChi
 		return super.queryParam("keywordSearch", keywordSearch);
 	}
 	
+	/**
+	 * Get the number of vulnerabilities for each value of the given field. If no 
+	 * client-side filters have been configured, these numbers are taken from the
+	 * filter information returned by FoD for a single-record request, provided that
+	 * the 'excludeFilters' parameter hasn't been set to true. Otherwise, all 
+	 * vulnerabilities are processed to count them.
+	 * @param fieldName
+	 * @return {@link Map} from field value to number of vulnerabilities
+	 */
+	public Map<Object, Integer> groupBy(String fieldName) {
+		return build().groupBy(fieldName);
+	}
+	
 	public FoDReleaseVulnerabilitiesQueryBuilder onDemandAll() {
 		return onDemandAllData().onDemandAuditOptions().onDemandDetails().onDemandHeaders().onDemandHistory()
 			.onDemandParameters().onDemandRecommendations().onDemandRequestResponse().onDemandScreenshots()
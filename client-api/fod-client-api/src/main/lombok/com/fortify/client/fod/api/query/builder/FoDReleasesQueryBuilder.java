@@ -61,6 +61,11 @@ public class FoDReleasesQueryBuilder extends AbstractFoDEntityQueryBuilder<FoDRe
 		return super.paramFilterAnd(filter);
 	}
 	
+	@Override
+	protected boolean isParamFilterPushDownSupported() {
+		return true;
+	}
+	
 	@Override
 	public FoDReleasesQueryBuilder paramOrderBy(String orderBy, FoDOrderByDirection orderByDirection) {
 		return super.paramOrderBy(orderBy, orderByDirection);
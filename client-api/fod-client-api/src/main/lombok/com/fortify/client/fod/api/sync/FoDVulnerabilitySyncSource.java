@@ -0,0 +1,99 @@
+/*******************************************************************************
+ * (c) Copyright 2017 EntIT Software LLC, a Micro Focus company
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a 
+ * copy of this software and associated documentation files (the 
+ * "Software"), to deal in the Software without restriction, including without 
+ * limitation the rights to use, copy, modify, merge, publish, distribute, 
+ * sublicense, and/or sell copies of the Software, and to permit persons to 
+ * whom the Software is furnished to do so, subject to the following 
+ * conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included 
+ * in all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY 
+ * KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE 
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR 
+ * PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE 
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, 
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF 
+ * CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN 
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS 
+ * IN THE SOFTWARE.
+ ******************************************************************************/
+package com.fortify.client.fod.api.sync;
+
+import com.fortify.client.fod.api.FoDReleaseAPI;
+import com.fortify.client.fod.api.FoDVulnerabilityAPI;
+import com.fortify.client.fod.api.query.builder.FoDReleaseVulnerabilitiesQueryBuilder;
+import com.fortify.client.fod.api.query.builder.FoDReleasesQueryBuilder;
+import com.fortify.client.fod.connection.FoDAuthenticatingRestConnection;
+import com.fortify.util.rest.json.JSONMap;
+import com.fortify.util.rest.query.IRestConnectionQuery;
+import com.fortify.util.rest.sync.AbstractIncrementalSyncSource;
+import com.fortify.util.rest.sync.IncrementalSync;
+
+/**
+ * <p>This {@link com.fortify.util.rest.sync.IIncrementalSyncSource} implementation allows 
+ * for incrementally synchronizing the vulnerabilities of all FoD releases through 
+ * {@link IncrementalSync}. By default, releases are considered unchanged if the current 
+ * static, dynamic and mobile scan id's and scan dates are unchanged since the previous 
+ * synchronization; note that audit changes that are not accompanied by a new scan will
+ * not be picked up unless a different set of watermark paths is configured.</p>
+ * 
+ * <p>Subclasses can override {@link #createReleasesQueryBuilder()} and
+ * {@link #createVulnerabilitiesQueryBuilder(String)} to for example restrict the set 
+ * of releases to be synchronized, or to include fixed or suppressed vulnerabilities.</p>
+ * 
+ * @author Ruud Senden
+ *
+ */
+public class FoDVulnerabilitySyncSource extends AbstractIncrementalSyncSource {
+	public static final String[] DEFAULT_WATERMARK_PATHS = {
+			"currentStaticScanId", "currentDynamicScanId", "currentMobileScanId",
+			"staticScanDate", "dynamicScanDate", "mobileScanDate"};
+	private final FoDAuthenticatingRestConnection conn;
+	
+	public FoDVulnerabilitySyncSource(FoDAuthenticatingRestConnection conn) {
+		this(conn, DEFAULT_WATERMARK_PATHS);
+	}
+	
+	public FoDVulnerabilitySyncSource(FoDAuthenticatingRestConnection conn, String... watermarkPaths) {
+		super(watermarkPaths);
+		this.conn = conn;
+	}
+
+	@Override
+	public IRestConnectionQuery createParentQuery() {
+		return createReleasesQueryBuilder().build();
+	}
+
+	@Override
+	public String getCheckpointKey(JSONMap parent) {
+		return getCheckpointKeyPrefix()+parent.get("releaseId");
+	}
+	
+	@Override
+	protected String getCheckpointKeyPrefix() {
+		return "fod-release-";
+	}
+
+	@Override
+	public IRestConnectionQuery createChildQuery(JSONMap parent) {
+		return createVulnerabilitiesQueryBuilder(String.valueOf(parent.get("releaseId"))).build();
+	}
+
+	@Override
+	public String getRecordId(JSONMap record) {
+		return String.valueOf(record.get("vulnId"));
+	}
+	
+	protected FoDReleasesQueryBuilder createReleasesQueryBuilder() {
+		return conn.api(FoDReleaseAPI.class).queryReleases();
+	}
+	
+	protected FoDReleaseVulnerabilitiesQueryBuilder createVulnerabilitiesQueryBuilder(String releaseId) {
+		return conn.api(FoDVulnerabilityAPI.class).queryVulnerabilities(releaseId);
+	}
+}
@@ -0,0 +1,149 @@
+/*******************************************************************************
+ * (c) Copyright 2017 EntIT Software LLC, a Micro Focus company
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a 
+ * copy of this software and associated documentation files (the 
+ * "Software"), to deal in the Software without restriction, including without 
+ * limitation the rights to use, copy, modify, merge, publish, distribute, 
+ * sublicense, and/or sell copies of the Software, and to permit persons to 
+ * whom the Software is furnished to do so, subject to the following 
+ * conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included 
+ * in all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY 
+ * KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE 
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR 
+ * PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE 
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, 
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF 
+ * CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN 
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS 
+ * IN THE SOFTWARE.
+ ******************************************************************************/
+package com.fortify.client.samples;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fortify.util.rest.json.JSONList;
+import com.fortify.util.rest.json.JSONMap;
+import com.fortify.util.rest.json.JSONObjectMapperBuilder;
+
+/**
+ * <p>This class provides a simple memory benchmark for the various in-memory
+ * representations of JSON data. It generates a synthetic page of SSC-like issue 
+ * records, deserializes this page a number of times using differently configured
+ * {@link ObjectMapper} instances, and reports the retained heap size per issue.</p>
+ * 
+ * <p>Usage: <code>java ... JSONMemoryBenchmark [issueCount]</code>; for reliable results 
+ * run with a fixed heap size, for example <code>-Xms1g -Xmx1g</code>.</p>
+ * 
+ * @author Ruud Senden
+ *
+ */
+public class JSONMemoryBenchmark extends AbstractSamples {
+	private static final String[] FRIORITIES = {"Critical", "High", "Medium", "Low"};
+	private static final String[] ANALYZERS = {"Data Flow", "Control Flow", "Semantic", "Structural", "Configuration"};
+	private static final String[] ENGINE_TYPES = {"SCA", "WEBINSPECT", "SONATYPE"};
+	private static final String[] KINGDOMS = {"Input Validation and Representation", "Security Features", "Encapsulation", "Code Quality"};
+	private final int issueCount;
+	
+	public JSONMemoryBenchmark(int issueCount) {
+		this.issueCount = issueCount;
+	}
+	
+	public static void main(String[] args) throws Exception {
+		int issueCount = args.length>0 ? Integer.parseInt(args[0]) : 50000;
+		new JSONMemoryBenchmark(issueCount).run();
+	}
+
+	public void run() throws Exception {
+		String json = generateIssuesPage();
+		print(String.format("Generated %d issues, %d bytes of JSON (%d bytes per issue)", issueCount, json.length(), json.length()/issueCount));
+		printBytesPerIssue("JSONMap", new JSONObjectMapperBuilder().build(), json);
+		printBytesPerIssue("CompactJSONMap", new JSONObjectMapperBuilder().useCompactJSONMaps(true).build(), json);
+		printBytesPerIssue("JSONMap+canon", new JSONObjectMapperBuilder().canonicalizeDefaultValues().build(), json);
+		printBytesPerIssue("CompactJSONMap+canon", new JSONObjectMapperBuilder().useCompactJSONMaps(true).canonicalizeDefaultValues().build(), json);
+	}
+	
+	protected void printBytesPerIssue(String description, ObjectMapper mapper, String json) throws Exception {
+		// Warm up, making sure any shared structures have been initialized
+		mapper.readValue(json, JSONMap.class);
+		long before = getUsedMemory();
+		JSONMap page = mapper.readValue(json, JSONMap.class);
+		long after = getUsedMemory();
+		JSONList data = page.get("data", JSONList.class);
+		print(String.format("%-24s %8d bytes per issue (%s)", description+":", (after-before)/data.size(), data.get(0).getClass().getSimpleName()));
+	}
+	
+	protected String generateIssuesPage() throws Exception {
+		Random random = new Random(0);
+		List<JSONMap> issues = new ArrayList<>(issueCount);
+		for ( int i = 0 ; i < issueCount ; i++ ) {
+			JSONMap issue = new JSONMap();
+			issue.put("id", 100000+i);
+			issue.put("projectVersionId", 1234);
+			issue.put("projectVersionName", "1.0");
+			issue.put("projectName", "Sample Application");
+			issue.put("revision", random.nextInt(5));
+			issue.put("folderId", 10+random.nextInt(4));
+			issue.put("folderGuid", "b968f72f-cc12-03b5-976e-ad4c13920c2"+random.nextInt(4));
+			issue.put("issueInstanceId", Long.toHexString(random.nextLong()).toUpperCase()+Long.toHexString(random.nextLong()).toUpperCase());
+			issue.put("issueName", "Category "+random.nextInt(50));
+			issue.put("primaryLocation", "File"+random.nextInt(1000)+".java");
+			issue.put("lineNumber", random.nextInt(2000));
+			issue.put("fullFileName", "src/main/java/com/example/pkg"+random.nextInt(50)+"/File"+random.nextInt(1000)+".java");
+			issue.put("analyzer", pick(random, ANALYZERS));
+			issue.put("kingdom", pick(random, KINGDOMS));
+			issue.put("friority", pick(random, FRIORITIES));
+			issue.put("reviewed", null);
+			issue.put("bugURL", null);
+			issue.put("externalBugId", null);
+			issue.put("primaryTag", null);
+			issue.put("hasAttachments", false);
+			issue.put("hasCorrelatedIssues", false);
+			issue.put("scanStatus", "UPDATED");
+			issue.put("foundDate", "2019-01-0"+(1+random.nextInt(9))+"T10:11:12.000+0000");
+			issue.put("removedDate", null);
+			issue.put("engineType", pick(random, ENGINE_TYPES));
+			issue.put("displayEngineType", "SCA");
+			issue.put("engineCategory", "STATIC");
+			issue.put("primaryRuleGuid", "6A2E5C5A-"+random.nextInt(100)+"-4F5E-9D3C-2F5A7B0E3C1D");
+			issue.put("impact", random.nextDouble()*5);
+			issue.put("likelihood", random.nextDouble()*5);
+			issue.put("severity", (double)(1+random.nextInt(5)));
+			issue.put("confidence", (double)(1+random.nextInt(5)));
+			issue.put("audited", random.nextBoolean());
+			issue.put("issueStatus", "Unreviewed");
+			issue.put("primaryTagValueAutoApplied", false);
+			issue.put("hasComments", false);
+			issue.put("removed", false);
+			issue.put("suppressed", false);
+			issue.put("hidden", false);
+			issue.put("_href", "http://localhost:8080/ssc/api/v1/issues/"+(100000+i));
+			issues.add(issue);
+		}
+		JSONMap page = new JSONMap();
+		page.put("data", issues);
+		page.put("count", issueCount);
+		page.put("responseCode", 200);
+		return new ObjectMapper().writeValueAsString(page);
+	}
+	
+	private static final String pick(Random random, String[] values) {
+		return values[random.nextInt(values.length)];
+	}
+	
+	private static final long getUsedMemory() throws InterruptedException {
+		Runtime runtime = Runtime.getRuntime();
+		for ( int i = 0 ; i < 5 ; i++ ) {
+			System.gc();
+			Thread.sleep(100);
+		}
+		return runtime.totalMemory()-runtime.freeMemory();
+	}
+}
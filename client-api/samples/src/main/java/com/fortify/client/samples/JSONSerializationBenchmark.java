@@ -0,0 +1,110 @@
+/*******************************************************************************
+ * (c) Copyright 2017 EntIT Software LLC, a Micro Focus company
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a 
+ * copy of this software and associated documentation files (the 
+ * "Software"), to deal in the Software without restriction, including without 
+ * limitation the rights to use, copy, modify, merge, publish, distribute, 
+ * sublicense, and/or sell copies of the Software, and to permit persons to 
+ * whom the Software is furnished to do so, subject to the following 
+ * conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included 
+ * in all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY 
+ * KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE 
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR 
+ * PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE 
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, 
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF 
+ * CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN 
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS 
+ * IN THE SOFTWARE.
+ ******************************************************************************/
+package com.fortify.client.samples;
+
+import org.apache.commons.lang.SerializationUtils;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fortify.util.rest.json.JSONBinaryCodec;
+import com.fortify.util.rest.json.JSONBinaryCodec.Format;
+import com.fortify.util.rest.json.JSONMap;
+import com.fortify.util.rest.json.JSONObjectMapperBuilder;
+
+/**
+ * <p>This class provides a simple benchmark comparing the various serialization
+ * formats for {@link JSONMap} instances: JSON text, Java serialization, and the binary
+ * formats supported by {@link JSONBinaryCodec}. It generates the same synthetic page of 
+ * SSC-like issue records as {@link JSONMemoryBenchmark}, and reports the encoded size
+ * and the average encoding and decoding times for each format.</p>
+ * 
+ * <p>Usage: <code>java ... JSONSerializationBenchmark [issueCount] [iterations]</code></p>
+ * 
+ * @author Ruud Senden
+ *
+ */
+public class JSONSerializationBenchmark extends AbstractSamples {
+	private final int issueCount;
+	private final int iterations;
+	
+	public JSONSerializationBenchmark(int issueCount, int iterations) {
+		this.issueCount = issueCount;
+		this.iterations = iterations;
+	}
+	
+	public static void main(String[] args) throws Exception {
+		int issueCount = args.length>0 ? Integer.parseInt(args[0]) : 10000;
+		int iterations = args.length>1 ? Integer.parseInt(args[1]) : 20;
+		new JSONSerializationBenchmark(issueCount, iterations).run();
+	}
+
+	public void run() throws Exception {
+		final ObjectMapper jsonMapper = new JSONObjectMapperBuilder().useCompactJSONMaps(true).build();
+		JSONMap page = jsonMapper.readValue(new JSONMemoryBenchmark(issueCount).generateIssuesPage(), JSONMap.class);
+		print(String.format("%-24s %12s %12s %12s", "Format", "Bytes", "Encode (ms)", "Decode (ms)"));
+		printResults("JSON text", page, new Codec() {
+			public byte[] encode(JSONMap json) throws Exception { return jsonMapper.writeValueAsBytes(json); }
+			public Object decode(byte[] bytes) throws Exception { return jsonMapper.readValue(bytes, JSONMap.class); }
+		});
+		printResults("Java serialization", page, new Codec() {
+			public byte[] encode(JSONMap json) { return SerializationUtils.serialize(json); }
+			public Object decode(byte[] bytes) { return SerializationUtils.deserialize(bytes); }
+		});
+		printResults("Smile", page, getCodec(new JSONBinaryCodec(Format.SMILE, false)));
+		printResults("Smile+back-references", page, getCodec(new JSONBinaryCodec(Format.SMILE, true)));
+		printResults("CBOR", page, getCodec(new JSONBinaryCodec(Format.CBOR, false)));
+	}
+	
+	protected void printResults(String description, JSONMap page, Codec codec) throws Exception {
+		// Warm up
+		byte[] bytes = null;
+		for ( int i = 0 ; i < Math.max(3, iterations/4) ; i++ ) {
+			bytes = codec.encode(page);
+			codec.decode(bytes);
+		}
+		long start = System.nanoTime();
+		for ( int i = 0 ; i < iterations ; i++ ) {
+			bytes = codec.encode(page);
+		}
+		long encodeNanos = (System.nanoTime()-start)/iterations;
+		start = System.nanoTime();
+		for ( int i = 0 ; i < iterations ; i++ ) {
+			codec.decode(bytes);
+		}
+		long decodeNanos = (System.nanoTime()-start)/iterations;
+		print(String.format("%-24s %12d %12.1f %12.1f", description+":", bytes.length, encodeNanos/1000000.0, decodeNanos/1000000.0));
+	}
+	
+	private static final Codec getCodec(final JSONBinaryCodec binaryCodec) {
+		return new Codec() {
+			public byte[] encode(JSONMap json) { return binaryCodec.encode(json); }
+			public Object decode(byte[] bytes) { return binaryCodec.decodeJSONMap(bytes); }
+		};
+	}
+	
+	private static interface Codec {
+		public byte[] encode(JSONMap json) throws Exception;
+		public Object decode(byte[] bytes) throws Exception;
+	}
+}
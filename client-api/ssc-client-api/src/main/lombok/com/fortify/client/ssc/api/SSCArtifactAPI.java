@@ -26,10 +26,7 @@ package com.fortify.client.ssc.api;
 
 import java.io.File;
 import java.nio.file.Path;
-import java.util.Arrays;
 import java.util.Date;
-import java.util.HashSet;
-import java.util.Set;
 
 import javax.ws.rs.HttpMethod;
 import javax.ws.rs.client.Entity;
@@ -40,6 +37,8 @@ import com.fortify.client.ssc.api.SSCFileUpDownloadAPI.FileTokenType;
 import com.fortify.client.ssc.api.query.builder.SSCApplicationVersionArtifactsQueryBuilder;
 import com.fortify.client.ssc.api.query.builder.SSCArtifactByIdQueryBuilder;
 import com.fortify.client.ssc.connection.SSCAuthenticatingRestConnection;
+import com.fortify.util.rest.connection.RangedDownloadConfig;
+import com.fortify.util.rest.connection.StreamingUploadConfig;
 import com.fortify.util.rest.json.JSONMap;
 import com.fortify.util.spring.SpringExpressionUtil;
 
@@ -68,19 +67,29 @@ public class SSCArtifactAPI extends AbstractSSCAPI {
 	
 	@SSCRequiredActionsPermitted({"POST=/download/currentStateFprDownload.html"})
 	public final long downloadApplicationFile(String applicationVersionId, Path target, boolean includeSource) {
+		return downloadApplicationFile(applicationVersionId, target, includeSource, null);
+	}
+	
+	@SSCRequiredActionsPermitted({"POST=/download/currentStateFprDownload.html"})
+	public final long downloadApplicationFile(String applicationVersionId, Path target, boolean includeSource, RangedDownloadConfig downloadConfig) {
 		WebTarget webTarget = conn().getBaseResource()
 				.path("/download/currentStateFprDownload.html")
 				.queryParam("id", ""+applicationVersionId)
 				.queryParam("includeSource", includeSource);
-		return conn().api(SSCFileUpDownloadAPI.class).downloadFile(webTarget, FileTokenType.DOWNLOAD, target);
+		return conn().api(SSCFileUpDownloadAPI.class).downloadFile(webTarget, FileTokenType.DOWNLOAD, target, downloadConfig);
 	}
 	
 	@SSCRequiredActionsPermitted({"POST=/download/artifactDownload.html"})
 	public final long downloadArtifact(String artifactId, Path target) {
+		return downloadArtifact(artifactId, target, null);
+	}
+	
+	@SSCRequiredActionsPermitted({"POST=/download/artifactDownload.html"})
+	public final long downloadArtifact(String artifactId, Path target, RangedDownloadConfig downloadConfig) {
 		WebTarget webTarget = conn().getBaseResource()
 				.path("/download/artifactDownload.html")
 				.queryParam("id", ""+artifactId);
-		return conn().api(SSCFileUpDownloadAPI.class).downloadFile(webTarget, FileTokenType.DOWNLOAD, target);
+		return conn().api(SSCFileUpDownloadAPI.class).downloadFile(webTarget, FileTokenType.DOWNLOAD, target, downloadConfig);
 	}
 	
 	@SSCRequiredActionsPermitted({"POST=/upload/resultFileUpload.html"})
@@ -91,6 +100,22 @@ public class SSCArtifactAPI extends AbstractSSCAPI {
 		return conn().api(SSCFileUpDownloadAPI.class).uploadFile(webTarget, FileTokenType.UPLOAD, fprFile);
 	}
 	
+	/**
+	 * Upload the given artifact, streaming the file contents to SSC according to the
+	 * given {@link StreamingUploadConfig}.
+	 * @param applicationVersionId
+	 * @param fprFile
+	 * @param uploadConfig
+	 * @return {@link JSONMap} describing the upload result
+	 */
+	@SSCRequiredActionsPermitted({"POST=/upload/resultFileUpload.html"})
+	public final JSONMap uploadArtifact(String applicationVersionId, File fprFile, StreamingUploadConfig uploadConfig) {
+		WebTarget webTarget = conn().getBaseResource()
+				.path("/upload/resultFileUpload.html")
+				.queryParam("entityId", ""+applicationVersionId);
+		return conn().api(SSCFileUpDownloadAPI.class).uploadFile(webTarget, FileTokenType.UPLOAD, fprFile, uploadConfig);
+	}
+	
 	@SSCRequiredActionsPermitted({"POST=/api/\\d+/artifacts/\\d+/action"})
 	public final JSONMap approveArtifact(String artifactId, String comment) {
 		JSONMap data = new JSONMap();
@@ -101,21 +126,27 @@ public class SSCArtifactAPI extends AbstractSSCAPI {
 				Entity.entity(data, "application/json"), JSONMap.class);
 	}
 	
+	/**
+	 * Create an {@link SSCArtifactUploadPipeline} for asynchronously uploading many
+	 * artifacts, with at most the given number of concurrent uploads.
+	 * @param maxConcurrentUploads
+	 * @return
+	 */
+	public final SSCArtifactUploadPipeline createUploadPipeline(int maxConcurrentUploads) {
+		return new SSCArtifactUploadPipeline(conn(), maxConcurrentUploads);
+	}
+	
 	public final void approveArtifactAndWaitProcessingCompletion(String artifactId, String comment, int timeOutSeconds) {
 		approveArtifact(artifactId, comment);
 		waitForProcessingCompletion(artifactId, timeOutSeconds);
 	}
 	
 	public final void waitForProcessingCompletion(String artifactId, int timeOutSeconds) {
-		Set<String> incompleteStates = new HashSet<>(Arrays.asList("PROCESSING", "SCHED_PROCESSING")); 
-		long startTime = new Date().getTime();
-		JSONMap artifact = getArtifactById(artifactId, false, "status");
-		while ( new Date().getTime() < startTime+timeOutSeconds*1000 && incompleteStates.contains(artifact.get("status", String.class)) ) {
-			try {
-				Thread.sleep(1000L);
-			} catch ( InterruptedException ignore ) {}
-			artifact = getArtifactById(artifactId, false, "status");
-		}
+		SSCPollerAPI.await(conn().api(SSCPollerAPI.class).pollArtifactProcessingCompletion(artifactId, timeOutSeconds));
+	}
+	
+	public final void waitForProcessingCompletion(String applicationVersionId, String artifactId, int timeOutSeconds) {
+		SSCPollerAPI.await(conn().api(SSCPollerAPI.class).pollArtifactProcessingCompletion(applicationVersionId, artifactId, timeOutSeconds));
 	}
 
 	public final JSONMap getJobForUpload(JSONMap uploadResult, int secondsToWaitForCompletion) {
@@ -141,7 +172,8 @@ public class SSCArtifactAPI extends AbstractSSCAPI {
 		String artifactStatus = getArtifactById(artifactId, false, "status").get("status", String.class);
 		if ( "REQUIRE_AUTH".equals(artifactStatus) ) {
 			int approvalTimeOutSeconds = timeOutSeconds-(int)(new Date().getTime()/1000-startTimeSeconds);
-			approveArtifactAndWaitProcessingCompletion(artifactId, "Auto-approved by Jenkins", approvalTimeOutSeconds);
+			approveArtifact(artifactId, "Auto-approved by Jenkins");
+			waitForProcessingCompletion(applicationVersionId, artifactId, approvalTimeOutSeconds);
 		}
 		return artifactId;
 	}
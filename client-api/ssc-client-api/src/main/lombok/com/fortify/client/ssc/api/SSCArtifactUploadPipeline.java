@@ -0,0 +1,264 @@
+/*******************************************************************************
+ * (c) Copyright 2017 EntIT Software LLC, a Micro Focus company
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a 
+ * copy of this software and associated documentation files (the 
+ * "Software"), to deal in the Software without restriction, including without 
+ * limitation the rights to use, copy, modify, merge, publish, distribute, 
+ * sublicense, and/or sell copies of the Software, and to permit persons to 
+ * whom the Software is furnished to do so, subject to the following 
+ * conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included 
+ * in all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY 
+ * KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE 
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR 
+ * PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE 
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, 
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF 
+ * CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN 
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS 
+ * IN THE SOFTWARE.
+ ******************************************************************************/
+package com.fortify.client.ssc.api;
+
+import java.io.Closeable;
+import java.io.File;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+import com.fortify.client.ssc.connection.SSCAuthenticatingRestConnection;
+import com.fortify.util.rest.connection.StreamingUploadConfig;
+import com.fortify.util.rest.json.JSONMap;
+
+/**
+ * <p>This class allows for asynchronously uploading many artifacts, usually FPR files, to
+ * SSC. Each artifact submitted through {@link #submit(String, File)} goes through the same 
+ * steps as {@link SSCArtifactAPI#uploadArtifactAndWaitProcessingCompletionWithApproval(String, File, String, int)}:
+ * upload the file, wait for the upload job to complete, and if the artifact requires approval,
+ * approve the artifact and wait for processing to complete.</p>
+ * 
+ * <p>At most the configured number of uploads are transferred concurrently; any additional
+ * submissions are queued. All waits are handed to the shared {@link SSCPollerAPI}, so no
+ * threads are blocked while SSC is processing the uploaded artifacts. Each submission returns
+ * a {@link CompletableFuture} that is completed with the artifact id once processing has 
+ * completed, or completed exceptionally if any of the steps fails or times out. Progress 
+ * can be monitored by configuring an {@link IArtifactUploadListener}.</p>
+ * 
+ * <p>Instances of this class can be created through {@link SSCArtifactAPI#createUploadPipeline(int)},
+ * and should be closed once all artifacts have been submitted. Closing a pipeline doesn't 
+ * cancel any submissions that are already queued or in progress.</p>
+ * 
+ * @author Ruud Senden
+ *
+ */
+public class SSCArtifactUploadPipeline implements Closeable {
+	private static final AtomicInteger PIPELINE_COUNT = new AtomicInteger();
+	private static final Set<String> FAILED_JOB_STATES = new HashSet<>(Arrays.asList("FAILED", "CANCELLED"));
+	private final SSCAuthenticatingRestConnection conn;
+	private final ExecutorService uploadExecutor;
+	private final ExecutorService callbackExecutor;
+	private String approvalMessage = "Auto-approved by Jenkins";
+	private int timeOutSeconds = 600;
+	private IArtifactUploadListener listener = null;
+	private StreamingUploadConfig uploadConfig = new StreamingUploadConfig();
+	private int outstanding = 0;
+	private boolean closed = false;
+	
+	public static enum ArtifactUploadState {
+		QUEUED, UPLOADING, PROCESSING, APPROVING, COMPLETED, FAILED
+	}
+	
+	/**
+	 * Listener for receiving progress events. Events may be fired from different threads, so
+	 * implementations must be thread-safe.
+	 */
+	public static interface IArtifactUploadListener {
+		public void onStateChange(String applicationVersionId, File artifactFile, ArtifactUploadState state, Throwable failure);
+	}
+	
+	public SSCArtifactUploadPipeline(SSCAuthenticatingRestConnection conn, int maxConcurrentUploads) {
+		this.conn = conn;
+		String prefix = "ssc-upload-"+PIPELINE_COUNT.incrementAndGet();
+		this.uploadExecutor = Executors.newFixedThreadPool(Math.max(1, maxConcurrentUploads), createThreadFactory(prefix+"-transfer-"));
+		this.callbackExecutor = Executors.newSingleThreadExecutor(createThreadFactory(prefix+"-callback-"));
+	}
+	
+	/**
+	 * Configure the comment used for approving artifacts that require approval
+	 */
+	public SSCArtifactUploadPipeline approvalMessage(String approvalMessage) {
+		this.approvalMessage = approvalMessage; return this;
+	}
+	
+	/**
+	 * Configure the maximum number of seconds to wait for each artifact to be processed, 
+	 * measured from the moment the upload starts. Default is 600 seconds.
+	 */
+	public SSCArtifactUploadPipeline timeOutSeconds(int timeOutSeconds) {
+		this.timeOutSeconds = timeOutSeconds; return this;
+	}
+	
+	/**
+	 * Configure the {@link IArtifactUploadListener} to be notified of progress
+	 */
+	public SSCArtifactUploadPipeline listener(IArtifactUploadListener listener) {
+		this.listener = listener; return this;
+	}
+	
+	/**
+	 * Configure the {@link StreamingUploadConfig} used for transferring artifact files,
+	 * for example to limit upload throughput or to monitor transfer progress
+	 */
+	public SSCArtifactUploadPipeline uploadConfig(StreamingUploadConfig uploadConfig) {
+		this.uploadConfig = uploadConfig; return this;
+	}
+	
+	/**
+	 * Submit the given artifact file for upload to the given application version.
+	 * @param applicationVersionId
+	 * @param artifactFile
+	 * @return {@link CompletableFuture} that is completed with the artifact id once processing has completed
+	 */
+	public CompletableFuture<String> submit(final String applicationVersionId, final File artifactFile) {
+		synchronized (this) {
+			if ( closed ) { throw new IllegalStateException("Upload pipeline has already been closed"); }
+			outstanding++;
+		}
+		final ArtifactUpload upload = new ArtifactUpload(applicationVersionId, artifactFile);
+		upload.fireStateChange(ArtifactUploadState.QUEUED, null);
+		CompletableFuture<String> result = CompletableFuture.supplyAsync(new Supplier<JSONMap>() {
+			@Override
+			public JSONMap get() { return upload.upload(); }
+		}, uploadExecutor).thenCompose(new Function<JSONMap, CompletionStage<JSONMap>>() {
+			@Override
+			public CompletionStage<JSONMap> apply(JSONMap uploadResult) { return upload.pollJobCompletion(uploadResult); }
+		}).thenComposeAsync(new Function<JSONMap, CompletionStage<JSONMap>>() {
+			@Override
+			public CompletionStage<JSONMap> apply(JSONMap job) { return upload.pollArtifactProcessingCompletion(job); }
+		}, callbackExecutor).thenComposeAsync(new Function<JSONMap, CompletionStage<JSONMap>>() {
+			@Override
+			public CompletionStage<JSONMap> apply(JSONMap artifact) { return upload.approveIfRequired(artifact); }
+		}, callbackExecutor).thenApply(new Function<JSONMap, String>() {
+			@Override
+			public String apply(JSONMap artifact) { return upload.getArtifactId(); }
+		});
+		return result.whenComplete(new BiConsumer<String, Throwable>() {
+			@Override
+			public void accept(String artifactId, Throwable failure) {
+				upload.fireStateChange(failure==null ? ArtifactUploadState.COMPLETED : ArtifactUploadState.FAILED, failure);
+				submissionCompleted();
+			}
+		});
+	}
+	
+	/**
+	 * Stop accepting new submissions. Any submissions that are already queued or in 
+	 * progress will still be completed; the threads used by this pipeline are stopped
+	 * once all submissions have completed.
+	 */
+	@Override
+	public synchronized void close() {
+		closed = true;
+		uploadExecutor.shutdown();
+		if ( outstanding == 0 ) { callbackExecutor.shutdown(); }
+	}
+	
+	private synchronized void submissionCompleted() {
+		if ( --outstanding == 0 && closed ) { callbackExecutor.shutdown(); }
+	}
+	
+	private static final ThreadFactory createThreadFactory(final String prefix) {
+		final AtomicInteger threadCount = new AtomicInteger();
+		return new ThreadFactory() {
+			@Override
+			public Thread newThread(Runnable r) {
+				Thread thread = new Thread(r, prefix+threadCount.incrementAndGet());
+				thread.setDaemon(true);
+				return thread;
+			}
+		};
+	}
+	
+	/**
+	 * State for a single submitted artifact
+	 */
+	private final class ArtifactUpload {
+		private final String applicationVersionId;
+		private final File artifactFile;
+		private long startTimeMillis;
+		private String artifactId;
+		
+		private ArtifactUpload(String applicationVersionId, File artifactFile) {
+			this.applicationVersionId = applicationVersionId;
+			this.artifactFile = artifactFile;
+		}
+		
+		private JSONMap upload() {
+			startTimeMillis = System.currentTimeMillis();
+			fireStateChange(ArtifactUploadState.UPLOADING, null);
+			return conn.api(SSCArtifactAPI.class).uploadArtifact(applicationVersionId, artifactFile, uploadConfig);
+		}
+		
+		private CompletableFuture<JSONMap> pollJobCompletion(JSONMap uploadResult) {
+			fireStateChange(ArtifactUploadState.PROCESSING, null);
+			return conn.api(SSCPollerAPI.class).pollJobCompletion(uploadResult.get("id", String.class), getRemainingSeconds());
+		}
+		
+		private CompletableFuture<JSONMap> pollArtifactProcessingCompletion(JSONMap job) {
+			SSCArtifactAPI artifactAPI = conn.api(SSCArtifactAPI.class);
+			artifactId = artifactAPI.getArtifactIdForUploadJob(job);
+			if ( artifactId == null && !isJobFailed(job) ) {
+				// Job data may not have been included in the poller result; reload full job
+				job = conn.api(SSCJobAPI.class).getJobById(job.get("id", String.class), true);
+				artifactId = artifactAPI.getArtifactIdForUploadJob(job);
+			}
+			if ( isJobFailed(job) || artifactId == null ) {
+				String message = job.get("message", String.class);
+				throw new IllegalStateException("Artifact upload job "+job.get("id", String.class)+" for "+artifactFile
+						+" ended with state "+job.get("state", String.class)+(message==null ? "" : ": "+message));
+			}
+			return conn.api(SSCPollerAPI.class).pollArtifactProcessingCompletion(applicationVersionId, artifactId, getRemainingSeconds());
+		}
+		
+		private boolean isJobFailed(JSONMap job) {
+			return FAILED_JOB_STATES.contains(job.get("state", String.class));
+		}
+		
+		private CompletableFuture<JSONMap> approveIfRequired(JSONMap artifact) {
+			if ( !"REQUIRE_AUTH".equals(artifact.get("status", String.class)) ) {
+				return CompletableFuture.completedFuture(artifact);
+			}
+			fireStateChange(ArtifactUploadState.APPROVING, null);
+			conn.api(SSCArtifactAPI.class).approveArtifact(artifactId, approvalMessage);
+			fireStateChange(ArtifactUploadState.PROCESSING, null);
+			return conn.api(SSCPollerAPI.class).pollArtifactProcessingCompletion(applicationVersionId, artifactId, getRemainingSeconds());
+		}
+		
+		private String getArtifactId() {
+			return artifactId;
+		}
+		
+		private int getRemainingSeconds() {
+			return Math.max(0, timeOutSeconds-(int)((System.currentTimeMillis()-startTimeMillis)/1000));
+		}
+		
+		private void fireStateChange(ArtifactUploadState state, Throwable failure) {
+			if ( listener != null ) {
+				listener.onStateChange(applicationVersionId, artifactFile, state, failure);
+			}
+		}
+	}
+}
@@ -44,13 +44,16 @@ import org.glassfish.jersey.media.multipart.Boundary;
 import org.glassfish.jersey.media.multipart.FormDataBodyPart;
 import org.glassfish.jersey.media.multipart.FormDataMultiPart;
 import org.glassfish.jersey.media.multipart.MultiPart;
-import org.glassfish.jersey.media.multipart.file.FileDataBodyPart;
+import org.glassfish.jersey.media.multipart.file.StreamDataBodyPart;
 import org.xml.sax.SAXException;
 import org.xml.sax.helpers.DefaultHandler;
 
 import com.fortify.client.ssc.annotation.SSCRequiredActionsPermitted;
 import com.fortify.client.ssc.connection.SSCAuthenticatingRestConnection;
+import com.fortify.util.rest.connection.RangedDownloadConfig;
+import com.fortify.util.rest.connection.StreamingUploadConfig;
 import com.fortify.util.rest.json.JSONMap;
+import com.fortify.util.rest.webtarget.IWebTargetUpdater;
 import com.fortify.util.spring.SpringExpressionUtil;
 
 import lombok.extern.apachecommons.CommonsLog;
@@ -85,18 +88,41 @@ public class SSCFileUpDownloadAPI extends AbstractSSCAPI {
 	}
 	
 	public final JSONMap uploadFile(WebTarget baseTarget, FileTokenType type, File file) {
-		MultiPart multiPart = new FormDataMultiPart();
-		multiPart.type(new MediaType("multipart", "form-data",
-	    		Collections.singletonMap(Boundary.BOUNDARY_PARAMETER, Boundary.createBoundary())));
-		multiPart.bodyPart(new FormDataBodyPart("Filename", file.getName()));
-		multiPart.bodyPart(new FileDataBodyPart(file.getName(), file, MediaType.APPLICATION_OCTET_STREAM_TYPE));
-		
-		String xml = conn().executeRequest(HttpMethod.POST, 
-				baseTarget
-					.queryParam("mat", getFileToken(type))
-					.request("application/xml"),
-				Entity.entity(multiPart, multiPart.getMediaType()), String.class);
-		return xml2json(new ByteArrayInputStream(xml.getBytes()));
+		return uploadFile(baseTarget, type, file, new StreamingUploadConfig());
+	}
+	
+	/**
+	 * Upload the given file, streaming the file contents to SSC rather than buffering
+	 * the full request in memory. Progress reporting and throughput limits are applied
+	 * according to the given {@link StreamingUploadConfig}.
+	 * @param baseTarget
+	 * @param type
+	 * @param file
+	 * @param uploadConfig
+	 * @return {@link JSONMap} describing the upload result
+	 */
+	public final JSONMap uploadFile(WebTarget baseTarget, FileTokenType type, File file, StreamingUploadConfig uploadConfig) {
+		InputStream is = uploadConfig.openInputStream(file);
+		try {
+			MultiPart multiPart = new FormDataMultiPart();
+			multiPart.type(new MediaType("multipart", "form-data",
+		    		Collections.singletonMap(Boundary.BOUNDARY_PARAMETER, Boundary.createBoundary())));
+			multiPart.bodyPart(new FormDataBodyPart("Filename", file.getName()));
+			multiPart.bodyPart(new StreamDataBodyPart(file.getName(), is, file.getName(), MediaType.APPLICATION_OCTET_STREAM_TYPE));
+			
+			String xml = conn().executeStreamingUpload(HttpMethod.POST, 
+					baseTarget
+						.queryParam("mat", getFileToken(type))
+						.request("application/xml"),
+					Entity.entity(multiPart, multiPart.getMediaType()), String.class);
+			return xml2json(new ByteArrayInputStream(xml.getBytes()));
+		} finally {
+			try {
+				is.close();
+			} catch ( IOException ioe ) {
+				log.warn("Error closing upload stream", ioe);
+			}
+		}
 	}
 	
 	public final long downloadFile(WebTarget baseTarget, FileTokenType type, Path target) {
@@ -117,6 +143,31 @@ public class SSCFileUpDownloadAPI extends AbstractSSCAPI {
 		}
 	}
 	
+	/**
+	 * Download a file from SSC, using concurrent range requests and resuming
+	 * previous download attempts as configured through the given
+	 * {@link RangedDownloadConfig}, if supported by SSC. As file tokens may
+	 * be invalidated after use, a new file token is requested for every 
+	 * individual request. If the given {@link RangedDownloadConfig} is null,
+	 * this method behaves the same as {@link #downloadFile(WebTarget, FileTokenType, Path)}.
+	 * @param baseTarget
+	 * @param type
+	 * @param target
+	 * @param downloadConfig
+	 * @return Length of the downloaded file
+	 */
+	public final long downloadFile(WebTarget baseTarget, FileTokenType type, Path target, RangedDownloadConfig downloadConfig) {
+		if ( downloadConfig == null ) {
+			return downloadFile(baseTarget, type, target);
+		}
+		return conn().executeRangedDownload(HttpMethod.POST, baseTarget, new IWebTargetUpdater() {
+			@Override
+			public WebTarget update(WebTarget target) {
+				return target.queryParam("mat", getFileToken(FileTokenType.DOWNLOAD));
+			}
+		}, target, downloadConfig, StandardCopyOption.REPLACE_EXISTING);
+	}
+	
 	private JSONMap xml2json(InputStream is) {
 	    try {
 	    	final DataCollector handler = new DataCollector();
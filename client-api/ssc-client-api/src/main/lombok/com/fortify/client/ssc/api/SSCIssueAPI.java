@@ -31,6 +31,7 @@ import javax.ws.rs.HttpMethod;
 import javax.ws.rs.client.Entity;
 
 import com.fortify.client.ssc.annotation.SSCRequiredActionsPermitted;
+import com.fortify.client.ssc.api.query.builder.SSCApplicationVersionIssueGroupsQueryBuilder;
 import com.fortify.client.ssc.api.query.builder.SSCApplicationVersionIssuesQueryBuilder;
 import com.fortify.client.ssc.api.query.builder.SSCIssueDetailsByIdQueryBuilder;
 import com.fortify.client.ssc.connection.SSCAuthenticatingRestConnection;
@@ -52,6 +53,10 @@ public class SSCIssueAPI extends AbstractSSCAPI {
 		return new SSCApplicationVersionIssuesQueryBuilder(conn(), applicationVersionId);
 	}
 	
+	public SSCApplicationVersionIssueGroupsQueryBuilder queryIssueGroups(String applicationVersionId) {
+		return new SSCApplicationVersionIssueGroupsQueryBuilder(conn(), applicationVersionId);
+	}
+	
 	public SSCIssueDetailsByIdQueryBuilder queryIssueDetailsById(String issueId) {
 		return new SSCIssueDetailsByIdQueryBuilder(conn(), issueId);
 	}
@@ -24,13 +24,6 @@
  ******************************************************************************/
 package com.fortify.client.ssc.api;
 
-import java.util.Arrays;
-import java.util.Date;
-import java.util.HashSet;
-import java.util.Set;
-
-import org.apache.commons.collections.CollectionUtils;
-
 import com.fortify.client.ssc.api.query.builder.SSCJobsQueryBuilder;
 import com.fortify.client.ssc.connection.SSCAuthenticatingRestConnection;
 import com.fortify.util.rest.json.JSONList;
@@ -57,26 +50,11 @@ public class SSCJobAPI extends AbstractSSCAPI {
 	}
 	
 	public void waitForJobCompletion(String jobId, int timeOutSeconds) {
-		Set<String> incompleteStates = new HashSet<>(Arrays.asList("RUNNING", "PREPARED", "WAITING_FOR_WORKER")); 
-		long startTime = new Date().getTime();
-		JSONMap job = getJobById(jobId, false, "state");
-		while ( new Date().getTime() < startTime+timeOutSeconds*1000 && incompleteStates.contains(job.get("state", String.class)) ) {
-			try {
-				Thread.sleep(1000L);
-			} catch ( InterruptedException ignore ) {}
-			job = getJobById(jobId, false, "state");
-		}
+		SSCPollerAPI.await(conn().api(SSCPollerAPI.class).pollJobCompletion(jobId, timeOutSeconds));
 	}
 	
 	public JSONList waitForJobCreation(IRestConnectionQuery query, long timeOutSeconds) {
-		long startTime = new Date().getTime();
-		JSONList jobs = query.getAll();
-		while ( new Date().getTime() < startTime+timeOutSeconds*1000 && CollectionUtils.isEmpty(jobs) ) {
-			try {
-				Thread.sleep(1000L);
-			} catch ( InterruptedException ignore ) {}
-			jobs = query.getAll();
-		}
-		return jobs;
+		JSONList jobs = SSCPollerAPI.await(conn().api(SSCPollerAPI.class).pollJobCreation(query, (int)Math.min(Integer.MAX_VALUE, timeOutSeconds)));
+		return jobs == null ? new JSONList() : jobs;
 	}
 }
@@ -0,0 +1,438 @@
+/*******************************************************************************
+ * (c) Copyright 2017 EntIT Software LLC, a Micro Focus company
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a 
+ * copy of this software and associated documentation files (the 
+ * "Software"), to deal in the Software without restriction, including without 
+ * limitation the rights to use, copy, modify, merge, publish, distribute, 
+ * sublicense, and/or sell copies of the Software, and to permit persons to 
+ * whom the Software is furnished to do so, subject to the following 
+ * conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included 
+ * in all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY 
+ * KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE 
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR 
+ * PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE 
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, 
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF 
+ * CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN 
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS 
+ * IN THE SOFTWARE.
+ ******************************************************************************/
+package com.fortify.client.ssc.api;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.commons.collections.CollectionUtils;
+
+import com.fortify.client.ssc.connection.SSCAuthenticatingRestConnection;
+import com.fortify.util.rest.json.JSONList;
+import com.fortify.util.rest.json.JSONMap;
+import com.fortify.util.rest.query.IRestConnectionQuery;
+
+/**
+ * <p>This class provides a shared poller for waiting on SSC jobs and artifacts to reach a
+ * terminal state, and for waiting on jobs to be created. Instead of having each caller poll 
+ * a single item from its own thread, all outstanding items are polled from a single background
+ * thread per connection, and each caller is given a {@link CompletableFuture} that is completed
+ * once the corresponding item reaches a terminal state, or completed exceptionally with a 
+ * {@link TimeoutException} if the given time-out expires.</p>
+ * 
+ * <p>On every tick, all outstanding jobs are loaded using a single query for up to
+ * {@value #MAX_IDS_PER_QUERY} job id's, and all outstanding artifacts for which the
+ * application version is known are loaded using a single query per application version.
+ * The delay between ticks starts at {@value #INITIAL_DELAY_MILLIS} ms and is doubled up
+ * to {@value #MAX_DELAY_MILLIS} ms while no items complete, with random jitter applied
+ * to each delay. The delay is reset whenever new items are registered or items complete.</p>
+ * 
+ * <p>The background thread is stopped as soon as there are no outstanding items left, 
+ * and restarted when new items are registered. It is also stopped when the connection
+ * is closed, in which case any outstanding items are cancelled.</p>
+ * 
+ * @author Ruud Senden
+ *
+ */
+public class SSCPollerAPI extends AbstractSSCAPI implements Closeable {
+	private static final Set<String> INCOMPLETE_JOB_STATES = new HashSet<>(Arrays.asList("RUNNING", "PREPARED", "WAITING_FOR_WORKER"));
+	private static final Set<String> INCOMPLETE_ARTIFACT_STATES = new HashSet<>(Arrays.asList("PROCESSING", "SCHED_PROCESSING"));
+	private static final long INITIAL_DELAY_MILLIS = 500L;
+	private static final long MAX_DELAY_MILLIS = 16000L;
+	private static final int MAX_IDS_PER_QUERY = 50;
+	private static final AtomicInteger POLLER_COUNT = new AtomicInteger();
+	private final Map<String, PendingItem<JSONMap>> pendingJobs = new LinkedHashMap<>();
+	private final Map<String, PendingItem<JSONMap>> pendingArtifacts = new LinkedHashMap<>();
+	private final List<PendingItem<JSONList>> pendingJobCreations = new ArrayList<>();
+	private ScheduledExecutorService scheduler = null;
+	private ScheduledFuture<?> nextTick = null;
+	private int attempt = 0;
+	
+	public SSCPollerAPI(SSCAuthenticatingRestConnection conn) {
+		super(conn);
+	}
+	
+	/**
+	 * Poll the given job until it is no longer running, prepared or waiting for a worker.
+	 * The returned {@link CompletableFuture} is completed with the job data once the job
+	 * has reached a terminal state.
+	 * @param jobId
+	 * @param timeOutSeconds
+	 * @return
+	 */
+	public synchronized CompletableFuture<JSONMap> pollJobCompletion(String jobId, int timeOutSeconds) {
+		PendingItem<JSONMap> item = pendingJobs.get(jobId);
+		if ( item == null || item.future.isDone() ) {
+			item = new PendingItem<JSONMap>("job "+jobId, null, null, timeOutSeconds);
+			pendingJobs.put(jobId, item);
+			schedule(true);
+		}
+		return item.future;
+	}
+	
+	/**
+	 * Poll the given artifact until it is no longer (scheduled for) processing. The 
+	 * returned {@link CompletableFuture} is completed with the artifact data once the 
+	 * artifact has reached a terminal state. As the application version is unknown, 
+	 * this artifact is loaded individually on every tick; if possible, use 
+	 * {@link #pollArtifactProcessingCompletion(String, String, int)} instead.
+	 * @param artifactId
+	 * @param timeOutSeconds
+	 * @return
+	 */
+	public CompletableFuture<JSONMap> pollArtifactProcessingCompletion(String artifactId, int timeOutSeconds) {
+		return pollArtifactProcessingCompletion(null, artifactId, timeOutSeconds);
+	}
+	
+	/**
+	 * Poll the given artifact, belonging to the given application version, until it is
+	 * no longer (scheduled for) processing. The returned {@link CompletableFuture} is 
+	 * completed with the artifact data once the artifact has reached a terminal state.
+	 * @param applicationVersionId
+	 * @param artifactId
+	 * @param timeOutSeconds
+	 * @return
+	 */
+	public synchronized CompletableFuture<JSONMap> pollArtifactProcessingCompletion(String applicationVersionId, String artifactId, int timeOutSeconds) {
+		PendingItem<JSONMap> item = pendingArtifacts.get(artifactId);
+		if ( item == null || item.future.isDone() ) {
+			item = new PendingItem<JSONMap>("artifact "+artifactId, applicationVersionId, null, timeOutSeconds);
+			pendingArtifacts.put(artifactId, item);
+			schedule(true);
+		}
+		return item.future;
+	}
+	
+	/**
+	 * Poll the given query until it returns at least one job. The returned {@link CompletableFuture}
+	 * is completed with the jobs returned by the given query. As arbitrary queries cannot be combined, 
+	 * the given query is executed individually on every tick.
+	 * @param query
+	 * @param timeOutSeconds
+	 * @return
+	 */
+	public synchronized CompletableFuture<JSONList> pollJobCreation(IRestConnectionQuery query, int timeOutSeconds) {
+		PendingItem<JSONList> item = new PendingItem<JSONList>("job creation", null, query, timeOutSeconds);
+		pendingJobCreations.add(item);
+		schedule(true);
+		return item.future;
+	}
+	
+	/**
+	 * Wait for the given {@link CompletableFuture} as returned by one of the poll-methods 
+	 * to complete, returning its value. If the time-out expires, or the current thread is 
+	 * interrupted while waiting, this method returns null. Any other exception thrown while
+	 * polling is re-thrown.
+	 * @param future
+	 * @return
+	 */
+	public static final <T> T await(CompletableFuture<T> future) {
+		try {
+			return future.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return null;
+		} catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+			if ( cause instanceof TimeoutException ) { return null; }
+			if ( cause instanceof RuntimeException ) { throw (RuntimeException)cause; }
+			throw new RuntimeException("Error while polling", cause);
+		}
+	}
+	
+	/**
+	 * Stop the background thread, and cancel any outstanding items. This method
+	 * is invoked when the connection is closed.
+	 */
+	@Override
+	public synchronized void close() {
+		for ( PendingItem<?> item : getPendingItems() ) {
+			item.future.cancel(false);
+		}
+		pendingJobs.clear();
+		pendingArtifacts.clear();
+		pendingJobCreations.clear();
+		if ( nextTick != null ) {
+			nextTick.cancel(false);
+			nextTick = null;
+		}
+		if ( scheduler != null ) {
+			scheduler.shutdownNow();
+			scheduler = null;
+		}
+	}
+	
+	/**
+	 * Execute a single tick, polling all outstanding items, and then schedule the next tick
+	 * if there are any outstanding items left.
+	 */
+	private void tick() {
+		Map<String, PendingItem<JSONMap>> jobs;
+		Map<String, PendingItem<JSONMap>> artifacts;
+		List<PendingItem<JSONList>> jobCreations;
+		synchronized (this) {
+			nextTick = null;
+			jobs = new LinkedHashMap<>(pendingJobs);
+			artifacts = new LinkedHashMap<>(pendingArtifacts);
+			jobCreations = new ArrayList<>(pendingJobCreations);
+		}
+		boolean completed = false;
+		try {
+			completed = pollJobs(jobs) | pollArtifacts(artifacts) | pollJobCreations(jobCreations);
+		} finally {
+			// Always schedule the next tick, to avoid outstanding items never being completed
+			synchronized (this) {
+				removeDone(pendingJobs.values());
+				removeDone(pendingArtifacts.values());
+				removeDone(pendingJobCreations);
+				attempt = completed ? 0 : attempt+1;
+				schedule(false);
+			}
+		}
+	}
+	
+	private boolean pollJobs(Map<String, PendingItem<JSONMap>> jobs) {
+		boolean completed = false;
+		for ( List<String> ids : partition(jobs.keySet()) ) {
+			try {
+				JSONList result = conn().api(SSCJobAPI.class).queryJobs().ids(ids).build().getAll();
+				completed |= completeItems(jobs, result, "state", INCOMPLETE_JOB_STATES);
+			} catch ( RuntimeException e ) {
+				completed |= completeExceptionally(jobs, ids, e);
+			}
+		}
+		return completed;
+	}
+	
+	private boolean pollArtifacts(Map<String, PendingItem<JSONMap>> artifacts) {
+		boolean completed = false;
+		Map<String, Set<String>> artifactIdsByApplicationVersionId = new LinkedHashMap<>();
+		for ( Map.Entry<String, PendingItem<JSONMap>> entry : artifacts.entrySet() ) {
+			String applicationVersionId = entry.getValue().applicationVersionId;
+			Set<String> ids = artifactIdsByApplicationVersionId.get(applicationVersionId);
+			if ( ids == null ) {
+				ids = new HashSet<>();
+				artifactIdsByApplicationVersionId.put(applicationVersionId, ids);
+			}
+			ids.add(entry.getKey());
+		}
+		for ( Map.Entry<String, Set<String>> entry : artifactIdsByApplicationVersionId.entrySet() ) {
+			String applicationVersionId = entry.getKey();
+			List<List<String>> partitions = applicationVersionId == null ? partition(entry.getValue(), 1) : partition(entry.getValue());
+			for ( List<String> ids : partitions ) {
+				try {
+					JSONList result = applicationVersionId == null 
+						? new JSONList(Arrays.asList(conn().api(SSCArtifactAPI.class).getArtifactById(ids.get(0), false)))
+						: conn().api(SSCArtifactAPI.class).queryArtifacts(applicationVersionId).ids(ids).build().getAll();
+					completed |= completeItems(artifacts, result, "status", INCOMPLETE_ARTIFACT_STATES);
+				} catch ( RuntimeException e ) {
+					completed |= completeExceptionally(artifacts, ids, e);
+				}
+			}
+		}
+		return completed;
+	}
+	
+	private boolean pollJobCreations(List<PendingItem<JSONList>> jobCreations) {
+		boolean completed = false;
+		for ( PendingItem<JSONList> item : jobCreations ) {
+			try {
+				JSONList jobs = item.query.getAll();
+				if ( CollectionUtils.isNotEmpty(jobs) ) {
+					completed |= item.future.complete(jobs);
+				} else {
+					item.checkTimeOut();
+				}
+			} catch ( RuntimeException e ) {
+				completed |= item.future.completeExceptionally(e);
+			}
+		}
+		return completed;
+	}
+	
+	/**
+	 * Complete the items corresponding to the given query results if they have reached
+	 * a terminal state, and check the time-out for any remaining items.
+	 */
+	private static final boolean completeItems(Map<String, PendingItem<JSONMap>> items, JSONList result, String stateProperty, Set<String> incompleteStates) {
+		boolean completed = false;
+		for ( JSONMap json : result.asValueType(JSONMap.class) ) {
+			PendingItem<JSONMap> item = json==null ? null : items.get(String.valueOf(json.get("id")));
+			if ( item != null && !incompleteStates.contains(json.get(stateProperty, String.class)) ) {
+				completed |= item.future.complete(json);
+			}
+		}
+		for ( PendingItem<JSONMap> item : items.values() ) {
+			item.checkTimeOut();
+		}
+		return completed;
+	}
+	
+	private static final boolean completeExceptionally(Map<String, PendingItem<JSONMap>> items, List<String> ids, RuntimeException e) {
+		boolean completed = false;
+		for ( String id : ids ) {
+			completed |= items.get(id).future.completeExceptionally(e);
+		}
+		return completed;
+	}
+	
+	private static final List<List<String>> partition(Collection<String> ids) {
+		return partition(ids, MAX_IDS_PER_QUERY);
+	}
+	
+	private static final List<List<String>> partition(Collection<String> ids, int size) {
+		List<List<String>> result = new ArrayList<>();
+		List<String> current = null;
+		for ( String id : ids ) {
+			if ( current == null || current.size() >= size ) {
+				current = new ArrayList<>(size);
+				result.add(current);
+			}
+			current.add(id);
+		}
+		return result;
+	}
+	
+	private static final void removeDone(Collection<? extends PendingItem<?>> items) {
+		for ( Iterator<? extends PendingItem<?>> it = items.iterator(); it.hasNext(); ) {
+			if ( it.next().isDone() ) { it.remove(); }
+		}
+	}
+	
+	/**
+	 * Schedule the next tick if there are any outstanding items, using exponential
+	 * backoff with jitter, never exceeding the earliest time-out of any outstanding
+	 * item. If reset is true, the backoff is reset to the initial delay. If there are
+	 * no outstanding items, the scheduler is shut down instead, allowing its thread 
+	 * to terminate. Must be called while holding the lock on this instance.
+	 */
+	private void schedule(boolean reset) {
+		if ( reset ) { attempt = 0; }
+		long earliestTimeOut = Long.MAX_VALUE;
+		for ( PendingItem<?> item : getPendingItems() ) {
+			earliestTimeOut = Math.min(earliestTimeOut, item.getTimeOutMillis());
+		}
+		if ( earliestTimeOut == Long.MAX_VALUE ) { 
+			shutdownSchedulerIfIdle();
+			return;
+		}
+		long delay = Math.min(MAX_DELAY_MILLIS, INITIAL_DELAY_MILLIS << Math.min(attempt, 16));
+		delay = delay/2 + ThreadLocalRandom.current().nextLong(delay/2+1);
+		delay = Math.max(0, Math.min(delay, earliestTimeOut-System.currentTimeMillis()));
+		if ( nextTick == null || nextTick.getDelay(TimeUnit.MILLISECONDS) > delay ) {
+			if ( nextTick != null ) { nextTick.cancel(false); }
+			nextTick = getScheduler().schedule(new Runnable() {
+				@Override
+				public void run() {
+					tick();
+				}
+			}, delay, TimeUnit.MILLISECONDS);
+		}
+	}
+	
+	private List<PendingItem<?>> getPendingItems() {
+		List<PendingItem<?>> result = new ArrayList<>();
+		result.addAll(pendingJobs.values());
+		result.addAll(pendingArtifacts.values());
+		result.addAll(pendingJobCreations);
+		return result;
+	}
+	
+	/**
+	 * Shut down the scheduler if no tick is scheduled; if called from a tick, 
+	 * the scheduler thread terminates once that tick has finished.
+	 */
+	private void shutdownSchedulerIfIdle() {
+		if ( scheduler != null && nextTick == null ) {
+			scheduler.shutdown();
+			scheduler = null;
+		}
+	}
+	
+	private ScheduledExecutorService getScheduler() {
+		if ( scheduler == null ) {
+			final String name = "ssc-poller-"+POLLER_COUNT.incrementAndGet();
+			scheduler = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+				@Override
+				public Thread newThread(Runnable r) {
+					Thread thread = new Thread(r, name);
+					thread.setDaemon(true);
+					return thread;
+				}
+			});
+		}
+		return scheduler;
+	}
+	
+	/**
+	 * Outstanding item, with the {@link CompletableFuture} to be completed
+	 */
+	private static final class PendingItem<T> {
+		private final CompletableFuture<T> future = new CompletableFuture<>();
+		private final String description;
+		private final String applicationVersionId;
+		private final IRestConnectionQuery query;
+		private final long timeOutMillis;
+		
+		private PendingItem(String description, String applicationVersionId, IRestConnectionQuery query, int timeOutSeconds) {
+			this.description = description;
+			this.applicationVersionId = applicationVersionId;
+			this.query = query;
+			this.timeOutMillis = System.currentTimeMillis()+timeOutSeconds*1000L;
+		}
+		
+		boolean isDone() {
+			return future.isDone();
+		}
+		
+		long getTimeOutMillis() {
+			return timeOutMillis;
+		}
+		
+		private void checkTimeOut() {
+			if ( System.currentTimeMillis() >= timeOutMillis ) {
+				future.completeExceptionally(new TimeoutException("Time-out while waiting for "+description));
+			}
+		}
+	}
+}
@@ -25,9 +25,13 @@
 package com.fortify.client.ssc.api.query;
 
 import java.util.Arrays;
+import java.util.Collection;
 
 import javax.ws.rs.client.WebTarget;
 
+import org.apache.commons.lang.StringUtils;
+import org.glassfish.jersey.uri.UriComponent;
+
 import com.fortify.client.ssc.connection.SSCAuthenticatingRestConnection;
 import com.fortify.util.rest.json.JSONList;
 import com.fortify.util.rest.json.JSONMap;
@@ -53,6 +57,59 @@ public class SSCEntityQuery extends AbstractRestConnectionQuery<JSONMap> {
 		return target.queryParam("start", ""+pagingData.getNextPageStart()).queryParam("limit", ""+pagingData.getNextPageSize());
 	}
 	
+	/**
+	 * Request the next page ordered by the given key property, and 'and-ed' to any
+	 * existing 'q' parameter, a condition as returned by {@link #getKeysetCondition(String, Object)}
+	 * to only return records with a key value higher than the last key value on the 
+	 * previous page. If no such condition can be generated for the last key value, 
+	 * the next page is requested using a regular page start offset instead, still
+	 * ordered by the given key property.
+	 */
+	@Override
+	protected WebTarget updateWebTargetWithKeysetPagingData(WebTarget target, String keyProperty, PagingData pagingData) {
+		// Passing a single null value removes any orderby parameter already configured on the query
+		target = target.queryParam("orderby", (Object[])null).queryParam("orderby", keyProperty);
+		Object lastKeyValue = pagingData.getLastKeyValue();
+		if ( lastKeyValue == null ) {
+			return target.queryParam("start", "0").queryParam("limit", ""+pagingData.getNextPageSize());
+		}
+		String keysetCondition = getKeysetCondition(keyProperty, lastKeyValue);
+		if ( keysetCondition == null ) {
+			return updateWebTargetWithPagingData(target, pagingData);
+		}
+		return andParamQ(target, keysetCondition).queryParam("start", "0").queryParam("limit", ""+pagingData.getNextPageSize());
+	}
+	
+	/**
+	 * Get the 'q' condition for only returning records with a key value higher than the 
+	 * given key value, or null if no such condition is supported for the given key value.
+	 * As SSC only supports range conditions on numeric properties, this default implementation
+	 * returns null for non-numeric key values, causing offset paging to be used instead.
+	 * Subclasses may override this method if the target endpoint requires a different syntax.
+	 * @param keyProperty
+	 * @param lastKeyValue
+	 * @return
+	 */
+	protected String getKeysetCondition(String keyProperty, Object lastKeyValue) {
+		return lastKeyValue instanceof Number ? keyProperty+":>"+lastKeyValue : null;
+	}
+	
+	/**
+	 * 'And' the given condition to the 'q' parameter of the given {@link WebTarget},
+	 * or add the 'q' parameter with the given condition if not yet present.
+	 * @param target
+	 * @param condition
+	 * @return Updated {@link WebTarget}
+	 */
+	public static final WebTarget andParamQ(WebTarget target, String condition) {
+		String q = UriComponent.decodeQuery(target.getUri(), true).getFirst("q");
+		String value = StringUtils.isBlank(q) ? condition : q+"+and+"+condition;
+		// Passing a single null value removes the q parameter already configured on the query;
+		// the decoded value is fully re-encoded, as WebTarget#queryParam would otherwise leave
+		// any percent-encoded sequences in the decoded value as-is, or interpret braces as templates
+		return target.queryParam("q", (Object[])null).queryParam("q", UriComponent.encode(value, UriComponent.Type.QUERY_PARAM_SPACE_ENCODED));
+	}
+	
 	@Override
 	protected void updatePagingDataFromResponse(PagingData pagingData, JSONMap data) {
 		pagingData.setTotalAvailable( data.get("count", Integer.class) );
@@ -64,6 +121,17 @@ public class SSCEntityQuery extends AbstractRestConnectionQuery<JSONMap> {
 		return (data instanceof JSONList) ? (JSONList)data : new JSONList(Arrays.asList(data));
 	}
 	
+	@Override
+	protected String getDataPropertyName() {
+		return "data";
+	}
+	
+	@Override
+	protected WebTarget updateWebTargetWithFields(WebTarget target, Collection<String> fields) {
+		// Passing a single null value removes any fields parameter already configured on the query
+		return target.queryParam("fields", (Object[])null).queryParam("fields", StringUtils.join(fields, ","));
+	}
+	
 	@Override
 	protected Class<JSONMap> getResponseTypeClass() {
 		return JSONMap.class;
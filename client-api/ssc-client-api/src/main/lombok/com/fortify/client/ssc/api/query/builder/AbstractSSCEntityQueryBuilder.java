@@ -24,9 +24,13 @@
  ******************************************************************************/
 package com.fortify.client.ssc.api.query.builder;
 
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
+import javax.ws.rs.client.WebTarget;
 import javax.ws.rs.core.UriBuilder;
 
 import org.apache.commons.collections.MapUtils;
@@ -35,6 +39,7 @@ import org.apache.commons.lang.StringUtils;
 import com.fortify.client.ssc.api.query.SSCEntityQuery;
 import com.fortify.client.ssc.connection.SSCAuthenticatingRestConnection;
 import com.fortify.client.ssc.json.ondemand.SSCJSONMapOnDemandLoaderRest;
+import com.fortify.util.rest.json.JSONMapPropertyComparator;
 import com.fortify.util.rest.json.ondemand.IJSONMapOnDemandLoader;
 import com.fortify.util.rest.query.AbstractRestConnectionQueryBuilder;
 import com.fortify.util.rest.query.IRestConnectionQuery;
@@ -53,6 +58,10 @@ import com.fortify.util.rest.webtarget.WebTargetQueryParamUpdater;
  * concrete implementations can override these methods as 'public' to make the generic method available, 
  * and/or provide more specialized builder methods that call these generic methods, for example to support
  * specific fields to be added to the 'q' parameter.</p>  
+ * 
+ * <p>Concrete implementations for endpoints that support the 'q' parameter for filtering on
+ * arbitrary entity properties can override {@link #isParamQPushDownSupported()} to have 
+ * eligible client-side filters pushed down to the 'q' parameter.</p>
  *  
  * @author Ruud Senden
  *
@@ -102,12 +111,20 @@ public abstract class AbstractSSCEntityQueryBuilder<T extends AbstractSSCEntityQ
 	}
 	
 	/**
-	 * Add the 'orderby' query parameter to the request configuration
+	 * Add the 'orderby' query parameter to the request configuration. The same ordering
+	 * is used to merge the results of any sub-queries configured through 
+	 * {@link #paramQShards(String...)}. Note that this merge compares property values
+	 * on the client, with numbers compared by numeric value and strings compared using
+	 * Java's natural (case-sensitive, Unicode code point) ordering. This may differ from 
+	 * the collation used by SSC for string properties, in which case the merged results
+	 * may not be in the exact order that a single SSC query would return. Sharded queries 
+	 * should preferably be ordered by numeric or date properties.
 	 * 
 	 * @param orderBy
 	 * @return
 	 */
 	protected T paramOrderBy(String orderBy, SSCOrderByDirection direction) {
+		shardMergeOrder(new JSONMapPropertyComparator(orderBy, SSCOrderByDirection.DESC.equals(direction)));
 		if ( SSCOrderByDirection.DESC.equals(direction) ) {
 			orderBy = "-"+orderBy;
 		}
@@ -150,6 +167,77 @@ public abstract class AbstractSSCEntityQueryBuilder<T extends AbstractSSCEntityQ
 		paramQ.paramQAnd(field, value); return _this();
 	}
 	
+	/**
+	 * Add the 'q' query parameter to the request configuration, matching
+	 * any of the given values for the given field. As this sets the 'q' 
+	 * parameter literally, this cannot be combined with {@link #paramQ(String)}
+	 * or {@link #paramQAnd(String, Object)}.
+	 * 
+	 * @param field
+	 * @param values
+	 * @return
+	 */
+	protected T paramQAnyOf(String field, Collection<String> values) {
+		StringBuffer sb = new StringBuffer();
+		for ( String value : values ) {
+			sb.append(sb.length()==0 ? "" : "+or+").append(field+":\""+value+"\"");
+		}
+		return paramQ(sb.toString());
+	}
+	
+	/**
+	 * Split this query into concurrent sub-queries, one for each of the given conditions.
+	 * Each condition is 'and-ed' to the 'q' parameter of the corresponding sub-query, for
+	 * example to select a range of id's or a single value of a partitioning attribute. 
+	 * The given conditions must be disjoint, and together cover all results of this 
+	 * query. If an ordering has been configured through {@link #paramOrderBy(String, SSCOrderByDirection)},
+	 * the results of all sub-queries are merged according to that ordering; see that method
+	 * for limitations on ordering by string properties.
+	 * 
+	 * @param conditions
+	 * @return
+	 */
+	protected T paramQShards(String... conditions) {
+		for ( String condition : conditions ) {
+			shard(new SSCParamQAnd(condition));
+		}
+		return _this();
+	}
+	
+	/**
+	 * Indicate whether client-side filters may be pushed down to the 'q' parameter
+	 * through {@link #pushDownFilter(Map)}. This default implementation returns false;
+	 * concrete implementations should override this method to return true if the
+	 * target endpoint supports filtering on arbitrary entity properties using
+	 * the 'q' parameter.
+	 * 
+	 * @return
+	 */
+	protected boolean isParamQPushDownSupported() {
+		return false;
+	}
+	
+	/**
+	 * Push down the given equality constraints to the 'q' parameter, if supported
+	 * by the current endpoint. Constraints are not pushed down if any of the 
+	 * values contains a double quote, or if the 'q' parameter already contains
+	 * a different value for any of the given fields. The constraints are 'and-ed'
+	 * to the 'q' parameter of the query target, without modifying the 'q' parameter
+	 * configured on this builder.
+	 */
+	@Override
+	protected IWebTargetUpdater pushDownFilter(Map<String, String> equalityConstraints) {
+		if ( !isParamQPushDownSupported() ) { return null; }
+		List<String> conditions = new ArrayList<>(equalityConstraints.size());
+		for ( Map.Entry<String, String> entry : equalityConstraints.entrySet() ) {
+			if ( entry.getValue().contains("\"") || !paramQ.isCompatible(entry.getKey(), entry.getValue()) ) {
+				return null;
+			}
+			conditions.add(entry.getKey()+":\""+entry.getValue()+"\"");
+		}
+		return new SSCParamQAnd(StringUtils.join(conditions, "+and+"));
+	}
+	
 	@Override
 	protected IJSONMapOnDemandLoader createOnDemandLoader(String uriString) {
 		return new SSCJSONMapOnDemandLoaderRest(getConn(), uriString);
@@ -163,6 +251,29 @@ public abstract class AbstractSSCEntityQueryBuilder<T extends AbstractSSCEntityQ
 		return result;
 	}
 	
+	/**
+	 * {@link IWebTargetUpdater} implementation for 'and-ing' a single
+	 * condition to the SSC 'q' request parameter, for example for a 
+	 * shard or a pushed down filter.
+	 */
+	private static final class SSCParamQAnd implements IWebTargetUpdater {
+		private final String condition;
+		
+		public SSCParamQAnd(String condition) {
+			this.condition = condition;
+		}
+		
+		@Override
+		public WebTarget update(WebTarget target) {
+			return SSCEntityQuery.andParamQ(target, condition);
+		}
+		
+		@Override
+		public String toString() {
+			return "q+="+condition;
+		}
+	}
+	
 	/**
 	 * {@link IWebTargetUpdaterBuilder} implementation for adding the
 	 * SSC 'q' request parameter.
@@ -177,6 +288,11 @@ public abstract class AbstractSSCEntityQueryBuilder<T extends AbstractSSCEntityQ
 			paramQAnds.put(field, value);
 			return this;
 		}
+		
+		public final boolean isCompatible(String field, String value) {
+			Object currentValue = paramQAnds.get(field);
+			return currentValue==null || value.equals(String.valueOf(currentValue));
+		}
 
 		@Override
 		public IWebTargetUpdater build() {
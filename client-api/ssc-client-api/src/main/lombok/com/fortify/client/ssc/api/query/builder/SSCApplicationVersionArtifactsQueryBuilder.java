@@ -24,6 +24,8 @@
  ******************************************************************************/
 package com.fortify.client.ssc.api.query.builder;
 
+import java.util.Collection;
+
 import com.fortify.client.ssc.annotation.SSCRequiredActionsPermitted;
 import com.fortify.client.ssc.api.query.SSCEntityQuery;
 import com.fortify.client.ssc.connection.SSCAuthenticatingRestConnection;
@@ -54,6 +56,15 @@ public class SSCApplicationVersionArtifactsQueryBuilder extends AbstractSSCAppli
 		return super.paramQAnd(field, value);
 	}
 	
+	public final SSCApplicationVersionArtifactsQueryBuilder ids(Collection<String> ids) {
+		return super.paramQAnyOf("id", ids);
+	}
+	
+	@Override
+	protected boolean isParamQPushDownSupported() {
+		return true;
+	}
+	
 	public final SSCApplicationVersionArtifactsQueryBuilder paramEmbedScans() {
 		return super.paramEmbed("scans");
 	}
@@ -0,0 +1,126 @@
+/*******************************************************************************
+ * (c) Copyright 2017 EntIT Software LLC, a Micro Focus company
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a 
+ * copy of this software and associated documentation files (the 
+ * "Software"), to deal in the Software without restriction, including without 
+ * limitation the rights to use, copy, modify, merge, publish, distribute, 
+ * sublicense, and/or sell copies of the Software, and to permit persons to 
+ * whom the Software is furnished to do so, subject to the following 
+ * conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included 
+ * in all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY 
+ * KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE 
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR 
+ * PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE 
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, 
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF 
+ * CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN 
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS 
+ * IN THE SOFTWARE.
+ ******************************************************************************/
+package com.fortify.client.ssc.api.query.builder;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import com.fortify.client.ssc.annotation.SSCRequiredActionsPermitted;
+import com.fortify.client.ssc.api.SSCIssueAPI;
+import com.fortify.client.ssc.api.SSCIssueAPI.IssueSearchOptions;
+import com.fortify.client.ssc.api.query.SSCEntityQuery;
+import com.fortify.client.ssc.api.query.builder.SSCApplicationVersionIssuesQueryBuilder.QueryMode;
+import com.fortify.client.ssc.connection.SSCAuthenticatingRestConnection;
+import com.fortify.util.rest.json.JSONMap;
+import com.fortify.util.rest.json.processor.AbstractJSONMapProcessor;
+import com.fortify.util.rest.query.IRequestInitializer;
+
+/**
+ * This class allows for building an {@link SSCEntityQuery} instance that allows for
+ * querying SSC application version issue groups. Each issue group contains the
+ * group name and the number of issues in that group, as calculated by SSC for the
+ * given grouping type and (optional) issue filters.
+ * 
+ * @author Ruud Senden
+ *
+ */
+public class SSCApplicationVersionIssueGroupsQueryBuilder extends AbstractSSCApplicationVersionChildEntityQueryBuilder<SSCApplicationVersionIssueGroupsQueryBuilder> {
+	private IssueSearchOptions issueSearchOptions = new IssueSearchOptions();
+	
+	@SSCRequiredActionsPermitted({"GET=/api/v\\d+/projectVersions/\\d+/issueGroups", "PUT=/api/v\\d+/projectVersions/\\d+/issueSearchOptions"})
+	public SSCApplicationVersionIssueGroupsQueryBuilder(final SSCAuthenticatingRestConnection conn, final String applicationVersionId) {
+		super(conn, applicationVersionId, true);
+		appendPath("issueGroups");
+		setRequestInitializer(new IRequestInitializer() {
+			@Override
+			public void initRequest() {
+				conn.api(SSCIssueAPI.class).updateApplicationVersionIssueSearchOptions(applicationVersionId, issueSearchOptions);
+			}
+		});
+	}
+	
+	public final SSCApplicationVersionIssueGroupsQueryBuilder paramQ(String q) {
+		return super.paramQ(q);
+	}
+
+	public final SSCApplicationVersionIssueGroupsQueryBuilder paramQAnd(String field, String value) {
+		return super.paramQAnd(field, value);
+	}
+	
+	public final SSCApplicationVersionIssueGroupsQueryBuilder paramGroupingType(String groupingType) {
+		return super.queryParam("groupingtype", groupingType);
+	}
+	
+	public final SSCApplicationVersionIssueGroupsQueryBuilder paramFilterSet(String filterSetId) {
+		return super.queryParam("filterset", filterSetId);
+	}
+	
+	public final SSCApplicationVersionIssueGroupsQueryBuilder paramFilter(String filter) {
+		return super.queryParam("filter", filter);
+	}
+	
+	public final SSCApplicationVersionIssueGroupsQueryBuilder paramQm(QueryMode queryMode) {
+		return super.queryParam("qm", queryMode.name());
+	}
+	
+	public SSCApplicationVersionIssueGroupsQueryBuilder includeHidden(boolean includeHidden) {
+		issueSearchOptions.setIncludeHidden(includeHidden); return _this();
+	}
+		
+	public SSCApplicationVersionIssueGroupsQueryBuilder includeRemoved(boolean includeRemoved) {
+		issueSearchOptions.setIncludeRemoved(includeRemoved); return _this();
+	}
+	
+	public SSCApplicationVersionIssueGroupsQueryBuilder includeSuppressed(boolean includeSuppressed) {
+		issueSearchOptions.setIncludeSuppressed(includeSuppressed); return _this();
+	}
+	
+	/**
+	 * Use the given {@link IssueSearchOptions} instance, for example to 
+	 * share the search options of an {@link SSCApplicationVersionIssuesQueryBuilder}.
+	 * @param issueSearchOptions
+	 * @return
+	 */
+	final SSCApplicationVersionIssueGroupsQueryBuilder issueSearchOptions(IssueSearchOptions issueSearchOptions) {
+		this.issueSearchOptions = issueSearchOptions; return _this();
+	}
+	
+	/**
+	 * Execute the issue groups query, and return a {@link Map} from issue group name
+	 * to the number of visible issues in that group.
+	 * @return
+	 */
+	public Map<String, Integer> getIssueCountsByGroup() {
+		final Map<String, Integer> result = new LinkedHashMap<>();
+		build().processAll(new AbstractJSONMapProcessor() {
+			@Override
+			public void process(JSONMap json) {
+				Object count = json.containsKey("visibleCount") ? json.get("visibleCount") : json.get("totalCount");
+				result.put((String)json.get("cleanName"), count instanceof Number ? ((Number)count).intValue() : 0);
+			}
+		});
+		return result;
+	}
+}
@@ -24,7 +24,9 @@
  ******************************************************************************/
 package com.fortify.client.ssc.api.query.builder;
 
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 
 import com.fortify.client.ssc.annotation.SSCRequiredActionsPermitted;
 import com.fortify.client.ssc.api.SSCCustomTagAPI;
@@ -35,6 +37,8 @@ import com.fortify.client.ssc.connection.SSCAuthenticatingRestConnection;
 import com.fortify.client.ssc.json.ondemand.SSCJSONMapOnDemandLoaderRest;
 import com.fortify.util.rest.json.JSONList;
 import com.fortify.util.rest.json.JSONMap;
+import com.fortify.util.rest.json.preprocessor.IJSONMapPreProcessor;
+import com.fortify.util.rest.json.preprocessor.enrich.AbstractJSONMapEnrich;
 import com.fortify.util.rest.json.preprocessor.enrich.JSONMapEnrichWithDeepLink;
 import com.fortify.util.rest.json.preprocessor.enrich.JSONMapEnrichWithOnDemandProperty;
 import com.fortify.util.rest.query.IRequestInitializer;
@@ -53,12 +57,15 @@ public class SSCApplicationVersionIssuesQueryBuilder extends AbstractSSCApplicat
 	}
 	
 	private final IssueSearchOptions issueSearchOptions = new IssueSearchOptions();
+	private final String applicationVersionId;
+	private final List<String[]> issueFilterParams = new ArrayList<>();
 	
 	// TODO Can we propagate issueSearchOptions permissions from updateApplicationVersionIssueSearchOptions to this constructor,
 	//      instead of specifying this explicitly?
 	@SSCRequiredActionsPermitted({"GET=/api/v\\d+/projectVersions/\\d+/issues", "PUT=/api/v\\d+/projectVersions/\\d+/issueSearchOptions"})
 	public SSCApplicationVersionIssuesQueryBuilder(final SSCAuthenticatingRestConnection conn, final String applicationVersionId) {
 		super(conn, applicationVersionId, true);
+		this.applicationVersionId = applicationVersionId;
 		appendPath("issues");
 		preProcessor(new JSONMapEnrichWithDeepLink(conn.getBaseUrl()+"/html/ssc/index.jsp#!/version/${projectVersionId}/fix/${id}/", "projectVersionId", "id"));
 		setRequestInitializer(new IRequestInitializer() {
@@ -78,13 +85,19 @@ public class SSCApplicationVersionIssuesQueryBuilder extends AbstractSSCApplicat
 	}
 	
 	public final SSCApplicationVersionIssuesQueryBuilder paramQ(String q) {
+		issueFilterParams.add(new String[] {"q", q});
 		return super.paramQ(q);
 	}
 
 	public final SSCApplicationVersionIssuesQueryBuilder paramQAnd(String field, String value) {
+		issueFilterParams.add(new String[] {"qAnd", field, value});
 		return super.paramQAnd(field, value);
 	}
 	
+	public final SSCApplicationVersionIssuesQueryBuilder paramQShards(String... conditions) {
+		return super.paramQShards(conditions);
+	}
+	
 	public final SSCApplicationVersionIssuesQueryBuilder paramGroupId(String groupId) {
 		return super.queryParam("groupid", groupId);
 	}
@@ -94,14 +107,17 @@ public class SSCApplicationVersionIssuesQueryBuilder extends AbstractSSCApplicat
 	}
 	
 	public final SSCApplicationVersionIssuesQueryBuilder paramFilterSet(String filterSetId) {
+		issueFilterParams.add(new String[] {"filterset", filterSetId});
 		return super.queryParam("filterset", filterSetId);
 	}
 	
 	public final SSCApplicationVersionIssuesQueryBuilder paramFilter(String filter) {
+		issueFilterParams.add(new String[] {"filter", filter});
 		return super.queryParam("filter", filter);
 	}
 	
 	public final SSCApplicationVersionIssuesQueryBuilder paramQm(QueryMode queryMode) {
+		issueFilterParams.add(new String[] {"qm", queryMode.name()});
 		return super.queryParam("qm", queryMode.name());
 	}
 	
@@ -117,6 +133,50 @@ public class SSCApplicationVersionIssuesQueryBuilder extends AbstractSSCApplicat
 		issueSearchOptions.setIncludeSuppressed(includeSuppressed); return _this();
 	}
 	
+	/**
+	 * Get an {@link SSCApplicationVersionIssueGroupsQueryBuilder} instance for the
+	 * given grouping type, configured with the same issue filters ('q', 'qm', 
+	 * 'filterset' and 'filter' parameters) and issue search options as this
+	 * issues query builder.
+	 * @param groupingType
+	 * @return
+	 */
+	@SSCRequiredActionsPermitted({"GET=/api/v\\d+/projectVersions/\\d+/issueGroups", "PUT=/api/v\\d+/projectVersions/\\d+/issueSearchOptions"})
+	public SSCApplicationVersionIssueGroupsQueryBuilder issueGroups(String groupingType) {
+		SSCApplicationVersionIssueGroupsQueryBuilder result = new SSCApplicationVersionIssueGroupsQueryBuilder(getConn(), applicationVersionId)
+				.issueSearchOptions(issueSearchOptions).paramGroupingType(groupingType);
+		for ( String[] param : issueFilterParams ) {
+			switch (param[0]) {
+			case "q": result.paramQ(param[1]); break;
+			case "qAnd": result.paramQAnd(param[1], param[2]); break;
+			case "qm": result.paramQm(QueryMode.valueOf(param[1])); break;
+			case "filterset": result.paramFilterSet(param[1]); break;
+			case "filter": result.paramFilter(param[1]); break;
+			}
+		}
+		return result;
+	}
+	
+	/**
+	 * Get the number of issues for each group of the given grouping type, using
+	 * the SSC issueGroups endpoint. This avoids loading individual issues, but
+	 * can only be used if no client-side filters have been configured on this 
+	 * builder. Unlike {@link com.fortify.util.rest.query.IRestConnectionQuery#groupBy(String)},
+	 * which groups by the value of a property path, this method groups by an SSC 
+	 * grouping type, like the id of an issue template attribute.
+	 * @param groupingType
+	 * @return {@link Map} from issue group name to number of visible issues
+	 * @throws UnsupportedOperationException if client-side filters have been configured
+	 */
+	public Map<String, Integer> groupCountsByGroupingType(String groupingType) {
+		for ( IJSONMapPreProcessor preProcessor : getPreProcessors() ) {
+			if ( !(preProcessor instanceof AbstractJSONMapEnrich) ) {
+				throw new UnsupportedOperationException("Issue counts by group cannot be calculated by SSC if client-side filters have been configured; use build().groupBy(propertyPath) instead");
+			}
+		}
+		return issueGroups(groupingType).getIssueCountsByGroup();
+	}
+	
 	public SSCApplicationVersionIssuesQueryBuilder onDemandDetails() {
 		return onDemandDetails("details");
 	}
@@ -46,4 +46,9 @@ public class SSCApplicationVersionMetricHistoriesQueryBuilder extends AbstractSS
 	public final SSCApplicationVersionMetricHistoriesQueryBuilder paramQAnd(String field, String value) {
 		return super.paramQAnd(field, value);
 	}
+	
+	@Override
+	protected boolean isParamQPushDownSupported() {
+		return true;
+	}
 }
@@ -60,6 +60,11 @@ public final class SSCApplicationVersionsQueryBuilder extends AbstractSSCEntityQ
 	public final SSCApplicationVersionsQueryBuilder paramQAnd(String field, String value) {
 		return super.paramQAnd(field, value);
 	}
+	
+	@Override
+	protected boolean isParamQPushDownSupported() {
+		return true;
+	}
 
 	public SSCApplicationVersionsQueryBuilder id(String id) {
 		return super.paramQAnd("id", id);
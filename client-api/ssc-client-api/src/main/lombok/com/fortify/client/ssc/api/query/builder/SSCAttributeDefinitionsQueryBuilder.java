@@ -68,4 +68,9 @@ public final class SSCAttributeDefinitionsQueryBuilder extends AbstractSSCEntity
 	public final SSCAttributeDefinitionsQueryBuilder paramQAnd(String field, Object value) {
 		return super.paramQAnd(field, value);
 	}
+	
+	@Override
+	protected boolean isParamQPushDownSupported() {
+		return true;
+	}
 }
\ No newline at end of file
@@ -24,6 +24,8 @@
  ******************************************************************************/
 package com.fortify.client.ssc.api.query.builder;
 
+import java.util.Collection;
+
 import com.fortify.client.ssc.annotation.SSCRequiredActionsPermitted;
 import com.fortify.client.ssc.api.query.SSCEntityQuery;
 import com.fortify.client.ssc.connection.SSCAuthenticatingRestConnection;
@@ -53,6 +55,15 @@ public final class SSCJobsQueryBuilder extends AbstractSSCEntityQueryBuilder<SSC
 	public final SSCJobsQueryBuilder paramQAnd(String field, String value) {
 		return super.paramQAnd(field, value);
 	}
+	
+	public final SSCJobsQueryBuilder ids(Collection<String> ids) {
+		return super.paramQAnyOf("id", ids);
+	}
+	
+	@Override
+	protected boolean isParamQPushDownSupported() {
+		return true;
+	}
 
 	public final SSCJobsQueryBuilder id(String id) {
 		return super.paramQAnd("id", id);
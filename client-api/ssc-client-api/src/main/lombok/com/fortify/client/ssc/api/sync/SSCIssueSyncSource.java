@@ -0,0 +1,97 @@
+/*******************************************************************************
+ * (c) Copyright 2017 EntIT Software LLC, a Micro Focus company
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a 
+ * copy of this software and associated documentation files (the 
+ * "Software"), to deal in the Software without restriction, including without 
+ * limitation the rights to use, copy, modify, merge, publish, distribute, 
+ * sublicense, and/or sell copies of the Software, and to permit persons to 
+ * whom the Software is furnished to do so, subject to the following 
+ * conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included 
+ * in all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY 
+ * KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE 
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR 
+ * PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE 
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, 
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF 
+ * CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN 
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS 
+ * IN THE SOFTWARE.
+ ******************************************************************************/
+package com.fortify.client.ssc.api.sync;
+
+import com.fortify.client.ssc.api.SSCApplicationVersionAPI;
+import com.fortify.client.ssc.api.SSCIssueAPI;
+import com.fortify.client.ssc.api.query.builder.SSCApplicationVersionIssuesQueryBuilder;
+import com.fortify.client.ssc.api.query.builder.SSCApplicationVersionsQueryBuilder;
+import com.fortify.client.ssc.connection.SSCAuthenticatingRestConnection;
+import com.fortify.util.rest.json.JSONMap;
+import com.fortify.util.rest.query.IRestConnectionQuery;
+import com.fortify.util.rest.sync.AbstractIncrementalSyncSource;
+import com.fortify.util.rest.sync.IncrementalSync;
+
+/**
+ * <p>This {@link com.fortify.util.rest.sync.IIncrementalSyncSource} implementation allows 
+ * for incrementally synchronizing the issues of all SSC application versions through 
+ * {@link IncrementalSync}. By default, application versions are considered unchanged if 
+ * both the last FPR upload date and the metric evaluation date are unchanged since the
+ * previous synchronization; note that audit changes are only picked up once SSC has 
+ * re-evaluated the application version metrics.</p>
+ * 
+ * <p>Subclasses can override {@link #createApplicationVersionsQueryBuilder()} and
+ * {@link #createIssuesQueryBuilder(String)} to for example restrict the set of
+ * application versions to be synchronized, or to include removed issues.</p>
+ * 
+ * @author Ruud Senden
+ *
+ */
+public class SSCIssueSyncSource extends AbstractIncrementalSyncSource {
+	public static final String[] DEFAULT_WATERMARK_PATHS = {"currentState.lastFprUploadDate", "currentState.metricEvaluationDate"};
+	private final SSCAuthenticatingRestConnection conn;
+	
+	public SSCIssueSyncSource(SSCAuthenticatingRestConnection conn) {
+		this(conn, DEFAULT_WATERMARK_PATHS);
+	}
+	
+	public SSCIssueSyncSource(SSCAuthenticatingRestConnection conn, String... watermarkPaths) {
+		super(watermarkPaths);
+		this.conn = conn;
+	}
+
+	@Override
+	public IRestConnectionQuery createParentQuery() {
+		return createApplicationVersionsQueryBuilder().build();
+	}
+
+	@Override
+	public String getCheckpointKey(JSONMap parent) {
+		return getCheckpointKeyPrefix()+parent.get("id");
+	}
+	
+	@Override
+	protected String getCheckpointKeyPrefix() {
+		return "ssc-version-";
+	}
+
+	@Override
+	public IRestConnectionQuery createChildQuery(JSONMap parent) {
+		return createIssuesQueryBuilder(String.valueOf(parent.get("id"))).build();
+	}
+
+	@Override
+	public String getRecordId(JSONMap record) {
+		return String.valueOf(record.get("id"));
+	}
+	
+	protected SSCApplicationVersionsQueryBuilder createApplicationVersionsQueryBuilder() {
+		return conn.api(SSCApplicationVersionAPI.class).queryApplicationVersions();
+	}
+	
+	protected SSCApplicationVersionIssuesQueryBuilder createIssuesQueryBuilder(String applicationVersionId) {
+		return conn.api(SSCIssueAPI.class).queryIssues(applicationVersionId);
+	}
+}
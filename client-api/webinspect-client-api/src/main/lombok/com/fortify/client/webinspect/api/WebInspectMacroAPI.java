@@ -24,7 +24,10 @@
  ******************************************************************************/
 package com.fortify.client.webinspect.api;
 
+import java.io.ByteArrayInputStream;
+import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
 import java.util.Collections;
 
 import javax.ws.rs.HttpMethod;
@@ -38,6 +41,7 @@ import org.glassfish.jersey.media.multipart.FormDataMultiPart;
 import org.glassfish.jersey.media.multipart.MultiPart;
 
 import com.fortify.client.webinspect.connection.WebInspectAuthenticatingRestConnection;
+import com.fortify.util.rest.connection.StreamingUploadConfig;
 import com.fortify.util.rest.json.JSONList;
 
 import lombok.extern.apachecommons.CommonsLog;
@@ -59,14 +63,38 @@ public class WebInspectMacroAPI extends AbstractWebInspectAPI {
 	}
 	
 	public void uploadMacro(String name, byte[] data) {
+		uploadMacro(name, new ByteArrayInputStream(data), data.length);
+	}
+	
+	/**
+	 * Upload the given macro file, streaming the file contents to WebInspect 
+	 * according to the given {@link StreamingUploadConfig}.
+	 * @param name
+	 * @param file
+	 * @param uploadConfig
+	 */
+	public void uploadMacro(String name, File file, StreamingUploadConfig uploadConfig) {
+		InputStream is = uploadConfig.openInputStream(file);
+		try {
+			uploadMacro(name, is, file.length());
+		} finally {
+			try {
+				is.close();
+			} catch (IOException e) {
+				log.warn("Error closing upload stream", e);
+			}
+		}
+	}
+	
+	private void uploadMacro(String name, InputStream data, long size) {
 		MultiPart multiPart = new FormDataMultiPart();
         try {
 			multiPart.type(new MediaType("multipart", "form-data",
 		    		Collections.singletonMap(Boundary.BOUNDARY_PARAMETER, Boundary.createBoundary())));
 			FormDataContentDisposition.FormDataContentDispositionBuilder builder =
-                    FormDataContentDisposition.name("macro").fileName(name).size(data.length);
+                    FormDataContentDisposition.name("macro").fileName(name).size(size);
 			multiPart.bodyPart(new FormDataBodyPart(builder.build(), data, MediaType.APPLICATION_OCTET_STREAM_TYPE));
-			conn().executeRequest(HttpMethod.POST, conn().getBaseResource().path("/scanner/macro"),
+			conn().executeStreamingUpload(HttpMethod.POST, conn().getBaseResource().path("/scanner/macro"),
 					Entity.entity(multiPart, multiPart.getMediaType()), null);
         } finally {
         	try {
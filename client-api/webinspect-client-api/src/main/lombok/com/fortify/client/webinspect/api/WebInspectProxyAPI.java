@@ -29,9 +29,11 @@ import java.nio.file.Path;
 
 import javax.ws.rs.HttpMethod;
 import javax.ws.rs.client.Entity;
+import javax.ws.rs.client.WebTarget;
 import javax.ws.rs.core.MediaType;
 
 import com.fortify.client.webinspect.connection.WebInspectAuthenticatingRestConnection;
+import com.fortify.util.rest.connection.RangedDownloadConfig;
 import com.fortify.util.rest.json.JSONMap;
 
 /**
@@ -71,10 +73,18 @@ public class WebInspectProxyAPI extends AbstractWebInspectAPI {
 	}
 	
 	public void saveProxyTraffic(String instanceId, String extension, Path outputPath, CopyOption... copyOptions) {
-		conn().executeRequestAndSaveResponse(HttpMethod.GET, 
-				conn().getBaseResource().path("/proxy/{instanceId}.{extension}")
+		saveProxyTraffic(instanceId, extension, outputPath, null, copyOptions);
+	}
+	
+	public void saveProxyTraffic(String instanceId, String extension, Path outputPath, RangedDownloadConfig downloadConfig, CopyOption... copyOptions) {
+		WebTarget target = conn().getBaseResource().path("/proxy/{instanceId}.{extension}")
 				.resolveTemplate("instanceId", instanceId)
-				.resolveTemplate("extension", extension), outputPath, copyOptions);
+				.resolveTemplate("extension", extension);
+		if ( downloadConfig == null ) {
+			conn().executeRequestAndSaveResponse(HttpMethod.GET, target, outputPath, copyOptions);
+		} else {
+			conn().executeRangedDownload(HttpMethod.GET, target, outputPath, downloadConfig, copyOptions);
+		}
 	}
 	
 }
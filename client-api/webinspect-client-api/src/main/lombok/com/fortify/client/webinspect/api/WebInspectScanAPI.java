@@ -29,9 +29,11 @@ import java.nio.file.Path;
 
 import javax.ws.rs.HttpMethod;
 import javax.ws.rs.client.Entity;
+import javax.ws.rs.client.WebTarget;
 import javax.ws.rs.core.MediaType;
 
 import com.fortify.client.webinspect.connection.WebInspectAuthenticatingRestConnection;
+import com.fortify.util.rest.connection.RangedDownloadConfig;
 import com.fortify.util.rest.json.JSONMap;
 
 /**
@@ -51,8 +53,17 @@ public class WebInspectScanAPI extends AbstractWebInspectAPI {
 	}
 	
 	public void saveScan(String scanId, String extension, String detailType, Path outputPath, CopyOption... copyOptions) {
-		conn().executeRequestAndSaveResponse(HttpMethod.GET, conn().getBaseResource().path("/scanner/scans/{scanId}.{extension}")
+		saveScan(scanId, extension, detailType, outputPath, null, copyOptions);
+	}
+	
+	public void saveScan(String scanId, String extension, String detailType, Path outputPath, RangedDownloadConfig downloadConfig, CopyOption... copyOptions) {
+		WebTarget target = conn().getBaseResource().path("/scanner/scans/{scanId}.{extension}")
 				.resolveTemplate("scanId", scanId)
-				.resolveTemplate("extension", extension), outputPath, copyOptions);
+				.resolveTemplate("extension", extension);
+		if ( downloadConfig == null ) {
+			conn().executeRequestAndSaveResponse(HttpMethod.GET, target, outputPath, copyOptions);
+		} else {
+			conn().executeRangedDownload(HttpMethod.GET, target, outputPath, downloadConfig, copyOptions);
+		}
 	}
 }
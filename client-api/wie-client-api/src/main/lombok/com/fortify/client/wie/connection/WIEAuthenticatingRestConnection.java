@@ -26,6 +26,7 @@ package com.fortify.client.wie.connection;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
 import java.util.Collections;
 
 import javax.ws.rs.HttpMethod;
@@ -36,11 +37,12 @@ import javax.ws.rs.core.MediaType;
 import org.glassfish.jersey.media.multipart.Boundary;
 import org.glassfish.jersey.media.multipart.FormDataMultiPart;
 import org.glassfish.jersey.media.multipart.MultiPart;
-import org.glassfish.jersey.media.multipart.file.FileDataBodyPart;
+import org.glassfish.jersey.media.multipart.file.StreamDataBodyPart;
 
 import com.fortify.util.rest.connection.AbstractRestConnection;
 import com.fortify.util.rest.connection.AbstractRestConnectionWithUsernamePasswordConfig;
 import com.fortify.util.rest.connection.IRestConnectionBuilder;
+import com.fortify.util.rest.connection.StreamingUploadConfig;
 import com.fortify.util.rest.json.JSONMap;
 
 import lombok.extern.apachecommons.CommonsLog;
@@ -85,6 +87,19 @@ public class WIEAuthenticatingRestConnection extends WIEBasicRestConnection {
 	}
 	
 	public void uploadTempFile(String sessionId, String fileId, int fileType, File file) {
+		uploadTempFile(sessionId, fileId, fileType, file, new StreamingUploadConfig());
+	}
+	
+	/**
+	 * Upload the given temporary file, streaming the file contents to WIE according 
+	 * to the given {@link StreamingUploadConfig}.
+	 * @param sessionId
+	 * @param fileId
+	 * @param fileType
+	 * @param file
+	 * @param uploadConfig
+	 */
+	public void uploadTempFile(String sessionId, String fileId, int fileType, File file, StreamingUploadConfig uploadConfig) {
 		JSONMap request = new JSONMap();
 		request.put("sessionID", sessionId);
 		request.put("fileId", fileId);
@@ -93,13 +108,14 @@ public class WIEAuthenticatingRestConnection extends WIEBasicRestConnection {
 		executeRequest(HttpMethod.POST, getBaseResource().path("/api/v1/tempFile"),
 				Entity.entity(request, MediaType.APPLICATION_JSON), null);
 		
+		InputStream is = uploadConfig.openInputStream(file);
         MultiPart multiPart = new FormDataMultiPart();
         try {
 			multiPart.type(new MediaType("multipart", "form-data",
 		    		Collections.singletonMap(Boundary.BOUNDARY_PARAMETER, Boundary.createBoundary())));
 			//multiPart.bodyPart(new FormDataBodyPart("Filename", file.getName()));
-			multiPart.bodyPart(new FileDataBodyPart("data", file, MediaType.APPLICATION_OCTET_STREAM_TYPE));
-			executeRequest(HttpMethod.POST, getBaseResource().path("/api/v1/tempFile/{id}/fileData")
+			multiPart.bodyPart(new StreamDataBodyPart("data", is, file.getName(), MediaType.APPLICATION_OCTET_STREAM_TYPE));
+			executeStreamingUpload(HttpMethod.POST, getBaseResource().path("/api/v1/tempFile/{id}/fileData")
 					.resolveTemplate("id", fileId), Entity.entity(multiPart, multiPart.getMediaType()), null);
         } finally {
         	try {
@@ -107,6 +123,11 @@ public class WIEAuthenticatingRestConnection extends WIEBasicRestConnection {
 			} catch (IOException e) {
 				log.warn("Error closing FormDataMultiPart", e);
 			}
+        	try {
+        		is.close();
+        	} catch (IOException e) {
+        		log.warn("Error closing upload stream", e);
+        	}
         }
 	}
 	
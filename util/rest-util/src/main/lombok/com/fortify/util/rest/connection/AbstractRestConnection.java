@@ -24,6 +24,7 @@
  ******************************************************************************/
 package com.fortify.util.rest.connection;
 
+import java.io.Closeable;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.NotSerializableException;
@@ -37,12 +38,13 @@ import java.nio.file.CopyOption;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.Arrays;
-import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Properties;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -78,12 +80,16 @@ import org.glassfish.jersey.media.multipart.MultiPartFeature;
 import org.springframework.core.io.support.PropertiesLoaderUtils;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.databind.module.SimpleModule;
 import com.fasterxml.jackson.jaxrs.json.JacksonJaxbJsonProvider;
 import com.fortify.util.rest.connection.connector.ApacheClientProperties;
 import com.fortify.util.rest.connection.connector.ApacheConnectorProvider;
+import com.fortify.util.rest.json.CompactJSONMap;
+import com.fortify.util.rest.json.JSONBinaryCodec;
 import com.fortify.util.rest.json.JSONList;
 import com.fortify.util.rest.json.JSONMap;
+import com.fortify.util.rest.json.JSONMapTemplate;
+import com.fortify.util.rest.json.JSONObjectMapperBuilder;
+import com.fortify.util.rest.webtarget.IWebTargetUpdater;
 import com.google.common.cache.Cache;
 import com.google.common.cache.CacheBuilder;
 import com.google.common.cache.CacheLoader;
@@ -142,14 +148,21 @@ public abstract class AbstractRestConnection implements IRestConnection, Seriali
 	
 	private Properties cacheProperties; 
 	private LoadingCache<String, Cache<CacheKey, Object>> cacheManager;
-	private final Map<Class<?>, Object> apis = new HashMap<>();
+	private final Map<Class<?>, Object> apis = new ConcurrentHashMap<>();
 	
 	@Getter private final URI baseUrl;
 	private final ProxyConfig proxy;
 	private final Map<String, Object> connectionProperties;
 	private final String connectionId;
 	private final CredentialsProvider credentialsProvider;
+	private final boolean useCompactJSONMaps;
+	private final Set<String> canonicalizedValueFields;
+	private final JSONBinaryCodec binaryCacheCodec;
+	@Getter private final int maxConcurrentRequests;
+	private final boolean maxConcurrentRequestsConfigured;
+	private ServiceUnavailableRetryStrategy serviceUnavailableRetryStrategy;
 	private Client client;
+	private ObjectMapper objectMapper;
 	
 	protected AbstractRestConnection(AbstractRestConnectionConfig<?> config) {
 		initCache();
@@ -158,23 +171,37 @@ public abstract class AbstractRestConnection implements IRestConnection, Seriali
 		this.connectionProperties = config.getConnectionProperties();
 		this.connectionId = StringUtils.isBlank(config.getConnectionId()) ? null : (this.getClass().getName()+config.getConnectionId());
 		this.credentialsProvider = createCredentialsProvider(config);
+		this.useCompactJSONMaps = config.isUseCompactJSONMaps();
+		this.canonicalizedValueFields = config.getCanonicalizedValueFields();
+		this.binaryCacheCodec = config.getBinaryCacheCodec();
+		Integer configuredMaxConcurrentRequests = config.getMaxConcurrentRequests();
+		this.maxConcurrentRequestsConfigured = configuredMaxConcurrentRequests != null;
+		this.maxConcurrentRequests = maxConcurrentRequestsConfigured 
+				? Math.max(1, configuredMaxConcurrentRequests) 
+				: AbstractRestConnectionConfig.DEFAULT_MAX_CONCURRENT_REQUESTS;
 		if ( this.connectionId != null ) {
 			INSTANCES.put(this.connectionId, this);
 		}
 	}
 	
+	/**
+	 * Get the API instance of the given type for this connection. API instances are 
+	 * created on first access, and shared between all threads using this connection.
+	 * @param type
+	 * @return
+	 */
 	@SuppressWarnings("unchecked")
 	public <T> T api(Class<T> type) {
-		Object result = apis.get(type);
-		if ( result == null ) {
-			try {
-				result = ConstructorUtils.invokeConstructor(type, new Object[]{this});
-			} catch (NoSuchMethodException | IllegalAccessException | InvocationTargetException | InstantiationException e) {
-				throw new IllegalArgumentException("Cannot load API class "+type.getName(), e);
+		return (T) apis.computeIfAbsent(type, new Function<Class<?>, Object>() {
+			@Override
+			public Object apply(Class<?> type) {
+				try {
+					return ConstructorUtils.invokeConstructor(type, new Object[]{AbstractRestConnection.this});
+				} catch (NoSuchMethodException | IllegalAccessException | InvocationTargetException | InstantiationException e) {
+					throw new IllegalArgumentException("Cannot load API class "+type.getName(), e);
+				}
 			}
-			apis.put(type, result);
-		}
-		return (T) result;
+		});
 	}
 
 	/**
@@ -230,6 +257,7 @@ public abstract class AbstractRestConnection implements IRestConnection, Seriali
 		Response response = null;
 		try {
 			initializeConnection(httpMethod);
+			awaitRateLimitReset();
 			builder = updateBuilder(builder);
 			response = builder.build(httpMethod, entity).invoke();
 			return checkResponseAndGetOutput(httpMethod, builder, response, returnType);
@@ -240,6 +268,58 @@ public abstract class AbstractRestConnection implements IRestConnection, Seriali
 		}
 	}
 	
+	/**
+	 * Execute a request for uploading a (possibly large) entity using the given web resource.
+	 * See {@link #executeStreamingUpload(String, Builder, Entity, Class)} for details.
+	 * @param httpMethod The HTTP method to be used, as specified by one of the constants
+	 *                   in {@link HttpMethod}
+	 * @param webResource The web resource used to execute the request.
+	 * @param entity     The entity to be uploaded
+	 * @param returnType The return type for the data returned by the request.
+	 * @return The result of executing the HTTP request.
+	 */
+	public <T> T executeStreamingUpload(String httpMethod, WebTarget webResource, Entity<?> entity, Class<T> returnType) {
+		return executeStreamingUpload(httpMethod, updateWebTarget(webResource).request(), entity, returnType);
+	}
+
+	/**
+	 * Execute a request for uploading a (possibly large) entity using the given builder.
+	 * If {@link #isStreamingUploadSupported()} returns true, the entity is streamed to the
+	 * server using chunked transfer encoding rather than being buffered in memory, and
+	 * the <code>Expect: 100-continue</code> handshake is used to allow the server to reject
+	 * the request before the entity is transferred. Otherwise, this method behaves the
+	 * same as {@link #executeRequest(String, Builder, Entity, Class)}.
+	 * @param httpMethod The HTTP method to be used, as specified by one of the constants
+	 *                   in {@link HttpMethod}
+	 * @param builder	 The builder used to execute the request.
+	 * @param entity     The entity to be uploaded
+	 * @param returnType The return type for the data returned by the request.
+	 * @return The result of executing the HTTP request.
+	 */
+	public <T> T executeStreamingUpload(String httpMethod, Builder builder, Entity<?> entity, Class<T> returnType) {
+		if ( isStreamingUploadSupported() ) {
+			builder = builder
+				.property(ClientProperties.REQUEST_ENTITY_PROCESSING, RequestEntityProcessing.CHUNKED)
+				.property(ApacheClientProperties.EXPECT_CONTINUE, true);
+		} else {
+			log.debug("Streaming uploads not supported by "+this.getClass().getSimpleName()+", buffering request entity");
+		}
+		return executeRequest(httpMethod, builder, entity, returnType);
+	}
+
+	/**
+	 * Indicate whether request entities can be streamed to the server by
+	 * {@link #executeStreamingUpload(String, Builder, Entity, Class)}. Connection-based
+	 * authentication schemes like NTLM may need to re-send the request entity during
+	 * the authentication handshake, so by default this method only returns true if
+	 * this connection either doesn't use HttpClient-based authentication, or uses
+	 * preemptive Basic Authentication. Subclasses can override this method if needed.
+	 * @return Flag indicating whether request entities can be streamed to the server
+	 */
+	protected boolean isStreamingUploadSupported() {
+		return credentialsProvider == null || doPreemptiveBasicAuthentication();
+	}
+
 	public void executeRequestAndSaveResponse(String httpMethod, WebTarget webTarget, Path outputPath, CopyOption... copyOptions) {
 		Response response = executeRequest(httpMethod, webTarget, Response.class);
 		try {
@@ -254,7 +334,43 @@ public abstract class AbstractRestConnection implements IRestConnection, Seriali
 		}
 	}
 	
-	@SuppressWarnings("unchecked")
+	/**
+	 * Download the response for the given method and web resource to the given output path.
+	 * If the server supports HTTP range requests, large files are downloaded as multiple
+	 * concurrent segments, and a partial file left behind by a previous attempt to download
+	 * the same (unchanged) remote file is resumed, as configured through the given
+	 * {@link RangedDownloadConfig}. If the server doesn't support range requests, the response
+	 * is downloaded as a single stream. The length and optionally the checksum of the downloaded
+	 * file are verified before the downloaded file is moved to the given output path.
+	 * @param httpMethod The HTTP method to be used, as specified by one of the constants
+	 *                   in {@link HttpMethod}
+	 * @param webTarget  The web resource to be downloaded
+	 * @param outputPath The path to which the downloaded file will be saved
+	 * @param config     {@link RangedDownloadConfig} for configuring the download
+	 * @param copyOptions {@link CopyOption}s used for moving the downloaded file to the given output path
+	 * @return Length of the downloaded file
+	 */
+	public long executeRangedDownload(String httpMethod, WebTarget webTarget, Path outputPath, RangedDownloadConfig config, CopyOption... copyOptions) {
+		return executeRangedDownload(httpMethod, webTarget, null, outputPath, config, copyOptions);
+	}
+	
+	/**
+	 * Same as {@link #executeRangedDownload(String, WebTarget, Path, RangedDownloadConfig, CopyOption...)},
+	 * but applying the given {@link IWebTargetUpdater} to the given web resource for every individual
+	 * request, for example to add a single-use token.
+	 * @param httpMethod The HTTP method to be used, as specified by one of the constants
+	 *                   in {@link HttpMethod}
+	 * @param webTarget  The web resource to be downloaded
+	 * @param requestTargetUpdater {@link IWebTargetUpdater} to be applied for every request, may be null
+	 * @param outputPath The path to which the downloaded file will be saved
+	 * @param config     {@link RangedDownloadConfig} for configuring the download
+	 * @param copyOptions {@link CopyOption}s used for moving the downloaded file to the given output path
+	 * @return Length of the downloaded file
+	 */
+	public long executeRangedDownload(String httpMethod, WebTarget webTarget, IWebTargetUpdater requestTargetUpdater, Path outputPath, RangedDownloadConfig config, CopyOption... copyOptions) {
+		return new RangedDownload(this, httpMethod, webTarget, requestTargetUpdater, outputPath, config).execute(copyOptions);
+	}
+
 	public <T> T executeRequest(String httpMethod, WebTarget webResource, Class<T> returnType, String cacheName) {
 		T result;
 		if ( cacheName == null ) {
@@ -263,18 +379,42 @@ public abstract class AbstractRestConnection implements IRestConnection, Seriali
 		} else {
 			Cache<CacheKey, Object> cache = cacheManager.getUnchecked(cacheName);
 			CacheKey cacheKey = getCacheKey(httpMethod, webResource, returnType);
-			result = (T)cache.getIfPresent(cacheKey);
-			if ( result == null ) {
+			Object cachedValue = cache.getIfPresent(cacheKey);
+			if ( cachedValue == null ) {
 				log.trace("Cache miss: "+webResource.getUri());
 				result = executeRequest(httpMethod, webResource, returnType);
-				cache.put(cacheKey, result);
+				cache.put(cacheKey, toCacheValue(result));
 			} else {
 				log.trace("Cache hit: "+webResource.getUri());
+				result = fromCacheValue(cachedValue, returnType);
 			}
 		}
 		return result;
 	}
 	
+	/**
+	 * Convert the given result to the value to be stored in the cache. If a binary
+	 * cache codec has been configured, {@link JSONMap} and {@link JSONList} results 
+	 * are stored in binary form, otherwise the result is stored as-is.
+	 */
+	private Object toCacheValue(Object result) {
+		if ( binaryCacheCodec != null && (result instanceof JSONMap || result instanceof JSONList) ) {
+			return new BinaryCacheValue(binaryCacheCodec.encode(result));
+		}
+		return result;
+	}
+	
+	/**
+	 * Convert the given cached value back to the requested return type.
+	 */
+	@SuppressWarnings("unchecked")
+	private <T> T fromCacheValue(Object cachedValue, Class<T> returnType) {
+		if ( cachedValue instanceof BinaryCacheValue ) {
+			return binaryCacheCodec.decode(((BinaryCacheValue)cachedValue).getBytes(), returnType);
+		}
+		return (T)cachedValue;
+	}
+	
 	protected void initCache() {
 		try {
 			cacheProperties = PropertiesLoaderUtils.loadAllProperties(getCachePropertiesResourceName());
@@ -462,7 +602,36 @@ public abstract class AbstractRestConnection implements IRestConnection, Seriali
 		// TODO clean this up
 		return getClient().target(URI.create(baseUrl.toString()+"/").resolve(StringUtils.removeStart(uriString,"/")));
 	}
+	
+	/**
+	 * Get a {@link WebTarget} object for the given {@link JSONMapTemplate}, rendered
+	 * for the given {@link JSONMap} instance. If the given template represents an absolute 
+	 * URI, it will be used as-is. Otherwise, the rendered template will be appended to the 
+	 * configured REST base URL. Contrary to {@link #getResource(String)}, the resulting
+	 * URI is built in a single step, without having to parse and resolve any intermediate
+	 * URI's.
+	 * 
+	 * @param uriTemplate {@link JSONMapTemplate} to be rendered
+	 * @param data {@link JSONMap} instance used to resolve the template placeholders
+	 * @return A {@link WebTarget} instance for the rendered URI.
+	 */
+	public final WebTarget getResource(JSONMapTemplate uriTemplate, JSONMap data) {
+		return getClient().target(uriTemplate.renderURI(data, getBaseUrlStringWithoutTrailingSlash()));
+	}
 
+	/**
+	 * Get the {@link ObjectMapper} instance used by this connection for
+	 * (de-)serializing JSON data. This instance is created on first access
+	 * by calling {@link #createObjectMapper()}.
+	 * @return {@link ObjectMapper} instance used by this connection
+	 */
+	public final synchronized ObjectMapper getObjectMapper() {
+		if ( objectMapper == null ) {
+			objectMapper = createObjectMapper();
+		}
+		return objectMapper;
+	}
+	
 	/**
 	 * Get the cached client for executing requests. If the client
 	 * has not been previously cached, this method will call 
@@ -470,13 +639,37 @@ public abstract class AbstractRestConnection implements IRestConnection, Seriali
 	 * cache it.
 	 * @return Cache {@link Client} instance if available, new {@link Client} instance otherwise
 	 */
-	public final Client getClient() {
+	public final synchronized Client getClient() {
 		if ( client == null ) {
 			client = createClient();
 		}
 		return client;
 	}
 	
+	/**
+	 * Close this connection, closing any API instances that implement {@link Closeable},
+	 * like API instances that run background threads, and the cached {@link Client} 
+	 * instance. If this connection is used again after closing, new API instances and
+	 * a new {@link Client} instance will be created.
+	 */
+	@Override
+	public synchronized void close() {
+		for ( Object api : apis.values() ) {
+			if ( api instanceof Closeable ) {
+				try {
+					((Closeable)api).close();
+				} catch (IOException | RuntimeException e) {
+					log.warn("Error closing API "+api.getClass().getName(), e);
+				}
+			}
+		}
+		apis.clear();
+		if ( client != null ) {
+			client.close();
+			client = null;
+		}
+	}
+	
 	public String getBaseUrlStringWithoutTrailingSlash() {
 		return StringUtils.removeEnd(getBaseUrl().toASCIIString(), "/");
 	}
@@ -520,7 +713,11 @@ public abstract class AbstractRestConnection implements IRestConnection, Seriali
 		}
 		clientConfig.property(ClientProperties.REQUEST_ENTITY_PROCESSING, RequestEntityProcessing.BUFFERED);
 		clientConfig.property(ApacheClientProperties.CREDENTIALS_PROVIDER, credentialsProvider);
-		clientConfig.property(ApacheClientProperties.SERVICE_UNAVAILABLE_RETRY_STRATEGY, getServiceUnavailableRetryStrategy());
+		serviceUnavailableRetryStrategy = getServiceUnavailableRetryStrategy();
+		clientConfig.property(ApacheClientProperties.SERVICE_UNAVAILABLE_RETRY_STRATEGY, serviceUnavailableRetryStrategy);
+		if ( maxConcurrentRequestsConfigured ) {
+			clientConfig.property(ApacheClientProperties.MAX_CONNECTIONS_PER_ROUTE, maxConcurrentRequests);
+		}
 		clientConfig.property(ApacheClientProperties.PREEMPTIVE_BASIC_AUTHENTICATION, doPreemptiveBasicAuthentication());
 		if ( connectionProperties != null ) {
 			for ( Map.Entry<String,Object> property : connectionProperties.entrySet() ) {
@@ -528,12 +725,29 @@ public abstract class AbstractRestConnection implements IRestConnection, Seriali
 			}
 		}
 		clientConfig.connectorProvider(new ApacheConnectorProvider());
-		clientConfig.register(JacksonFeature.class);
+		clientConfig.register(new JacksonFeature(getObjectMapper()));
 		clientConfig.register(MultiPartFeature.class);
 		clientConfig.register(new LoggingFeature(Logger.getLogger(LoggingFeature.DEFAULT_LOGGER_NAME), Level.FINE, LoggingFeature.Verbosity.PAYLOAD_ANY, 10000));
 		return clientConfig;
 	}
 	
+	/**
+	 * Create the {@link ObjectMapper} used for (de-)serializing JSON request and
+	 * response entities. By default, this maps JSON objects to {@link JSONMap}
+	 * (or {@link CompactJSONMap} if enabled through 
+	 * {@link AbstractRestConnectionConfig#useCompactJSONMaps(boolean)}) and JSON
+	 * arrays to {@link JSONList}. String values for the fields configured through
+	 * {@link AbstractRestConnectionConfig#canonicalizeValues(String...)} are 
+	 * canonicalized through a connection-specific bounded intern table.
+	 * @return
+	 */
+	protected ObjectMapper createObjectMapper() {
+		return new JSONObjectMapperBuilder()
+				.useCompactJSONMaps(useCompactJSONMaps)
+				.canonicalizeValues(canonicalizedValueFields)
+				.build();
+	}
+	
 	/**
 	 * Create a {@link CredentialsProvider} for the given configuration.
 	 * @param config
@@ -561,6 +775,17 @@ public abstract class AbstractRestConnection implements IRestConnection, Seriali
 	protected ServiceUnavailableRetryStrategy getServiceUnavailableRetryStrategy() {
 		return null;
 	}
+	
+	/**
+	 * If the configured {@link ServiceUnavailableRetryStrategy} is a {@link TooManyRequestsRetryStrategy},
+	 * wait until any rate limit encountered by other threads is expected to be reset, rather than
+	 * sending a request that will likely be rate-limited as well.
+	 */
+	private void awaitRateLimitReset() {
+		if ( serviceUnavailableRetryStrategy instanceof TooManyRequestsRetryStrategy ) {
+			((TooManyRequestsRetryStrategy)serviceUnavailableRetryStrategy).awaitRateLimitReset();
+		}
+	}
 
 	/**
 	 * Create the {@link CookieStore} to use between requests.
@@ -644,21 +869,22 @@ public abstract class AbstractRestConnection implements IRestConnection, Seriali
 		private final Class<?> returnType;
 	}
 
-	protected static class JacksonFeature implements Feature {
+	@Data
+	private static final class BinaryCacheValue {
+		private final byte[] bytes;
+	}
 
-	    @SuppressWarnings("serial")
-		private static final ObjectMapper mapper =
-	        new ObjectMapper(){{
-	        	final SimpleModule module = new SimpleModule("treemaps");
-	            module.addAbstractTypeMapping(Map.class, JSONMap.class);
-	            module.addAbstractTypeMapping(List.class, JSONList.class);
-	            registerModule(module);
-	        }};
-	 
-	    private static final JacksonJaxbJsonProvider provider =
-	        new JacksonJaxbJsonProvider(){{
-	            setMapper(mapper);
-	        }};
+	protected static class JacksonFeature implements Feature {
+		private final JacksonJaxbJsonProvider provider;
+		
+		public JacksonFeature() {
+			this(new JSONObjectMapperBuilder().build());
+		}
+		
+		public JacksonFeature(ObjectMapper mapper) {
+			this.provider = new JacksonJaxbJsonProvider();
+			this.provider.setMapper(mapper);
+		}
 	 
 	    public boolean configure(FeatureContext context) {
 	        context.register(provider);
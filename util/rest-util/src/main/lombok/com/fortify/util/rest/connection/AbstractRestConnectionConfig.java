@@ -26,14 +26,19 @@ package com.fortify.util.rest.connection;
 
 import java.net.URI;
 import java.net.URISyntaxException;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
 
 import org.apache.commons.lang.StringUtils;
 import org.glassfish.jersey.client.ClientProperties;
 
+import com.fortify.util.rest.json.JSONBinaryCodec;
+import com.fortify.util.rest.json.JSONObjectMapperBuilder;
 import com.google.common.base.Splitter;
 
 import lombok.Data;
@@ -49,10 +54,15 @@ import lombok.EqualsAndHashCode;
  */
 @Data @EqualsAndHashCode(callSuper=false)
 public abstract class AbstractRestConnectionConfig<T extends AbstractRestConnectionConfig<T>> {
+	public static final int DEFAULT_MAX_CONCURRENT_REQUESTS = 4;
 	private URI baseUrl;
 	private ProxyConfig proxy = new ProxyConfig();
 	private Map<String, Object> connectionProperties;
 	private String connectionId = null;
+	private boolean useCompactJSONMaps = false;
+	private Set<String> canonicalizedValueFields = null;
+	private JSONBinaryCodec binaryCacheCodec = null;
+	private Integer maxConcurrentRequests = null;
 	
 	public T baseUrl(String baseUrl) {
 		setBaseUrl(baseUrl);
@@ -74,6 +84,80 @@ public abstract class AbstractRestConnectionConfig<T extends AbstractRestConnect
 		return getThis();
 	}
 	
+	/**
+	 * Configure whether records returned by the connection should be
+	 * deserialized as {@link com.fortify.util.rest.json.CompactJSONMap} 
+	 * instances. This significantly reduces memory usage when keeping
+	 * large numbers of records in memory. 
+	 * @param useCompactJSONMaps
+	 * @return
+	 */
+	public T useCompactJSONMaps(boolean useCompactJSONMaps) {
+		setUseCompactJSONMaps(useCompactJSONMaps);
+		return getThis();
+	}
+	
+	/**
+	 * Configure the JSON fields for which string values should be canonicalized
+	 * during deserialization, such that all occurrences of the same value share 
+	 * a single {@link String} instance. This should only be used for low-cardinality 
+	 * fields like severity or status.
+	 * @param fieldNames
+	 * @return
+	 */
+	public T canonicalizeValues(String... fieldNames) {
+		setCanonicalizedValueFields(new HashSet<>(Arrays.asList(fieldNames)));
+		return getThis();
+	}
+	
+	/**
+	 * Canonicalize string values for the fields listed in 
+	 * {@link JSONObjectMapperBuilder#DEFAULT_CANONICALIZED_FIELDS}.
+	 * @return
+	 */
+	public T canonicalizeDefaultValues() {
+		setCanonicalizedValueFields(JSONObjectMapperBuilder.DEFAULT_CANONICALIZED_FIELDS);
+		return getThis();
+	}
+	
+	/**
+	 * Configure whether cached {@link com.fortify.util.rest.json.JSONMap} and 
+	 * {@link com.fortify.util.rest.json.JSONList} responses should be stored in binary 
+	 * form using {@link JSONBinaryCodec#DEFAULT}. This significantly reduces the memory 
+	 * used by caches, at the cost of decoding cached responses on every cache hit.
+	 * @param useBinaryCache
+	 * @return
+	 */
+	public T useBinaryCache(boolean useBinaryCache) {
+		setBinaryCacheCodec(useBinaryCache ? JSONBinaryCodec.DEFAULT : null);
+		return getThis();
+	}
+	
+	/**
+	 * Configure the {@link JSONBinaryCodec} used for storing cached responses
+	 * in binary form, or null to store cached responses as-is.
+	 * @param binaryCacheCodec
+	 * @return
+	 */
+	public T binaryCacheCodec(JSONBinaryCodec binaryCacheCodec) {
+		setBinaryCacheCodec(binaryCacheCodec);
+		return getThis();
+	}
+	
+	/**
+	 * Configure the maximum number of concurrent requests for the connection. This 
+	 * determines the number of pooled HTTP connections to the remote system, and the 
+	 * default parallelism used by {@link com.fortify.util.rest.query.FanOutQueryExecutor}.
+	 * If not configured, the connection pool size is determined by the 'http.maxConnections'
+	 * system property, and the default parallelism is {@value #DEFAULT_MAX_CONCURRENT_REQUESTS}.
+	 * @param maxConcurrentRequests
+	 * @return
+	 */
+	public T maxConcurrentRequests(int maxConcurrentRequests) {
+		setMaxConcurrentRequests(maxConcurrentRequests);
+		return getThis();
+	}
+	
 	/**
 	 * @see #setMultiJVMSerializationId(String)
 	 * @param connectionId
@@ -24,19 +24,24 @@
  ******************************************************************************/
 package com.fortify.util.rest.connection;
 
+import java.io.Closeable;
 import java.net.URI;
 
 import javax.ws.rs.client.Entity;
 import javax.ws.rs.client.Invocation.Builder;
 import javax.ws.rs.client.WebTarget;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fortify.util.rest.json.JSONMap;
+import com.fortify.util.rest.json.JSONMapTemplate;
+
 /**
  * Interface providing low-level methods for building and executing REST requests.
  * 
  * @author Ruud Senden
  *
  */
-public interface IRestConnection {
+public interface IRestConnection extends Closeable {
 	public abstract <T> T executeRequest(String httpMethod, Builder builder, Entity<?> entity, Class<T> returnType);
 	public abstract <T> T executeRequest(String httpMethod, WebTarget webResource, Class<T> returnType);
 	public abstract <T> T executeRequest(String httpMethod, WebTarget webResource, Class<T> returnType, String cacheName);
@@ -44,4 +49,8 @@ public interface IRestConnection {
 	public abstract URI getBaseUrl();
 	public abstract WebTarget getBaseResource();
 	public abstract WebTarget getResource(String url);
+	public abstract WebTarget getResource(JSONMapTemplate uriTemplate, JSONMap data);
+	public abstract ObjectMapper getObjectMapper();
+	public abstract int getMaxConcurrentRequests();
+	public abstract void close();
 }
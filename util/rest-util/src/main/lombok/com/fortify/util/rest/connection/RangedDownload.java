@@ -0,0 +1,534 @@
+/*******************************************************************************
+ * (c) Copyright 2017 EntIT Software LLC, a Micro Focus company
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a 
+ * copy of this software and associated documentation files (the 
+ * "Software"), to deal in the Software without restriction, including without 
+ * limitation the rights to use, copy, modify, merge, publish, distribute, 
+ * sublicense, and/or sell copies of the Software, and to permit persons to 
+ * whom the Software is furnished to do so, subject to the following 
+ * conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included 
+ * in all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY 
+ * KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE 
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR 
+ * PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE 
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, 
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF 
+ * CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN 
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS 
+ * IN THE SOFTWARE.
+ ******************************************************************************/
+package com.fortify.util.rest.connection;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.CopyOption;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import javax.ws.rs.client.Invocation.Builder;
+import javax.ws.rs.client.WebTarget;
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.Response.Status;
+
+import org.apache.commons.lang.StringUtils;
+
+import com.fortify.util.rest.webtarget.IWebTargetUpdater;
+
+import lombok.extern.apachecommons.CommonsLog;
+
+/**
+ * <p>This class downloads a remote file to a local file for 
+ * {@link AbstractRestConnection#executeRangedDownload(String, WebTarget, IWebTargetUpdater, Path, RangedDownloadConfig, CopyOption...)}.
+ * A probe request for the first byte of the file determines whether the server
+ * supports HTTP range requests and provides a validator (a strong ETag or a
+ * Last-Modified date) for the remote file. If so, the file is split into segments 
+ * that are downloaded concurrently and written to a partial file using positional 
+ * {@link FileChannel} writes. The progress of each segment is periodically saved
+ * to a state file next to the partial file, allowing a subsequent download of 
+ * the same (unchanged) remote file to resume where the previous attempt left off.
+ * Otherwise, the file is downloaded as a single stream, and any partial or state
+ * file left behind by a previous attempt is discarded.</p>
+ * 
+ * <p>Once all data has been downloaded, the length and optionally the checksum
+ * of the partial file are verified before the partial file is moved to the
+ * requested output path.</p>
+ * 
+ * @author Ruud Senden
+ *
+ */
+@CommonsLog
+final class RangedDownload {
+	private static final String PARTIAL_FILE_SUFFIX = ".part";
+	private static final String STATE_FILE_SUFFIX = ".part.state";
+	private static final int BUFFER_SIZE = 64*1024;
+	private static final long STATE_SAVE_INTERVAL_BYTES = 4*1024*1024;
+	private static final Pattern CONTENT_RANGE_PATTERN = Pattern.compile("bytes\\s+(\\d+)-(\\d+)/(\\d+|\\*)");
+	private static final long TERMINATION_TIMEOUT_SECONDS = 60;
+	private static final AtomicInteger DOWNLOAD_COUNT = new AtomicInteger();
+	private final AbstractRestConnection conn;
+	private final String httpMethod;
+	private final WebTarget webTarget;
+	private final IWebTargetUpdater requestTargetUpdater;
+	private final Path outputPath;
+	private final Path partialPath;
+	private final Path statePath;
+	private final RangedDownloadConfig config;
+	private final Set<Response> activeResponses = Collections.newSetFromMap(new ConcurrentHashMap<Response, Boolean>());
+	private volatile boolean aborted = false;
+	
+	RangedDownload(AbstractRestConnection conn, String httpMethod, WebTarget webTarget, IWebTargetUpdater requestTargetUpdater, Path outputPath, RangedDownloadConfig config) {
+		this.conn = conn;
+		this.httpMethod = httpMethod;
+		this.webTarget = webTarget;
+		this.requestTargetUpdater = requestTargetUpdater;
+		this.outputPath = outputPath;
+		this.partialPath = outputPath.resolveSibling(outputPath.getFileName()+PARTIAL_FILE_SUFFIX);
+		this.statePath = outputPath.resolveSibling(outputPath.getFileName()+STATE_FILE_SUFFIX);
+		this.config = config;
+	}
+	
+	/**
+	 * Download the remote file, and move the downloaded file to the configured
+	 * output path using the given {@link CopyOption}s.
+	 * @return Length of the downloaded file
+	 */
+	long execute(CopyOption... copyOptions) {
+		try {
+			long length;
+			Response response = executeProbeRequest();
+			try {
+				long totalLength = getTotalLength(response);
+				String validator = getValidator(response);
+				if ( totalLength >= 0 && validator != null ) {
+					response.readEntity(byte[].class);
+					length = downloadSegments(totalLength, validator);
+				} else {
+					if ( totalLength >= 0 ) {
+						// Without a validator, we cannot detect whether segments or a partial 
+						// file belong to the same version of the remote file
+						log.debug("No validator available for "+webTarget.getUri()+", downloading as single stream");
+						response.readEntity(byte[].class);
+						response = executeRequest(null, null);
+					} else {
+						log.debug("Range requests not supported for "+webTarget.getUri()+", downloading as single stream");
+					}
+					length = downloadSingleStream(response);
+				}
+			} finally {
+				response.close();
+			}
+			verifyChecksum();
+			Files.move(partialPath, outputPath, copyOptions);
+			return length;
+		} catch (IOException e) {
+			throw new RuntimeException("Error downloading "+webTarget.getUri()+" to "+outputPath, e);
+		}
+	}
+	
+	/**
+	 * Execute a request for the first byte of the remote file. If the server rejects
+	 * this request (for example because the remote file is empty), or returns partial
+	 * content without specifying the total length, we fall back to requesting the 
+	 * full file.
+	 */
+	private Response executeProbeRequest() {
+		Response response;
+		try {
+			response = executeRequest("bytes=0-0", null);
+		} catch ( RuntimeException e ) {
+			log.debug("Range request failed for "+webTarget.getUri()+", retrying without range", e);
+			return executeRequest(null, null);
+		}
+		if ( response.getStatus()==Status.PARTIAL_CONTENT.getStatusCode() && getTotalLength(response) < 0 ) {
+			response.close();
+			response = executeRequest(null, null);
+		}
+		return response;
+	}
+	
+	private Response executeRequest(String range, String ifRange) {
+		WebTarget target = requestTargetUpdater==null ? webTarget : requestTargetUpdater.update(webTarget);
+		Builder builder = conn.updateWebTarget(target).request(MediaType.WILDCARD);
+		if ( range != null ) {
+			builder = builder.header("Range", range);
+		}
+		if ( ifRange != null ) {
+			builder = builder.header("If-Range", ifRange);
+		}
+		return conn.executeRequest(httpMethod, builder, Response.class);
+	}
+	
+	/**
+	 * Get the total length of the remote file from the Content-Range header
+	 * of the given partial content response.
+	 * @return Total length, or -1 if the given response is not a partial content 
+	 *         response or doesn't specify the total length
+	 */
+	private static long getTotalLength(Response response) {
+		if ( response.getStatus()==Status.PARTIAL_CONTENT.getStatusCode() ) {
+			Matcher matcher = getContentRangeMatcher(response);
+			if ( matcher!=null && !"*".equals(matcher.group(3)) ) {
+				return Long.parseLong(matcher.group(3));
+			}
+		}
+		return -1;
+	}
+	
+	private static Matcher getContentRangeMatcher(Response response) {
+		String contentRange = response.getHeaderString("Content-Range");
+		Matcher matcher = contentRange==null ? null : CONTENT_RANGE_PATTERN.matcher(contentRange.trim());
+		return matcher!=null && matcher.matches() ? matcher : null;
+	}
+	
+	/**
+	 * Get a validator for the If-Range header, allowing us to detect whether the
+	 * remote file changed between requests. If-Range only supports strong entity
+	 * tags, so for weak entity tags we use the Last-Modified date instead.
+	 */
+	private static String getValidator(Response response) {
+		String eTag = response.getHeaderString(HttpHeaders.ETAG);
+		if ( StringUtils.isNotBlank(eTag) && !eTag.startsWith("W/") ) {
+			return eTag;
+		}
+		return StringUtils.trimToNull(response.getHeaderString(HttpHeaders.LAST_MODIFIED));
+	}
+	
+	private long downloadSingleStream(Response response) throws IOException {
+		Files.deleteIfExists(statePath);
+		try {
+			InputStream is = response.readEntity(InputStream.class);
+			long length = Files.copy(is, partialPath, StandardCopyOption.REPLACE_EXISTING);
+			if ( response.getLength() >= 0 && response.getLength() != length ) {
+				throw new IOException("Downloaded "+length+" bytes, expected "+response.getLength()+" bytes");
+			}
+			return length;
+		} catch ( IOException | RuntimeException e ) {
+			// A single stream cannot be resumed, so don't leave the partial file behind
+			Files.deleteIfExists(partialPath);
+			throw e;
+		}
+	}
+	
+	private long downloadSegments(long totalLength, String validator) throws IOException {
+		DownloadState state = config.isResume() && Files.exists(partialPath) ? DownloadState.load(statePath, totalLength, validator) : null;
+		if ( state == null ) {
+			Files.deleteIfExists(partialPath);
+			state = new DownloadState(totalLength, validator, getSegmentCount(totalLength));
+		} else {
+			log.info("Resuming download of "+webTarget.getUri()+" from "+partialPath);
+		}
+		try ( FileChannel channel = FileChannel.open(partialPath, StandardOpenOption.CREATE, StandardOpenOption.WRITE) ) {
+			List<Segment> remainingSegments = state.getRemainingSegments();
+			if ( !remainingSegments.isEmpty() ) {
+				downloadSegments(channel, state, remainingSegments);
+			}
+			channel.force(true);
+			if ( channel.size() != totalLength ) {
+				throw new IOException("Downloaded "+channel.size()+" bytes, expected "+totalLength+" bytes");
+			}
+		}
+		Files.deleteIfExists(statePath);
+		return totalLength;
+	}
+	
+	private void downloadSegments(FileChannel channel, DownloadState state, List<Segment> segments) throws IOException {
+		ExecutorService executor = createExecutorService(segments.size());
+		try {
+			List<Future<Void>> futures = new ArrayList<>(segments.size());
+			for ( Segment segment : segments ) {
+				futures.add(executor.submit(new SegmentDownload(channel, state, segment)));
+			}
+			for ( Future<Void> future : futures ) {
+				future.get();
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Interrupted while downloading segments");
+		} catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+			if ( cause instanceof IOException ) { throw (IOException)cause; }
+			if ( cause instanceof RuntimeException ) { throw (RuntimeException)cause; }
+			throw new RuntimeException("Error downloading segment", cause);
+		} finally {
+			abortSegmentDownloads();
+			executor.shutdown();
+			if ( awaitTermination(executor) ) {
+				state.save(channel, statePath);
+			} else {
+				log.warn("Segment downloads did not terminate, not saving download state for "+partialPath);
+			}
+		}
+	}
+	
+	/**
+	 * Signal all running segment downloads to stop, and close their responses 
+	 * to unblock any segment download that is waiting for data. 
+	 */
+	private void abortSegmentDownloads() {
+		aborted = true;
+		for ( Response response : activeResponses ) {
+			closeQuietly(response);
+		}
+	}
+	
+	private static boolean awaitTermination(ExecutorService executor) {
+		try {
+			return executor.awaitTermination(TERMINATION_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return false;
+		}
+	}
+	
+	private static void closeQuietly(Response response) {
+		try {
+			response.close();
+		} catch ( RuntimeException e ) {
+			log.debug("Error closing response", e);
+		}
+	}
+	
+	private int getSegmentCount(long totalLength) {
+		long maxSegments = Math.min(config.getMaxSegments(), conn.getMaxConcurrentRequests());
+		return (int)Math.max(1, Math.min(maxSegments, totalLength/Math.max(1, config.getMinSegmentSizeBytes())));
+	}
+	
+	private void verifyChecksum() throws IOException {
+		if ( config.getChecksumAlgorithm()!=null ) {
+			String checksum = getChecksum(config.getChecksumAlgorithm());
+			if ( !checksum.equalsIgnoreCase(config.getExpectedChecksum()) ) {
+				Files.deleteIfExists(partialPath);
+				throw new IOException(config.getChecksumAlgorithm()+" checksum "+checksum+" of downloaded file doesn't match expected checksum "+config.getExpectedChecksum());
+			}
+		}
+	}
+	
+	private String getChecksum(String algorithm) throws IOException {
+		try ( DigestInputStream is = new DigestInputStream(Files.newInputStream(partialPath), MessageDigest.getInstance(algorithm)) ) {
+			byte[] buffer = new byte[BUFFER_SIZE];
+			while ( is.read(buffer) != -1 ) {}
+			byte[] digest = is.getMessageDigest().digest();
+			return String.format("%0"+(digest.length*2)+"x", new BigInteger(1, digest));
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalArgumentException("Unsupported checksum algorithm "+algorithm, e);
+		}
+	}
+	
+	private static final ExecutorService createExecutorService(int threads) {
+		final String prefix = "download-"+DOWNLOAD_COUNT.incrementAndGet()+"-";
+		final AtomicInteger threadCount = new AtomicInteger();
+		return Executors.newFixedThreadPool(threads, new ThreadFactory() {
+			@Override
+			public Thread newThread(Runnable r) {
+				Thread thread = new Thread(r, prefix+threadCount.incrementAndGet());
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+	}
+	
+	/**
+	 * Download a single segment, writing the downloaded data to the 
+	 * corresponding position in the partial file.
+	 */
+	private final class SegmentDownload implements Callable<Void> {
+		private final FileChannel channel;
+		private final DownloadState state;
+		private final Segment segment;
+		
+		private SegmentDownload(FileChannel channel, DownloadState state, Segment segment) {
+			this.channel = channel;
+			this.state = state;
+			this.segment = segment;
+		}
+
+		@Override
+		public Void call() throws IOException {
+			if ( aborted ) { return null; }
+			Response response = executeRequest("bytes="+segment.position+"-"+segment.end, state.validator);
+			activeResponses.add(response);
+			try {
+				if ( aborted ) { return null; }
+				Matcher matcher = getContentRangeMatcher(response);
+				if ( response.getStatus()!=Status.PARTIAL_CONTENT.getStatusCode() || matcher==null || Long.parseLong(matcher.group(1))!=segment.position ) {
+					throw new IllegalStateException("Server didn't return the requested range for "+webTarget.getUri()+", remote file may have changed");
+				}
+				InputStream is = response.readEntity(InputStream.class);
+				byte[] buffer = new byte[BUFFER_SIZE];
+				long unsavedBytes = 0;
+				while ( !segment.isComplete() ) {
+					int read = is.read(buffer, 0, (int)Math.min(buffer.length, segment.end-segment.position+1));
+					if ( read == -1 ) {
+						throw new IOException("Premature end of data for range "+segment.position+"-"+segment.end);
+					}
+					write(ByteBuffer.wrap(buffer, 0, read));
+					unsavedBytes += read;
+					if ( unsavedBytes >= STATE_SAVE_INTERVAL_BYTES ) {
+						state.save(channel, statePath);
+						unsavedBytes = 0;
+					}
+					if ( aborted || Thread.currentThread().isInterrupted() ) {
+						throw new InterruptedIOException("Segment download aborted");
+					}
+				}
+				return null;
+			} finally {
+				activeResponses.remove(response);
+				closeQuietly(response);
+			}
+		}
+
+		private void write(ByteBuffer buffer) throws IOException {
+			long position = segment.position;
+			while ( buffer.hasRemaining() ) {
+				position += channel.write(buffer, position);
+			}
+			segment.position = position;
+		}
+	}
+	
+	/**
+	 * Byte range [position, end] that still needs to be downloaded.
+	 */
+	private static final class Segment {
+		private final long end;
+		private volatile long position;
+		
+		private Segment(long position, long end) {
+			this.position = position;
+			this.end = end;
+		}
+		
+		private boolean isComplete() {
+			return position > end;
+		}
+	}
+	
+	/**
+	 * Download state, describing the remote file and the progress of each segment.
+	 * This state is saved to and loaded from a properties file to allow for 
+	 * resuming downloads.
+	 */
+	private static final class DownloadState {
+		private final long totalLength;
+		private final String validator;
+		private final List<Segment> segments;
+		
+		private DownloadState(long totalLength, String validator, int segmentCount) {
+			this(totalLength, validator, new ArrayList<Segment>(segmentCount));
+			long segmentSize = totalLength/segmentCount;
+			for ( int i = 0 ; i < segmentCount ; i++ ) {
+				long start = i*segmentSize;
+				long end = i==segmentCount-1 ? totalLength-1 : start+segmentSize-1;
+				segments.add(new Segment(start, end));
+			}
+		}
+		
+		private DownloadState(long totalLength, String validator, List<Segment> segments) {
+			this.totalLength = totalLength;
+			this.validator = validator;
+			this.segments = segments;
+		}
+		
+		private List<Segment> getRemainingSegments() {
+			List<Segment> result = new ArrayList<>(segments.size());
+			for ( Segment segment : segments ) {
+				if ( !segment.isComplete() ) { result.add(segment); }
+			}
+			return result;
+		}
+		
+		/**
+		 * Save the current state to the given state file. Segment positions are only
+		 * updated after the corresponding data has been written, so we first take a 
+		 * snapshot of all segment positions, and then force all data written to the
+		 * given channel to disk, before saving the snapshot. This guarantees that the
+		 * saved state never covers any data that hasn't been written to disk, for any
+		 * of the segments.
+		 */
+		private synchronized void save(FileChannel channel, Path statePath) throws IOException {
+			long[] positions = new long[segments.size()];
+			for ( int i = 0 ; i < positions.length ; i++ ) {
+				positions[i] = segments.get(i).position;
+			}
+			channel.force(false);
+			Properties properties = new Properties();
+			properties.setProperty("totalLength", ""+totalLength);
+			if ( validator != null ) {
+				properties.setProperty("validator", validator);
+			}
+			properties.setProperty("segments", ""+segments.size());
+			for ( int i = 0 ; i < segments.size() ; i++ ) {
+				properties.setProperty("segment."+i+".position", ""+positions[i]);
+				properties.setProperty("segment."+i+".end", ""+segments.get(i).end);
+			}
+			try ( OutputStream os = Files.newOutputStream(statePath) ) {
+				properties.store(os, null);
+			}
+		}
+		
+		/**
+		 * Load the download state from the given state file, if it exists and 
+		 * matches the given length and validator of the remote file.
+		 * @return {@link DownloadState} instance, or null if no matching state is available
+		 */
+		private static DownloadState load(Path statePath, long totalLength, String validator) {
+			if ( !Files.exists(statePath) ) {
+				return null;
+			}
+			try ( InputStream is = Files.newInputStream(statePath) ) {
+				Properties properties = new Properties();
+				properties.load(is);
+				if ( validator == null || Long.parseLong(properties.getProperty("totalLength", "-1"))!=totalLength 
+						|| !StringUtils.equals(validator, properties.getProperty("validator")) ) {
+					log.info("Remote file changed since previous download attempt, restarting download");
+					return null;
+				}
+				int segmentCount = Integer.parseInt(properties.getProperty("segments"));
+				List<Segment> segments = new ArrayList<>(segmentCount);
+				for ( int i = 0 ; i < segmentCount ; i++ ) {
+					segments.add(new Segment(
+						Long.parseLong(properties.getProperty("segment."+i+".position")), 
+						Long.parseLong(properties.getProperty("segment."+i+".end"))));
+				}
+				return new DownloadState(totalLength, validator, segments);
+			} catch (IOException | RuntimeException e) {
+				log.warn("Error loading download state from "+statePath+", restarting download", e);
+				return null;
+			}
+		}
+	}
+}
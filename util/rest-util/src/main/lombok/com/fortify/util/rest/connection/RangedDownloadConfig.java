@@ -0,0 +1,97 @@
+/*******************************************************************************
+ * (c) Copyright 2017 EntIT Software LLC, a Micro Focus company
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a 
+ * copy of this software and associated documentation files (the 
+ * "Software"), to deal in the Software without restriction, including without 
+ * limitation the rights to use, copy, modify, merge, publish, distribute, 
+ * sublicense, and/or sell copies of the Software, and to permit persons to 
+ * whom the Software is furnished to do so, subject to the following 
+ * conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included 
+ * in all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY 
+ * KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE 
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR 
+ * PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE 
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, 
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF 
+ * CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN 
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS 
+ * IN THE SOFTWARE.
+ ******************************************************************************/
+package com.fortify.util.rest.connection;
+
+import lombok.Getter;
+
+/**
+ * <p>This class holds the configuration for downloads executed through
+ * {@link AbstractRestConnection#executeRangedDownload(String, javax.ws.rs.client.WebTarget, java.nio.file.Path, RangedDownloadConfig, java.nio.file.CopyOption...)}.
+ * If the server supports HTTP range requests, large files are downloaded as 
+ * multiple concurrent segments, and interrupted downloads are resumed from
+ * the partial file left behind by a previous attempt.</p>
+ * 
+ * @author Ruud Senden
+ *
+ */
+@Getter
+public class RangedDownloadConfig {
+	private static final int DEFAULT_MAX_SEGMENTS = 4;
+	private static final long DEFAULT_MIN_SEGMENT_SIZE_BYTES = 8*1024*1024;
+	private int maxSegments = DEFAULT_MAX_SEGMENTS;
+	private long minSegmentSizeBytes = DEFAULT_MIN_SEGMENT_SIZE_BYTES;
+	private boolean resume = true;
+	private String checksumAlgorithm;
+	private String expectedChecksum;
+	
+	/**
+	 * Configure the maximum number of segments to be downloaded concurrently.
+	 * The actual number of segments is also limited by the maximum number of 
+	 * concurrent requests configured on the connection. Default value is 4.
+	 * @param maxSegments
+	 * @return Self for chaining
+	 */
+	public RangedDownloadConfig maxSegments(int maxSegments) {
+		this.maxSegments = maxSegments;
+		return this;
+	}
+	
+	/**
+	 * Configure the minimum size of each segment; files smaller than twice
+	 * this size are downloaded as a single segment. Default value is 8 MB.
+	 * @param minSegmentSizeBytes
+	 * @return Self for chaining
+	 */
+	public RangedDownloadConfig minSegmentSizeBytes(long minSegmentSizeBytes) {
+		this.minSegmentSizeBytes = minSegmentSizeBytes;
+		return this;
+	}
+	
+	/**
+	 * Configure whether a partial file left behind by a previous download
+	 * attempt should be resumed. Default value is true.
+	 * @param resume
+	 * @return Self for chaining
+	 */
+	public RangedDownloadConfig resume(boolean resume) {
+		this.resume = resume;
+		return this;
+	}
+	
+	/**
+	 * Configure the expected checksum of the downloaded file, for example
+	 * <code>checksum("SHA-256", "...")</code>. If configured, the download
+	 * fails if the checksum of the downloaded file doesn't match.
+	 * @param checksumAlgorithm {@link java.security.MessageDigest} algorithm name
+	 * @param expectedChecksum Hexadecimal checksum value
+	 * @return Self for chaining
+	 */
+	public RangedDownloadConfig checksum(String checksumAlgorithm, String expectedChecksum) {
+		this.checksumAlgorithm = checksumAlgorithm;
+		this.expectedChecksum = expectedChecksum;
+		return this;
+	}
+
+}
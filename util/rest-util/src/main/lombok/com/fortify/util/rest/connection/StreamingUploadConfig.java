@@ -0,0 +1,116 @@
+/*******************************************************************************
+ * (c) Copyright 2017 EntIT Software LLC, a Micro Focus company
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a 
+ * copy of this software and associated documentation files (the 
+ * "Software"), to deal in the Software without restriction, including without 
+ * limitation the rights to use, copy, modify, merge, publish, distribute, 
+ * sublicense, and/or sell copies of the Software, and to permit persons to 
+ * whom the Software is furnished to do so, subject to the following 
+ * conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included 
+ * in all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY 
+ * KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE 
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR 
+ * PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE 
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, 
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF 
+ * CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN 
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS 
+ * IN THE SOFTWARE.
+ ******************************************************************************/
+package com.fortify.util.rest.connection;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+import lombok.Getter;
+
+/**
+ * <p>This class holds the configuration for streaming uploads executed through
+ * {@link AbstractRestConnection#executeStreamingUpload(String, javax.ws.rs.client.WebTarget, javax.ws.rs.client.Entity, Class)}.
+ * Upload data opened through {@link #openInputStream(File)} or wrapped through
+ * {@link #wrap(InputStream, long)} will report progress to the configured
+ * {@link IUploadProgressListener}, and will be throttled to the configured
+ * maximum number of bytes per second.</p>
+ * 
+ * <p>Instances of this class can be shared between uploads; every opened or
+ * wrapped {@link InputStream} keeps track of its own progress and throughput.</p>
+ * 
+ * @author Ruud Senden
+ *
+ */
+@Getter
+public class StreamingUploadConfig {
+	private static final long DEFAULT_PROGRESS_INTERVAL_BYTES = 1024*1024;
+	private IUploadProgressListener progressListener;
+	private long maxBytesPerSecond = -1;
+	private long progressIntervalBytes = DEFAULT_PROGRESS_INTERVAL_BYTES;
+	
+	/**
+	 * Configure the listener to be notified about upload progress
+	 * @param progressListener
+	 * @return Self for chaining
+	 */
+	public StreamingUploadConfig progressListener(IUploadProgressListener progressListener) {
+		this.progressListener = progressListener;
+		return this;
+	}
+	
+	/**
+	 * Configure the maximum upload throughput. Zero or negative values
+	 * (the default) disable throttling.
+	 * @param maxBytesPerSecond
+	 * @return Self for chaining
+	 */
+	public StreamingUploadConfig maxBytesPerSecond(long maxBytesPerSecond) {
+		this.maxBytesPerSecond = maxBytesPerSecond;
+		return this;
+	}
+	
+	/**
+	 * Configure the minimum number of bytes to be transferred between two
+	 * progress notifications. Default value is 1 MB.
+	 * @param progressIntervalBytes
+	 * @return Self for chaining
+	 */
+	public StreamingUploadConfig progressIntervalBytes(long progressIntervalBytes) {
+		this.progressIntervalBytes = progressIntervalBytes;
+		return this;
+	}
+	
+	/**
+	 * Open the given file for uploading, reporting progress and throttling
+	 * throughput according to this configuration.
+	 * @param file
+	 * @return {@link InputStream} for reading the file contents
+	 */
+	public InputStream openInputStream(File file) {
+		try {
+			return wrap(new FileInputStream(file), file.length());
+		} catch (IOException e) {
+			throw new RuntimeException("Error opening file "+file, e);
+		}
+	}
+	
+	/**
+	 * Wrap the given {@link InputStream} for reporting progress and throttling
+	 * throughput according to this configuration. If neither a progress listener
+	 * nor a maximum throughput has been configured, the given {@link InputStream}
+	 * is returned as-is.
+	 * @param inputStream
+	 * @param totalBytes Total number of bytes to be read from the given {@link InputStream}, or -1 if unknown
+	 * @return Wrapped {@link InputStream}
+	 */
+	public InputStream wrap(InputStream inputStream, long totalBytes) {
+		if ( progressListener == null && maxBytesPerSecond <= 0 ) {
+			return inputStream;
+		}
+		return new UploadProgressInputStream(inputStream, totalBytes, this);
+	}
+}
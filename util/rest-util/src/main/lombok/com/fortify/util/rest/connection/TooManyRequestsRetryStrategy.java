@@ -41,12 +41,19 @@ import org.apache.http.protocol.HttpContext;
  *	}
  * </code>
  * 
+ * <p>Instances of this class are thread-safe; the retry interval is tracked per thread. 
+ * In addition, the time at which the rate limit is expected to be reset is shared between
+ * all threads, allowing {@link AbstractRestConnection} to delay new requests from other
+ * threads using {@link #awaitRateLimitReset()}, rather than having each thread run into
+ * the rate limit individually.</p>
+ * 
  */
 public final class TooManyRequestsRetryStrategy implements ServiceUnavailableRetryStrategy {
 	private static final Log LOG = LogFactory.getLog(TooManyRequestsRetryStrategy.class);
 	private String retryAfterHeaderName = "X-Retry-After";
 	private String logPrefix = "";
-	private ThreadLocal<Long> interval = null;
+	private final ThreadLocal<Long> interval = new ThreadLocal<Long>();
+	private volatile long rateLimitResetTimeMillis = 0;
 	
 	public TooManyRequestsRetryStrategy() {}
 	
@@ -69,16 +76,34 @@ public final class TooManyRequestsRetryStrategy implements ServiceUnavailableRet
 				retrySeconds = 1;
 			}
 			LOG.info(logPrefix+"Rate-limited request will be retried after "+retrySeconds+" seconds");
-			interval = new ThreadLocal<Long>();
-			interval.set((long)retrySeconds*1000);
+			long retryMillis = (long)retrySeconds*1000;
+			interval.set(retryMillis);
+			rateLimitResetTimeMillis = Math.max(rateLimitResetTimeMillis, System.currentTimeMillis()+retryMillis);
 			return true;
 		}
 		return false;
 	}
 
 	public long getRetryInterval() {
-		long result = interval==null ? -1 : interval.get();
-		interval = null;
-		return result;
+		Long result = interval.get();
+		interval.remove();
+		return result==null ? -1 : result;
+	}
+	
+	/**
+	 * If any thread has recently been rate-limited, block the current thread
+	 * until the rate limit is expected to be reset.
+	 */
+	public void awaitRateLimitReset() {
+		long waitMillis = rateLimitResetTimeMillis-System.currentTimeMillis();
+		if ( waitMillis > 0 ) {
+			LOG.debug(logPrefix+"Waiting "+waitMillis+" ms for rate limit reset");
+			try {
+				Thread.sleep(waitMillis);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new RuntimeException("Interrupted while waiting for rate limit reset", e);
+			}
+		}
 	}
 }
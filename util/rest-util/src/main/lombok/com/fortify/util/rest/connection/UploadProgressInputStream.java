@@ -0,0 +1,129 @@
+/*******************************************************************************
+ * (c) Copyright 2017 EntIT Software LLC, a Micro Focus company
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a 
+ * copy of this software and associated documentation files (the 
+ * "Software"), to deal in the Software without restriction, including without 
+ * limitation the rights to use, copy, modify, merge, publish, distribute, 
+ * sublicense, and/or sell copies of the Software, and to permit persons to 
+ * whom the Software is furnished to do so, subject to the following 
+ * conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included 
+ * in all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY 
+ * KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE 
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR 
+ * PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE 
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, 
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF 
+ * CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN 
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS 
+ * IN THE SOFTWARE.
+ ******************************************************************************/
+package com.fortify.util.rest.connection;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+
+/**
+ * {@link FilterInputStream} implementation that reports the number of bytes read
+ * to an {@link IUploadProgressListener}, and throttles reading to a maximum number
+ * of bytes per second, as configured through {@link StreamingUploadConfig}. 
+ * 
+ * @author Ruud Senden
+ *
+ */
+class UploadProgressInputStream extends FilterInputStream {
+	private final long totalBytes;
+	private final IUploadProgressListener progressListener;
+	private final long maxBytesPerSecond;
+	private final long progressIntervalBytes;
+	private long startTimeMillis = -1;
+	private long bytesTransferred = 0;
+	private long bytesNotified = 0;
+	private boolean endOfStreamNotified = false;
+
+	UploadProgressInputStream(InputStream in, long totalBytes, StreamingUploadConfig config) {
+		super(in);
+		this.totalBytes = totalBytes;
+		this.progressListener = config.getProgressListener();
+		this.maxBytesPerSecond = config.getMaxBytesPerSecond();
+		this.progressIntervalBytes = Math.max(1, config.getProgressIntervalBytes());
+	}
+	
+	@Override
+	public int read() throws IOException {
+		throttle();
+		int result = super.read();
+		update(result==-1 ? -1 : 1);
+		return result;
+	}
+	
+	@Override
+	public int read(byte[] b, int off, int len) throws IOException {
+		throttle();
+		int result = super.read(b, off, len);
+		update(result);
+		return result;
+	}
+	
+	@Override
+	public long skip(long n) throws IOException {
+		long result = super.skip(n);
+		update(result);
+		return result;
+	}
+	
+	@Override
+	public boolean markSupported() {
+		return false;
+	}
+	
+	/**
+	 * Block until reading more data would not exceed the configured 
+	 * maximum throughput.
+	 * @throws InterruptedIOException if interrupted while waiting
+	 */
+	private void throttle() throws InterruptedIOException {
+		long now = System.currentTimeMillis();
+		if ( startTimeMillis < 0 ) {
+			startTimeMillis = now;
+		}
+		if ( maxBytesPerSecond > 0 ) {
+			long waitMillis = startTimeMillis + (bytesTransferred*1000/maxBytesPerSecond) - now;
+			if ( waitMillis > 0 ) {
+				try {
+					Thread.sleep(waitMillis);
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					throw new InterruptedIOException("Interrupted while throttling upload");
+				}
+			}
+		}
+	}
+
+	private void update(long bytesRead) {
+		if ( bytesRead > 0 ) {
+			bytesTransferred += bytesRead;
+			if ( bytesTransferred-bytesNotified >= progressIntervalBytes ) {
+				notifyProgress();
+			}
+		} else if ( bytesRead < 0 && !endOfStreamNotified ) {
+			endOfStreamNotified = true;
+			if ( bytesTransferred==0 || bytesTransferred!=bytesNotified ) {
+				notifyProgress();
+			}
+		}
+	}
+
+	private void notifyProgress() {
+		bytesNotified = bytesTransferred;
+		if ( progressListener != null ) {
+			progressListener.onProgress(bytesTransferred, totalBytes);
+		}
+	}
+}
@@ -176,6 +176,37 @@ public final class ApacheClientProperties {
      * </p>
      */
     public static final String SERVICE_UNAVAILABLE_RETRY_STRATEGY = "jersey.config.apache.client.serviceUnavailableRetryStrategy";
+    
+    /**
+     * <p>Maximum number of pooled connections per route, used when no custom
+     * {@link #CONNECTION_MANAGER} has been configured.
+     * </p><p>
+     * The value MUST be an instance of {@link java.lang.Integer}.
+     * </p><p>
+     * If the property is absent the HttpClient default (or the <tt>http.maxConnections</tt> 
+     * system property if system properties are used) will be applied.
+     * </p><p>
+     * The name of the configuration property is <tt>{@value}</tt>.
+     * </p>
+     */
+    public static final String MAX_CONNECTIONS_PER_ROUTE = "jersey.config.apache.client.maxConnectionsPerRoute";
+    
+    /**
+     * <p>Enable the <tt>Expect: 100-continue</tt> handshake for a request, such that the
+     * server can reject the request (for example because authentication is required)
+     * before the request entity is transferred.
+     * </p><p>
+     * The value MUST be an instance of {@link java.lang.Boolean}. This property is
+     * resolved for every individual request, so it may be set on either the client
+     * configuration or on an individual request.
+     * </p><p>
+     * If the property is absent the value of {@link #REQUEST_CONFIG} (or the HttpClient
+     * default) will be applied.
+     * </p><p>
+     * The name of the configuration property is <tt>{@value}</tt>.
+     * </p>
+     */
+    public static final String EXPECT_CONTINUE = "jersey.config.apache.client.expectContinue";
 
     /**
      * Get the value of the specified property.
@@ -141,6 +141,7 @@ import org.glassfish.jersey.message.internal.Statuses;
  * <li>{@link ClientProperties#REQUEST_ENTITY_PROCESSING} - default value is {@link RequestEntityProcessing#CHUNKED}</li>
  * <li>{@link ApacheClientProperties#PREEMPTIVE_BASIC_AUTHENTICATION}</li>
  * <li>{@link ApacheClientProperties#RETRY_HANDLER}</li>
+ * <li>{@link ApacheClientProperties#MAX_CONNECTIONS_PER_ROUTE}</li>
  * </ul>
  * <p>
  * This connector uses {@link RequestEntityProcessing#CHUNKED chunked encoding} as a default setting. This can
@@ -390,6 +391,13 @@ class ApacheConnector implements Connector {
             }
         }
 
+        final Integer maxPerRoute = ClientProperties.getValue(config.getProperties(),
+                ApacheClientProperties.MAX_CONNECTIONS_PER_ROUTE, Integer.class);
+        if (maxPerRoute != null && maxPerRoute > 0) {
+            connectionManager.setDefaultMaxPerRoute(maxPerRoute);
+            connectionManager.setMaxTotal(Math.max(2 * maxPerRoute, connectionManager.getMaxTotal()));
+        }
+
         return connectionManager;
     }
 
@@ -547,6 +555,11 @@ class ApacheConnector implements Connector {
                 clientRequest.resolveProperty(ClientProperties.FOLLOW_REDIRECTS, requestConfig.isRedirectsEnabled());
         requestConfigBuilder.setRedirectsEnabled(redirectsEnabled);
 
+        final Boolean expectContinueEnabled = clientRequest.resolveProperty(ApacheClientProperties.EXPECT_CONTINUE, Boolean.class);
+        if (expectContinueEnabled != null) {
+            requestConfigBuilder.setExpectContinueEnabled(expectContinueEnabled);
+        }
+
         final Boolean bufferingEnabled = clientRequest.resolveProperty(ClientProperties.REQUEST_ENTITY_PROCESSING,
                 RequestEntityProcessing.class) == RequestEntityProcessing.BUFFERED;
         final HttpEntity entity = getHttpEntity(clientRequest, bufferingEnabled);
@@ -651,7 +664,13 @@ class ApacheConnector implements Connector {
             @Override
             public void close() throws IOException {
                 response.close();
-                super.close();
+                try {
+                    super.close();
+                } catch (final IOException e) {
+                    // The connection has already been released by closing the response,
+                    // so any unread content can no longer be consumed
+                    LOGGER.log(Level.FINE, "Ignoring unread response content after closing response", e);
+                }
             }
         };
     }
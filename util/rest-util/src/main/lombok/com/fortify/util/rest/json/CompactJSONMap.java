@@ -0,0 +1,533 @@
+/*******************************************************************************
+ * (c) Copyright 2017 EntIT Software LLC, a Micro Focus company
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a 
+ * copy of this software and associated documentation files (the 
+ * "Software"), to deal in the Software without restriction, including without 
+ * limitation the rights to use, copy, modify, merge, publish, distribute, 
+ * sublicense, and/or sell copies of the Software, and to permit persons to 
+ * whom the Software is furnished to do so, subject to the following 
+ * conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included 
+ * in all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY 
+ * KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE 
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR 
+ * PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE 
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, 
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF 
+ * CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN 
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS 
+ * IN THE SOFTWARE.
+ ******************************************************************************/
+package com.fortify.util.rest.json;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.AbstractCollection;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.BiConsumer;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+/**
+ * <p>This {@link JSONMap} implementation stores its values in a flat array, 
+ * while the keys are stored in an immutable key layout (shape) that is shared
+ * between all {@link CompactJSONMap} instances with the same keys in the same
+ * order. For pages of homogeneous records, like issues, this avoids the per-entry
+ * and per-key overhead of {@link java.util.LinkedHashMap}, significantly reducing
+ * memory usage.</p>
+ * 
+ * <p>This class supports all {@link JSONMap} and {@link Map} operations, including
+ * on-demand loading of values. Adding or removing keys migrates the instance to a 
+ * different shape; replacing the value for an existing key simply updates the 
+ * corresponding array element. Iteration order is insertion order, like 
+ * {@link JSONMap}. Null keys are not supported.</p>
+ * 
+ * <p>Values may be stored in a deferred form that is only resolved upon first
+ * access; see {@link LazyJSONMap}.</p>
+ * 
+ * <p>Note that although this class extends {@link java.util.LinkedHashMap} through 
+ * {@link JSONMap}, the inherited hash table is never used.</p>
+ * 
+ * @author Ruud Senden
+ *
+ */
+public class CompactJSONMap extends JSONMap {
+	private static final long serialVersionUID = 1L;
+	private static final Object[] EMPTY_VALUES = new Object[0];
+	private transient JSONMapShape shape = JSONMapShape.EMPTY;
+	private transient Object[] values = EMPTY_VALUES;
+	private transient int modifications;
+	
+	/**
+	 * Create an empty {@link CompactJSONMap} instance
+	 */
+	public CompactJSONMap() {
+		super(0);
+	}
+	
+	/**
+	 * Create a {@link CompactJSONMap} instance containing all entries
+	 * from the given {@link Map}.
+	 */
+	public CompactJSONMap(Map<? extends String, ? extends Object> m) {
+		this();
+		putAll(m);
+	}
+	
+	@Override
+	public int size() {
+		return shape.size();
+	}
+	
+	@Override
+	public boolean isEmpty() {
+		return shape.size()==0;
+	}
+	
+	@Override
+	public boolean containsKey(Object key) {
+		return shape.indexOf(key)>=0;
+	}
+	
+	@Override
+	public boolean containsValue(Object value) {
+		int size = shape.size();
+		for ( int i = 0 ; i < size ; i++ ) {
+			if ( Objects.equals(value, valueAt(i)) ) { return true; }
+		}
+		return false;
+	}
+	
+	/**
+	 * @see JSONMap#get(Object)
+	 */
+	@Override
+	public Object get(Object key) {
+		int index = shape.indexOf(key);
+		return index<0 ? null : getOnDemandValue(key, valueAt(index));
+	}
+	
+	/**
+	 * @see JSONMap#getOrDefault(Object, Object)
+	 */
+	@Override
+	public Object getOrDefault(Object key, Object defaultValue) {
+		int index = shape.indexOf(key);
+		return getOnDemandValue(key, index<0 ? defaultValue : valueAt(index));
+	}
+	
+	@Override
+	public Object put(String key, Object value) {
+		int index = shape.indexOf(key);
+		if ( index>=0 ) {
+			Object oldValue = valueAt(index);
+			values[index] = value;
+			return oldValue;
+		}
+		JSONMapShape newShape = shape.withKey(key);
+		int size = shape.size();
+		if ( values.length <= size ) {
+			values = Arrays.copyOf(values, Math.max(newShape.getExpectedSize(), Math.max(4, size*2)));
+		}
+		values[size] = value;
+		shape = newShape;
+		modifications++;
+		return null;
+	}
+	
+	@Override
+	public void putAll(Map<? extends String, ? extends Object> m) {
+		for ( Map.Entry<? extends String, ? extends Object> entry : m.entrySet() ) {
+			put(entry.getKey(), entry.getValue());
+		}
+	}
+	
+	@Override
+	public Object remove(Object key) {
+		int index = shape.indexOf(key);
+		if ( index<0 ) { return null; }
+		return removeAt(index);
+	}
+	
+	/**
+	 * Get the value at the given index, resolving the value first
+	 * if it is a {@link DeferredValue}. 
+	 */
+	final Object valueAt(int index) {
+		Object value = values[index];
+		if ( value instanceof DeferredValue ) {
+			value = ((DeferredValue)value).resolve(shape.keyAt(index));
+			values[index] = value;
+		}
+		return value;
+	}
+	
+	/**
+	 * Indicate whether the value at the given index is a {@link DeferredValue}
+	 * that hasn't been resolved yet.
+	 */
+	final boolean isDeferredAt(int index) {
+		return values[index] instanceof DeferredValue;
+	}
+	
+	private Object removeAt(int index) {
+		int size = shape.size();
+		Object oldValue = valueAt(index);
+		shape = shape.withoutKey(shape.keyAt(index));
+		System.arraycopy(values, index+1, values, index, size-index-1);
+		values[size-1] = null;
+		modifications++;
+		return oldValue;
+	}
+	
+	@Override
+	public void clear() {
+		shape = JSONMapShape.EMPTY;
+		values = EMPTY_VALUES;
+		modifications++;
+	}
+	
+	@Override
+	public Object putIfAbsent(String key, Object value) {
+		int index = shape.indexOf(key);
+		if ( index>=0 && valueAt(index)!=null ) { return valueAt(index); }
+		return put(key, value);
+	}
+	
+	@Override
+	public boolean remove(Object key, Object value) {
+		int index = shape.indexOf(key);
+		if ( index<0 || !Objects.equals(valueAt(index), value) ) { return false; }
+		removeAt(index);
+		return true;
+	}
+	
+	@Override
+	public boolean replace(String key, Object oldValue, Object newValue) {
+		int index = shape.indexOf(key);
+		if ( index<0 || !Objects.equals(valueAt(index), oldValue) ) { return false; }
+		values[index] = newValue;
+		return true;
+	}
+	
+	@Override
+	public Object replace(String key, Object value) {
+		int index = shape.indexOf(key);
+		if ( index<0 ) { return null; }
+		Object oldValue = valueAt(index);
+		values[index] = value;
+		return oldValue;
+	}
+	
+	@Override
+	public Object computeIfAbsent(String key, Function<? super String, ? extends Object> mappingFunction) {
+		Object value = get(key);
+		if ( value == null ) {
+			value = mappingFunction.apply(key);
+			if ( value != null ) { put(key, value); }
+		}
+		return value;
+	}
+	
+	@Override
+	public Object computeIfPresent(String key, BiFunction<? super String, ? super Object, ? extends Object> remappingFunction) {
+		Object oldValue = get(key);
+		if ( oldValue == null ) { return null; }
+		Object newValue = remappingFunction.apply(key, oldValue);
+		if ( newValue == null ) { 
+			remove(key); 
+		} else {
+			put(key, newValue);
+		}
+		return newValue;
+	}
+	
+	@Override
+	public Object compute(String key, BiFunction<? super String, ? super Object, ? extends Object> remappingFunction) {
+		Object oldValue = get(key);
+		Object newValue = remappingFunction.apply(key, oldValue);
+		if ( newValue == null ) {
+			if ( oldValue != null || containsKey(key) ) { remove(key); }
+		} else {
+			put(key, newValue);
+		}
+		return newValue;
+	}
+	
+	@Override
+	public Object merge(String key, Object value, BiFunction<? super Object, ? super Object, ? extends Object> remappingFunction) {
+		Object oldValue = get(key);
+		Object newValue = oldValue == null ? value : remappingFunction.apply(oldValue, value);
+		if ( newValue == null ) {
+			remove(key);
+		} else {
+			put(key, newValue);
+		}
+		return newValue;
+	}
+	
+	@Override
+	public void forEach(BiConsumer<? super String, ? super Object> action) {
+		int expectedModifications = modifications;
+		int size = shape.size();
+		for ( int i = 0 ; i < size ; i++ ) {
+			action.accept(shape.keyAt(i), valueAt(i));
+			if ( expectedModifications != modifications ) { throw new ConcurrentModificationException(); }
+		}
+	}
+	
+	@Override
+	public void replaceAll(BiFunction<? super String, ? super Object, ? extends Object> function) {
+		int size = shape.size();
+		for ( int i = 0 ; i < size ; i++ ) {
+			values[i] = function.apply(shape.keyAt(i), valueAt(i));
+		}
+	}
+	
+	@Override
+	public Set<String> keySet() {
+		return new AbstractSet<String>() {
+			@Override
+			public Iterator<String> iterator() {
+				return new CompactIterator<String>() {
+					@Override
+					protected String get(int index) {
+						return shape.keyAt(index);
+					}
+				};
+			}
+
+			@Override
+			public int size() {
+				return CompactJSONMap.this.size();
+			}
+			
+			@Override
+			public boolean contains(Object o) {
+				return containsKey(o);
+			}
+			
+			@Override
+			public boolean remove(Object o) {
+				int index = shape.indexOf(o);
+				if ( index<0 ) { return false; }
+				removeAt(index);
+				return true;
+			}
+			
+			@Override
+			public void clear() {
+				CompactJSONMap.this.clear();
+			}
+		};
+	}
+	
+	@Override
+	public Collection<Object> values() {
+		return new AbstractCollection<Object>() {
+			@Override
+			public Iterator<Object> iterator() {
+				return new CompactIterator<Object>() {
+					@Override
+					protected Object get(int index) {
+						return valueAt(index);
+					}
+				};
+			}
+
+			@Override
+			public int size() {
+				return CompactJSONMap.this.size();
+			}
+			
+			@Override
+			public void clear() {
+				CompactJSONMap.this.clear();
+			}
+		};
+	}
+	
+	@Override
+	public Set<Map.Entry<String, Object>> entrySet() {
+		return new AbstractSet<Map.Entry<String, Object>>() {
+			@Override
+			public Iterator<Map.Entry<String, Object>> iterator() {
+				return new CompactIterator<Map.Entry<String, Object>>() {
+					@Override
+					protected Map.Entry<String, Object> get(int index) {
+						return new CompactEntry(index);
+					}
+				};
+			}
+
+			@Override
+			public int size() {
+				return CompactJSONMap.this.size();
+			}
+			
+			@Override
+			public boolean contains(Object o) {
+				if ( !(o instanceof Map.Entry) ) { return false; }
+				Map.Entry<?, ?> entry = (Map.Entry<?, ?>)o;
+				int index = shape.indexOf(entry.getKey());
+				return index>=0 && Objects.equals(valueAt(index), entry.getValue());
+			}
+			
+			@Override
+			public void clear() {
+				CompactJSONMap.this.clear();
+			}
+		};
+	}
+	
+	/**
+	 * Return a shallow copy of this {@link CompactJSONMap} instance, sharing 
+	 * the current shape.
+	 */
+	@Override
+	public Object clone() {
+		CompactJSONMap result = newInstance();
+		result.shape = shape;
+		result.values = Arrays.copyOf(values, shape.size());
+		return result;
+	}
+	
+	/**
+	 * Create a new, empty instance of this class; used by {@link #clone()}.
+	 */
+	CompactJSONMap newInstance() {
+		return new CompactJSONMap();
+	}
+	
+	private void writeObject(ObjectOutputStream out) throws IOException {
+		out.defaultWriteObject();
+		int size = shape.size();
+		out.writeInt(size);
+		for ( int i = 0 ; i < size ; i++ ) {
+			out.writeObject(shape.keyAt(i));
+			out.writeObject(valueAt(i));
+		}
+	}
+	
+	private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+		in.defaultReadObject();
+		shape = JSONMapShape.EMPTY;
+		values = EMPTY_VALUES;
+		int size = in.readInt();
+		for ( int i = 0 ; i < size ; i++ ) {
+			put((String)in.readObject(), in.readObject());
+		}
+	}
+	
+	/**
+	 * Package-private base class for values that are only resolved upon first 
+	 * access. Once resolved, the resolved value replaces the {@link DeferredValue}
+	 * instance. {@link DeferredValue} instances must be immutable, as they may be
+	 * shared between {@link CompactJSONMap} instances by {@link CompactJSONMap#clone()}.
+	 */
+	static abstract class DeferredValue {
+		/**
+		 * Resolve the actual value for the given key
+		 */
+		abstract Object resolve(String key);
+	}
+	
+	/**
+	 * Base class for key, value and entry iterators
+	 */
+	private abstract class CompactIterator<E> implements Iterator<E> {
+		private int next = 0;
+		private int current = -1;
+		private int expectedModifications = modifications;
+		
+		@Override
+		public boolean hasNext() {
+			return next < shape.size();
+		}
+		
+		@Override
+		public E next() {
+			checkModifications();
+			if ( next >= shape.size() ) { throw new NoSuchElementException(); }
+			current = next++;
+			return get(current);
+		}
+		
+		@Override
+		public void remove() {
+			if ( current<0 ) { throw new IllegalStateException(); }
+			checkModifications();
+			removeAt(current);
+			next = current;
+			current = -1;
+			expectedModifications = modifications;
+		}
+		
+		private void checkModifications() {
+			if ( expectedModifications != modifications ) { throw new ConcurrentModificationException(); }
+		}
+		
+		protected abstract E get(int index);
+	}
+	
+	/**
+	 * {@link Map.Entry} implementation that reads and writes through to the
+	 * values array 
+	 */
+	private final class CompactEntry implements Map.Entry<String, Object> {
+		private final int index;
+		private final String key;
+		
+		private CompactEntry(int index) {
+			this.index = index;
+			this.key = shape.keyAt(index);
+		}
+		
+		@Override
+		public String getKey() {
+			return key;
+		}
+
+		@Override
+		public Object getValue() {
+			return valueAt(index);
+		}
+
+		@Override
+		public Object setValue(Object value) {
+			Object oldValue = valueAt(index);
+			values[index] = value;
+			return oldValue;
+		}
+		
+		@Override
+		public boolean equals(Object o) {
+			if ( !(o instanceof Map.Entry) ) { return false; }
+			Map.Entry<?, ?> e = (Map.Entry<?, ?>)o;
+			return Objects.equals(key, e.getKey()) && Objects.equals(getValue(), e.getValue());
+		}
+		
+		@Override
+		public int hashCode() {
+			return Objects.hashCode(key) ^ Objects.hashCode(getValue());
+		}
+		
+		@Override
+		public String toString() {
+			return key+"="+getValue();
+		}
+	}
+}
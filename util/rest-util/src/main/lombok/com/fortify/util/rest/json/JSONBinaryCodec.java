@@ -0,0 +1,322 @@
+/*******************************************************************************
+ * (c) Copyright 2017 EntIT Software LLC, a Micro Focus company
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a 
+ * copy of this software and associated documentation files (the 
+ * "Software"), to deal in the Software without restriction, including without 
+ * limitation the rights to use, copy, modify, merge, publish, distribute, 
+ * sublicense, and/or sell copies of the Software, and to permit persons to 
+ * whom the Software is furnished to do so, subject to the following 
+ * conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included 
+ * in all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY 
+ * KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE 
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR 
+ * PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE 
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, 
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF 
+ * CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN 
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS 
+ * IN THE SOFTWARE.
+ ******************************************************************************/
+package com.fortify.util.rest.json;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InvalidClassException;
+import java.io.ObjectInputStream;
+import java.io.ObjectStreamClass;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.ListIterator;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.commons.lang.SerializationUtils;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.module.SimpleModule;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileGenerator;
+import com.fortify.util.rest.json.ondemand.IJSONMapOnDemandLoader;
+
+/**
+ * <p>This class encodes {@link JSONMap} and {@link JSONList} instances to, and decodes 
+ * them from, a compact binary format; see {@link Format} for the supported formats. 
+ * Compared to JSON text or Java serialization, the binary representation is usually 
+ * both smaller and faster to encode and decode, making it suitable for caching, spilling 
+ * to disk, or sending records between JVM's.</p>
+ * 
+ * <p>Any {@link IJSONMapOnDemandLoader} instances that haven't been loaded yet are stored 
+ * as an object containing a single {@value #ON_DEMAND_LOADER_KEY} property with the 
+ * Java-serialized loader as a binary value. Upon decoding, only such tagged values are 
+ * deserialized, and only {@link IJSONMapOnDemandLoader} implementations and the field 
+ * types they are known to use are accepted; any other binary values are returned as-is.</p>
+ * 
+ * <p>Nested JSON objects are decoded as {@link CompactJSONMap} instances; top-level 
+ * JSON objects are decoded to the requested type, or to {@link CompactJSONMap} if
+ * no specific type is requested. Instances of this class are immutable and thread-safe.</p>
+ * 
+ * @author Ruud Senden
+ *
+ */
+public final class JSONBinaryCodec {
+	/** Default codec instance, using the Smile format with back-references */
+	public static final JSONBinaryCodec DEFAULT = new JSONBinaryCodec();
+	/** Property name used for tagging serialized {@link IJSONMapOnDemandLoader} instances */
+	public static final String ON_DEMAND_LOADER_KEY = "$onDemandLoader";
+	
+	/** Supported binary formats */
+	public static enum Format {
+		/** Jackson Smile format, optionally using back-references for repeated keys and short string values */
+		SMILE, 
+		/** Concise Binary Object Representation (RFC 7049) */
+		CBOR
+	}
+	
+	private final Format format;
+	private final boolean useBackReferences;
+	private final ObjectMapper mapper;
+	private final ObjectWriter writer;
+	
+	/**
+	 * Create a new {@link JSONBinaryCodec} instance using the Smile format with back-references.
+	 */
+	public JSONBinaryCodec() {
+		this(Format.SMILE, true);
+	}
+	
+	/**
+	 * Create a new {@link JSONBinaryCodec} instance using the given format. If 
+	 * useBackReferences is true, repeated keys and short string values are written 
+	 * as back-references to their first occurrence. Back-references are only supported
+	 * by the Smile format; for other formats this setting is ignored.
+	 * @param format
+	 * @param useBackReferences
+	 */
+	public JSONBinaryCodec(Format format, boolean useBackReferences) {
+		this.format = format;
+		this.useBackReferences = useBackReferences;
+		this.mapper = new JSONObjectMapperBuilder().useCompactJSONMaps(true).build(createFactory(format, useBackReferences));
+		this.mapper.registerModule(new SimpleModule("onDemandLoaders").addSerializer(IJSONMapOnDemandLoader.class, new OnDemandLoaderSerializer()));
+		this.writer = mapper.writer();
+	}
+	
+	private static final JsonFactory createFactory(Format format, boolean useBackReferences) {
+		switch (format) {
+		case SMILE:
+			return new SmileFactory()
+					.configure(SmileGenerator.Feature.CHECK_SHARED_NAMES, useBackReferences)
+					.configure(SmileGenerator.Feature.CHECK_SHARED_STRING_VALUES, useBackReferences);
+		case CBOR:
+			return new CBORFactory();
+		default:
+			throw new IllegalArgumentException("Unsupported format: "+format);
+		}
+	}
+	
+	/**
+	 * @return The {@link Format} used by this codec
+	 */
+	public Format getFormat() {
+		return format;
+	}
+	
+	/**
+	 * @return Whether this codec writes back-references for repeated keys and values
+	 */
+	public boolean isUseBackReferences() {
+		return useBackReferences && format==Format.SMILE;
+	}
+	
+	/**
+	 * Encode the given value
+	 */
+	public byte[] encode(Object value) {
+		try {
+			return writer.writeValueAsBytes(value);
+		} catch (IOException e) {
+			throw new RuntimeException("Error encoding JSON data", e);
+		}
+	}
+	
+	/**
+	 * Encode the given value to the given {@link OutputStream}. The
+	 * {@link OutputStream} will not be closed by this method.
+	 */
+	public void encode(Object value, OutputStream out) {
+		try {
+			writer.without(JsonGenerator.Feature.AUTO_CLOSE_TARGET).writeValue(out, value);
+		} catch (IOException e) {
+			throw new RuntimeException("Error encoding JSON data", e);
+		}
+	}
+	
+	/**
+	 * Decode a value from the given bytes
+	 */
+	public Object decode(byte[] bytes) {
+		return decode(bytes, 0, bytes.length);
+	}
+	
+	/**
+	 * Decode a value from the given bytes
+	 */
+	public Object decode(byte[] bytes, int offset, int length) {
+		return decode(bytes, offset, length, Object.class);
+	}
+	
+	/**
+	 * Decode a value of the given type from the given bytes
+	 */
+	public <T> T decode(byte[] bytes, Class<T> type) {
+		return decode(bytes, 0, bytes.length, type);
+	}
+	
+	/**
+	 * Decode a value of the given type from the given bytes
+	 */
+	public <T> T decode(byte[] bytes, int offset, int length, Class<T> type) {
+		try {
+			return type.cast(restoreOnDemandLoaders(mapper.readerFor(type).readValue(bytes, offset, length)));
+		} catch (IOException e) {
+			throw new RuntimeException("Error decoding JSON data", e);
+		}
+	}
+	
+	/**
+	 * Decode a value of the given type from the given {@link InputStream}.
+	 * The {@link InputStream} will not be closed by this method.
+	 */
+	public <T> T decode(InputStream in, Class<T> type) {
+		try {
+			return type.cast(restoreOnDemandLoaders(mapper.readerFor(type).without(JsonParser.Feature.AUTO_CLOSE_SOURCE).readValue(in)));
+		} catch (IOException e) {
+			throw new RuntimeException("Error decoding JSON data", e);
+		}
+	}
+	
+	/**
+	 * Decode a {@link JSONMap} from the given bytes
+	 */
+	public JSONMap decodeJSONMap(byte[] bytes) {
+		return decode(bytes, JSONMap.class);
+	}
+	
+	/**
+	 * Decode a {@link JSONList} from the given bytes
+	 */
+	public JSONList decodeJSONList(byte[] bytes) {
+		return decode(bytes, JSONList.class);
+	}
+	
+	/**
+	 * Recursively replace all tagged on-demand loader values with the 
+	 * corresponding deserialized {@link IJSONMapOnDemandLoader} instances.
+	 */
+	@SuppressWarnings("unchecked")
+	private static final Object restoreOnDemandLoaders(Object value) {
+		if ( value instanceof Map ) {
+			Map<String, Object> map = (Map<String, Object>)value;
+			if ( isOnDemandLoader(map) ) {
+				return deserializeOnDemandLoader((byte[])map.get(ON_DEMAND_LOADER_KEY));
+			}
+			for ( Map.Entry<String, Object> entry : map.entrySet() ) {
+				Object entryValue = entry.getValue();
+				Object restoredValue = restoreOnDemandLoaders(entryValue);
+				if ( restoredValue != entryValue ) { entry.setValue(restoredValue); }
+			}
+		} else if ( value instanceof List ) {
+			for ( ListIterator<Object> it = ((List<Object>)value).listIterator() ; it.hasNext() ; ) {
+				Object entryValue = it.next();
+				Object restoredValue = restoreOnDemandLoaders(entryValue);
+				if ( restoredValue != entryValue ) { it.set(restoredValue); }
+			}
+		}
+		return value;
+	}
+	
+	private static final boolean isOnDemandLoader(Map<String, Object> map) {
+		return map.size()==1 && map.get(ON_DEMAND_LOADER_KEY) instanceof byte[];
+	}
+	
+	private static final IJSONMapOnDemandLoader deserializeOnDemandLoader(byte[] bytes) {
+		try ( ObjectInputStream in = new OnDemandLoaderObjectInputStream(new ByteArrayInputStream(bytes)) ) {
+			return (IJSONMapOnDemandLoader)in.readObject();
+		} catch (IOException | ClassNotFoundException e) {
+			throw new RuntimeException("Error deserializing on-demand loader", e);
+		}
+	}
+	
+	/**
+	 * {@link ObjectInputStream} that only accepts {@link IJSONMapOnDemandLoader} 
+	 * implementations and the field types used by the standard on-demand loaders,
+	 * to avoid deserializing arbitrary classes from untrusted data.
+	 */
+	private static final class OnDemandLoaderObjectInputStream extends ObjectInputStream {
+		private static final Set<String> ALLOWED_CLASS_NAMES = new HashSet<>(Arrays.asList(
+				"com.fortify.util.rest.connection.AbstractRestConnection$SerializedConnection",
+				JSONMapTemplate.class.getName(), JSONMapPath.class.getName(),
+				String.class.getName(), Boolean.class.getName(), Character.class.getName(),
+				Object[].class.getName(), String[].class.getName()));
+		
+		private OnDemandLoaderObjectInputStream(InputStream in) throws IOException {
+			super(in);
+		}
+		
+		@Override
+		protected Class<?> resolveClass(ObjectStreamClass desc) throws IOException, ClassNotFoundException {
+			Class<?> clazz = super.resolveClass(desc);
+			if ( !isAllowed(clazz) ) {
+				throw new InvalidClassException(desc.getName(), "Class not allowed for on-demand loader deserialization");
+			}
+			return clazz;
+		}
+		
+		@Override
+		protected Class<?> resolveProxyClass(String[] interfaces) throws IOException, ClassNotFoundException {
+			throw new InvalidClassException("Proxy classes not allowed for on-demand loader deserialization");
+		}
+		
+		private static final boolean isAllowed(Class<?> clazz) {
+			return clazz.isPrimitive()
+					|| (clazz.isArray() && clazz.getComponentType().isPrimitive())
+					|| IJSONMapOnDemandLoader.class.isAssignableFrom(clazz)
+					|| (Number.class.isAssignableFrom(clazz) && clazz.getName().startsWith("java."))
+					|| Enum.class.isAssignableFrom(clazz)
+					|| ALLOWED_CLASS_NAMES.contains(clazz.getName());
+		}
+	}
+	
+	/**
+	 * Serializer for writing {@link IJSONMapOnDemandLoader} instances 
+	 * as tagged Java-serialized binary values.
+	 */
+	private static final class OnDemandLoaderSerializer extends StdSerializer<IJSONMapOnDemandLoader> {
+		private static final long serialVersionUID = 1L;
+
+		private OnDemandLoaderSerializer() {
+			super(IJSONMapOnDemandLoader.class);
+		}
+
+		@Override
+		public void serialize(IJSONMapOnDemandLoader value, JsonGenerator gen, SerializerProvider provider) throws IOException {
+			gen.writeStartObject();
+			gen.writeBinaryField(ON_DEMAND_LOADER_KEY, SerializationUtils.serialize(value));
+			gen.writeEndObject();
+		}
+	}
+}
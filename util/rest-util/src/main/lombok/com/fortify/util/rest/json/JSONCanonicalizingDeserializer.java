@@ -0,0 +1,133 @@
+/*******************************************************************************
+ * (c) Copyright 2017 EntIT Software LLC, a Micro Focus company
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a 
+ * copy of this software and associated documentation files (the 
+ * "Software"), to deal in the Software without restriction, including without 
+ * limitation the rights to use, copy, modify, merge, publish, distribute, 
+ * sublicense, and/or sell copies of the Software, and to permit persons to 
+ * whom the Software is furnished to do so, subject to the following 
+ * conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included 
+ * in all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY 
+ * KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE 
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR 
+ * PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE 
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, 
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF 
+ * CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN 
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS 
+ * IN THE SOFTWARE.
+ ******************************************************************************/
+package com.fortify.util.rest.json;
+
+import java.io.IOException;
+import java.util.Set;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.deser.std.StdDeserializer;
+
+/**
+ * <p>Jackson deserializer for {@link JSONMap} and {@link JSONList} instances, used
+ * by {@link JSONObjectMapperBuilder} when value canonicalization is enabled. This
+ * deserializer builds the complete {@link JSONMap}/{@link JSONList} tree directly 
+ * from the parser tokens. String values for any of the configured field names are 
+ * canonicalized through the configured {@link StringCanonicalizer}; field names
+ * are canonicalized by the Jackson parser itself.</p>
+ * 
+ * <p>Scalar values are deserialized in the same way as Jackson's standard untyped
+ * deserializer.</p>
+ * 
+ * @author Ruud Senden
+ *
+ */
+final class JSONCanonicalizingDeserializer<T> extends StdDeserializer<T> {
+	private static final long serialVersionUID = 1L;
+	private final Set<String> canonicalizedFields;
+	private final StringCanonicalizer canonicalizer;
+	private final boolean useCompactJSONMaps;
+	
+	private JSONCanonicalizingDeserializer(Class<T> type, Set<String> canonicalizedFields, StringCanonicalizer canonicalizer, boolean useCompactJSONMaps) {
+		super(type);
+		this.canonicalizedFields = canonicalizedFields;
+		this.canonicalizer = canonicalizer;
+		this.useCompactJSONMaps = useCompactJSONMaps;
+	}
+	
+	static final JSONCanonicalizingDeserializer<JSONMap> forJSONMap(Set<String> canonicalizedFields, StringCanonicalizer canonicalizer, boolean useCompactJSONMaps) {
+		return new JSONCanonicalizingDeserializer<>(JSONMap.class, canonicalizedFields, canonicalizer, useCompactJSONMaps);
+	}
+	
+	static final JSONCanonicalizingDeserializer<JSONList> forJSONList(Set<String> canonicalizedFields, StringCanonicalizer canonicalizer, boolean useCompactJSONMaps) {
+		return new JSONCanonicalizingDeserializer<>(JSONList.class, canonicalizedFields, canonicalizer, useCompactJSONMaps);
+	}
+
+	@Override
+	public T deserialize(JsonParser p, DeserializationContext ctxt) throws IOException {
+		JsonToken token = p.getCurrentToken();
+		Object result;
+		if ( JSONList.class.equals(handledType()) ) {
+			if ( token != JsonToken.START_ARRAY ) { return _unexpected(p, ctxt); }
+			result = readList(p, ctxt);
+		} else {
+			if ( token != JsonToken.START_OBJECT && token != JsonToken.FIELD_NAME ) { return _unexpected(p, ctxt); }
+			result = readMap(p, ctxt, new JSONMap());
+		}
+		@SuppressWarnings("unchecked")
+		T t = (T)result;
+		return t;
+	}
+	
+	private T _unexpected(JsonParser p, DeserializationContext ctxt) throws IOException {
+		@SuppressWarnings("unchecked")
+		T result = (T)ctxt.handleUnexpectedToken(handledType(), p);
+		return result;
+	}
+	
+	private JSONMap readMap(JsonParser p, DeserializationContext ctxt, JSONMap result) throws IOException {
+		String fieldName = p.getCurrentToken()==JsonToken.START_OBJECT ? p.nextFieldName() : p.getCurrentName();
+		for ( ; fieldName != null ; fieldName = p.nextFieldName() ) {
+			JsonToken token = p.nextToken();
+			Object value;
+			if ( token==JsonToken.VALUE_STRING && canonicalizedFields.contains(fieldName) ) {
+				value = canonicalizer.canonicalize(p.getText());
+			} else {
+				value = readValue(p, ctxt, token);
+			}
+			result.put(fieldName, value);
+		}
+		return result;
+	}
+	
+	private JSONList readList(JsonParser p, DeserializationContext ctxt) throws IOException {
+		JSONList result = new JSONList();
+		JsonToken token;
+		while ( (token = p.nextToken()) != JsonToken.END_ARRAY ) {
+			result.add(readValue(p, ctxt, token));
+		}
+		return result;
+	}
+	
+	private Object readValue(JsonParser p, DeserializationContext ctxt, JsonToken token) throws IOException {
+		switch (token) {
+		case START_OBJECT: return readMap(p, ctxt, useCompactJSONMaps ? new CompactJSONMap() : new JSONMap());
+		case START_ARRAY: return readList(p, ctxt);
+		case VALUE_STRING: return p.getText();
+		case VALUE_NUMBER_INT:
+			return ctxt.isEnabled(DeserializationFeature.USE_BIG_INTEGER_FOR_INTS) ? p.getBigIntegerValue() : p.getNumberValue();
+		case VALUE_NUMBER_FLOAT:
+			return ctxt.isEnabled(DeserializationFeature.USE_BIG_DECIMAL_FOR_FLOATS) ? p.getDecimalValue() : p.getNumberValue();
+		case VALUE_TRUE: return Boolean.TRUE;
+		case VALUE_FALSE: return Boolean.FALSE;
+		case VALUE_NULL: return null;
+		case VALUE_EMBEDDED_OBJECT: return p.getEmbeddedObject();
+		default: return ctxt.handleUnexpectedToken(Object.class, p);
+		}
+	}
+}
@@ -34,8 +34,6 @@ import org.apache.commons.collections.CollectionUtils;
 import org.springframework.core.convert.support.DefaultConversionService;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.databind.SerializationFeature;
 import com.fortify.util.spring.SpringExpressionUtil;
 
 /**
@@ -221,7 +219,7 @@ public class JSONList extends ArrayList<Object> {
 	@Override
 	public String toString() {
 		try {
-			return new ObjectMapper().writeValueAsString(this);
+			return JSONMap.WRITER.writeValueAsString(this);
 		} catch (JsonProcessingException e) {
 			return super.toString();
 		}
@@ -234,7 +232,7 @@ public class JSONList extends ArrayList<Object> {
 	 */
 	public String toIndentedString() {
 		try {
-			return new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT).writeValueAsString(this);
+			return JSONMap.INDENTED_WRITER.writeValueAsString(this);
 		} catch (JsonProcessingException e) {
 			return super.toString();
 		}
@@ -42,6 +42,7 @@ import org.springframework.core.convert.support.DefaultConversionService;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
 import com.fasterxml.jackson.databind.SerializationFeature;
 import com.fortify.util.rest.json.ondemand.IJSONMapOnDemandLoader;
 import com.fortify.util.spring.SpringExpressionUtil;
@@ -55,6 +56,10 @@ import com.fortify.util.spring.SpringExpressionUtil;
  */
 public class JSONMap extends LinkedHashMap<String, Object> {
 	private static final long serialVersionUID = 1L;
+	/** Shared {@link ObjectWriter} used by {@link #toString()}, also used by {@link JSONList} */
+	static final ObjectWriter WRITER = new ObjectMapper().writer();
+	/** Shared {@link ObjectWriter} used by {@link #toIndentedString()}, also used by {@link JSONList} */
+	static final ObjectWriter INDENTED_WRITER = WRITER.with(SerializationFeature.INDENT_OUTPUT);
 
 	/**
 	 * @see LinkedHashMap#LinkedHashMap()
@@ -248,7 +253,12 @@ public class JSONMap extends LinkedHashMap<String, Object> {
 		}
 	}
 	
-	private Object getOnDemandValue(Object key, Object object) {
+	/**
+	 * If the given value is an {@link IJSONMapOnDemandLoader} instance, load and
+	 * return the actual value for the given key. Otherwise, the given value is
+	 * returned as-is.
+	 */
+	protected final Object getOnDemandValue(Object key, Object object) {
 		if ( object instanceof IJSONMapOnDemandLoader ) {
 			object = ((IJSONMapOnDemandLoader)object).getAndStoreOnDemand((String)key, this);
 		}
@@ -285,7 +295,7 @@ public class JSONMap extends LinkedHashMap<String, Object> {
 	@Override
 	public String toString() {
 		try {
-			return new ObjectMapper().writeValueAsString(this);
+			return WRITER.writeValueAsString(this);
 		} catch (JsonProcessingException e) {
 			return super.toString();
 		}
@@ -298,7 +308,7 @@ public class JSONMap extends LinkedHashMap<String, Object> {
 	 */
 	public String toIndentedString() {
 		try {
-			return new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT).writeValueAsString(this);
+			return INDENTED_WRITER.writeValueAsString(this);
 		} catch (JsonProcessingException e) {
 			return super.toString();
 		}
@@ -0,0 +1,143 @@
+/*******************************************************************************
+ * (c) Copyright 2017 EntIT Software LLC, a Micro Focus company
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a 
+ * copy of this software and associated documentation files (the 
+ * "Software"), to deal in the Software without restriction, including without 
+ * limitation the rights to use, copy, modify, merge, publish, distribute, 
+ * sublicense, and/or sell copies of the Software, and to permit persons to 
+ * whom the Software is furnished to do so, subject to the following 
+ * conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included 
+ * in all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY 
+ * KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE 
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR 
+ * PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE 
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, 
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF 
+ * CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN 
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS 
+ * IN THE SOFTWARE.
+ ******************************************************************************/
+package com.fortify.util.rest.json;
+
+import java.io.Serializable;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+import lombok.Getter;
+
+/**
+ * <p>This class represents a pre-compiled, dot-separated JSON property path like
+ * <code>currentState.lastFprUploadDate</code>. Contrary to {@link JSONMap#getPath(String)},
+ * which evaluates the path as a SpEL expression on every invocation, the path segments
+ * are split only once, and {@link #get(Map)} simply walks the given map structure.</p>
+ * 
+ * <p>Intermediate {@link JSONMap} instances are accessed through {@link JSONMap#get(Object)},
+ * so on-demand properties are loaded as usual. If any intermediate value is null or not 
+ * a {@link Map}, {@link #get(Map)} returns null.</p>
+ * 
+ * <p>Use {@link #isSimplePath(String)} to check whether a given expression can be 
+ * represented by this class; more complex SpEL expressions should still be evaluated
+ * using {@link JSONMap#getPath(String)}.</p>
+ * 
+ * @author Ruud Senden
+ *
+ */
+public final class JSONMapPath implements Serializable {
+	private static final long serialVersionUID = 1L;
+	private static final Pattern SIMPLE_PATH_PATTERN = Pattern.compile("[A-Za-z_$][A-Za-z0-9_$]*(\\.[A-Za-z_$][A-Za-z0-9_$]*)*");
+	@Getter private final String path;
+	private final String[] segments;
+	
+	private JSONMapPath(String path) {
+		this.path = path;
+		this.segments = path.split("\\.");
+	}
+	
+	/**
+	 * Compile the given dot-separated property path. 
+	 * @param path
+	 * @return
+	 * @throws IllegalArgumentException if the given path is not a simple property path
+	 */
+	public static final JSONMapPath compile(String path) {
+		if ( !isSimplePath(path) ) {
+			throw new IllegalArgumentException("Not a simple property path: "+path);
+		}
+		return new JSONMapPath(path);
+	}
+	
+	/**
+	 * Check whether the given expression is a simple dot-separated property path
+	 * that can be compiled using {@link #compile(String)}.
+	 * @param path
+	 * @return
+	 */
+	public static final boolean isSimplePath(String path) {
+		return path!=null && SIMPLE_PATH_PATTERN.matcher(path).matches();
+	}
+	
+	/**
+	 * Get the value for this property path from the given {@link Map},
+	 * or null if the path cannot be resolved.
+	 * @param map
+	 * @return
+	 */
+	public final Object get(Map<?, ?> map) {
+		Object current = map;
+		for ( String segment : segments ) {
+			if ( !(current instanceof Map) ) { return null; }
+			current = ((Map<?, ?>)current).get(segment);
+		}
+		return current;
+	}
+	
+	/**
+	 * Check whether the given {@link Map} contains a (possibly null) value
+	 * for this property path.
+	 * @param map
+	 * @return
+	 */
+	public final boolean exists(Map<?, ?> map) {
+		Object current = map;
+		int last = segments.length-1;
+		for ( int i = 0 ; i < last ; i++ ) {
+			if ( !(current instanceof Map) ) { return false; }
+			current = ((Map<?, ?>)current).get(segments[i]);
+		}
+		return current instanceof Map && ((Map<?, ?>)current).containsKey(segments[last]);
+	}
+	
+	/**
+	 * @return The number of segments in this property path
+	 */
+	public final int getSegmentCount() {
+		return segments.length;
+	}
+	
+	/**
+	 * @return The first segment of this property path, i.e. the top-level property name
+	 */
+	public final String getRootProperty() {
+		return segments[0];
+	}
+	
+	@Override
+	public int hashCode() {
+		return path.hashCode();
+	}
+	
+	@Override
+	public boolean equals(Object obj) {
+		return obj instanceof JSONMapPath && path.equals(((JSONMapPath)obj).path);
+	}
+	
+	@Override
+	public String toString() {
+		return path;
+	}
+}
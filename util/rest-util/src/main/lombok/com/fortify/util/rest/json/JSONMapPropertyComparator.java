@@ -0,0 +1,87 @@
+/*******************************************************************************
+ * (c) Copyright 2017 EntIT Software LLC, a Micro Focus company
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a 
+ * copy of this software and associated documentation files (the 
+ * "Software"), to deal in the Software without restriction, including without 
+ * limitation the rights to use, copy, modify, merge, publish, distribute, 
+ * sublicense, and/or sell copies of the Software, and to permit persons to 
+ * whom the Software is furnished to do so, subject to the following 
+ * conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included 
+ * in all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY 
+ * KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE 
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR 
+ * PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE 
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, 
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF 
+ * CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN 
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS 
+ * IN THE SOFTWARE.
+ ******************************************************************************/
+package com.fortify.util.rest.json;
+
+import java.io.Serializable;
+import java.util.Comparator;
+
+/**
+ * This {@link Comparator} implementation compares {@link JSONMap} instances based on
+ * the value of a given property path, in either ascending or descending order. Simple
+ * dot-separated property paths are evaluated through {@link JSONMapPath}; any other
+ * expressions are evaluated through {@link JSONMap#getPath(String)}. Null values are
+ * ordered before any non-null values, numbers are compared by numeric value, and 
+ * other values are compared according to their natural ordering if comparable,
+ * or otherwise according to their string representation.
+ * 
+ * @author Ruud Senden
+ *
+ */
+public final class JSONMapPropertyComparator implements Comparator<JSONMap>, Serializable {
+	private static final long serialVersionUID = 1L;
+	private final String propertyPath;
+	private final JSONMapPath compiledPath;
+	private final boolean descending;
+	
+	/**
+	 * Create a new instance for comparing the given property path in
+	 * ascending or descending order.
+	 * @param propertyPath
+	 * @param descending
+	 */
+	public JSONMapPropertyComparator(String propertyPath, boolean descending) {
+		this.propertyPath = propertyPath;
+		this.compiledPath = JSONMapPath.isSimplePath(propertyPath) ? JSONMapPath.compile(propertyPath) : null;
+		this.descending = descending;
+	}
+	
+	@Override
+	public int compare(JSONMap o1, JSONMap o2) {
+		int result = compareValues(getValue(o1), getValue(o2));
+		return descending ? -result : result;
+	}
+	
+	private Object getValue(JSONMap map) {
+		return compiledPath != null ? compiledPath.get(map) : map.getPath(propertyPath);
+	}
+	
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	private static final int compareValues(Object v1, Object v2) {
+		if ( v1 == null || v2 == null ) {
+			return v1 == null ? (v2 == null ? 0 : -1) : 1;
+		} else if ( v1 instanceof Number && v2 instanceof Number ) {
+			return Double.compare(((Number)v1).doubleValue(), ((Number)v2).doubleValue());
+		} else if ( v1 instanceof Comparable && v1.getClass().isInstance(v2) ) {
+			return ((Comparable)v1).compareTo(v2);
+		} else {
+			return v1.toString().compareTo(v2.toString());
+		}
+	}
+	
+	@Override
+	public String toString() {
+		return propertyPath+(descending ? " DESC" : " ASC");
+	}
+}
@@ -0,0 +1,134 @@
+/*******************************************************************************
+ * (c) Copyright 2017 EntIT Software LLC, a Micro Focus company
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a 
+ * copy of this software and associated documentation files (the 
+ * "Software"), to deal in the Software without restriction, including without 
+ * limitation the rights to use, copy, modify, merge, publish, distribute, 
+ * sublicense, and/or sell copies of the Software, and to permit persons to 
+ * whom the Software is furnished to do so, subject to the following 
+ * conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included 
+ * in all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY 
+ * KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE 
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR 
+ * PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE 
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, 
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF 
+ * CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN 
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS 
+ * IN THE SOFTWARE.
+ ******************************************************************************/
+package com.fortify.util.rest.json;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * <p>Immutable key layout shared by {@link CompactJSONMap} instances that have
+ * the same keys in the same order. Shapes form a transition tree starting at 
+ * {@link #EMPTY}; adding a key to a shape returns the (cached) child shape for 
+ * that key, such that records with the same structure end up sharing a single 
+ * shape instance.</p>
+ * 
+ * <p>To protect against unbounded growth of the transition tree for heterogeneous
+ * data (for example objects that use data values as keys), at most 
+ * {@value #MAX_SHARED_SHAPES} shapes are cached; beyond that, new shapes are
+ * created but not shared.</p>
+ * 
+ * @author Ruud Senden
+ *
+ */
+final class JSONMapShape {
+	static final int MAX_SHARED_SHAPES = 50000;
+	private static final AtomicInteger SHARED_SHAPE_COUNT = new AtomicInteger();
+	static final JSONMapShape EMPTY = new JSONMapShape(new String[0], null);
+	
+	private final String[] keys;
+	private final Map<String, Integer> indexes;
+	private final ConcurrentMap<String, JSONMapShape> transitions = new ConcurrentHashMap<>(4);
+	/** Shape containing only the first key of this shape, used for tracking the expected number of keys */
+	private final JSONMapShape root;
+	private volatile int expectedSize;
+	
+	private JSONMapShape(String[] keys, JSONMapShape root) {
+		this.keys = keys;
+		this.indexes = new HashMap<>((int)(keys.length/0.75f)+1);
+		for ( int i = 0 ; i < keys.length ; i++ ) {
+			indexes.put(keys[i], i);
+		}
+		this.root = root==null && keys.length>0 ? this : root;
+	}
+	
+	final int size() {
+		return keys.length;
+	}
+	
+	final String keyAt(int index) {
+		return keys[index];
+	}
+	
+	final int indexOf(Object key) {
+		Integer result = indexes.get(key);
+		return result==null ? -1 : result;
+	}
+	
+	/**
+	 * @return The largest number of keys seen so far for shapes
+	 *         starting with the same key as this shape.
+	 */
+	final int getExpectedSize() {
+		return root==null ? 0 : root.expectedSize;
+	}
+	
+	/**
+	 * Get the shape that results from appending the given key to this shape.
+	 */
+	final JSONMapShape withKey(String key) {
+		if ( key==null ) { throw new NullPointerException("CompactJSONMap doesn't support null keys"); }
+		JSONMapShape result = transitions.get(key);
+		if ( result == null ) {
+			result = createChild(key);
+			if ( SHARED_SHAPE_COUNT.get() < MAX_SHARED_SHAPES ) {
+				JSONMapShape existing = transitions.putIfAbsent(key, result);
+				if ( existing != null ) { 
+					result = existing;
+				} else {
+					SHARED_SHAPE_COUNT.incrementAndGet();
+				}
+			}
+		}
+		JSONMapShape resultRoot = result.root;
+		if ( resultRoot.expectedSize < result.keys.length ) {
+			resultRoot.expectedSize = result.keys.length;
+		}
+		return result;
+	}
+	
+	/**
+	 * Get the shape that results from removing the given key from this shape,
+	 * keeping the order of the remaining keys.
+	 */
+	final JSONMapShape withoutKey(String key) {
+		JSONMapShape result = EMPTY;
+		for ( String existingKey : keys ) {
+			if ( !existingKey.equals(key) ) {
+				result = result.withKey(existingKey);
+			}
+		}
+		return result;
+	}
+
+	private JSONMapShape createChild(String key) {
+		String[] newKeys = new String[keys.length+1];
+		System.arraycopy(keys, 0, newKeys, 0, keys.length);
+		newKeys[keys.length] = key;
+		return new JSONMapShape(newKeys, root);
+	}
+}
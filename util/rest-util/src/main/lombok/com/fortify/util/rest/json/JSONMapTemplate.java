@@ -0,0 +1,229 @@
+/*******************************************************************************
+ * (c) Copyright 2017 EntIT Software LLC, a Micro Focus company
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a 
+ * copy of this software and associated documentation files (the 
+ * "Software"), to deal in the Software without restriction, including without 
+ * limitation the rights to use, copy, modify, merge, publish, distribute, 
+ * sublicense, and/or sell copies of the Software, and to permit persons to 
+ * whom the Software is furnished to do so, subject to the following 
+ * conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included 
+ * in all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY 
+ * KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE 
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR 
+ * PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE 
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, 
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF 
+ * CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN 
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS 
+ * IN THE SOFTWARE.
+ ******************************************************************************/
+package com.fortify.util.rest.json;
+
+import java.io.Serializable;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import lombok.Getter;
+
+/**
+ * <p>This class represents a pre-compiled template containing <code>${property}</code>
+ * or <code>${property.path}</code> placeholders, like <code>/api/v1/issues/${id}/comments</code>.
+ * Upon compilation, the template is split into a list of literal segments and placeholder
+ * segments; rendering simply appends these segments to a (re-used) {@link StringBuilder}, 
+ * resolving placeholders using {@link JSONMapPath#get(java.util.Map)}. Contrary to SpEL 
+ * template expressions, the template doesn't need to be parsed or evaluated for every 
+ * {@link JSONMap} instance.</p>
+ * 
+ * <p>Placeholder values are URL-encoded upon rendering (using percent-encoding for 
+ * anything other than unreserved characters), such that the rendered template can 
+ * safely be used as a URI. Literal segments are rendered as-is. Like SpEL template
+ * expressions, null values are rendered as an empty string.</p>
+ * 
+ * <p>Use {@link #isSimpleTemplate(String)} to check whether a given template expression 
+ * can be represented by this class; more complex template expressions should still be 
+ * evaluated using SpEL.</p>
+ * 
+ * @author Ruud Senden
+ *
+ */
+public final class JSONMapTemplate implements Serializable {
+	private static final long serialVersionUID = 1L;
+	private static final Pattern PLACEHOLDER_PATTERN = Pattern.compile("\\$\\{([^}]*)\\}");
+	private static final Pattern ABSOLUTE_URI_PATTERN = Pattern.compile("^[A-Za-z][A-Za-z0-9+.-]*:.*");
+	private static final char[] HEX = "0123456789ABCDEF".toCharArray();
+	private static final ThreadLocal<StringBuilder> BUFFERS = new ThreadLocal<StringBuilder>() {
+		@Override
+		protected StringBuilder initialValue() {
+			return new StringBuilder(256);
+		}
+	};
+	@Getter private final String template;
+	/** Segments are either {@link String} literals or {@link JSONMapPath} placeholders */
+	private final Object[] segments;
+	@Getter private final boolean absolute;
+	
+	private JSONMapTemplate(String template, Object[] segments) {
+		this.template = template;
+		this.segments = segments;
+		this.absolute = ABSOLUTE_URI_PATTERN.matcher(template).matches();
+	}
+	
+	/**
+	 * Compile the given template.
+	 * @param template
+	 * @return
+	 * @throws IllegalArgumentException if the given template is not a simple template
+	 */
+	public static final JSONMapTemplate compile(String template) {
+		if ( !isSimpleTemplate(template) ) {
+			throw new IllegalArgumentException("Not a simple template: "+template);
+		}
+		List<Object> segments = new ArrayList<>();
+		Matcher matcher = PLACEHOLDER_PATTERN.matcher(template);
+		int start = 0;
+		while ( matcher.find() ) {
+			if ( matcher.start()>start ) {
+				segments.add(template.substring(start, matcher.start()));
+			}
+			segments.add(JSONMapPath.compile(matcher.group(1).trim()));
+			start = matcher.end();
+		}
+		if ( start < template.length() ) {
+			segments.add(template.substring(start));
+		}
+		return new JSONMapTemplate(template, segments.toArray());
+	}
+	
+	/**
+	 * Check whether the given template only contains simple <code>${property.path}</code> 
+	 * placeholders, such that it can be compiled using {@link #compile(String)}.
+	 * @param template
+	 * @return
+	 */
+	public static final boolean isSimpleTemplate(String template) {
+		if ( template==null || template.indexOf('\\')>=0 ) { return false; }
+		Matcher matcher = PLACEHOLDER_PATTERN.matcher(template);
+		int start = 0;
+		while ( matcher.find() ) {
+			if ( template.substring(start, matcher.start()).contains("${") || !JSONMapPath.isSimplePath(matcher.group(1).trim()) ) {
+				return false;
+			}
+			start = matcher.end();
+		}
+		return !template.substring(start).contains("${");
+	}
+	
+	/**
+	 * Render this template for the given {@link JSONMap} instance.
+	 * @param data
+	 * @return
+	 */
+	public final String render(JSONMap data) {
+		StringBuilder sb = getBuffer();
+		renderTo(data, sb);
+		return sb.toString();
+	}
+	
+	/**
+	 * Render this template for the given {@link JSONMap} instance as a {@link URI}.
+	 * If this template doesn't represent an absolute URI, the rendered template is
+	 * appended to the given base URL (which is expected to be properly encoded
+	 * already). 
+	 * @param data
+	 * @param baseUrl
+	 * @return
+	 */
+	public final URI renderURI(JSONMap data, String baseUrl) {
+		StringBuilder sb = getBuffer();
+		if ( !absolute && baseUrl!=null ) {
+			sb.append(baseUrl);
+			if ( sb.length()>0 && sb.charAt(sb.length()-1)=='/' ) { sb.setLength(sb.length()-1); }
+			if ( !template.startsWith("/") ) { sb.append('/'); }
+		}
+		renderTo(data, sb);
+		return URI.create(sb.toString());
+	}
+	
+	/**
+	 * Append the rendered template for the given {@link JSONMap} instance
+	 * to the given {@link StringBuilder}.
+	 * @param data
+	 * @param sb
+	 */
+	public final void renderTo(JSONMap data, StringBuilder sb) {
+		for ( Object segment : segments ) {
+			if ( segment instanceof String ) {
+				sb.append((String)segment);
+			} else {
+				Object value = ((JSONMapPath)segment).get(data);
+				if ( value != null ) {
+					appendEncoded(sb, value instanceof CharSequence ? (CharSequence)value : value.toString());
+				}
+			}
+		}
+	}
+	
+	/**
+	 * @return The property paths referenced by the placeholders in this template 
+	 */
+	public final List<JSONMapPath> getPlaceholderPaths() {
+		List<JSONMapPath> result = new ArrayList<>();
+		for ( Object segment : segments ) {
+			if ( segment instanceof JSONMapPath ) { result.add((JSONMapPath)segment); }
+		}
+		return result;
+	}
+	
+	private static final StringBuilder getBuffer() {
+		StringBuilder sb = BUFFERS.get();
+		sb.setLength(0);
+		return sb;
+	}
+	
+	/**
+	 * Append the given value to the given {@link StringBuilder}, percent-encoding
+	 * any characters other than the unreserved characters defined by RFC 3986 
+	 * using their UTF-8 representation.
+	 */
+	private static final void appendEncoded(StringBuilder sb, CharSequence value) {
+		int length = value.length();
+		for ( int i = 0 ; i < length ; i++ ) {
+			char c = value.charAt(i);
+			if ( (c>='a' && c<='z') || (c>='A' && c<='Z') || (c>='0' && c<='9') || c=='-' || c=='.' || c=='_' || c=='~' ) {
+				sb.append(c);
+			} else if ( c < 0x80 ) {
+				appendEncodedByte(sb, c);
+			} else if ( c < 0x800 ) {
+				appendEncodedByte(sb, 0xC0 | (c >> 6));
+				appendEncodedByte(sb, 0x80 | (c & 0x3F));
+			} else if ( Character.isHighSurrogate(c) && i+1<length && Character.isLowSurrogate(value.charAt(i+1)) ) {
+				int cp = Character.toCodePoint(c, value.charAt(++i));
+				appendEncodedByte(sb, 0xF0 | (cp >> 18));
+				appendEncodedByte(sb, 0x80 | ((cp >> 12) & 0x3F));
+				appendEncodedByte(sb, 0x80 | ((cp >> 6) & 0x3F));
+				appendEncodedByte(sb, 0x80 | (cp & 0x3F));
+			} else {
+				appendEncodedByte(sb, 0xE0 | (c >> 12));
+				appendEncodedByte(sb, 0x80 | ((c >> 6) & 0x3F));
+				appendEncodedByte(sb, 0x80 | (c & 0x3F));
+			}
+		}
+	}
+	
+	private static final void appendEncodedByte(StringBuilder sb, int b) {
+		sb.append('%').append(HEX[(b >> 4) & 0xF]).append(HEX[b & 0xF]);
+	}
+	
+	@Override
+	public String toString() {
+		return template;
+	}
+}
@@ -0,0 +1,136 @@
+/*******************************************************************************
+ * (c) Copyright 2017 EntIT Software LLC, a Micro Focus company
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a 
+ * copy of this software and associated documentation files (the 
+ * "Software"), to deal in the Software without restriction, including without 
+ * limitation the rights to use, copy, modify, merge, publish, distribute, 
+ * sublicense, and/or sell copies of the Software, and to permit persons to 
+ * whom the Software is furnished to do so, subject to the following 
+ * conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included 
+ * in all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY 
+ * KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE 
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR 
+ * PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE 
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, 
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF 
+ * CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN 
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS 
+ * IN THE SOFTWARE.
+ ******************************************************************************/
+package com.fortify.util.rest.json;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.module.SimpleModule;
+
+/**
+ * This class allows for building Jackson {@link ObjectMapper} instances that 
+ * deserialize JSON objects to {@link JSONMap} instances and JSON arrays to 
+ * {@link JSONList} instances. Optionally, nested JSON objects can be deserialized
+ * to {@link CompactJSONMap} instances, and string values for low-cardinality fields 
+ * can be canonicalized, to reduce memory usage.
+ * 
+ * @author Ruud Senden
+ *
+ */
+public class JSONObjectMapperBuilder {
+	/** Low-cardinality SSC and FoD fields that are canonicalized by {@link #canonicalizeDefaultValues()} */
+	public static final Set<String> DEFAULT_CANONICALIZED_FIELDS = Collections.unmodifiableSet(new HashSet<>(Arrays.asList(
+			"severity", "friority", "engineType", "displayEngineType", "engineCategory", "analyzer", "kingdom", 
+			"status", "issueStatus", "scanStatus", "primaryTag", "issueName", "category", "folderGuid", 
+			"projectName", "projectVersionName", "applicationName", "releaseName", "scantype", "primaryRuleGuid")));
+	private boolean useCompactJSONMaps = false;
+	private Set<String> canonicalizedFields = Collections.emptySet();
+	private StringCanonicalizer canonicalizer;
+	
+	/**
+	 * Configure whether nested JSON objects (like individual records in a 
+	 * page of results) should be deserialized as {@link CompactJSONMap}
+	 * instances. Top-level JSON objects are always deserialized to the 
+	 * requested type, usually {@link JSONMap}.
+	 * @param useCompactJSONMaps
+	 * @return
+	 */
+	public JSONObjectMapperBuilder useCompactJSONMaps(boolean useCompactJSONMaps) {
+		this.useCompactJSONMaps = useCompactJSONMaps;
+		return this;
+	}
+	
+	/**
+	 * Configure the field names for which string values should be canonicalized
+	 * through a bounded intern table, such that all occurrences of the same value
+	 * share a single {@link String} instance. This should only be used for fields
+	 * with a limited number of distinct values. Field names themselves are always
+	 * canonicalized by the Jackson parser.
+	 * @param fieldNames
+	 * @return
+	 */
+	public JSONObjectMapperBuilder canonicalizeValues(Collection<String> fieldNames) {
+		this.canonicalizedFields = fieldNames==null ? Collections.<String>emptySet() : new HashSet<>(fieldNames);
+		return this;
+	}
+	
+	/**
+	 * Canonicalize string values for the fields listed in {@link #DEFAULT_CANONICALIZED_FIELDS}.
+	 * @return
+	 */
+	public JSONObjectMapperBuilder canonicalizeDefaultValues() {
+		return canonicalizeValues(DEFAULT_CANONICALIZED_FIELDS);
+	}
+	
+	/**
+	 * Configure the {@link StringCanonicalizer} instance used for canonicalizing
+	 * values. By default, each {@link ObjectMapper} instance uses its own 
+	 * {@link StringCanonicalizer} with default settings.
+	 * @param canonicalizer
+	 * @return
+	 */
+	public JSONObjectMapperBuilder canonicalizer(StringCanonicalizer canonicalizer) {
+		this.canonicalizer = canonicalizer;
+		return this;
+	}
+	
+	/**
+	 * Build a new {@link ObjectMapper} instance based on the current configuration.
+	 * @return
+	 */
+	public ObjectMapper build() {
+		return build(null);
+	}
+	
+	/**
+	 * Build a new {@link ObjectMapper} instance based on the current configuration,
+	 * using the given {@link JsonFactory}. This allows for building {@link ObjectMapper}
+	 * instances for binary data formats like Smile. If the given {@link JsonFactory} is
+	 * null, a default JSON factory will be used.
+	 * @param factory
+	 * @return
+	 */
+	public ObjectMapper build(JsonFactory factory) {
+		ObjectMapper mapper = new ObjectMapper(factory);
+		SimpleModule module = new SimpleModule("treemaps");
+		module.addAbstractTypeMapping(Map.class, useCompactJSONMaps ? CompactJSONMap.class : JSONMap.class);
+		module.addAbstractTypeMapping(List.class, JSONList.class);
+		if ( !canonicalizedFields.isEmpty() ) {
+			StringCanonicalizer canonicalizer = this.canonicalizer!=null ? this.canonicalizer : new StringCanonicalizer();
+			module.addDeserializer(JSONMap.class, JSONCanonicalizingDeserializer.forJSONMap(canonicalizedFields, canonicalizer, useCompactJSONMaps));
+			module.addDeserializer(JSONList.class, JSONCanonicalizingDeserializer.forJSONList(canonicalizedFields, canonicalizer, useCompactJSONMaps));
+			mapper.getFactory().enable(JsonFactory.Feature.CANONICALIZE_FIELD_NAMES).enable(JsonFactory.Feature.INTERN_FIELD_NAMES);
+		}
+		mapper.registerModule(module);
+		return mapper;
+	}
+}
@@ -0,0 +1,154 @@
+/*******************************************************************************
+ * (c) Copyright 2017 EntIT Software LLC, a Micro Focus company
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a 
+ * copy of this software and associated documentation files (the 
+ * "Software"), to deal in the Software without restriction, including without 
+ * limitation the rights to use, copy, modify, merge, publish, distribute, 
+ * sublicense, and/or sell copies of the Software, and to permit persons to 
+ * whom the Software is furnished to do so, subject to the following 
+ * conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included 
+ * in all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY 
+ * KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE 
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR 
+ * PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE 
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, 
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF 
+ * CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN 
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS 
+ * IN THE SOFTWARE.
+ ******************************************************************************/
+package com.fortify.util.rest.json;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.SequenceInputStream;
+import java.util.Arrays;
+
+import com.fasterxml.jackson.databind.ObjectReader;
+
+/**
+ * <p>This {@link CompactJSONMap} extension keeps a reference to the raw JSON bytes
+ * for each of its values, only deserializing a value upon first access. This allows
+ * for efficiently processing large records like issues, if only a few properties
+ * are actually accessed. Instances of this class are usually created by
+ * {@link LazyJSONMapReader}, but can be used like any other {@link JSONMap}.</p>
+ * 
+ * <p>Note that the raw bytes are usually shared with all other records that were 
+ * read from the same response, so as long as any of these records contains undecoded
+ * values, the full response buffer will be retained in memory. Callers that keep 
+ * records for a longer period of time can call {@link #materialize()} to decode all
+ * remaining values, releasing the reference to the response buffer.</p>
+ * 
+ * <p>Like {@link JSONMap}, this class is not thread-safe; note that even read 
+ * operations may update the internal state of this class.</p>
+ * 
+ * @author Ruud Senden
+ *
+ */
+public class LazyJSONMap extends CompactJSONMap {
+	private static final long serialVersionUID = 1L;
+	
+	/**
+	 * Create an empty {@link LazyJSONMap} instance
+	 */
+	public LazyJSONMap() {}
+	
+	/**
+	 * Decode all values that haven't been accessed yet.
+	 * @return This {@link LazyJSONMap} instance
+	 */
+	public LazyJSONMap materialize() {
+		int size = size();
+		for ( int i = 0 ; i < size ; i++ ) {
+			valueAt(i);
+		}
+		return this;
+	}
+	
+	/**
+	 * Indicate whether all values in this {@link LazyJSONMap} instance have
+	 * been decoded.
+	 * @return
+	 */
+	public boolean isMaterialized() {
+		int size = size();
+		for ( int i = 0 ; i < size ; i++ ) {
+			if ( isDeferredAt(i) ) { return false; }
+		}
+		return true;
+	}
+	
+	@Override
+	CompactJSONMap newInstance() {
+		return new LazyJSONMap();
+	}
+	
+	/**
+	 * Add the given key, with a value that will be decoded upon first access
+	 * from the given source bytes. The given start and end offsets must cover
+	 * both the JSON field name and the field value, i.e. <code>"key":value</code>.
+	 */
+	void putRaw(String key, RawSource source, int start, int end) {
+		put(key, new RawValue(source, start, end));
+	}
+	
+	/**
+	 * This class holds the response bytes, and the {@link ObjectReader} for
+	 * decoding values from these bytes.
+	 */
+	static final class RawSource {
+		private static final byte[] OBJECT_START = "{".getBytes();
+		private static final byte[] OBJECT_END = "}".getBytes();
+		private final byte[] bytes;
+		private final ObjectReader reader;
+		
+		RawSource(byte[] bytes, ObjectReader reader) {
+			this.bytes = bytes;
+			this.reader = reader;
+		}
+		
+		/**
+		 * Decode the value for the given key from the <code>"key":value</code> pair
+		 * at the given offsets. The pair is decoded as a single-entry {@link JSONMap} 
+		 * to have all deserializers configured on the {@link ObjectReader} (for 
+		 * example for value canonicalization) handle the value in the same way as 
+		 * for non-lazy {@link JSONMap} instances.
+		 */
+		Object decode(String key, int start, int end) {
+			try ( SequenceInputStream is = new SequenceInputStream(new SequenceInputStream(
+					new ByteArrayInputStream(OBJECT_START), new ByteArrayInputStream(bytes, start, end-start)),
+					new ByteArrayInputStream(OBJECT_END)) ) {
+				JSONMap map = reader.readValue(is);
+				return map.get(key);
+			} catch (IOException e) {
+				throw new RuntimeException("Error decoding value for property "+key+": "+new String(Arrays.copyOfRange(bytes, start, end)), e);
+			}
+		}
+	}
+	
+	/**
+	 * {@link CompactJSONMap.DeferredValue} implementation that decodes the
+	 * value from a {@link RawSource}.
+	 */
+	private static final class RawValue extends DeferredValue {
+		private final RawSource source;
+		private final int start;
+		private final int end;
+		
+		private RawValue(RawSource source, int start, int end) {
+			this.source = source;
+			this.start = start;
+			this.end = end;
+		}
+		
+		@Override
+		Object resolve(String key) {
+			return source.decode(key, start, end);
+		}
+	}
+}
@@ -0,0 +1,124 @@
+/*******************************************************************************
+ * (c) Copyright 2017 EntIT Software LLC, a Micro Focus company
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a 
+ * copy of this software and associated documentation files (the 
+ * "Software"), to deal in the Software without restriction, including without 
+ * limitation the rights to use, copy, modify, merge, publish, distribute, 
+ * sublicense, and/or sell copies of the Software, and to permit persons to 
+ * whom the Software is furnished to do so, subject to the following 
+ * conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included 
+ * in all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY 
+ * KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE 
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR 
+ * PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE 
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, 
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF 
+ * CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN 
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS 
+ * IN THE SOFTWARE.
+ ******************************************************************************/
+package com.fortify.util.rest.json;
+
+import java.io.IOException;
+import java.util.List;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fortify.util.rest.json.LazyJSONMap.RawSource;
+
+/**
+ * <p>This class reads JSON responses containing a list of records, like most SSC, FoD
+ * and WIE REST responses, into {@link LazyJSONMap} instances. Each record is scanned
+ * only once to determine the byte offsets of its properties; string, object and array
+ * values are only decoded upon first access. Number, boolean and null values are
+ * stored directly, as storing them in raw form would not require less memory.</p>
+ * 
+ * <p>Lazily decoded values are deserialized through the {@link ObjectMapper} 
+ * passed to the constructor; as such they will use the same representation
+ * (for example {@link CompactJSONMap} and value canonicalization) as regular
+ * responses deserialized through that {@link ObjectMapper}.</p>
+ * 
+ * @author Ruud Senden
+ *
+ */
+public final class LazyJSONMapReader {
+	private final ObjectMapper mapper;
+	
+	/**
+	 * Create a new {@link LazyJSONMapReader} instance, using the given {@link ObjectMapper}
+	 * for parsing and decoding values.
+	 * @param mapper
+	 */
+	public LazyJSONMapReader(ObjectMapper mapper) {
+		this.mapper = mapper;
+	}
+	
+	/**
+	 * Read the given JSON object. Each object contained in the given data property (either
+	 * a single object or an array of objects) is added as a {@link LazyJSONMap} instance
+	 * to the given records list; any non-object values are decoded and added directly. All 
+	 * other properties are decoded and returned as a {@link JSONMap}.
+	 * 
+	 * @param bytes JSON object to be read
+	 * @param dataPropertyName Name of the property containing the records
+	 * @param records {@link List} to which all records will be added
+	 * @return {@link JSONMap} containing all properties other than the given data property
+	 */
+	public JSONMap read(byte[] bytes, String dataPropertyName, List<Object> records) {
+		RawSource source = new RawSource(bytes, mapper.readerFor(JSONMap.class));
+		try ( JsonParser parser = mapper.getFactory().createParser(bytes) ) {
+			if ( parser.nextToken() != JsonToken.START_OBJECT ) {
+				throw new IllegalArgumentException("Input doesn't contain a JSON object");
+			}
+			JSONMap envelope = new JSONMap();
+			while ( parser.nextToken() == JsonToken.FIELD_NAME ) {
+				String name = parser.getCurrentName();
+				JsonToken token = parser.nextToken();
+				if ( !dataPropertyName.equals(name) ) {
+					envelope.put(name, mapper.readValue(parser, Object.class));
+				} else if ( token == JsonToken.START_ARRAY ) {
+					while ( parser.nextToken() != JsonToken.END_ARRAY ) {
+						records.add(readRecord(parser, source));
+					}
+				} else if ( token != JsonToken.VALUE_NULL ) {
+					records.add(readRecord(parser, source));
+				}
+			}
+			return envelope;
+		} catch (IOException e) {
+			throw new RuntimeException("Error parsing JSON data", e);
+		}
+	}
+	
+	private Object readRecord(JsonParser parser, RawSource source) throws IOException {
+		if ( parser.getCurrentToken() != JsonToken.START_OBJECT ) {
+			return mapper.readValue(parser, Object.class);
+		}
+		LazyJSONMap result = new LazyJSONMap();
+		while ( parser.nextToken() == JsonToken.FIELD_NAME ) {
+			String name = parser.getCurrentName();
+			int start = (int)parser.getTokenLocation().getByteOffset();
+			switch ( parser.nextToken() ) {
+			case VALUE_TRUE: result.put(name, Boolean.TRUE); break;
+			case VALUE_FALSE: result.put(name, Boolean.FALSE); break;
+			case VALUE_NULL: result.put(name, null); break;
+			case VALUE_NUMBER_INT: 
+			case VALUE_NUMBER_FLOAT: result.put(name, parser.getNumberValue()); break;
+			case VALUE_STRING:
+				parser.finishToken();
+				result.putRaw(name, source, start, (int)parser.getCurrentLocation().getByteOffset());
+				break;
+			default:
+				parser.skipChildren();
+				result.putRaw(name, source, start, (int)parser.getCurrentLocation().getByteOffset());
+			}
+		}
+		return result;
+	}
+}
@@ -0,0 +1,531 @@
+/*******************************************************************************
+ * (c) Copyright 2017 EntIT Software LLC, a Micro Focus company
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a 
+ * copy of this software and associated documentation files (the 
+ * "Software"), to deal in the Software without restriction, including without 
+ * limitation the rights to use, copy, modify, merge, publish, distribute, 
+ * sublicense, and/or sell copies of the Software, and to permit persons to 
+ * whom the Software is furnished to do so, subject to the following 
+ * conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included 
+ * in all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY 
+ * KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE 
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR 
+ * PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE 
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, 
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF 
+ * CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN 
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS 
+ * IN THE SOFTWARE.
+ ******************************************************************************/
+package com.fortify.util.rest.json;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.List;
+import java.util.ListIterator;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import java.util.function.UnaryOperator;
+
+/**
+ * <p>This {@link JSONList} implementation keeps up to a configurable number of entries 
+ * in memory. Once this heap budget is exceeded, any additional entries are encoded in a 
+ * compact binary format and appended to a temporary file. An in-memory offset index allows 
+ * for random access to spilled entries through {@link #get(int)}, while {@link #iterator()}
+ * and {@link #forEach(Consumer)} read spilled entries sequentially in larger blocks.
+ * This allows for collecting very large result sets, for example through 
+ * {@link com.fortify.util.rest.json.processor.JSONMapsToSpillingJSONListProcessor}, without
+ * requiring a correspondingly large heap.</p>
+ * 
+ * <p>Until the heap budget is exceeded, this class behaves exactly like a regular
+ * {@link JSONList}. Once entries have been spilled, spilled entries are decoded on each 
+ * access, so modifications to a spilled entry returned by this list will not be reflected 
+ * in this list. Also, after spilling this list only supports appending new entries and
+ * clearing the list; any other modifications will result in an
+ * {@link UnsupportedOperationException}.</p>
+ * 
+ * <p>Callers should invoke {@link #close()} once this list is no longer needed, to delete
+ * the temporary file. The temporary file will also be deleted when the JVM exits.</p>
+ * 
+ * @author Ruud Senden
+ *
+ */
+public class SpillingJSONList extends JSONList implements Closeable {
+	private static final long serialVersionUID = 1L;
+	public static final int DEFAULT_MAX_ENTRIES_IN_MEMORY = 10000;
+	private static final int READ_AHEAD_SIZE = 64*1024;
+	private final int maxEntriesInMemory;
+	/** Stored as {@link String} as {@link Path} is not {@link java.io.Serializable} */
+	private final String tempDirectory;
+	private transient JSONBinaryCodec codec;
+	private transient Path spillFile;
+	private transient OutputStream spillOutput;
+	private transient FileChannel spillChannel;
+	private transient long[] spillOffsets;
+	private transient int spilledCount;
+	private transient long spillSize;
+	private transient boolean spillOutputDirty;
+	
+	/**
+	 * Create a new {@link SpillingJSONList} instance, keeping up to 
+	 * {@link #DEFAULT_MAX_ENTRIES_IN_MEMORY} entries in memory.
+	 */
+	public SpillingJSONList() {
+		this(DEFAULT_MAX_ENTRIES_IN_MEMORY);
+	}
+	
+	/**
+	 * Create a new {@link SpillingJSONList} instance, keeping up to the
+	 * given number of entries in memory.
+	 * @param maxEntriesInMemory
+	 */
+	public SpillingJSONList(int maxEntriesInMemory) {
+		this(maxEntriesInMemory, null);
+	}
+	
+	/**
+	 * Create a new {@link SpillingJSONList} instance, keeping up to the
+	 * given number of entries in memory, and spilling any additional
+	 * entries to a temporary file in the given directory. If the given
+	 * directory is null, the default temporary directory will be used.
+	 * @param maxEntriesInMemory
+	 * @param tempDirectory
+	 */
+	public SpillingJSONList(int maxEntriesInMemory, Path tempDirectory) {
+		this(maxEntriesInMemory, tempDirectory, null);
+	}
+	
+	/**
+	 * Create a new {@link SpillingJSONList} instance, keeping up to the
+	 * given number of entries in memory, and spilling any additional
+	 * entries to a temporary file in the given directory, encoded using 
+	 * the given {@link JSONBinaryCodec}. If the given directory is null, 
+	 * the default temporary directory will be used. If the given codec
+	 * is null, {@link JSONBinaryCodec#DEFAULT} will be used.
+	 * @param maxEntriesInMemory
+	 * @param tempDirectory
+	 * @param codec
+	 */
+	public SpillingJSONList(int maxEntriesInMemory, Path tempDirectory, JSONBinaryCodec codec) {
+		super(Math.min(maxEntriesInMemory, 1024));
+		if ( maxEntriesInMemory < 0 ) {
+			throw new IllegalArgumentException("Maximum number of in-memory entries may not be negative");
+		}
+		this.maxEntriesInMemory = maxEntriesInMemory;
+		this.tempDirectory = tempDirectory==null ? null : tempDirectory.toString();
+		this.codec = codec==null ? JSONBinaryCodec.DEFAULT : codec;
+	}
+	
+	/**
+	 * @return true if any entries have been spilled to disk, false otherwise
+	 */
+	public boolean isSpilled() {
+		return spilledCount > 0;
+	}
+	
+	/**
+	 * @return The number of entries that have been spilled to disk
+	 */
+	public int getSpilledCount() {
+		return spilledCount;
+	}
+	
+	/**
+	 * @return The number of bytes that have been spilled to disk
+	 */
+	public long getSpilledSize() {
+		return spillSize;
+	}
+	
+	@Override
+	public int size() {
+		return super.size() + spilledCount;
+	}
+	
+	@Override
+	public boolean isEmpty() {
+		return size()==0;
+	}
+	
+	@Override
+	public boolean add(Object e) {
+		if ( !isSpilled() && super.size() < maxEntriesInMemory ) {
+			return super.add(e);
+		}
+		spill(e);
+		modCount++;
+		return true;
+	}
+	
+	@Override
+	public boolean addAll(Collection<? extends Object> c) {
+		for ( Object e : c ) {
+			add(e);
+		}
+		return !c.isEmpty();
+	}
+	
+	@Override
+	public Object get(int index) {
+		int inMemory = super.size();
+		if ( index < inMemory ) {
+			return super.get(index);
+		}
+		int spillIndex = index - inMemory;
+		if ( spillIndex >= spilledCount ) {
+			throw new IndexOutOfBoundsException("Index: "+index+", Size: "+size());
+		}
+		return readSpilled(spillIndex);
+	}
+	
+	@Override
+	public void clear() {
+		super.clear();
+		deleteSpillFile();
+	}
+	
+	/**
+	 * Delete the temporary file used for storing spilled entries, if any.
+	 * After calling this method, this list will only contain the in-memory
+	 * entries.
+	 */
+	@Override
+	public void close() {
+		deleteSpillFile();
+	}
+	
+	@Override
+	public Iterator<Object> iterator() {
+		return isSpilled() ? new SpillingIterator() : super.iterator();
+	}
+	
+	@Override
+	public void forEach(Consumer<? super Object> action) {
+		if ( !isSpilled() ) {
+			super.forEach(action);
+		} else {
+			for ( Iterator<Object> it = iterator(); it.hasNext() ; ) {
+				action.accept(it.next());
+			}
+		}
+	}
+	
+	@Override
+	public Spliterator<Object> spliterator() {
+		return isSpilled() ? Spliterators.spliterator(iterator(), size(), Spliterator.ORDERED) : super.spliterator();
+	}
+	
+	@Override
+	public ListIterator<Object> listIterator() {
+		return isSpilled() ? spilledView().listIterator() : super.listIterator();
+	}
+	
+	@Override
+	public ListIterator<Object> listIterator(int index) {
+		return isSpilled() ? spilledView().listIterator(index) : super.listIterator(index);
+	}
+	
+	@Override
+	public List<Object> subList(int fromIndex, int toIndex) {
+		return isSpilled() ? spilledView().subList(fromIndex, toIndex) : super.subList(fromIndex, toIndex);
+	}
+	
+	@Override
+	public boolean contains(Object o) {
+		return isSpilled() ? spilledView().contains(o) : super.contains(o);
+	}
+	
+	@Override
+	public int indexOf(Object o) {
+		return isSpilled() ? spilledView().indexOf(o) : super.indexOf(o);
+	}
+	
+	@Override
+	public int lastIndexOf(Object o) {
+		return isSpilled() ? spilledView().lastIndexOf(o) : super.lastIndexOf(o);
+	}
+	
+	@Override
+	public Object[] toArray() {
+		return isSpilled() ? spilledView().toArray() : super.toArray();
+	}
+	
+	@Override
+	public <T> T[] toArray(T[] a) {
+		return isSpilled() ? spilledView().toArray(a) : super.toArray(a);
+	}
+	
+	@Override
+	public Object set(int index, Object element) {
+		checkNotSpilled();
+		return super.set(index, element);
+	}
+	
+	@Override
+	public void add(int index, Object element) {
+		checkNotSpilled();
+		super.add(index, element);
+	}
+	
+	@Override
+	public Object remove(int index) {
+		checkNotSpilled();
+		return super.remove(index);
+	}
+	
+	@Override
+	public boolean remove(Object o) {
+		checkNotSpilled();
+		return super.remove(o);
+	}
+	
+	@Override
+	public boolean addAll(int index, Collection<? extends Object> c) {
+		checkNotSpilled();
+		return super.addAll(index, c);
+	}
+	
+	@Override
+	public boolean removeAll(Collection<?> c) {
+		checkNotSpilled();
+		return super.removeAll(c);
+	}
+	
+	@Override
+	public boolean retainAll(Collection<?> c) {
+		checkNotSpilled();
+		return super.retainAll(c);
+	}
+	
+	@Override
+	public boolean removeIf(Predicate<? super Object> filter) {
+		checkNotSpilled();
+		return super.removeIf(filter);
+	}
+	
+	@Override
+	public void replaceAll(UnaryOperator<Object> operator) {
+		checkNotSpilled();
+		super.replaceAll(operator);
+	}
+	
+	@Override
+	public void sort(Comparator<? super Object> c) {
+		checkNotSpilled();
+		super.sort(c);
+	}
+	
+	/**
+	 * Spilled lists cannot be cloned
+	 */
+	@Override
+	public Object clone() {
+		checkNotSpilled();
+		return super.clone();
+	}
+	
+	/**
+	 * Serialize spilled lists as a regular {@link JSONList} containing all entries
+	 */
+	private Object writeReplace() {
+		return isSpilled() ? new JSONList(this) : this;
+	}
+	
+	/**
+	 * The codec is not serialized; deserialized lists use {@link JSONBinaryCodec#DEFAULT}
+	 * for spilling any entries added after deserialization.
+	 */
+	private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+		in.defaultReadObject();
+		this.codec = JSONBinaryCodec.DEFAULT;
+	}
+	
+	private void checkNotSpilled() {
+		if ( isSpilled() ) {
+			throw new UnsupportedOperationException("Operation not supported after entries have been spilled to disk");
+		}
+	}
+	
+	/**
+	 * Get a read-only {@link List} view on this list, used for all
+	 * read operations that do not have a more efficient implementation
+	 * for spilled entries.
+	 */
+	private List<Object> spilledView() {
+		return new AbstractList<Object>() {
+			@Override
+			public Object get(int index) {
+				return SpillingJSONList.this.get(index);
+			}
+
+			@Override
+			public int size() {
+				return SpillingJSONList.this.size();
+			}
+			
+			@Override
+			public Iterator<Object> iterator() {
+				return SpillingJSONList.this.iterator();
+			}
+		};
+	}
+	
+	private void spill(Object e) {
+		try {
+			if ( spillFile == null ) {
+				spillFile = tempDirectory==null 
+						? Files.createTempFile("jsonlist-", ".smile") 
+						: Files.createTempFile(Paths.get(tempDirectory), "jsonlist-", ".smile");
+				spillFile.toFile().deleteOnExit();
+				spillOutput = new BufferedOutputStream(Files.newOutputStream(spillFile, StandardOpenOption.APPEND), 64*1024);
+			}
+			byte[] bytes = codec.encode(e);
+			spillOutput.write(bytes);
+			spillOutputDirty = true;
+			if ( spillOffsets == null ) {
+				spillOffsets = new long[1024];
+			} else if ( spilledCount == spillOffsets.length ) {
+				spillOffsets = Arrays.copyOf(spillOffsets, spilledCount*2);
+			}
+			spillOffsets[spilledCount++] = spillSize;
+			spillSize += bytes.length;
+		} catch (IOException ioe) {
+			throw new RuntimeException("Error writing JSONList entry to "+spillFile, ioe);
+		}
+	}
+	
+	/**
+	 * Get the length of the spilled entry with the given index
+	 */
+	private int getSpilledLength(int spillIndex) {
+		long end = spillIndex+1 < spilledCount ? spillOffsets[spillIndex+1] : spillSize;
+		return (int)(end - spillOffsets[spillIndex]);
+	}
+	
+	private void flushSpillOutput() throws IOException {
+		if ( spillOutputDirty ) {
+			spillOutput.flush();
+			spillOutputDirty = false;
+		}
+	}
+	
+	private Object readSpilled(int spillIndex) {
+		try {
+			ByteBuffer buffer = ByteBuffer.allocate(getSpilledLength(spillIndex));
+			readSpillFile(buffer, spillOffsets[spillIndex]);
+			return codec.decode(buffer.array(), 0, buffer.capacity());
+		} catch (IOException e) {
+			throw new RuntimeException("Error reading JSONList entry from "+spillFile, e);
+		}
+	}
+	
+	/**
+	 * Fill the given buffer with the contents of the temporary file starting at
+	 * the given position, using positional reads on the shared {@link FileChannel}.
+	 */
+	private void readSpillFile(ByteBuffer buffer, long position) throws IOException {
+		flushSpillOutput();
+		if ( spillChannel == null ) {
+			spillChannel = FileChannel.open(spillFile, StandardOpenOption.READ);
+		}
+		long start = position - buffer.position();
+		while ( buffer.hasRemaining() ) {
+			if ( spillChannel.read(buffer, start+buffer.position()) < 0 ) {
+				throw new IOException("Unexpected end of file");
+			}
+		}
+	}
+	
+	private void deleteSpillFile() {
+		if ( spillFile != null ) {
+			try {
+				if ( spillOutput != null ) { spillOutput.close(); }
+				if ( spillChannel != null ) { spillChannel.close(); }
+				Files.deleteIfExists(spillFile);
+			} catch (IOException e) {
+				throw new RuntimeException("Error deleting "+spillFile, e);
+			} finally {
+				spillFile = null;
+				spillOutput = null;
+				spillChannel = null;
+				spillOffsets = null;
+				spilledCount = 0;
+				spillSize = 0;
+				spillOutputDirty = false;
+				modCount++;
+			}
+		}
+	}
+	
+	/**
+	 * {@link Iterator} implementation that returns all in-memory entries,
+	 * followed by all spilled entries read sequentially from the temporary
+	 * file. Spilled entries are read in blocks through positional reads on the 
+	 * shared {@link FileChannel}, so iterators don't hold any resources that 
+	 * need to be closed if iteration is aborted early.
+	 */
+	private final class SpillingIterator implements Iterator<Object> {
+		private final int expectedModCount = modCount;
+		private final int inMemory = SpillingJSONList.super.size();
+		private final int spilled = spilledCount;
+		private final ByteBuffer readAhead = ByteBuffer.allocate(READ_AHEAD_SIZE);
+		private long readAheadPosition = -1;
+		private int next = 0;
+		
+		@Override
+		public boolean hasNext() {
+			return next < inMemory+spilled;
+		}
+
+		@Override
+		public Object next() {
+			if ( expectedModCount != modCount ) { throw new ConcurrentModificationException(); }
+			if ( !hasNext() ) { throw new NoSuchElementException(); }
+			int index = next++;
+			return index < inMemory ? SpillingJSONList.super.get(index) : readNextSpilled(index-inMemory);
+		}
+		
+		private Object readNextSpilled(int spillIndex) {
+			int length = getSpilledLength(spillIndex);
+			if ( length > readAhead.capacity() ) {
+				return readSpilled(spillIndex);
+			}
+			long position = spillOffsets[spillIndex];
+			try {
+				if ( readAheadPosition < 0 || position < readAheadPosition || position+length > readAheadPosition+readAhead.limit() ) {
+					readAhead.clear();
+					readAhead.limit((int)Math.min(readAhead.capacity(), spillSize-position));
+					readSpillFile(readAhead, position);
+					readAheadPosition = position;
+				}
+				return codec.decode(readAhead.array(), (int)(position-readAheadPosition), length);
+			} catch (IOException e) {
+				readAheadPosition = -1;
+				throw new RuntimeException("Error reading JSONList entry from "+spillFile, e);
+			}
+		}
+	}
+}
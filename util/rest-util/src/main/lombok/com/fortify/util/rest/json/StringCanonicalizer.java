@@ -0,0 +1,81 @@
+/*******************************************************************************
+ * (c) Copyright 2017 EntIT Software LLC, a Micro Focus company
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a 
+ * copy of this software and associated documentation files (the 
+ * "Software"), to deal in the Software without restriction, including without 
+ * limitation the rights to use, copy, modify, merge, publish, distribute, 
+ * sublicense, and/or sell copies of the Software, and to permit persons to 
+ * whom the Software is furnished to do so, subject to the following 
+ * conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included 
+ * in all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY 
+ * KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE 
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR 
+ * PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE 
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, 
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF 
+ * CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN 
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS 
+ * IN THE SOFTWARE.
+ ******************************************************************************/
+package com.fortify.util.rest.json;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * <p>Bounded intern table for {@link String} values. Calling {@link #canonicalize(String)}
+ * with equal strings returns the same {@link String} instance, allowing duplicate 
+ * instances to be garbage collected. Contrary to {@link String#intern()}, the number
+ * of canonicalized instances is limited; once the table is full, or for strings that
+ * exceed the configured maximum length, the given value is returned as-is.</p>
+ * 
+ * <p>Instances of this class are thread-safe.</p>
+ * 
+ * @author Ruud Senden
+ *
+ */
+public final class StringCanonicalizer {
+	public static final int DEFAULT_MAX_ENTRIES = 10000;
+	public static final int DEFAULT_MAX_LENGTH = 256;
+	private final ConcurrentMap<String, String> table;
+	private final int maxEntries;
+	private final int maxLength;
+	
+	public StringCanonicalizer() {
+		this(DEFAULT_MAX_ENTRIES, DEFAULT_MAX_LENGTH);
+	}
+	
+	public StringCanonicalizer(int maxEntries, int maxLength) {
+		this.table = new ConcurrentHashMap<>(Math.min(maxEntries, 1024));
+		this.maxEntries = maxEntries;
+		this.maxLength = maxLength;
+	}
+	
+	/**
+	 * Return the canonical instance for the given value.
+	 * @param value
+	 * @return
+	 */
+	public final String canonicalize(String value) {
+		if ( value==null || value.length()>maxLength ) { return value; }
+		String result = table.get(value);
+		if ( result == null ) {
+			if ( table.size() >= maxEntries ) { return value; }
+			result = table.putIfAbsent(value, value);
+			if ( result == null ) { result = value; }
+		}
+		return result;
+	}
+	
+	/**
+	 * @return The current number of entries in this intern table
+	 */
+	public final int size() {
+		return table.size();
+	}
+}
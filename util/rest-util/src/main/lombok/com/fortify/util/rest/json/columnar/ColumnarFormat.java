@@ -0,0 +1,350 @@
+/*******************************************************************************
+ * (c) Copyright 2017 EntIT Software LLC, a Micro Focus company
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a 
+ * copy of this software and associated documentation files (the 
+ * "Software"), to deal in the Software without restriction, including without 
+ * limitation the rights to use, copy, modify, merge, publish, distribute, 
+ * sublicense, and/or sell copies of the Software, and to permit persons to 
+ * whom the Software is furnished to do so, subject to the following 
+ * conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included 
+ * in all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY 
+ * KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE 
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR 
+ * PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE 
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, 
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF 
+ * CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN 
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS 
+ * IN THE SOFTWARE.
+ ******************************************************************************/
+package com.fortify.util.rest.json.columnar;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fortify.util.rest.json.CompactJSONMap;
+import com.fortify.util.rest.json.JSONList;
+import com.fortify.util.rest.json.JSONObjectMapperBuilder;
+
+/**
+ * <p>This package-private class defines the columnar snapshot file format used by
+ * {@link ColumnarSnapshotWriter} and {@link ColumnarSnapshotReader}. A snapshot file
+ * has the following layout (all numbers big-endian):</p>
+ * <pre>
+ * magic ("FCSN"), version (int)
+ * row group 1: column chunk 1, column chunk 2, ...
+ * row group 2: ...
+ * footer: column count (int), for each column: column name (int length + UTF-8 bytes)
+ *         and nested flag (byte), row group count (int), for each row group: row 
+ *         count (int), chunk count (int), for each chunk: chunk offset (long) and 
+ *         chunk length (int)
+ * footer offset (long)
+ * </pre>
+ * 
+ * <p>A row group may contain less chunks than there are columns, if columns were
+ * discovered after the row group was written; the values for such columns are all
+ * null for that row group.</p>
+ * 
+ * <p>Each column chunk starts with a type byte and a null bitmap, followed by the
+ * type-specific values: 8-byte values for integral and floating-point columns, a
+ * bitmap for boolean columns, and a chunk-specific dictionary followed by 1, 2 or
+ * 4-byte dictionary codes for string columns. Chunks containing values of different
+ * types, {@link BigDecimal} or large {@link BigInteger} values, objects or arrays use
+ * a dictionary in which each entry is prefixed with a value type character, such 
+ * that all values are restored with their original type (integral values are restored
+ * as {@link Integer} or {@link Long} depending on their magnitude). Objects and arrays are 
+ * stored as JSON text, and restored as {@link CompactJSONMap} and {@link JSONList}
+ * instances; values nested within objects and arrays are restored as parsed by 
+ * Jackson. Any other value types are rejected.</p>
+ * 
+ * @author Ruud Senden
+ *
+ */
+final class ColumnarFormat {
+	static final byte[] MAGIC = "FCSN".getBytes(StandardCharsets.US_ASCII);
+	static final int VERSION = 2;
+	private static final ObjectWriter JSON_WRITER = new ObjectMapper().writer();
+	private static final ObjectMapper JSON_MAPPER = new JSONObjectMapperBuilder().useCompactJSONMaps(true).build();
+	private static final ObjectReader JSON_MAP_READER = JSON_MAPPER.readerFor(CompactJSONMap.class);
+	private static final ObjectReader JSON_LIST_READER = JSON_MAPPER.readerFor(JSONList.class);
+	
+	private ColumnarFormat() {}
+	
+	/**
+	 * Column chunk types
+	 */
+	static enum ColumnType { NULL, LONG, DOUBLE, BOOLEAN, STRING, VALUE }
+	
+	/**
+	 * Value types for dictionary entries in {@link ColumnType#VALUE} chunks
+	 */
+	private static enum ValueType { STRING, LONG, DOUBLE, BOOLEAN, DECIMAL, BIG_INTEGER, OBJECT, ARRAY }
+	
+	/**
+	 * Encode the given values as a single column chunk
+	 * @throws IllegalArgumentException if any of the values is not a JSON value
+	 */
+	static byte[] encodeChunk(Object[] values, int rowCount) throws IOException {
+		ColumnType type = getColumnType(values, rowCount);
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream(rowCount*2);
+		DataOutputStream out = new DataOutputStream(bytes);
+		out.writeByte(type.ordinal());
+		BitSet nulls = new BitSet(rowCount);
+		for ( int i = 0 ; i < rowCount ; i++ ) {
+			if ( values[i] == null ) { nulls.set(i); }
+		}
+		writeBitSet(out, nulls);
+		switch (type) {
+		case NULL: break;
+		case LONG:
+			for ( int i = 0 ; i < rowCount ; i++ ) {
+				out.writeLong(values[i]==null ? 0 : ((Number)values[i]).longValue());
+			}
+			break;
+		case DOUBLE:
+			for ( int i = 0 ; i < rowCount ; i++ ) {
+				out.writeDouble(values[i]==null ? 0 : ((Number)values[i]).doubleValue());
+			}
+			break;
+		case BOOLEAN:
+			BitSet trueValues = new BitSet(rowCount);
+			for ( int i = 0 ; i < rowCount ; i++ ) {
+				if ( Boolean.TRUE.equals(values[i]) ) { trueValues.set(i); }
+			}
+			writeBitSet(out, trueValues);
+			break;
+		case STRING:
+			writeDictionary(out, values, rowCount, false);
+			break;
+		case VALUE:
+			writeDictionary(out, values, rowCount, true);
+			break;
+		}
+		out.flush();
+		return bytes.toByteArray();
+	}
+	
+	/**
+	 * Decode a column chunk from the given {@link ByteBuffer}
+	 */
+	static Object[] decodeChunk(ByteBuffer buffer, int rowCount) throws IOException {
+		ColumnType type = ColumnType.values()[buffer.get()];
+		BitSet nulls = readBitSet(buffer);
+		Object[] result = new Object[rowCount];
+		switch (type) {
+		case NULL: break;
+		case LONG:
+			for ( int i = 0 ; i < rowCount ; i++ ) {
+				long value = buffer.getLong();
+				if ( !nulls.get(i) ) { result[i] = toIntegerOrLong(value); }
+			}
+			break;
+		case DOUBLE:
+			for ( int i = 0 ; i < rowCount ; i++ ) {
+				double value = buffer.getDouble();
+				if ( !nulls.get(i) ) { result[i] = value; }
+			}
+			break;
+		case BOOLEAN:
+			BitSet trueValues = readBitSet(buffer);
+			for ( int i = 0 ; i < rowCount ; i++ ) {
+				if ( !nulls.get(i) ) { result[i] = trueValues.get(i); }
+			}
+			break;
+		case STRING:
+			readDictionary(buffer, nulls, result, rowCount, false);
+			break;
+		case VALUE:
+			readDictionary(buffer, nulls, result, rowCount, true);
+			break;
+		}
+		return result;
+	}
+	
+	private static ColumnType getColumnType(Object[] values, int rowCount) {
+		ValueType commonType = null;
+		boolean mixed = false;
+		for ( int i = 0 ; i < rowCount ; i++ ) {
+			if ( values[i] != null ) {
+				ValueType valueType = getValueType(values[i]);
+				if ( commonType == null ) { 
+					commonType = valueType; 
+				} else if ( commonType != valueType ) {
+					mixed = true;
+				}
+			}
+		}
+		if ( commonType == null ) { return ColumnType.NULL; }
+		if ( mixed ) { return ColumnType.VALUE; }
+		switch (commonType) {
+		case BOOLEAN: return ColumnType.BOOLEAN;
+		case LONG: return ColumnType.LONG;
+		case DOUBLE: return ColumnType.DOUBLE;
+		case STRING: return ColumnType.STRING;
+		default: return ColumnType.VALUE;
+		}
+	}
+	
+	private static ValueType getValueType(Object value) {
+		if ( value instanceof String ) { return ValueType.STRING; }
+		if ( value instanceof Boolean ) { return ValueType.BOOLEAN; }
+		if ( value instanceof Integer || value instanceof Long || value instanceof Short || value instanceof Byte ) { return ValueType.LONG; }
+		if ( value instanceof BigInteger ) { return ((BigInteger)value).bitLength()<64 ? ValueType.LONG : ValueType.BIG_INTEGER; }
+		if ( value instanceof Double || value instanceof Float ) { return ValueType.DOUBLE; }
+		if ( value instanceof BigDecimal ) { return ValueType.DECIMAL; }
+		if ( value instanceof Map ) { return ValueType.OBJECT; }
+		if ( value instanceof Collection || value instanceof Object[] ) { return ValueType.ARRAY; }
+		throw new IllegalArgumentException("Unsupported value type "+value.getClass().getName()+", only JSON values can be written to a columnar snapshot");
+	}
+	
+	/**
+	 * Write the given values as a chunk-specific dictionary followed by dictionary
+	 * codes. If tagged is true, each dictionary entry is prefixed with a character
+	 * identifying the {@link ValueType} of the original value.
+	 */
+	private static void writeDictionary(DataOutputStream out, Object[] values, int rowCount, boolean tagged) throws IOException {
+		Map<String, Integer> dictionary = new LinkedHashMap<>();
+		int[] codes = new int[rowCount];
+		for ( int i = 0 ; i < rowCount ; i++ ) {
+			if ( values[i] != null ) {
+				String value = tagged ? toTaggedString(values[i]) : (String)values[i];
+				Integer code = dictionary.get(value);
+				if ( code == null ) {
+					code = dictionary.size();
+					dictionary.put(value, code);
+				}
+				codes[i] = code;
+			}
+		}
+		out.writeInt(dictionary.size());
+		for ( String value : dictionary.keySet() ) {
+			writeString(out, value);
+		}
+		int width = getCodeWidth(dictionary.size());
+		for ( int i = 0 ; i < rowCount ; i++ ) {
+			switch (width) {
+			case 1: out.writeByte(codes[i]); break;
+			case 2: out.writeShort(codes[i]); break;
+			default: out.writeInt(codes[i]);
+			}
+		}
+	}
+	
+	private static void readDictionary(ByteBuffer buffer, BitSet nulls, Object[] result, int rowCount, boolean tagged) throws IOException {
+		String[] dictionary = new String[buffer.getInt()];
+		Object[] decoded = new Object[dictionary.length];
+		for ( int i = 0 ; i < dictionary.length ; i++ ) {
+			dictionary[i] = readString(buffer);
+			decoded[i] = tagged ? fromTaggedScalar(dictionary[i]) : dictionary[i];
+		}
+		int width = getCodeWidth(dictionary.length);
+		for ( int i = 0 ; i < rowCount ; i++ ) {
+			int code;
+			switch (width) {
+			case 1: code = buffer.get() & 0xFF; break;
+			case 2: code = buffer.getShort() & 0xFFFF; break;
+			default: code = buffer.getInt();
+			}
+			if ( !nulls.get(i) ) {
+				// Objects and arrays are parsed for every row, to avoid sharing mutable instances between records
+				result[i] = decoded[code]!=null ? decoded[code] : fromTaggedJSON(dictionary[code]);
+			}
+		}
+	}
+	
+	private static String toTaggedString(Object value) throws IOException {
+		ValueType type = getValueType(value);
+		String text;
+		switch (type) {
+		case STRING: text = (String)value; break;
+		case DOUBLE: text = Double.toString(((Number)value).doubleValue()); break;
+		case OBJECT: case ARRAY: text = JSON_WRITER.writeValueAsString(value); break;
+		default: text = value.toString();
+		}
+		return (char)('0'+type.ordinal())+text;
+	}
+	
+	/**
+	 * Decode the given tagged dictionary entry, or return null if the entry 
+	 * represents an object or array.
+	 */
+	private static Object fromTaggedScalar(String entry) {
+		String text = entry.substring(1);
+		switch (getTaggedValueType(entry)) {
+		case STRING: return text;
+		case LONG: return toIntegerOrLong(Long.parseLong(text));
+		case DOUBLE: return Double.valueOf(text);
+		case BOOLEAN: return Boolean.valueOf(text);
+		case DECIMAL: return new BigDecimal(text);
+		case BIG_INTEGER: return new BigInteger(text);
+		default: return null;
+		}
+	}
+	
+	private static Object fromTaggedJSON(String entry) throws IOException {
+		return getTaggedValueType(entry)==ValueType.OBJECT 
+				? JSON_MAP_READER.readValue(entry.substring(1)) 
+				: JSON_LIST_READER.readValue(entry.substring(1));
+	}
+	
+	private static ValueType getTaggedValueType(String entry) {
+		return ValueType.values()[entry.charAt(0)-'0'];
+	}
+	
+	/**
+	 * Like Jackson, restore integral values as {@link Integer} if they fit, or as
+	 * {@link Long} otherwise. Note that we explicitly don't use a conditional 
+	 * expression here, as that would unbox and promote both options to long.
+	 */
+	private static Object toIntegerOrLong(long value) {
+		if ( value>=Integer.MIN_VALUE && value<=Integer.MAX_VALUE ) {
+			return Integer.valueOf((int)value);
+		}
+		return Long.valueOf(value);
+	}
+	
+	private static int getCodeWidth(int dictionarySize) {
+		return dictionarySize <= 0x100 ? 1 : dictionarySize <= 0x10000 ? 2 : 4;
+	}
+	
+	static void writeString(DataOutputStream out, String value) throws IOException {
+		byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+		out.writeInt(bytes.length);
+		out.write(bytes);
+	}
+	
+	static String readString(ByteBuffer buffer) {
+		byte[] bytes = new byte[buffer.getInt()];
+		buffer.get(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+	
+	private static void writeBitSet(DataOutputStream out, BitSet bitSet) throws IOException {
+		byte[] bytes = bitSet.toByteArray();
+		out.writeInt(bytes.length);
+		out.write(bytes);
+	}
+	
+	private static BitSet readBitSet(ByteBuffer buffer) {
+		byte[] bytes = new byte[buffer.getInt()];
+		buffer.get(bytes);
+		return BitSet.valueOf(bytes);
+	}
+}
@@ -0,0 +1,230 @@
+/*******************************************************************************
+ * (c) Copyright 2017 EntIT Software LLC, a Micro Focus company
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a 
+ * copy of this software and associated documentation files (the 
+ * "Software"), to deal in the Software without restriction, including without 
+ * limitation the rights to use, copy, modify, merge, publish, distribute, 
+ * sublicense, and/or sell copies of the Software, and to permit persons to 
+ * whom the Software is furnished to do so, subject to the following 
+ * conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included 
+ * in all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY 
+ * KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE 
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR 
+ * PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE 
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, 
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF 
+ * CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN 
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS 
+ * IN THE SOFTWARE.
+ ******************************************************************************/
+package com.fortify.util.rest.json.columnar;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import com.fortify.util.rest.json.CompactJSONMap;
+import com.fortify.util.rest.json.JSONList;
+import com.fortify.util.rest.json.JSONMap;
+import com.fortify.util.rest.json.processor.IJSONMapProcessor;
+import com.fortify.util.rest.json.processor.JSONMapsToJSONListProcessor;
+
+/**
+ * <p>This class allows for reading columnar snapshot files written by 
+ * {@link ColumnarSnapshotWriter}. Only the chunks for the requested columns
+ * are read from disk; any other columns are skipped entirely. Records are
+ * returned as {@link CompactJSONMap} instances containing only the requested
+ * columns; columns that were explicitly written with a simple dotted path like 
+ * <code>a.b</code> are restored as nested {@link JSONMap} instances.</p>
+ * 
+ * @author Ruud Senden
+ *
+ */
+public class ColumnarSnapshotReader implements Closeable {
+	private final Path path;
+	private final FileChannel channel;
+	private final List<String> columns;
+	private final boolean[] nestedColumns;
+	private final int[] rowGroupRowCounts;
+	private final long[][] chunkOffsets;
+	private final int[][] chunkLengths;
+	
+	/**
+	 * Open the given columnar snapshot file
+	 * @param path
+	 */
+	public ColumnarSnapshotReader(Path path) {
+		this.path = path;
+		try {
+			this.channel = FileChannel.open(path, StandardOpenOption.READ);
+			ByteBuffer header = read(0, ColumnarFormat.MAGIC.length+4);
+			byte[] magic = new byte[ColumnarFormat.MAGIC.length];
+			header.get(magic);
+			if ( !Arrays.equals(magic, ColumnarFormat.MAGIC) || header.getInt() != ColumnarFormat.VERSION ) {
+				throw new IllegalArgumentException(path+" is not a supported columnar snapshot file");
+			}
+			long footerOffset = read(channel.size()-8, 8).getLong();
+			ByteBuffer footer = read(footerOffset, (int)(channel.size()-8-footerOffset));
+			List<String> columns = new ArrayList<>();
+			this.nestedColumns = new boolean[footer.getInt()];
+			for ( int i = 0 ; i < nestedColumns.length ; i++ ) {
+				columns.add(ColumnarFormat.readString(footer));
+				nestedColumns[i] = footer.get() != 0;
+			}
+			this.columns = Collections.unmodifiableList(columns);
+			int rowGroupCount = footer.getInt();
+			this.rowGroupRowCounts = new int[rowGroupCount];
+			this.chunkOffsets = new long[rowGroupCount][];
+			this.chunkLengths = new int[rowGroupCount][];
+			for ( int rowGroup = 0 ; rowGroup < rowGroupCount ; rowGroup++ ) {
+				rowGroupRowCounts[rowGroup] = footer.getInt();
+				int chunkCount = footer.getInt();
+				chunkOffsets[rowGroup] = new long[chunkCount];
+				chunkLengths[rowGroup] = new int[chunkCount];
+				for ( int column = 0 ; column < chunkCount ; column++ ) {
+					chunkOffsets[rowGroup][column] = footer.getLong();
+					chunkLengths[rowGroup][column] = footer.getInt();
+				}
+			}
+		} catch (IOException e) {
+			throw new RuntimeException("Error reading "+path, e);
+		}
+	}
+	
+	/**
+	 * @return The columns available in this snapshot file
+	 */
+	public List<String> getColumns() {
+		return columns;
+	}
+	
+	/**
+	 * @return The total number of records in this snapshot file
+	 */
+	public long getRowCount() {
+		long result = 0;
+		for ( int rowCount : rowGroupRowCounts ) {
+			result += rowCount;
+		}
+		return result;
+	}
+	
+	/**
+	 * Read all records into a {@link JSONList}, containing the given columns.
+	 * If no columns are specified, all columns will be read.
+	 * @param columns
+	 * @return
+	 */
+	public JSONList read(String... columns) {
+		JSONMapsToJSONListProcessor processor = new JSONMapsToJSONListProcessor();
+		process(processor, columns);
+		return processor.getJsonList();
+	}
+	
+	/**
+	 * Process all records, containing the given columns, with the given 
+	 * {@link IJSONMapProcessor}. If no columns are specified, all columns 
+	 * will be read.
+	 * @param processor
+	 * @param columns
+	 */
+	public void process(IJSONMapProcessor processor, String... columns) {
+		int[] columnIndexes = getColumnIndexes(columns);
+		String[][] columnPaths = new String[columnIndexes.length][];
+		for ( int i = 0 ; i < columnIndexes.length ; i++ ) {
+			String columnName = this.columns.get(columnIndexes[i]);
+			columnPaths[i] = nestedColumns[columnIndexes[i]] ? columnName.split("\\.") : new String[] {columnName};
+		}
+		for ( int rowGroup = 0 ; rowGroup < rowGroupRowCounts.length ; rowGroup++ ) {
+			int rowCount = rowGroupRowCounts[rowGroup];
+			Object[][] values = new Object[columnIndexes.length][];
+			for ( int i = 0 ; i < columnIndexes.length ; i++ ) {
+				values[i] = readChunk(rowGroup, columnIndexes[i]);
+			}
+			for ( int row = 0 ; row < rowCount ; row++ ) {
+				JSONMap json = new CompactJSONMap();
+				for ( int i = 0 ; i < columnIndexes.length ; i++ ) {
+					put(json, columnPaths[i], values[i][row]);
+				}
+				processor.process(json);
+			}
+		}
+	}
+	
+	/**
+	 * Put the given value under the given path, creating intermediate
+	 * {@link CompactJSONMap} instances as necessary.
+	 */
+	private static void put(JSONMap json, String[] path, Object value) {
+		JSONMap current = json;
+		for ( int i = 0 ; i < path.length-1 ; i++ ) {
+			Object child = current.get(path[i]);
+			if ( !(child instanceof JSONMap) ) {
+				child = new CompactJSONMap();
+				current.put(path[i], child);
+			}
+			current = (JSONMap)child;
+		}
+		current.put(path[path.length-1], value);
+	}
+	
+	@Override
+	public void close() {
+		try {
+			channel.close();
+		} catch (IOException e) {
+			throw new RuntimeException("Error closing "+path, e);
+		}
+	}
+	
+	private int[] getColumnIndexes(String... columns) {
+		if ( columns == null || columns.length == 0 ) {
+			int[] result = new int[this.columns.size()];
+			for ( int i = 0 ; i < result.length ; i++ ) { result[i] = i; }
+			return result;
+		}
+		int[] result = new int[columns.length];
+		for ( int i = 0 ; i < columns.length ; i++ ) {
+			result[i] = this.columns.indexOf(columns[i]);
+			if ( result[i] < 0 ) {
+				throw new IllegalArgumentException("Column "+columns[i]+" not found in "+path);
+			}
+		}
+		return result;
+	}
+	
+	private Object[] readChunk(int rowGroup, int column) {
+		if ( column >= chunkOffsets[rowGroup].length ) {
+			// Column was discovered after this row group was written
+			return new Object[rowGroupRowCounts[rowGroup]];
+		}
+		try {
+			return ColumnarFormat.decodeChunk(read(chunkOffsets[rowGroup][column], chunkLengths[rowGroup][column]), rowGroupRowCounts[rowGroup]);
+		} catch (IOException e) {
+			throw new RuntimeException("Error reading "+path, e);
+		}
+	}
+	
+	private ByteBuffer read(long position, int length) throws IOException {
+		ByteBuffer buffer = ByteBuffer.allocate(length);
+		while ( buffer.hasRemaining() ) {
+			if ( channel.read(buffer, position+buffer.position()) < 0 ) {
+				throw new IOException("Unexpected end of file");
+			}
+		}
+		buffer.flip();
+		return buffer;
+	}
+}
@@ -0,0 +1,218 @@
+/*******************************************************************************
+ * (c) Copyright 2017 EntIT Software LLC, a Micro Focus company
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a 
+ * copy of this software and associated documentation files (the 
+ * "Software"), to deal in the Software without restriction, including without 
+ * limitation the rights to use, copy, modify, merge, publish, distribute, 
+ * sublicense, and/or sell copies of the Software, and to permit persons to 
+ * whom the Software is furnished to do so, subject to the following 
+ * conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included 
+ * in all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY 
+ * KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE 
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR 
+ * PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE 
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, 
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF 
+ * CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN 
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS 
+ * IN THE SOFTWARE.
+ ******************************************************************************/
+package com.fortify.util.rest.json.columnar;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.fortify.util.rest.json.JSONMap;
+import com.fortify.util.rest.json.JSONMapPath;
+import com.fortify.util.rest.json.processor.AbstractJSONMapProcessor;
+import com.fortify.util.rest.json.processor.IJSONMapProcessor;
+
+/**
+ * <p>This {@link IJSONMapProcessor} implementation writes all processed {@link JSONMap}
+ * instances to a columnar snapshot file, that can later be reloaded through 
+ * {@link ColumnarSnapshotReader}. Records are buffered in memory until the configured
+ * row group size has been reached, after which the values for each column are encoded
+ * and written to disk; as such, memory usage is bounded by the row group size. String
+ * values are dictionary-encoded, numeric and boolean values are stored in primitive
+ * form.</p>
+ * 
+ * <p>The columns to be written can be specified as property paths; simple paths like 
+ * <code>a.b.c</code> are evaluated directly, any other paths are evaluated as SpEL 
+ * expressions through {@link JSONMap#getPath(String)}. If no columns are specified, 
+ * the union of the top-level keys of all records will be used as columns; records
+ * that do not contain a particular key will have a null value for that column.</p>
+ * 
+ * <p>Values must be JSON values, i.e. {@link String}, {@link Number}, {@link Boolean},
+ * {@link Map} or {@link java.util.Collection}; {@link ColumnarSnapshotReader} restores
+ * scalar values with their original type, even if a column contains values of 
+ * different types. Any other value types result in an {@link IllegalArgumentException}.</p>
+ * 
+ * <p>Callers must call {@link #close()} after processing has finished, to write the
+ * remaining records and the file footer.</p>
+ * 
+ * @author Ruud Senden
+ *
+ */
+public class ColumnarSnapshotWriter extends AbstractJSONMapProcessor implements Closeable {
+	public static final int DEFAULT_ROW_GROUP_SIZE = 65536;
+	private final Path path;
+	private final DataOutputStream out;
+	private final int rowGroupSize;
+	private final List<String> columns = new ArrayList<>();
+	private final List<Object> columnPaths = new ArrayList<>();
+	private final Map<String, Integer> discoveredColumnIndexes;
+	private final List<Object[]> rowGroup = new ArrayList<>();
+	private int rowCount = 0;
+	private long offset = 0;
+	private final List<Integer> rowGroupRowCounts = new ArrayList<>();
+	private final List<long[]> rowGroupChunkOffsets = new ArrayList<>();
+	private final List<int[]> rowGroupChunkLengths = new ArrayList<>();
+	
+	/**
+	 * Create a new {@link ColumnarSnapshotWriter} for writing the given columns 
+	 * to the given file, using the default row group size.
+	 * @param path
+	 * @param columns
+	 */
+	public ColumnarSnapshotWriter(Path path, String... columns) {
+		this(path, DEFAULT_ROW_GROUP_SIZE, columns);
+	}
+	
+	/**
+	 * Create a new {@link ColumnarSnapshotWriter} for writing the given columns 
+	 * to the given file, using the given row group size.
+	 * @param path
+	 * @param rowGroupSize
+	 * @param columns
+	 */
+	public ColumnarSnapshotWriter(Path path, int rowGroupSize, String... columns) {
+		if ( rowGroupSize <= 0 ) {
+			throw new IllegalArgumentException("Row group size must be larger than 0");
+		}
+		this.path = path;
+		this.rowGroupSize = rowGroupSize;
+		try {
+			this.out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(path), 64*1024));
+			out.write(ColumnarFormat.MAGIC);
+			out.writeInt(ColumnarFormat.VERSION);
+			this.offset = out.size();
+		} catch (IOException e) {
+			throw new RuntimeException("Error opening "+path+" for writing", e);
+		}
+		if ( columns != null && columns.length > 0 ) {
+			this.discoveredColumnIndexes = null;
+			for ( String column : columns ) {
+				addColumn(column, JSONMapPath.isSimplePath(column) ? JSONMapPath.compile(column) : column);
+			}
+		} else {
+			this.discoveredColumnIndexes = new HashMap<>();
+		}
+	}
+	
+	@Override
+	public void process(JSONMap json) {
+		if ( discoveredColumnIndexes != null ) {
+			for ( Map.Entry<String, Object> entry : json.entrySet() ) {
+				Integer index = discoveredColumnIndexes.get(entry.getKey());
+				if ( index == null ) {
+					index = columns.size();
+					discoveredColumnIndexes.put(entry.getKey(), index);
+					addColumn(entry.getKey(), null);
+				}
+				rowGroup.get(index)[rowCount] = entry.getValue();
+			}
+		} else {
+			for ( int i = 0 ; i < columnPaths.size() ; i++ ) {
+				Object columnPath = columnPaths.get(i);
+				rowGroup.get(i)[rowCount] = columnPath instanceof JSONMapPath ? ((JSONMapPath)columnPath).get(json) : json.getPath((String)columnPath);
+			}
+		}
+		if ( ++rowCount == rowGroupSize ) {
+			writeRowGroup();
+		}
+	}
+	
+	/**
+	 * Write any remaining records and the file footer, and close the file
+	 */
+	@Override
+	public void close() {
+		try {
+			if ( rowCount > 0 ) {
+				writeRowGroup();
+			}
+			writeFooter();
+			out.close();
+		} catch (IOException e) {
+			throw new RuntimeException("Error writing "+path, e);
+		}
+	}
+	
+	/**
+	 * Add a column with the given name. The column path is either a {@link JSONMapPath},
+	 * a SpEL expression, or null for discovered columns that represent top-level keys.
+	 * Values for rows that were processed before adding the column will be null.
+	 */
+	private void addColumn(String column, Object columnPath) {
+		columns.add(column);
+		columnPaths.add(columnPath);
+		rowGroup.add(new Object[rowGroupSize]);
+	}
+	
+	private void writeRowGroup() {
+		try {
+			long[] chunkOffsets = new long[columns.size()];
+			int[] chunkLengths = new int[columns.size()];
+			for ( int i = 0 ; i < columns.size() ; i++ ) {
+				byte[] chunk = ColumnarFormat.encodeChunk(rowGroup.get(i), rowCount);
+				out.write(chunk);
+				chunkOffsets[i] = offset;
+				chunkLengths[i] = chunk.length;
+				offset += chunk.length;
+				Arrays.fill(rowGroup.get(i), 0, rowCount, null);
+			}
+			rowGroupRowCounts.add(rowCount);
+			rowGroupChunkOffsets.add(chunkOffsets);
+			rowGroupChunkLengths.add(chunkLengths);
+			rowCount = 0;
+		} catch (IOException e) {
+			throw new RuntimeException("Error writing "+path, e);
+		}
+	}
+	
+	private void writeFooter() throws IOException {
+		long footerOffset = offset;
+		out.writeInt(columns.size());
+		for ( int i = 0 ; i < columns.size() ; i++ ) {
+			ColumnarFormat.writeString(out, columns.get(i));
+			// Only declared simple paths are restored as nested objects; discovered keys may contain dots
+			out.writeBoolean(columnPaths.get(i) instanceof JSONMapPath);
+		}
+		out.writeInt(rowGroupRowCounts.size());
+		for ( int rowGroupIndex = 0 ; rowGroupIndex < rowGroupRowCounts.size() ; rowGroupIndex++ ) {
+			long[] chunkOffsets = rowGroupChunkOffsets.get(rowGroupIndex);
+			int[] chunkLengths = rowGroupChunkLengths.get(rowGroupIndex);
+			out.writeInt(rowGroupRowCounts.get(rowGroupIndex));
+			out.writeInt(chunkOffsets.length);
+			for ( int i = 0 ; i < chunkOffsets.length ; i++ ) {
+				out.writeLong(chunkOffsets[i]);
+				out.writeInt(chunkLengths[i]);
+			}
+		}
+		out.writeLong(footerOffset);
+	}
+}
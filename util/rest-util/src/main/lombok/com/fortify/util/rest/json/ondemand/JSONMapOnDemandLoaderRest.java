@@ -29,6 +29,7 @@ import javax.ws.rs.client.WebTarget;
 
 import com.fortify.util.rest.connection.IRestConnection;
 import com.fortify.util.rest.json.JSONMap;
+import com.fortify.util.rest.json.JSONMapTemplate;
 import com.fortify.util.spring.SpringExpressionUtil;
 
 /**
@@ -44,6 +45,7 @@ public class JSONMapOnDemandLoaderRest extends AbstractJSONMapOnDemandLoaderWith
 	private final String uriTemplateExpression;
 	private final String resultExpression;
 	private final String cacheName;
+	private final JSONMapTemplate uriTemplate;
 	
 	public JSONMapOnDemandLoaderRest(IRestConnection conn, boolean storeValue, String uriTemplateExpression, String resultExpression) {
 		this(conn, storeValue, uriTemplateExpression, resultExpression, null);
@@ -54,6 +56,7 @@ public class JSONMapOnDemandLoaderRest extends AbstractJSONMapOnDemandLoaderWith
 		this.uriTemplateExpression = uriTemplateExpression;
 		this.resultExpression = resultExpression;
 		this.cacheName = cacheName;
+		this.uriTemplate = JSONMapTemplate.isSimpleTemplate(uriTemplateExpression) ? JSONMapTemplate.compile(uriTemplateExpression) : null;
 	}
 
 	@Override
@@ -69,7 +72,17 @@ public class JSONMapOnDemandLoaderRest extends AbstractJSONMapOnDemandLoaderWith
 		}
 	}
 
+	/**
+	 * Get the {@link WebTarget} for the given parent {@link JSONMap}. Simple URI 
+	 * templates are rendered using the pre-compiled {@link JSONMapTemplate}; any 
+	 * other URI templates are evaluated as SpEL template expressions.
+	 * @param parent
+	 * @return
+	 */
 	protected WebTarget getWebTarget(JSONMap parent) {
+		if ( uriTemplate != null ) {
+			return conn().getResource(uriTemplate, parent);
+		}
 		String uri = SpringExpressionUtil.evaluateTemplateExpression(parent, uriTemplateExpression, String.class);
 		return conn().getResource(uri);
 	}
@@ -0,0 +1,54 @@
+/*******************************************************************************
+ * (c) Copyright 2017 EntIT Software LLC, a Micro Focus company
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a 
+ * copy of this software and associated documentation files (the 
+ * "Software"), to deal in the Software without restriction, including without 
+ * limitation the rights to use, copy, modify, merge, publish, distribute, 
+ * sublicense, and/or sell copies of the Software, and to permit persons to 
+ * whom the Software is furnished to do so, subject to the following 
+ * conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included 
+ * in all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY 
+ * KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE 
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR 
+ * PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE 
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, 
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF 
+ * CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN 
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS 
+ * IN THE SOFTWARE.
+ ******************************************************************************/
+package com.fortify.util.rest.json.predicate;
+
+/**
+ * Comparison operators supported by the comparison predicates
+ * provided by {@link JSONMapPredicates}.
+ * 
+ * @author Ruud Senden
+ *
+ */
+public enum ComparisonOperator {
+	lt, gt, le, ge, eq, ne;
+	
+	/**
+	 * Check whether the given comparison result (as returned by
+	 * {@link Comparable#compareTo(Object)}) satisfies this operator.
+	 * @param compareResult
+	 * @return
+	 */
+	public final boolean matches(int compareResult) {
+		switch (this) {
+		case lt: return compareResult < 0;
+		case gt: return compareResult > 0;
+		case le: return compareResult <= 0;
+		case ge: return compareResult >= 0;
+		case eq: return compareResult == 0;
+		case ne: return compareResult != 0;
+		default: throw new IllegalStateException("Unknown operator "+this);
+		}
+	}
+}
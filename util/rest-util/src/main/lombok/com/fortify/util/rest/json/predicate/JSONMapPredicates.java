@@ -0,0 +1,535 @@
+/*******************************************************************************
+ * (c) Copyright 2017 EntIT Software LLC, a Micro Focus company
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a 
+ * copy of this software and associated documentation files (the 
+ * "Software"), to deal in the Software without restriction, including without 
+ * limitation the rights to use, copy, modify, merge, publish, distribute, 
+ * sublicense, and/or sell copies of the Software, and to permit persons to 
+ * whom the Software is furnished to do so, subject to the following 
+ * conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included 
+ * in all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY 
+ * KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE 
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR 
+ * PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE 
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, 
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF 
+ * CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN 
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS 
+ * IN THE SOFTWARE.
+ ******************************************************************************/
+package com.fortify.util.rest.json.predicate;
+
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Predicate;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import com.fortify.util.rest.json.JSONMap;
+import com.fortify.util.rest.json.JSONMapPath;
+
+import lombok.Getter;
+
+/**
+ * <p>This class provides factory methods for building typed {@link Predicate} instances
+ * that operate on {@link JSONMap} instances. Property paths are compiled into 
+ * {@link JSONMapPath} instances and operands are pre-processed once, such that
+ * evaluating a predicate only walks the {@link JSONMap} structure and performs 
+ * the actual comparison; no expressions are parsed or evaluated, and for the common
+ * cases (equality, set membership, numeric comparisons, regular expressions on string 
+ * values and existence checks) no objects are allocated per evaluation.</p>
+ * 
+ * <p>Predicates can be combined using {@link #and(Predicate...)}, {@link #or(Predicate...)}
+ * and {@link #not(Predicate)}, and can be used for filtering through 
+ * {@link com.fortify.util.rest.json.preprocessor.filter.JSONMapFilterPredicate}. Example:</p>
+ * <pre>
+ * and(in("friority", "Critical", "High"), not(eq("suppressed", true)))
+ * </pre>
+ * 
+ * <p>Numeric values are compared by value, independent of their actual {@link Number}
+ * type. For equality and set membership, string operands also match numeric or boolean
+ * property values with the same string representation. Date comparisons accept
+ * {@link Date} values, epoch milliseconds, and strings in the 
+ * <code>yyyy-MM-dd'T'HH:mm:ss.SSSZ</code> format also used by {@link JSONMap#get(Object, Class)}.
+ * Like the SpEL-based comparisons, missing values are considered to be smaller than 
+ * any number or date. Property values that cannot be converted to a number or date 
+ * never match a number or date comparison.</p>
+ * 
+ * @author Ruud Senden
+ *
+ */
+public final class JSONMapPredicates {
+	private static final String DATE_FORMAT = "yyyy-MM-dd'T'HH:mm:ss.SSSZ";
+	private static final ThreadLocal<SimpleDateFormat> DATE_FORMATS = new ThreadLocal<SimpleDateFormat>() {
+		@Override
+		protected SimpleDateFormat initialValue() {
+			return new SimpleDateFormat(DATE_FORMAT);
+		}
+	};
+	
+	private JSONMapPredicates() {}
+	
+	/**
+	 * Match {@link JSONMap} instances for which the value for the given property path
+	 * equals the given value. 
+	 */
+	public static final Equals eq(String path, Object value) {
+		return new Equals(JSONMapPath.compile(path), value);
+	}
+	
+	/**
+	 * Match {@link JSONMap} instances for which the value for the given property path
+	 * doesn't equal the given value. 
+	 */
+	public static final Predicate<JSONMap> ne(String path, Object value) {
+		return not(eq(path, value));
+	}
+	
+	/**
+	 * Match {@link JSONMap} instances for which the value for the given property path
+	 * equals any of the given values. 
+	 */
+	public static final In in(String path, Object... values) {
+		return in(path, Arrays.asList(values));
+	}
+	
+	/**
+	 * Match {@link JSONMap} instances for which the value for the given property path
+	 * equals any of the given values. 
+	 */
+	public static final In in(String path, Collection<?> values) {
+		return new In(JSONMapPath.compile(path), values);
+	}
+	
+	/**
+	 * Match {@link JSONMap} instances for which the value for the given property path
+	 * fully matches the given regular expression. 
+	 */
+	public static final Matches matches(String path, String regex) {
+		return matches(path, Pattern.compile(regex));
+	}
+	
+	/**
+	 * Match {@link JSONMap} instances for which the value for the given property path
+	 * fully matches the given {@link Pattern}. 
+	 */
+	public static final Matches matches(String path, Pattern pattern) {
+		return new Matches(JSONMapPath.compile(path), pattern);
+	}
+	
+	/**
+	 * Match {@link JSONMap} instances for which the numeric value for the given property 
+	 * path satisfies the given comparison against the given number. 
+	 */
+	public static final CompareNumber compare(String path, ComparisonOperator operator, Number value) {
+		return new CompareNumber(JSONMapPath.compile(path), operator, value);
+	}
+	
+	public static final CompareNumber lt(String path, Number value) { return compare(path, ComparisonOperator.lt, value); }
+	public static final CompareNumber le(String path, Number value) { return compare(path, ComparisonOperator.le, value); }
+	public static final CompareNumber gt(String path, Number value) { return compare(path, ComparisonOperator.gt, value); }
+	public static final CompareNumber ge(String path, Number value) { return compare(path, ComparisonOperator.ge, value); }
+	
+	/**
+	 * Match {@link JSONMap} instances for which the date value for the given property 
+	 * path satisfies the given comparison against the given {@link Date}. 
+	 */
+	public static final CompareDate compare(String path, ComparisonOperator operator, Date value) {
+		return new CompareDate(JSONMapPath.compile(path), operator, value);
+	}
+	
+	public static final CompareDate before(String path, Date value) { return compare(path, ComparisonOperator.lt, value); }
+	public static final CompareDate after(String path, Date value) { return compare(path, ComparisonOperator.gt, value); }
+	
+	/**
+	 * Match {@link JSONMap} instances that have a non-null value for the given property path. 
+	 */
+	public static final Exists exists(String path) {
+		return new Exists(JSONMapPath.compile(path));
+	}
+	
+	/**
+	 * Match {@link JSONMap} instances that match all of the given predicates.
+	 * Predicates are evaluated in the given order, and evaluation stops at the 
+	 * first predicate that doesn't match.
+	 */
+	@SafeVarargs
+	public static final And and(Predicate<JSONMap>... predicates) {
+		return new And(predicates);
+	}
+	
+	/**
+	 * Match {@link JSONMap} instances that match any of the given predicates.
+	 * Predicates are evaluated in the given order, and evaluation stops at the 
+	 * first predicate that matches.
+	 */
+	@SafeVarargs
+	public static final Or or(Predicate<JSONMap>... predicates) {
+		return new Or(predicates);
+	}
+	
+	/**
+	 * Match {@link JSONMap} instances that do not match the given predicate.
+	 */
+	public static final Not not(Predicate<JSONMap> predicate) {
+		return new Not(predicate);
+	}
+	
+	/**
+	 * Abstract base class for predicates that operate on the value for
+	 * a single property path.
+	 */
+	public static abstract class AbstractPathPredicate implements Predicate<JSONMap> {
+		@Getter private final JSONMapPath path;
+		
+		protected AbstractPathPredicate(JSONMapPath path) {
+			this.path = path;
+		}
+		
+		@Override
+		public final boolean test(JSONMap json) {
+			return testValue(path.get(json));
+		}
+		
+		protected abstract boolean testValue(Object value);
+	}
+	
+	/**
+	 * {@link Predicate} implementation returned by {@link JSONMapPredicates#eq(String, Object)}
+	 */
+	public static final class Equals extends AbstractPathPredicate {
+		@Getter private final Object value;
+		
+		private Equals(JSONMapPath path, Object value) {
+			super(path);
+			this.value = value;
+		}
+		
+		@Override
+		protected boolean testValue(Object actual) {
+			if ( actual==null || value==null ) { return actual==value; }
+			if ( value instanceof Number && actual instanceof Number ) {
+				return compareNumbers((Number)actual, (Number)value)==0;
+			}
+			return value.equals(actual) 
+					|| (value instanceof String && isScalar(actual) && value.equals(actual.toString()));
+		}
+		
+		@Override
+		public String toString() {
+			return getPath()+" == "+value;
+		}
+	}
+	
+	/**
+	 * {@link Predicate} implementation returned by {@link JSONMapPredicates#in(String, Object...)}
+	 */
+	public static final class In extends AbstractPathPredicate {
+		@Getter private final List<Object> values;
+		private final Set<Object> nonNumericValues = new HashSet<>();
+		private final long[] integralValues;
+		private final double[] decimalValues;
+		private final boolean containsStrings;
+		
+		private In(JSONMapPath path, Collection<?> values) {
+			super(path);
+			this.values = Collections.unmodifiableList(Arrays.asList(values.toArray()));
+			List<Long> integralValues = new ArrayList<>();
+			List<Double> decimalValues = new ArrayList<>();
+			boolean containsStrings = false;
+			for ( Object value : values ) {
+				if ( value instanceof Number && isIntegral((Number)value) ) {
+					integralValues.add(((Number)value).longValue());
+				} else if ( value instanceof Number ) {
+					decimalValues.add(((Number)value).doubleValue());
+				} else {
+					nonNumericValues.add(value);
+					containsStrings |= value instanceof String;
+				}
+			}
+			this.integralValues = new long[integralValues.size()];
+			for ( int i = 0 ; i < this.integralValues.length ; i++ ) { this.integralValues[i] = integralValues.get(i); }
+			Arrays.sort(this.integralValues);
+			this.decimalValues = new double[decimalValues.size()];
+			for ( int i = 0 ; i < this.decimalValues.length ; i++ ) { this.decimalValues[i] = decimalValues.get(i); }
+			Arrays.sort(this.decimalValues);
+			this.containsStrings = containsStrings;
+		}
+		
+		@Override
+		protected boolean testValue(Object actual) {
+			if ( actual instanceof Number ) {
+				Number number = (Number)actual;
+				if ( containsNumber(number) ) { return true; }
+			} else if ( nonNumericValues.contains(actual) ) {
+				return true;
+			}
+			return containsStrings && isScalar(actual) && nonNumericValues.contains(actual.toString());
+		}
+		
+		private boolean containsNumber(Number number) {
+			if ( isIntegral(number) ) {
+				long l = number.longValue();
+				return Arrays.binarySearch(integralValues, l)>=0 || Arrays.binarySearch(decimalValues, (double)l)>=0;
+			} else {
+				double d = number.doubleValue();
+				return Arrays.binarySearch(decimalValues, d)>=0 
+						|| (d==Math.rint(d) && Arrays.binarySearch(integralValues, (long)d)>=0);
+			}
+		}
+		
+		@Override
+		public String toString() {
+			return getPath()+" in "+values;
+		}
+	}
+	
+	/**
+	 * {@link Predicate} implementation returned by {@link JSONMapPredicates#matches(String, Pattern)}
+	 */
+	public static final class Matches extends AbstractPathPredicate {
+		@Getter private final Pattern pattern;
+		private final ThreadLocal<Matcher> matchers;
+		
+		private Matches(JSONMapPath path, final Pattern pattern) {
+			super(path);
+			this.pattern = pattern;
+			this.matchers = new ThreadLocal<Matcher>() {
+				@Override
+				protected Matcher initialValue() {
+					return pattern.matcher("");
+				}
+			};
+		}
+		
+		@Override
+		protected boolean testValue(Object actual) {
+			if ( actual==null ) { return false; }
+			CharSequence value = actual instanceof CharSequence ? (CharSequence)actual : actual.toString();
+			return matchers.get().reset(value).matches();
+		}
+		
+		@Override
+		public String toString() {
+			return getPath()+" matches "+pattern.pattern();
+		}
+	}
+	
+	/**
+	 * {@link Predicate} implementation returned by {@link JSONMapPredicates#compare(String, ComparisonOperator, Number)}
+	 */
+	public static final class CompareNumber extends AbstractPathPredicate {
+		@Getter private final ComparisonOperator operator;
+		@Getter private final Number value;
+		private final double doubleValue;
+		
+		private CompareNumber(JSONMapPath path, ComparisonOperator operator, Number value) {
+			super(path);
+			this.operator = operator;
+			this.value = value;
+			this.doubleValue = value.doubleValue();
+		}
+		
+		@Override
+		protected boolean testValue(Object actual) {
+			int result;
+			if ( actual==null ) {
+				result = -1;
+			} else if ( actual instanceof Number ) {
+				result = compareNumbers((Number)actual, value);
+			} else {
+				try {
+					result = Double.compare(Double.parseDouble(actual.toString()), doubleValue);
+				} catch ( NumberFormatException e ) {
+					return false;
+				}
+			}
+			return operator.matches(result);
+		}
+		
+		@Override
+		public String toString() {
+			return getPath()+" "+operator+" "+value;
+		}
+	}
+	
+	/**
+	 * {@link Predicate} implementation returned by {@link JSONMapPredicates#compare(String, ComparisonOperator, Date)}
+	 */
+	public static final class CompareDate extends AbstractPathPredicate {
+		@Getter private final ComparisonOperator operator;
+		private final long time;
+		
+		private CompareDate(JSONMapPath path, ComparisonOperator operator, Date value) {
+			super(path);
+			this.operator = operator;
+			this.time = value.getTime();
+		}
+		
+		public Date getValue() {
+			return new Date(time);
+		}
+		
+		@Override
+		protected boolean testValue(Object actual) {
+			int result;
+			if ( actual==null ) {
+				result = -1;
+			} else {
+				Long actualTime = getTime(actual);
+				if ( actualTime==null ) { return false; }
+				result = Long.compare(actualTime, time);
+			}
+			return operator.matches(result);
+		}
+		
+		/**
+		 * Get the epoch milliseconds for the given value, or null if the
+		 * given value cannot be parsed as a date.
+		 */
+		private static final Long getTime(Object value) {
+			if ( value instanceof Date ) {
+				return ((Date)value).getTime();
+			} else if ( value instanceof Number ) {
+				return ((Number)value).longValue();
+			} else {
+				try {
+					return DATE_FORMATS.get().parse(value.toString()).getTime();
+				} catch ( ParseException e ) {
+					return null;
+				}
+			}
+		}
+		
+		@Override
+		public String toString() {
+			return getPath()+" "+operator+" "+getValue();
+		}
+	}
+	
+	/**
+	 * {@link Predicate} implementation returned by {@link JSONMapPredicates#exists(String)}
+	 */
+	public static final class Exists extends AbstractPathPredicate {
+		private Exists(JSONMapPath path) {
+			super(path);
+		}
+		
+		@Override
+		protected boolean testValue(Object actual) {
+			return actual!=null;
+		}
+		
+		@Override
+		public String toString() {
+			return getPath()+" exists";
+		}
+	}
+	
+	/**
+	 * {@link Predicate} implementation returned by {@link JSONMapPredicates#and(Predicate...)}
+	 */
+	public static final class And implements Predicate<JSONMap> {
+		private final Predicate<JSONMap>[] predicates;
+		
+		private And(Predicate<JSONMap>[] predicates) {
+			this.predicates = predicates.clone();
+		}
+		
+		public List<Predicate<JSONMap>> getPredicates() {
+			return Collections.unmodifiableList(Arrays.asList(predicates));
+		}
+		
+		@Override
+		public boolean test(JSONMap json) {
+			for ( Predicate<JSONMap> predicate : predicates ) {
+				if ( !predicate.test(json) ) { return false; }
+			}
+			return true;
+		}
+		
+		@Override
+		public String toString() {
+			return "and"+Arrays.toString(predicates);
+		}
+	}
+	
+	/**
+	 * {@link Predicate} implementation returned by {@link JSONMapPredicates#or(Predicate...)}
+	 */
+	public static final class Or implements Predicate<JSONMap> {
+		private final Predicate<JSONMap>[] predicates;
+		
+		private Or(Predicate<JSONMap>[] predicates) {
+			this.predicates = predicates.clone();
+		}
+		
+		public List<Predicate<JSONMap>> getPredicates() {
+			return Collections.unmodifiableList(Arrays.asList(predicates));
+		}
+		
+		@Override
+		public boolean test(JSONMap json) {
+			for ( Predicate<JSONMap> predicate : predicates ) {
+				if ( predicate.test(json) ) { return true; }
+			}
+			return false;
+		}
+		
+		@Override
+		public String toString() {
+			return "or"+Arrays.toString(predicates);
+		}
+	}
+	
+	/**
+	 * {@link Predicate} implementation returned by {@link JSONMapPredicates#not(Predicate)}
+	 */
+	public static final class Not implements Predicate<JSONMap> {
+		@Getter private final Predicate<JSONMap> predicate;
+		
+		private Not(Predicate<JSONMap> predicate) {
+			this.predicate = predicate;
+		}
+		
+		@Override
+		public boolean test(JSONMap json) {
+			return !predicate.test(json);
+		}
+		
+		@Override
+		public String toString() {
+			return "not("+predicate+")";
+		}
+	}
+	
+	private static final boolean isScalar(Object value) {
+		return value instanceof Number || value instanceof Boolean;
+	}
+	
+	private static final boolean isIntegral(Number value) {
+		return value instanceof Long || value instanceof Integer || value instanceof Short || value instanceof Byte;
+	}
+	
+	/**
+	 * Compare the given numbers by value, independent of their actual type.
+	 */
+	private static final int compareNumbers(Number n1, Number n2) {
+		return isIntegral(n1) && isIntegral(n2)
+				? Long.compare(n1.longValue(), n2.longValue())
+				: Double.compare(n1.doubleValue(), n2.doubleValue());
+	}
+}
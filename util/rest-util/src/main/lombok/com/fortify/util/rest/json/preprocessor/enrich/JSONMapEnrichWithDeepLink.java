@@ -25,6 +25,7 @@
 package com.fortify.util.rest.json.preprocessor.enrich;
 
 import com.fortify.util.rest.json.JSONMap;
+import com.fortify.util.rest.json.JSONMapTemplate;
 import com.fortify.util.spring.SpringExpressionUtil;
 import com.fortify.util.spring.expression.TemplateExpression;
 
@@ -33,17 +34,22 @@ import com.fortify.util.spring.expression.TemplateExpression;
  * given {@link JSONMap} instance with a 'deepLink' property by evaluating the
  * configured {@link TemplateExpression} on the {@link JSONMap} instance and
  * storing the evaluation result as the 'deepLink' property in the {@link JSONMap}
- * instance.
+ * instance. Simple templates containing only <code>${property}</code> placeholders
+ * are pre-compiled into a {@link JSONMapTemplate}, avoiding SpEL evaluation for
+ * every {@link JSONMap} instance.
  * 
  * @author Ruud Senden
  *
  */
 public class JSONMapEnrichWithDeepLink extends AbstractJSONMapEnrich {
 	private final TemplateExpression deepLinkExpression;
+	private final JSONMapTemplate deepLinkTemplate;
 	private final String[] requiredProperties;
 	
 	public JSONMapEnrichWithDeepLink(TemplateExpression deepLinkExpression, String... requiredProperties) {
+		String expressionString = deepLinkExpression.getExpressionString();
 		this.deepLinkExpression = deepLinkExpression;
+		this.deepLinkTemplate = JSONMapTemplate.isSimpleTemplate(expressionString) ? JSONMapTemplate.compile(expressionString) : null;
 		this.requiredProperties = requiredProperties;
 	}
 	
@@ -53,7 +59,9 @@ public class JSONMapEnrichWithDeepLink extends AbstractJSONMapEnrich {
 	@Override
 	protected final void enrich(JSONMap json) {
 		if ( json.containsAllKeys(requiredProperties) ) {
-			json.put("deepLink", SpringExpressionUtil.evaluateExpression(json, deepLinkExpression, String.class));
+			json.put("deepLink", deepLinkTemplate!=null 
+					? deepLinkTemplate.render(json)
+					: SpringExpressionUtil.evaluateExpression(json, deepLinkExpression, String.class));
 		}
 	}
 }
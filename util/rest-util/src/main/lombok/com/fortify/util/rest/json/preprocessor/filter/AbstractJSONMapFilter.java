@@ -27,6 +27,7 @@ package com.fortify.util.rest.json.preprocessor.filter;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
 
 import com.fortify.util.rest.json.JSONMap;
 import com.fortify.util.rest.json.preprocessor.IJSONMapPreProcessor;
@@ -44,6 +45,11 @@ import lombok.Getter;
  * instances to be notified about included and excluded {@link JSONMap} 
  * objects, for example for logging purposes.</p>
  * 
+ * <p>Subclasses that can express their matching criteria as a set of exact
+ * field-to-value equality constraints may override {@link #getEqualityConstraints()},
+ * allowing query builders to push down the filter into server-side query 
+ * parameters through {@link #getPushDownConstraints()}.</p>
+ * 
  * @author Ruud Senden
  *
  */
@@ -74,6 +80,54 @@ public abstract class AbstractJSONMapFilter implements IJSONMapPreProcessor {
 	public final void addFilterListeners(IJSONMapFilterListener... filterListeners) {
 		this.filterListeners.addAll(Arrays.asList(filterListeners));
 	}
+	
+	/**
+	 * Indicate whether any {@link IJSONMapFilterListener} instances have been
+	 * configured for this filter.
+	 * @return
+	 */
+	public final boolean hasFilterListeners() {
+		return !filterListeners.isEmpty();
+	}
+
+	/**
+	 * Get the field-to-value equality constraints that can be used to evaluate
+	 * this filter on the server-side, in addition to the client-side, or null if this 
+	 * filter cannot be pushed down. Filters are only eligible for push-down if they
+	 * include matching records, and don't have any {@link IJSONMapFilterListener} 
+	 * instances configured (as these would no longer be notified about records
+	 * excluded by the server).
+	 * @return
+	 */
+	public final Map<String, String> getPushDownConstraints() {
+		return includeMatching && !hasFilterListeners() ? getEqualityConstraints() : null;
+	}
+	
+	/**
+	 * Subclasses may override this method to return the field-to-value equality 
+	 * constraints that are exactly equivalent to {@link #isMatching(JSONMap)}; all 
+	 * constraints are and-ed together. Field names must be top-level property names. 
+	 * This default implementation returns null, indicating that this filter cannot
+	 * be expressed as equality constraints.
+	 * @return
+	 */
+	protected Map<String, String> getEqualityConstraints() {
+		return null;
+	}
+	
+	/**
+	 * Subclasses may override this method to provide a description of the filter
+	 * criteria, to be included in the {@link #toString()} output.
+	 * @return
+	 */
+	protected String getFilterDescription() {
+		return "";
+	}
+	
+	@Override
+	public String toString() {
+		return getClass().getSimpleName()+"["+(includeMatching?MatchMode.INCLUDE:MatchMode.EXCLUDE)+" "+getFilterDescription()+"]";
+	}
 
 	protected abstract boolean isMatching(JSONMap json);
 }
@@ -25,8 +25,12 @@
 package com.fortify.util.rest.json.preprocessor.filter;
 
 import java.util.Date;
+import java.util.function.Predicate;
 
 import com.fortify.util.rest.json.JSONMap;
+import com.fortify.util.rest.json.JSONMapPath;
+import com.fortify.util.rest.json.predicate.ComparisonOperator;
+import com.fortify.util.rest.json.predicate.JSONMapPredicates;
 
 /**
  * This {@link JSONMapFilterSpEL} implementation allows for filtering {@link JSONMap}
@@ -41,8 +45,22 @@ public class JSONMapFilterCompareDate extends JSONMapFilterSpEL {
 		lt, gt, le, ge, eq, ne
 	}
 	
+	private final Predicate<JSONMap> compiledPredicate;
+	
 	public JSONMapFilterCompareDate(MatchMode matchMode, String fieldPath, DateComparisonOperator operator, Date compareDate) {
 		super(matchMode, getDateExpression(fieldPath, operator, compareDate));
+		this.compiledPredicate = !JSONMapPath.isSimplePath(fieldPath) ? null
+				: JSONMapPredicates.compare(fieldPath, ComparisonOperator.valueOf(operator.name()), compareDate);
+	}
+	
+	/**
+	 * For simple property paths, this method evaluates the pre-compiled 
+	 * {@link JSONMapPredicates#compare(String, ComparisonOperator, Date)} predicate.
+	 * For any other paths, the SpEL expression is evaluated.
+	 */
+	@Override
+	protected boolean isMatching(JSONMap json) {
+		return compiledPredicate!=null ? compiledPredicate.test(json) : super.isMatching(json);
 	}
 
 	private static String getDateExpression(String fieldPath, DateComparisonOperator operator, Date compareDate) {
@@ -24,14 +24,24 @@
  ******************************************************************************/
 package com.fortify.util.rest.json.preprocessor.filter;
 
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.function.Predicate;
+import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
+import org.apache.commons.lang.StringUtils;
+
 import com.fortify.util.rest.json.JSONMap;
+import com.fortify.util.rest.json.JSONMapPath;
+import com.fortify.util.rest.json.predicate.JSONMapPredicates;
 import com.google.common.base.Function;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Maps;
 
+import lombok.AccessLevel;
 import lombok.Getter;
 
 /**
@@ -42,6 +52,10 @@ import lombok.Getter;
  * value, the given {@link JSONMap} instance is considered as 'not matching',
  * and as a result (depending on the configured {@link MatchMode}) will
  * be either included or excluded from further processing.
+ * 
+ * Patterns that represent a literal value on a top-level property can be
+ * pushed down to server-side query parameters; see 
+ * {@link AbstractJSONMapFilter#getPushDownConstraints()}.
  *  
  * @author Ruud Senden
  *
@@ -55,11 +69,16 @@ public class JSONMapFilterRegEx extends AbstractJSONMapFilter {
 		}
 		
 	};
+	private static final Pattern TOP_LEVEL_PROPERTY_PATTERN = Pattern.compile("[A-Za-z_][A-Za-z0-9_]*");
+	private static final Pattern QUOTED_LITERAL_PATTERN = Pattern.compile("\\^?\\\\Q(.*)\\\\E\\$?", Pattern.DOTALL);
+	private static final Pattern PLAIN_LITERAL_PATTERN = Pattern.compile("\\^?([^\\\\^$.|?*+()\\[\\]{}]*)\\$?");
 	private final ImmutableMap<String, Pattern> fieldPathPatternsMap;
+	@Getter(AccessLevel.NONE) private final Predicate<JSONMap> compiledPredicate;
 	
 	public JSONMapFilterRegEx(MatchMode matchMode, Map<String, Pattern> fieldPathPatternsMap) {
 		super(matchMode);
 		this.fieldPathPatternsMap = ImmutableMap.copyOf(fieldPathPatternsMap);
+		this.compiledPredicate = compile(this.fieldPathPatternsMap);
 	}
 	
 	public JSONMapFilterRegEx(MatchMode matchMode, String fieldPath, Pattern pattern) {
@@ -75,8 +94,59 @@ public class JSONMapFilterRegEx extends AbstractJSONMapFilter {
 		return new JSONMapFilterRegEx(matchMode, Maps.transformValues(fieldPathPatternsMap, STRING_TO_PATTERN_TRANSFORMER));
 	}
 
+	/**
+	 * If all field paths are simple property paths, compile the patterns into
+	 * a {@link JSONMapPredicates#and(Predicate...)} predicate. Otherwise, return
+	 * null to have the field paths evaluated through {@link JSONMap#getPath(String, Class)}.
+	 */
+	@SuppressWarnings("unchecked")
+	private static final Predicate<JSONMap> compile(Map<String, Pattern> fieldPathPatternsMap) {
+		List<Predicate<JSONMap>> predicates = new ArrayList<>(fieldPathPatternsMap.size());
+		for ( Map.Entry<String, Pattern> entry : fieldPathPatternsMap.entrySet() ) {
+			if ( !JSONMapPath.isSimplePath(entry.getKey()) ) { return null; }
+			predicates.add(JSONMapPredicates.matches(entry.getKey(), entry.getValue()));
+		}
+		return JSONMapPredicates.and(predicates.toArray(new Predicate[predicates.size()]));
+	}
+
+	/**
+	 * If all field paths are top-level property names, and all patterns 
+	 * represent a literal value, return a map containing the field paths and
+	 * corresponding literal values. Otherwise, null is returned.
+	 */
+	@Override
+	protected Map<String, String> getEqualityConstraints() {
+		Map<String, String> result = new LinkedHashMap<>(fieldPathPatternsMap.size());
+		for ( Map.Entry<String, Pattern> entry : fieldPathPatternsMap.entrySet() ) {
+			String literal = getLiteral(entry.getValue());
+			if ( literal==null || !TOP_LEVEL_PROPERTY_PATTERN.matcher(entry.getKey()).matches() ) { return null; }
+			result.put(entry.getKey(), literal);
+		}
+		return result;
+	}
+	
+	/**
+	 * Get the literal value matched by the given {@link Pattern}, or null
+	 * if the given {@link Pattern} doesn't represent a (non-empty) literal value.
+	 */
+	private static final String getLiteral(Pattern pattern) {
+		if ( pattern.flags()!=0 ) { return null; }
+		Matcher matcher = QUOTED_LITERAL_PATTERN.matcher(pattern.pattern());
+		if ( matcher.matches() && !matcher.group(1).contains("\\E") ) {
+			return StringUtils.defaultIfEmpty(matcher.group(1), null);
+		}
+		matcher = PLAIN_LITERAL_PATTERN.matcher(pattern.pattern());
+		return matcher.matches() ? StringUtils.defaultIfEmpty(matcher.group(1), null) : null;
+	}
+	
+	@Override
+	protected String getFilterDescription() {
+		return fieldPathPatternsMap.toString();
+	}
+
 	@Override
 	protected boolean isMatching(JSONMap json) {
+		if ( compiledPredicate!=null ) { return compiledPredicate.test(json); }
 		for ( Map.Entry<String, Pattern> entry : fieldPathPatternsMap.entrySet() ) {
 			String value = json.getPath(entry.getKey(), String.class);
 			if ( value==null || !entry.getValue().matcher(value).matches() ) { return false; }
@@ -24,7 +24,19 @@
  ******************************************************************************/
 package com.fortify.util.rest.json.preprocessor.filter;
 
+import java.util.LinkedHashMap;
+import java.util.Map;
+
 import org.springframework.expression.Expression;
+import org.springframework.expression.spel.SpelNode;
+import org.springframework.expression.spel.ast.IntLiteral;
+import org.springframework.expression.spel.ast.Literal;
+import org.springframework.expression.spel.ast.LongLiteral;
+import org.springframework.expression.spel.ast.OpAnd;
+import org.springframework.expression.spel.ast.OpEQ;
+import org.springframework.expression.spel.ast.PropertyOrFieldReference;
+import org.springframework.expression.spel.ast.StringLiteral;
+import org.springframework.expression.spel.standard.SpelExpression;
 import org.springframework.expression.spel.standard.SpelExpressionParser;
 
 import com.fortify.util.rest.json.JSONMap;
@@ -39,6 +51,11 @@ import lombok.Getter;
  * this {@link JSONMap} instance from further processing based on the
  * expression evaluation result.
  * 
+ * Expressions consisting only of (and-ed) equality comparisons between 
+ * a top-level property and a literal value, like <code>name=='x' and id==1</code>,
+ * can be pushed down to server-side query parameters; see 
+ * {@link AbstractJSONMapFilter#getPushDownConstraints()}.
+ * 
  * @author Ruud Senden
  *
  */
@@ -59,4 +76,46 @@ public class JSONMapFilterSpEL extends AbstractJSONMapFilter {
 	protected boolean isMatching(JSONMap json) {
 		return SpringExpressionUtil.evaluateExpression(json, expression, Boolean.class);
 	}
+	
+	/**
+	 * If the configured expression only consists of equality comparisons 
+	 * between a property and a literal, return a map containing the property
+	 * names and corresponding literal values. Otherwise, null is returned.
+	 */
+	@Override
+	protected Map<String, String> getEqualityConstraints() {
+		if ( !(expression instanceof SpelExpression) ) { return null; }
+		Map<String, String> result = new LinkedHashMap<>();
+		return addEqualityConstraints(result, ((SpelExpression)expression).getAST()) ? result : null;
+	}
+	
+	private static final boolean addEqualityConstraints(Map<String, String> result, SpelNode node) {
+		if ( node instanceof OpAnd ) {
+			return addEqualityConstraints(result, node.getChild(0)) && addEqualityConstraints(result, node.getChild(1));
+		} else if ( node instanceof OpEQ ) {
+			SpelNode left = node.getChild(0);
+			SpelNode right = node.getChild(1);
+			if ( left instanceof PropertyOrFieldReference ) {
+				return addEqualityConstraint(result, (PropertyOrFieldReference)left, right);
+			} else if ( right instanceof PropertyOrFieldReference ) {
+				return addEqualityConstraint(result, (PropertyOrFieldReference)right, left);
+			}
+		}
+		return false;
+	}
+
+	private static final boolean addEqualityConstraint(Map<String, String> result, PropertyOrFieldReference property, SpelNode literal) {
+		if ( literal instanceof StringLiteral || literal instanceof IntLiteral || literal instanceof LongLiteral ) {
+			String value = String.valueOf(((Literal)literal).getLiteralValue().getValue());
+			if ( value.isEmpty() ) { return false; }
+			String previousValue = result.put(property.getName(), value);
+			return previousValue==null || previousValue.equals(value);
+		}
+		return false;
+	}
+	
+	@Override
+	protected String getFilterDescription() {
+		return expression.getExpressionString();
+	}
 }
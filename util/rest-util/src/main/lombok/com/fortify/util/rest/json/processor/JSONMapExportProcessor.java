@@ -0,0 +1,234 @@
+/*******************************************************************************
+ * (c) Copyright 2017 EntIT Software LLC, a Micro Focus company
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a 
+ * copy of this software and associated documentation files (the 
+ * "Software"), to deal in the Software without restriction, including without 
+ * limitation the rights to use, copy, modify, merge, publish, distribute, 
+ * sublicense, and/or sell copies of the Software, and to permit persons to 
+ * whom the Software is furnished to do so, subject to the following 
+ * conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included 
+ * in all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY 
+ * KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE 
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR 
+ * PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE 
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, 
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF 
+ * CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN 
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS 
+ * IN THE SOFTWARE.
+ ******************************************************************************/
+package com.fortify.util.rest.json.processor;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fortify.util.rest.json.JSONMap;
+import com.fortify.util.rest.json.JSONMapPath;
+
+/**
+ * <p>This {@link IJSONMapProcessor} implementation streams all processed {@link JSONMap}
+ * instances to an {@link OutputStream} or file, either as newline-delimited JSON (NDJSON)
+ * or as CSV. All records are written through a single buffered {@link JsonGenerator} and
+ * a shared {@link ObjectWriter}, without building any intermediate strings or trees, so 
+ * memory usage remains flat regardless of export size.</p>
+ * 
+ * <p>Optionally, a list of columns can be configured, in which case only the values for
+ * the given property paths will be exported. Simple paths like <code>a.b.c</code> are
+ * evaluated directly, any other paths are evaluated as SpEL expressions through 
+ * {@link JSONMap#getPath(String)}. For NDJSON, each column will be written as a separate
+ * property with the column path as property name. If no columns are configured, NDJSON 
+ * exports will contain the full records, and CSV exports will use the keys of the first 
+ * record as columns. On-demand properties are loaded as they are exported.</p>
+ * 
+ * <p>CSV values are quoted according to RFC 4180 if necessary; nested objects and 
+ * arrays are written as JSON strings.</p>
+ * 
+ * <p>Callers must call {@link #close()} after processing has finished, to flush any
+ * buffered output and close the underlying {@link OutputStream}.</p>
+ * 
+ * @author Ruud Senden
+ *
+ */
+public class JSONMapExportProcessor extends AbstractJSONMapProcessor implements Closeable, Flushable {
+	private static final ObjectMapper MAPPER = new ObjectMapper();
+	private static final ObjectWriter WRITER = MAPPER.writer().without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+	private final Format format;
+	private final JsonGenerator generator;
+	private List<String> columns;
+	private List<Object> columnPaths;
+	private long exportedCount = 0;
+	
+	/**
+	 * Supported export formats
+	 */
+	public static enum Format {
+		/** Newline-delimited JSON, one JSON object per line */
+		NDJSON, 
+		/** Comma-separated values, with a header row containing the column names */
+		CSV
+	}
+	
+	/**
+	 * Create a new {@link JSONMapExportProcessor} instance that writes the given 
+	 * columns to the given {@link OutputStream} in the given format.
+	 * @param out {@link OutputStream} to write to; will be buffered by this class
+	 * @param format Export format
+	 * @param columns Optional columns (property paths) to be exported
+	 */
+	public JSONMapExportProcessor(OutputStream out, Format format, String... columns) {
+		this.format = format;
+		try {
+			this.generator = MAPPER.getFactory().createGenerator(new BufferedOutputStream(out, 64*1024), JsonEncoding.UTF8);
+		} catch (IOException e) {
+			throw new RuntimeException("Error initializing export", e);
+		}
+		this.generator.setRootValueSeparator(null);
+		if ( columns != null && columns.length > 0 ) {
+			setColumns(Arrays.asList(columns));
+		}
+	}
+	
+	/**
+	 * Create a new {@link JSONMapExportProcessor} instance that writes the given 
+	 * columns to the given file in the given format. Any existing file will be
+	 * overwritten.
+	 * @param path File to write to
+	 * @param format Export format
+	 * @param columns Optional columns (property paths) to be exported
+	 */
+	public JSONMapExportProcessor(Path path, Format format, String... columns) {
+		this(newOutputStream(path), format, columns);
+	}
+	
+	private static final OutputStream newOutputStream(Path path) {
+		try {
+			return Files.newOutputStream(path);
+		} catch (IOException e) {
+			throw new RuntimeException("Error opening "+path+" for writing", e);
+		}
+	}
+	
+	/**
+	 * @return The number of records exported so far
+	 */
+	public long getExportedCount() {
+		return exportedCount;
+	}
+	
+	@Override
+	public void process(JSONMap json) {
+		try {
+			if ( columns == null && format == Format.CSV ) {
+				setColumns(new ArrayList<>(json.keySet()));
+			}
+			if ( exportedCount == 0 && format == Format.CSV ) {
+				writeCSVRow(new ArrayList<Object>(columns));
+			}
+			if ( format == Format.CSV ) {
+				writeCSVRow(getColumnValues(json));
+			} else {
+				writeNDJSON(json);
+			}
+			exportedCount++;
+		} catch (IOException e) {
+			throw new RuntimeException("Error exporting JSON data", e);
+		}
+	}
+	
+	/**
+	 * Flush any buffered output to the underlying {@link OutputStream}
+	 */
+	@Override
+	public void flush() {
+		try {
+			generator.flush();
+		} catch (IOException e) {
+			throw new RuntimeException("Error flushing export output", e);
+		}
+	}
+	
+	/**
+	 * Flush any buffered output, and close the underlying {@link OutputStream}
+	 */
+	@Override
+	public void close() {
+		try {
+			generator.close();
+		} catch (IOException e) {
+			throw new RuntimeException("Error closing export output", e);
+		}
+	}
+	
+	private void setColumns(List<String> columns) {
+		this.columns = columns;
+		this.columnPaths = new ArrayList<>(columns.size());
+		for ( String column : columns ) {
+			columnPaths.add(JSONMapPath.isSimplePath(column) ? JSONMapPath.compile(column) : column);
+		}
+	}
+	
+	private List<Object> getColumnValues(JSONMap json) {
+		List<Object> result = new ArrayList<>(columnPaths.size());
+		for ( Object path : columnPaths ) {
+			result.add(path instanceof JSONMapPath ? ((JSONMapPath)path).get(json) : json.getPath((String)path));
+		}
+		return result;
+	}
+	
+	private void writeNDJSON(JSONMap json) throws IOException {
+		generator.writeStartObject();
+		if ( columns == null ) {
+			for ( String key : json.keySet() ) {
+				generator.writeFieldName(key);
+				WRITER.writeValue(generator, json.get(key));
+			}
+		} else {
+			List<Object> values = getColumnValues(json);
+			for ( int i = 0 ; i < columns.size() ; i++ ) {
+				generator.writeFieldName(columns.get(i));
+				WRITER.writeValue(generator, values.get(i));
+			}
+		}
+		generator.writeEndObject();
+		generator.writeRaw('\n');
+	}
+	
+	private void writeCSVRow(List<Object> values) throws IOException {
+		for ( int i = 0 ; i < values.size() ; i++ ) {
+			if ( i > 0 ) { generator.writeRaw(','); }
+			writeCSVValue(values.get(i));
+		}
+		generator.writeRaw("\r\n");
+	}
+	
+	private void writeCSVValue(Object value) throws IOException {
+		if ( value == null ) { return; }
+		String text = (value instanceof Map || value instanceof Iterable) ? WRITER.writeValueAsString(value) : value.toString();
+		if ( text.indexOf(',')<0 && text.indexOf('"')<0 && text.indexOf('\n')<0 && text.indexOf('\r')<0 ) {
+			generator.writeRaw(text);
+		} else {
+			generator.writeRaw('"');
+			generator.writeRaw(text.replace("\"", "\"\""));
+			generator.writeRaw('"');
+		}
+	}
+}
@@ -0,0 +1,68 @@
+/*******************************************************************************
+ * (c) Copyright 2017 EntIT Software LLC, a Micro Focus company
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a 
+ * copy of this software and associated documentation files (the 
+ * "Software"), to deal in the Software without restriction, including without 
+ * limitation the rights to use, copy, modify, merge, publish, distribute, 
+ * sublicense, and/or sell copies of the Software, and to permit persons to 
+ * whom the Software is furnished to do so, subject to the following 
+ * conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included 
+ * in all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY 
+ * KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE 
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR 
+ * PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE 
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, 
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF 
+ * CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN 
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS 
+ * IN THE SOFTWARE.
+ ******************************************************************************/
+package com.fortify.util.rest.json.processor;
+
+import java.nio.file.Path;
+
+import com.fortify.util.rest.json.JSONBinaryCodec;
+import com.fortify.util.rest.json.JSONMap;
+import com.fortify.util.rest.json.SpillingJSONList;
+
+/**
+ * This {@link IJSONMapProcessor} implementation allows for building a
+ * {@link SpillingJSONList} instance that holds all {@link JSONMap} instances
+ * passed to the {@link #process(JSONMap)} method, spilling entries to disk
+ * once the configured maximum number of in-memory entries has been exceeded.
+ * 
+ * @author Ruud Senden
+ *
+ */
+public class JSONMapsToSpillingJSONListProcessor extends AbstractJSONMapProcessor {
+	private final SpillingJSONList jsonList;
+	
+	public JSONMapsToSpillingJSONListProcessor() {
+		this(SpillingJSONList.DEFAULT_MAX_ENTRIES_IN_MEMORY);
+	}
+	
+	public JSONMapsToSpillingJSONListProcessor(int maxEntriesInMemory) {
+		this(maxEntriesInMemory, null);
+	}
+	
+	public JSONMapsToSpillingJSONListProcessor(int maxEntriesInMemory, Path tempDirectory) {
+		this(maxEntriesInMemory, tempDirectory, null);
+	}
+	
+	public JSONMapsToSpillingJSONListProcessor(int maxEntriesInMemory, Path tempDirectory, JSONBinaryCodec codec) {
+		this.jsonList = new SpillingJSONList(maxEntriesInMemory, tempDirectory, codec);
+	}
+
+	public SpillingJSONList getJsonList() {
+		return jsonList;
+	}
+	
+	public void process(JSONMap json) {
+		jsonList.add(json);
+	}
+}
@@ -0,0 +1,363 @@
+/*******************************************************************************
+ * (c) Copyright 2017 EntIT Software LLC, a Micro Focus company
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a 
+ * copy of this software and associated documentation files (the 
+ * "Software"), to deal in the Software without restriction, including without 
+ * limitation the rights to use, copy, modify, merge, publish, distribute, 
+ * sublicense, and/or sell copies of the Software, and to permit persons to 
+ * whom the Software is furnished to do so, subject to the following 
+ * conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included 
+ * in all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY 
+ * KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE 
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR 
+ * PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE 
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, 
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF 
+ * CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN 
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS 
+ * IN THE SOFTWARE.
+ ******************************************************************************/
+package com.fortify.util.rest.json.store;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.fortify.util.rest.json.JSONList;
+import com.fortify.util.rest.json.JSONMap;
+import com.fortify.util.rest.json.JSONMapPath;
+import com.fortify.util.rest.json.processor.AbstractJSONMapProcessor;
+import com.fortify.util.rest.json.processor.IJSONMapProcessor;
+
+/**
+ * <p>This {@link IJSONMapProcessor} implementation ingests all processed {@link JSONMap} 
+ * instances into an in-memory store, allowing for point lookups by id, and count, group-by 
+ * and filter queries on a configurable set of indexed fields. For each indexed field, the 
+ * store keeps a dictionary of distinct values, a primitive column holding the dictionary code
+ * for each record, and a bitmap of matching records for each distinct value. Filters are 
+ * evaluated as bitmap operations, so queries on low-cardinality fields like severity, 
+ * category or folder are answered without scanning the individual records.</p>
+ * 
+ * <p>Indexed fields and the id field are specified as property paths; simple paths like 
+ * <code>a.b.c</code> are evaluated directly, any other paths are evaluated as SpEL 
+ * expressions through {@link JSONMap#getPath(String)}. Integral numbers are normalized
+ * to {@link Long}, so for example ids can be looked up using either {@link Integer} or
+ * {@link Long} values.</p>
+ * 
+ * <p>Example usage:</p>
+ * <pre>
+ * IndexedJSONMapStore store = new IndexedJSONMapStore("id", "friority", "folderName", "issueName");
+ * api.queryIssues(applicationVersionId).build().processAll(store);
+ * Map&lt;Object, Integer&gt; countsPerCategory = store.where("friority", "Critical", "High").groupBy("issueName");
+ * </pre>
+ * 
+ * <p>This class is not thread-safe while records are being ingested; once ingestion has
+ * finished, the store can safely be queried from multiple threads.</p>
+ * 
+ * @author Ruud Senden
+ *
+ */
+public class IndexedJSONMapStore extends AbstractJSONMapProcessor {
+	private final JSONList records = new JSONList();
+	private final Object idPath;
+	private final Map<Object, Integer> idIndex = new HashMap<>();
+	private final Map<String, FieldIndex> fieldIndexes = new LinkedHashMap<>();
+	
+	/**
+	 * Create a new {@link IndexedJSONMapStore} instance, using the given id path
+	 * for point lookups (may be null if point lookups are not required), and
+	 * indexing the given fields.
+	 * @param idPath
+	 * @param indexedPaths
+	 */
+	public IndexedJSONMapStore(String idPath, String... indexedPaths) {
+		this.idPath = idPath==null ? null : compilePath(idPath);
+		for ( String indexedPath : indexedPaths ) {
+			fieldIndexes.put(indexedPath, new FieldIndex(compilePath(indexedPath)));
+		}
+	}
+	
+	/**
+	 * Add the given {@link JSONMap} to this store
+	 */
+	@Override
+	public void process(JSONMap json) {
+		int row = records.size();
+		records.add(json);
+		if ( idPath != null ) {
+			idIndex.put(normalize(getValue(json, idPath)), row);
+		}
+		for ( FieldIndex fieldIndex : fieldIndexes.values() ) {
+			fieldIndex.add(row, normalize(getValue(json, fieldIndex.path)));
+		}
+	}
+	
+	/**
+	 * @return The number of records in this store
+	 */
+	public int size() {
+		return records.size();
+	}
+	
+	/**
+	 * @return All records in this store, in ingestion order
+	 */
+	public JSONList getRecords() {
+		return records;
+	}
+	
+	/**
+	 * Get the record with the given id, or null if no such record exists
+	 * @param id
+	 * @return
+	 */
+	public JSONMap getById(Object id) {
+		if ( idPath == null ) {
+			throw new IllegalStateException("No id path configured for this store");
+		}
+		Integer row = idIndex.get(normalize(id));
+		return row==null ? null : (JSONMap)records.get(row);
+	}
+	
+	/**
+	 * Get the distinct values for the given indexed field
+	 * @param path
+	 * @return
+	 */
+	public List<Object> getDistinctValues(String path) {
+		return Collections.unmodifiableList(getFieldIndex(path).values);
+	}
+	
+	/**
+	 * @return {@link Selection} containing all records in this store
+	 */
+	public Selection all() {
+		BitSet rows = new BitSet(size());
+		rows.set(0, size());
+		return new Selection(rows);
+	}
+	
+	/**
+	 * @return {@link Selection} containing all records for which the given
+	 *         indexed field matches any of the given values
+	 */
+	public Selection where(String path, Object... values) {
+		return new Selection(getFieldIndex(path).getRows(values));
+	}
+	
+	/**
+	 * @return The number of records for which the given indexed field matches 
+	 *         any of the given values
+	 */
+	public int count(String path, Object... values) {
+		return where(path, values).count();
+	}
+	
+	/**
+	 * @return {@link Map} containing the number of records for each distinct value
+	 *         of the given indexed field
+	 */
+	public Map<Object, Integer> groupBy(String path) {
+		FieldIndex fieldIndex = getFieldIndex(path);
+		Map<Object, Integer> result = new LinkedHashMap<>(fieldIndex.values.size()*2);
+		for ( int code = 0 ; code < fieldIndex.values.size() ; code++ ) {
+			result.put(fieldIndex.values.get(code), fieldIndex.bitmaps.get(code).cardinality());
+		}
+		return result;
+	}
+	
+	private FieldIndex getFieldIndex(String path) {
+		FieldIndex result = fieldIndexes.get(path);
+		if ( result == null ) {
+			throw new IllegalArgumentException("Field "+path+" is not indexed; indexed fields: "+fieldIndexes.keySet());
+		}
+		return result;
+	}
+	
+	private static final Object compilePath(String path) {
+		return JSONMapPath.isSimplePath(path) ? JSONMapPath.compile(path) : path;
+	}
+	
+	private static final Object getValue(JSONMap json, Object path) {
+		return path instanceof JSONMapPath ? ((JSONMapPath)path).get(json) : json.getPath((String)path);
+	}
+	
+	private static final Object normalize(Object value) {
+		if ( value instanceof Integer || value instanceof Short || value instanceof Byte ) {
+			return ((Number)value).longValue();
+		} else if ( value instanceof BigInteger && ((BigInteger)value).bitLength()<64 ) {
+			return ((BigInteger)value).longValue();
+		}
+		return value;
+	}
+	
+	/**
+	 * This class represents a set of records in the enclosing {@link IndexedJSONMapStore},
+	 * backed by a bitmap. All methods that combine selections return a new {@link Selection}
+	 * instance, leaving the current instance unmodified.
+	 */
+	public final class Selection {
+		private final BitSet rows;
+		
+		private Selection(BitSet rows) {
+			this.rows = rows;
+		}
+		
+		/**
+		 * @return {@link Selection} containing the records in this selection for which 
+		 *         the given indexed field matches any of the given values
+		 */
+		public Selection and(String path, Object... values) {
+			return and(where(path, values));
+		}
+		
+		/**
+		 * @return {@link Selection} containing the records in this selection, and the
+		 *         records for which the given indexed field matches any of the given values
+		 */
+		public Selection or(String path, Object... values) {
+			return or(where(path, values));
+		}
+		
+		/**
+		 * @return {@link Selection} containing the records in this selection for which 
+		 *         the given indexed field doesn't match any of the given values
+		 */
+		public Selection andNot(String path, Object... values) {
+			BitSet result = copy();
+			result.andNot(getFieldIndex(path).getRows(values));
+			return new Selection(result);
+		}
+		
+		/**
+		 * @return {@link Selection} containing the records in both this and the given selection 
+		 */
+		public Selection and(Selection other) {
+			BitSet result = copy();
+			result.and(other.rows);
+			return new Selection(result);
+		}
+		
+		/**
+		 * @return {@link Selection} containing the records in either this or the given selection 
+		 */
+		public Selection or(Selection other) {
+			BitSet result = copy();
+			result.or(other.rows);
+			return new Selection(result);
+		}
+		
+		/**
+		 * @return {@link Selection} containing all records not in this selection
+		 */
+		public Selection not() {
+			BitSet result = copy();
+			result.flip(0, size());
+			return new Selection(result);
+		}
+		
+		/**
+		 * @return The number of records in this selection
+		 */
+		public int count() {
+			return rows.cardinality();
+		}
+		
+		/**
+		 * @return {@link Map} containing the number of records in this selection for 
+		 *         each distinct value of the given indexed field
+		 */
+		public Map<Object, Integer> groupBy(String path) {
+			FieldIndex fieldIndex = getFieldIndex(path);
+			int[] counts = new int[fieldIndex.values.size()];
+			int selected = count();
+			if ( (long)counts.length * (size()/64+1) < selected ) {
+				// Intersecting the per-value bitmaps is cheaper than visiting each selected row
+				for ( int code = 0 ; code < counts.length ; code++ ) {
+					BitSet intersection = (BitSet)fieldIndex.bitmaps.get(code).clone();
+					intersection.and(rows);
+					counts[code] = intersection.cardinality();
+				}
+			} else {
+				for ( int row = rows.nextSetBit(0) ; row >= 0 ; row = rows.nextSetBit(row+1) ) {
+					counts[fieldIndex.rowCodes[row]]++;
+				}
+			}
+			Map<Object, Integer> result = new LinkedHashMap<>(counts.length*2);
+			for ( int code = 0 ; code < counts.length ; code++ ) {
+				if ( counts[code] > 0 ) {
+					result.put(fieldIndex.values.get(code), counts[code]);
+				}
+			}
+			return result;
+		}
+		
+		/**
+		 * @return {@link JSONList} containing all records in this selection
+		 */
+		public JSONList getRecords() {
+			JSONList result = new JSONList(count());
+			for ( int row = rows.nextSetBit(0) ; row >= 0 ; row = rows.nextSetBit(row+1) ) {
+				result.add(records.get(row));
+			}
+			return result;
+		}
+		
+		private BitSet copy() {
+			return (BitSet)rows.clone();
+		}
+	}
+	
+	/**
+	 * Index for a single field, holding the distinct values, the
+	 * dictionary code for each row, and a bitmap for each distinct value.
+	 */
+	private static final class FieldIndex {
+		private final Object path;
+		private final Map<Object, Integer> codes = new HashMap<>();
+		private final List<Object> values = new ArrayList<>();
+		private final List<BitSet> bitmaps = new ArrayList<>();
+		private int[] rowCodes = new int[1024];
+		
+		private FieldIndex(Object path) {
+			this.path = path;
+		}
+		
+		private void add(int row, Object value) {
+			Integer code = codes.get(value);
+			if ( code == null ) {
+				code = values.size();
+				codes.put(value, code);
+				values.add(value);
+				bitmaps.add(new BitSet());
+			}
+			if ( row == rowCodes.length ) {
+				rowCodes = Arrays.copyOf(rowCodes, rowCodes.length*2);
+			}
+			rowCodes[row] = code;
+			bitmaps.get(code).set(row);
+		}
+		
+		private BitSet getRows(Object... values) {
+			BitSet result = new BitSet();
+			for ( Object value : values ) {
+				Integer code = codes.get(normalize(value));
+				if ( code != null ) {
+					result.or(bitmaps.get(code));
+				}
+			}
+			return result;
+		}
+	}
+}
@@ -24,20 +24,39 @@
  ******************************************************************************/
 package com.fortify.util.rest.query;
 
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import javax.ws.rs.client.Entity;
 import javax.ws.rs.client.WebTarget;
+import javax.ws.rs.core.Response;
 
 import com.fortify.util.rest.connection.IRestConnection;
 import com.fortify.util.rest.json.JSONList;
 import com.fortify.util.rest.json.JSONMap;
+import com.fortify.util.rest.json.LazyJSONMap;
+import com.fortify.util.rest.json.JSONMapPath;
+import com.fortify.util.rest.json.LazyJSONMapReader;
 import com.fortify.util.rest.json.preprocessor.IJSONMapPreProcessor;
+import com.fortify.util.rest.json.preprocessor.enrich.AbstractJSONMapEnrich;
+import com.fortify.util.rest.json.processor.AbstractJSONMapProcessor;
 import com.fortify.util.rest.json.processor.IJSONMapProcessor;
 import com.fortify.util.rest.json.processor.JSONMapsToJSONListProcessor;
 import com.fortify.util.rest.webtarget.IWebTargetUpdater;
 
+import lombok.AccessLevel;
+import lombok.Getter;
+
 /**
  * <p>This abstract class provides an implementation for {@link IRestConnectionQuery} to allow for
  * querying REST API's. Usually for each target system, you would have one (or a limited number of) 
@@ -45,7 +64,13 @@ import com.fortify.util.rest.webtarget.IWebTargetUpdater;
  * various methods to handle things like paging ({@link #updatePagingDataFromResponse(PagingData, Object)}
  * and {@link #updateWebTargetWithPagingData(WebTarget, PagingData)}, and getting the necessary
  * {@link JSONList} instance from the REST response ({@link #getResponseTypeClass()} and 
- * {@link #getJSONListFromResponse(Object)}.</p>
+ * {@link #getJSONListFromResponse(Object)}. Implementations that want to support typed results
+ * through {@link #as(Class)} will also need to override {@link #getDataPropertyName()}, and 
+ * optionally {@link #updateWebTargetWithFields(WebTarget, Collection)}. The same applies to 
+ * implementations that want to support lazily decoded {@link LazyJSONMap} records, as enabled
+ * through {@link AbstractRestConnectionQueryBuilder#useLazyJSONMaps(boolean)}, and implementations
+ * that want to support learning field projection as enabled through 
+ * {@link AbstractRestConnectionQueryBuilder#learnFieldProjection(boolean)}.</p>
  * 
  * <p>This class is configured through a {@link AbstractRestConnectionQueryBuilder} instance, which allows for
  * configuring the various details for building the actual REST requests and processing responses. This
@@ -55,26 +80,52 @@ import com.fortify.util.rest.webtarget.IWebTargetUpdater;
  * @author Ruud Senden
  */
 public abstract class AbstractRestConnectionQuery<ResponseType> implements IRestConnectionQuery {
-	private final IRestConnection conn;
+	private static final AtomicInteger EXECUTOR_COUNT = new AtomicInteger();
+	@Getter(AccessLevel.PACKAGE) private final IRestConnection conn;
 	private final List<IWebTargetUpdater> webTargetUpdaters;
-	private final List<IJSONMapPreProcessor> preProcessors;
-	private final int maxResults;
+	@Getter(AccessLevel.PACKAGE) private final List<IJSONMapPreProcessor> preProcessors;
+	private final List<IWebTargetUpdater> pushedDownFilters;
+	@Getter(AccessLevel.PACKAGE) private final int maxResults;
+	private final int pageSize;
+	private final AdaptivePaging adaptivePaging;
 	private final boolean useCache;
-	private final boolean pagingSupported;
+	@Getter(AccessLevel.PACKAGE) private final boolean pagingSupported;
 	private final Entity<?> entity;
 	private final String httpMethod;
 	private final IRequestInitializer requestInitializer;
+	private final boolean useLazyJSONMaps;
+	private final boolean learnFieldProjection;
+	@Getter(AccessLevel.PACKAGE) private final boolean optimizePreProcessorOrder;
+	private final int parallelism;
+	private final boolean keepOrder;
+	@Getter(AccessLevel.PACKAGE) private final String keysetPagingProperty;
+	private final List<IWebTargetUpdater> shards;
+	private final Comparator<JSONMap> shardMergeComparator;
 	
 	protected AbstractRestConnectionQuery(AbstractRestConnectionQueryBuilder<?, ?> config) {
 		this.conn = config.getConn();
-		this.webTargetUpdaters = Collections.unmodifiableList(config.getWebTargetUpdaters());
+		List<IWebTargetUpdater> pushDownUpdaters = config.getPushDownUpdaters();
+		List<IWebTargetUpdater> webTargetUpdaters = new ArrayList<>(config.getWebTargetUpdaters());
+		webTargetUpdaters.addAll(pushDownUpdaters);
+		this.webTargetUpdaters = Collections.unmodifiableList(webTargetUpdaters);
 		this.preProcessors =  Collections.unmodifiableList(config.getPreProcessors());
+		this.pushedDownFilters = Collections.unmodifiableList(pushDownUpdaters);
 		this.maxResults = config.getMaxResults();
+		this.pageSize = config.getPageSize();
+		this.adaptivePaging = config.getAdaptivePaging();
 		this.useCache = config.isUseCache();
 		this.pagingSupported = config.isPagingSupported();
 		this.entity = config.getEntity();
 		this.httpMethod = config.getHttpMethod();
 		this.requestInitializer = config.getRequestInitializer();
+		this.useLazyJSONMaps = config.isUseLazyJSONMaps();
+		this.learnFieldProjection = config.isLearnFieldProjection();
+		this.optimizePreProcessorOrder = config.isOptimizePreProcessorOrder();
+		this.parallelism = config.getParallelism();
+		this.keepOrder = config.isKeepOrder();
+		this.keysetPagingProperty = config.getKeysetPagingProperty();
+		this.shards = Collections.unmodifiableList(new ArrayList<>(config.getShards()));
+		this.shardMergeComparator = config.getShardMergeComparator();
 	}
 	
 	/* (non-Javadoc)
@@ -82,7 +133,7 @@ public abstract class AbstractRestConnectionQuery<ResponseType> implements IRest
 	 */
 	@Override
 	public void processAll(IJSONMapProcessor processor) {
-		processAll(getWebTarget(), new PagingData().maxResults(maxResults), processor);
+		processAll(getWebTarget(), createPagingData(maxResults), processor);
 	}
 
 	/* (non-Javadoc)
@@ -101,7 +152,7 @@ public abstract class AbstractRestConnectionQuery<ResponseType> implements IRest
 	@Override
 	public JSONMap getUnique() {
 		JSONMapsToJSONListProcessor processor = new JSONMapsToJSONListProcessor();
-		processAll(getWebTarget(), new PagingData().maxResults(Math.min(2, maxResults)), processor);
+		processAll(getWebTarget(), createPagingData(Math.min(2, maxResults)), processor);
 		JSONList list = processor.getJsonList();
 		if ( list == null || list.size() == 0 ) {
 			return null;
@@ -112,6 +163,144 @@ public abstract class AbstractRestConnectionQuery<ResponseType> implements IRest
 		return list.asValueType(JSONMap.class).get(0);
 	}
 	
+	/**
+	 * Get the number of results for this query. If paging is supported, and no
+	 * pre-processors other than {@link AbstractJSONMapEnrich} instances have been
+	 * configured, this executes a single request for one record, and returns the 
+	 * total number of available records (limited by the configured maximum number 
+	 * of results). Otherwise, all results are processed to count them.
+	 */
+	@Override
+	public int count() {
+		if ( pagingSupported && !hasClientSideFilters() ) {
+			PagingData pagingData = createPagingData(1);
+			updatePagingDataFromResponse(pagingData, getSingleRecordResponse());
+			int totalAvailable = pagingData.getTotalAvailable();
+			if ( totalAvailable >= 0 ) {
+				return maxResults > 0 ? Math.min(totalAvailable, maxResults) : totalAvailable;
+			}
+		}
+		final AtomicInteger count = new AtomicInteger();
+		processAll(new AbstractJSONMapProcessor() {
+			@Override
+			public void process(JSONMap json) {
+				count.incrementAndGet();
+			}
+		});
+		return count.get();
+	}
+	
+	/**
+	 * Get the number of results for this query, grouped by the value of the given 
+	 * property path. This default implementation processes all results to count
+	 * them; subclasses may override this method to use aggregation functionality
+	 * provided by the remote system, if available.
+	 */
+	@Override
+	public Map<Object, Integer> groupBy(String propertyPath) {
+		final Map<Object, Integer> result = new LinkedHashMap<>();
+		final JSONMapPath path = JSONMapPath.isSimplePath(propertyPath) ? JSONMapPath.compile(propertyPath) : null;
+		final String expression = propertyPath;
+		processAll(new AbstractJSONMapProcessor() {
+			@Override
+			public void process(JSONMap json) {
+				Object value = path!=null ? path.get(json) : json.getPath(expression);
+				Integer count = result.get(value);
+				result.put(value, count==null ? 1 : count+1);
+			}
+		});
+		return result;
+	}
+	
+	/**
+	 * Indicate whether any pre-processors other than {@link AbstractJSONMapEnrich}
+	 * instances have been configured, which may filter results on the client-side.
+	 * If so, any totals or aggregates returned by the remote system may not match
+	 * the actual results returned by this query. 
+	 * @return
+	 */
+	protected final boolean hasClientSideFilters() {
+		for ( IJSONMapPreProcessor preProcessor : preProcessors ) {
+			if ( !(preProcessor instanceof AbstractJSONMapEnrich) ) { return true; }
+		}
+		return false;
+	}
+	
+	/**
+	 * Indicate whether aggregates like total counts or group counts returned by the
+	 * remote system can be used as the result of this query. This is the case if 
+	 * paging is supported, no maximum number of results has been configured, and 
+	 * no client-side filters have been configured.
+	 * @return
+	 */
+	protected final boolean isServerSideAggregationSupported() {
+		return pagingSupported && maxResults < 0 && !hasClientSideFilters();
+	}
+	
+	/**
+	 * Execute a request for at most a single record, and return the full response. For
+	 * queries that support paging, this allows for efficiently retrieving response metadata 
+	 * like total counts or aggregates. The returned response is not pre-processed.
+	 * @return
+	 */
+	protected final ResponseType getSingleRecordResponse() {
+		initRequest();
+		WebTarget target = getWebTarget();
+		if ( pagingSupported ) {
+			PagingData pagingData = createPagingData(1);
+			pagingData.calculateNextPageSize();
+			target = updateWebTargetWithPagingData(target, pagingData);
+		}
+		return executeRequest(target);
+	}
+	
+	/**
+	 * Get an {@link ITypedRestConnectionQuery} instance that streams the responses for
+	 * this query, binding each element of the data property returned by 
+	 * {@link #getDataPropertyName()} directly to the given type. Only the properties
+	 * declared by the given type are bound, and these property names are passed to
+	 * {@link #updateWebTargetWithFields(WebTarget, Collection)} if no pre-processors
+	 * have been configured. Typed responses are never cached.
+	 * 
+	 * @throws UnsupportedOperationException if this query doesn't support typed results
+	 */
+	@Override
+	public <T> ITypedRestConnectionQuery<T> as(Class<T> type) {
+		if ( getDataPropertyName() == null ) {
+			throw new UnsupportedOperationException("Typed results are not supported by "+this.getClass().getName());
+		}
+		return new TypedRestConnectionQuery<T>(this, type);
+	}
+	
+	/* (non-Javadoc)
+	 * @see com.fortify.util.rest.query.IRestConnectionQuery#explain()
+	 */
+	@Override
+	public String explain() {
+		StringBuilder sb = new StringBuilder();
+		sb.append(httpMethod).append(" ").append(getWebTarget().getUri()).append("\n");
+		sb.append("Pushed down to server:");
+		appendExplainItems(sb, pushedDownFilters);
+		if ( !shards.isEmpty() ) {
+			sb.append("\nSharded by:");
+			appendExplainItems(sb, shards);
+			sb.append("\nShard merge order: ").append(shardMergeComparator==null ? "(none)" : shardMergeComparator);
+		}
+		sb.append("\nEvaluated on client:");
+		appendExplainItems(sb, preProcessors);
+		return sb.toString();
+	}
+	
+	private static final void appendExplainItems(StringBuilder sb, List<?> items) {
+		if ( items.isEmpty() ) {
+			sb.append(" (none)");
+		} else {
+			for ( Object item : items ) {
+				sb.append("\n  ").append(item);
+			}
+		}
+	}
+	
 	protected final WebTarget getWebTarget() {
 		WebTarget webTarget = conn.getBaseResource();
 		for ( IWebTargetUpdater updater : webTargetUpdaters ) {
@@ -121,17 +310,57 @@ public abstract class AbstractRestConnectionQuery<ResponseType> implements IRest
 	}
 	
 	protected ResponseType executeRequest(WebTarget target) {
+		return executeRequest(target, getResponseTypeClass());
+	}
+	
+	private <T> T executeRequest(WebTarget target, Class<T> returnType) {
 		if ( entity == null ) {
 			if ( useCache ) {
-				return conn.executeRequest(httpMethod, target, getResponseTypeClass(), getCacheName());
+				return conn.executeRequest(httpMethod, target, returnType, getCacheName());
 			} else {
-				return conn.executeRequest(httpMethod, target, getResponseTypeClass());
+				return conn.executeRequest(httpMethod, target, returnType);
 			}
 		} else {
-			return conn.executeRequest(httpMethod, target, entity, getResponseTypeClass());
+			return conn.executeRequest(httpMethod, target, entity, returnType);
 		}
 	}
 	
+	/**
+	 * Execute the request for the given {@link WebTarget}, returning the
+	 * raw {@link Response} to allow the response to be streamed. The caller 
+	 * is responsible for closing the returned {@link Response}.
+	 */
+	Response executeRequestForResponse(WebTarget target) {
+		return conn.executeRequest(httpMethod, target, entity, Response.class);
+	}
+	
+	/**
+	 * Invoke the configured {@link IRequestInitializer}, if any.
+	 */
+	void initRequest() {
+		if ( requestInitializer != null ) { requestInitializer.initRequest(); }
+	}
+	
+	/**
+	 * Create a new {@link PagingData} instance with the given maximum number of results,
+	 * and the page size settings configured for this query.
+	 */
+	PagingData createPagingData(int maxResults) {
+		PagingData pagingData = new PagingData().maxResults(maxResults)
+				.maxPageSize(getMaxPageSize()).adaptivePaging(adaptivePaging);
+		return pageSize > 0 ? pagingData.pageSize(pageSize) : pagingData;
+	}
+	
+	/**
+	 * Implementations that support paging may override this method to return the 
+	 * maximum page size supported by the remote system. The default implementation
+	 * returns {@link Integer#MAX_VALUE}.
+	 * @return
+	 */
+	protected int getMaxPageSize() {
+		return Integer.MAX_VALUE;
+	}
+	
 	protected String getCacheName() {
 		return this.getClass().getName();
 	}
@@ -160,6 +389,64 @@ public abstract class AbstractRestConnectionQuery<ResponseType> implements IRest
 		throw new UnsupportedOperationException("Paging is not supported by "+this.getClass().getName());
 	}
 	
+	/**
+	 * Implementations that support paging may override this method to support keyset
+	 * paging as configured through {@link AbstractRestConnectionQueryBuilder#keysetPaging(String)}.
+	 * Instead of a page start offset, implementations should add information about the
+	 * page size, ordering on the given key property, and a condition to only return records
+	 * with a key value higher than {@link PagingData#getLastKeyValue()} (if not null) to
+	 * the request. The default implementation throws an {@link UnsupportedOperationException}.
+	 * @param target
+	 * @param keyProperty
+	 * @param pagingData
+	 * @return Updated {@link WebTarget}
+	 */
+	protected WebTarget updateWebTargetWithKeysetPagingData(WebTarget target, String keyProperty, PagingData pagingData) {
+		throw new UnsupportedOperationException("Keyset paging is not supported by "+this.getClass().getName());
+	}
+	
+	/**
+	 * Implementations that support paging and typed results may override this method
+	 * to update the {@link PagingData} object from a partial response, containing all 
+	 * response properties except for the data property returned by {@link #getDataPropertyName()}. 
+	 * By default, this method calls {@link #updatePagingDataFromResponse(PagingData, Object)} 
+	 * if the given {@link JSONMap} is compatible with the response type returned by 
+	 * {@link #getResponseTypeClass()}.
+	 * @param pagingData
+	 * @param envelope
+	 */
+	protected void updatePagingDataFromEnvelope(PagingData pagingData, JSONMap envelope) {
+		Class<ResponseType> responseTypeClass = getResponseTypeClass();
+		if ( !responseTypeClass.isInstance(envelope) ) {
+			throw new UnsupportedOperationException("Typed paging is not supported by "+this.getClass().getName());
+		}
+		updatePagingDataFromResponse(pagingData, responseTypeClass.cast(envelope));
+	}
+	
+	/**
+	 * Implementations that support typed results must override this method to return the
+	 * name of the response property that contains the actual result data. The default 
+	 * implementation returns null, indicating that typed results are not supported.
+	 * @return
+	 */
+	protected String getDataPropertyName() {
+		return null;
+	}
+	
+	/**
+	 * Implementations may override this method to request the remote system to only
+	 * return the given fields. This method is called for typed results, with the
+	 * property names declared by the target type, and for learning field projection,
+	 * with the property names accessed while processing the first page. The default 
+	 * implementation returns the given {@link WebTarget} unmodified.
+	 * @param target
+	 * @param fields
+	 * @return Updated {@link WebTarget}
+	 */
+	protected WebTarget updateWebTargetWithFields(WebTarget target, Collection<String> fields) {
+		return target;
+	}
+	
 	/**
 	 * This method must be implemented by subclasses to return the response type class.
 	 * @return
@@ -181,32 +468,189 @@ public abstract class AbstractRestConnectionQuery<ResponseType> implements IRest
 	 * 
 	 */
 	private void processAll(WebTarget target, PagingData pagingData, IJSONMapProcessor processor) {
-		if ( requestInitializer != null ) { requestInitializer.initRequest(); }
-		processor = new JSONMapProcessorWithPreProcessorsAndPagingSupport(preProcessors, processor, pagingData);
+		if ( useLazyJSONMaps && getDataPropertyName() == null ) {
+			throw new UnsupportedOperationException("Lazy JSONMaps are not supported by "+this.getClass().getName());
+		}
+		initRequest();
+		ExecutorService executor = parallelism > 1 && !preProcessors.isEmpty() ? createExecutorService(parallelism) : null;
+		try {
+			JSONMapProcessorWithPreProcessorsAndPagingSupport processorWithPreProcessors = new JSONMapProcessorWithPreProcessorsAndPagingSupport(
+					preProcessors, processor, pagingData, optimizePreProcessorOrder).parallel(executor, keepOrder);
+			if ( shards.isEmpty() ) {
+				processAll(target, pagingData, processorWithPreProcessors);
+			} else {
+				new ShardedQueryExecutor(this, shards, shardMergeComparator).processAll(target, pagingData, processorWithPreProcessors);
+			}
+		} finally {
+			if ( executor != null ) { executor.shutdownNow(); }
+		}
+	}
+	
+	/**
+	 * Process all results returned by the given {@link WebTarget} by calling the given 
+	 * {@link JSONMapProcessorWithPreProcessorsAndPagingSupport}, either by executing a single
+	 * request, or by retrieving all data page by page.
+	 */
+	private void processAll(WebTarget target, PagingData pagingData, JSONMapProcessorWithPreProcessorsAndPagingSupport processor) {
 		if ( !pagingSupported ) {
-			processSingleRequest(target, processor, pagingData);
+			if ( useLazyJSONMaps ) {
+				processSingleLazyRequest(target, processor, pagingData);
+			} else {
+				processSingleRequest(target, processor, pagingData);
+			}
 		} else {
+			FieldProjection fieldProjection = learnFieldProjection && !useLazyJSONMaps ? new FieldProjection(this) : null;
 			while (pagingData.calculateNextPageSize() > 0) {
 				processor.notifyNextPage(pagingData);
-				WebTarget pagingTarget = updateWebTargetWithPagingData(target, pagingData);
-				ResponseType response = processSingleRequest(pagingTarget, processor, pagingData);
-				updatePagingDataFromResponse(pagingData, response);
+				WebTarget pagingTarget = getPagingTarget(target, pagingData);
+				if ( useLazyJSONMaps ) {
+					JSONMap envelope = processSingleLazyRequest(pagingTarget, processor, pagingData);
+					updatePagingDataFromEnvelope(pagingData, envelope);
+				} else if ( fieldProjection != null ) {
+					ResponseType response = processSingleProjectedRequest(pagingTarget, processor, pagingData, fieldProjection);
+					updatePagingDataFromResponse(pagingData, response);
+				} else if ( adaptivePaging != null ) {
+					ResponseType response = processSingleMeasuredRequest(pagingTarget, processor, pagingData);
+					updatePagingDataFromResponse(pagingData, response);
+				} else {
+					ResponseType response = processSingleRequest(pagingTarget, processor, pagingData);
+					updatePagingDataFromResponse(pagingData, response);
+				}
 			}
 		}
 	}
 	
+	private WebTarget getPagingTarget(WebTarget target, PagingData pagingData) {
+		return keysetPagingProperty != null 
+				? updateWebTargetWithKeysetPagingData(target, keysetPagingProperty, pagingData)
+				: updateWebTargetWithPagingData(target, pagingData);
+	}
+	
+	/**
+	 * Get the next page of results returned by the given {@link WebTarget}, without
+	 * any further processing, and update the given {@link PagingData} from the response.
+	 */
+	List<JSONMap> getPage(WebTarget target, PagingData pagingData) {
+		ResponseType data = executeRequest(getPagingTarget(target, pagingData));
+		updatePagingDataFromResponse(pagingData, data);
+		List<JSONMap> records = getJSONListFromResponse(data).asValueType(JSONMap.class);
+		updateLastKeyValue(pagingData, records);
+		return records;
+	}
+	
 	/**
 	 * Process all results returned by the given {@link WebTarget} by calling the given {@link IJSONMapProcessor}.
 	 */
-	private ResponseType processSingleRequest(WebTarget target, IJSONMapProcessor processor, PagingData pagingData) {
+	private ResponseType processSingleRequest(WebTarget target, JSONMapProcessorWithPreProcessorsAndPagingSupport processor, PagingData pagingData) {
+		return processSingleRequest(target, processor, pagingData, null);
+	}
+	
+	private ResponseType processSingleRequest(WebTarget target, JSONMapProcessorWithPreProcessorsAndPagingSupport processor, PagingData pagingData, FieldProjection fieldProjection) {
 		ResponseType data = executeRequest(target);
-		JSONList list = getJSONListFromResponse(data);
-		if ( processor != null ) {
-			for ( JSONMap obj : list.asValueType(JSONMap.class) ) {
-				if ( pagingData.isMaxResultsReached() ) { break; }
-				processor.process(obj);
-			}
+		processList(getJSONListFromResponse(data), processor, pagingData, fieldProjection);
+		return data;
+	}
+	
+	/**
+	 * Process all results returned by the given {@link WebTarget} by calling the given {@link IJSONMapProcessor},
+	 * reporting the response time and size to the given {@link PagingData}. As the response size is not available
+	 * from the parsed response, this loads the response as raw bytes, and then parses these bytes using the 
+	 * connection's {@link com.fasterxml.jackson.databind.ObjectMapper}.
+	 */
+	private ResponseType processSingleMeasuredRequest(WebTarget target, JSONMapProcessorWithPreProcessorsAndPagingSupport processor, PagingData pagingData) {
+		return processSingleMeasuredRequest(target, processor, pagingData, null);
+	}
+	
+	private ResponseType processSingleMeasuredRequest(WebTarget target, JSONMapProcessorWithPreProcessorsAndPagingSupport processor, PagingData pagingData, FieldProjection fieldProjection) {
+		long start = System.nanoTime();
+		byte[] bytes = executeRequest(target, byte[].class);
+		long responseNanos = System.nanoTime()-start;
+		ResponseType data;
+		try {
+			data = conn.getObjectMapper().readValue(bytes, getResponseTypeClass());
+		} catch (IOException e) {
+			throw new RuntimeException("Error parsing response", e);
 		}
+		processList(getJSONListFromResponse(data), processor, pagingData, fieldProjection);
+		pagingData.addPageMetrics(responseNanos, bytes.length);
 		return data;
 	}
+	
+	/**
+	 * Process all results returned by the given {@link WebTarget} by calling the given {@link IJSONMapProcessor},
+	 * requesting only the fields learned by the given {@link FieldProjection}, and having the {@link FieldProjection}
+	 * wrap each result to record property access.
+	 */
+	private ResponseType processSingleProjectedRequest(WebTarget target, JSONMapProcessorWithPreProcessorsAndPagingSupport processor, PagingData pagingData, FieldProjection fieldProjection) {
+		WebTarget projectedTarget = fieldProjection.updateWebTarget(target);
+		ResponseType data = adaptivePaging != null 
+				? processSingleMeasuredRequest(projectedTarget, processor, pagingData, fieldProjection)
+				: processSingleRequest(projectedTarget, processor, pagingData, fieldProjection);
+		fieldProjection.endPage();
+		return data;
+	}
+	
+	/**
+	 * Get the {@link JSONList} returned by the given {@link WebTarget}, without any 
+	 * further processing.
+	 */
+	JSONList getJSONList(WebTarget target) {
+		return getJSONListFromResponse(executeRequest(target));
+	}
+	
+	private void processList(JSONList list, JSONMapProcessorWithPreProcessorsAndPagingSupport processor, PagingData pagingData, FieldProjection fieldProjection) {
+		List<JSONMap> records = list.asValueType(JSONMap.class);
+		updateLastKeyValue(pagingData, records);
+		if ( fieldProjection != null ) {
+			List<JSONMap> wrappedRecords = new ArrayList<>(records.size());
+			for ( int i = 0 ; i < records.size() ; i++ ) {
+				wrappedRecords.add(fieldProjection.wrap(records.get(i), i));
+			}
+			records = wrappedRecords;
+		}
+		processor.processPage(records);
+	}
+	
+	private void updateLastKeyValue(PagingData pagingData, List<JSONMap> records) {
+		if ( keysetPagingProperty != null && !records.isEmpty() ) {
+			pagingData.setLastKeyValue(getKeyValue(records.get(records.size()-1)));
+		}
+	}
+	
+	private Object getKeyValue(JSONMap record) {
+		Object keyValue = record.get(keysetPagingProperty);
+		if ( keyValue == null ) {
+			throw new IllegalStateException("Keyset paging property '"+keysetPagingProperty+"' not available in result: "+record);
+		}
+		return keyValue;
+	}
+	
+	private static final ExecutorService createExecutorService(int threads) {
+		final String namePrefix = "preprocess-"+EXECUTOR_COUNT.incrementAndGet()+"-";
+		return Executors.newFixedThreadPool(threads, new ThreadFactory() {
+			private final AtomicInteger threadCount = new AtomicInteger();
+			@Override
+			public Thread newThread(Runnable r) {
+				Thread thread = new Thread(r, namePrefix+threadCount.incrementAndGet());
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+	}
+	
+	/**
+	 * Process all results returned by the given {@link WebTarget} by calling the given {@link IJSONMapProcessor},
+	 * with each result being a {@link LazyJSONMap} backed by the raw response bytes. All response properties
+	 * other than the data property are returned as a {@link JSONMap}.
+	 */
+	private JSONMap processSingleLazyRequest(WebTarget target, JSONMapProcessorWithPreProcessorsAndPagingSupport processor, PagingData pagingData) {
+		long start = System.nanoTime();
+		byte[] bytes = executeRequest(target, byte[].class);
+		long responseNanos = System.nanoTime()-start;
+		JSONList list = new JSONList();
+		JSONMap envelope = new LazyJSONMapReader(conn.getObjectMapper()).read(bytes, getDataPropertyName(), list);
+		processList(list, processor, pagingData, null);
+		pagingData.addPageMetrics(responseNanos, bytes.length);
+		return envelope;
+	}
 }
@@ -25,15 +25,20 @@
 package com.fortify.util.rest.query;
 
 import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.List;
+import java.util.Map;
 
 import javax.ws.rs.HttpMethod;
 import javax.ws.rs.client.Entity;
+import javax.ws.rs.client.WebTarget;
 
 import com.fortify.util.rest.connection.IRestConnection;
+import com.fortify.util.rest.json.JSONMap;
 import com.fortify.util.rest.json.ondemand.IJSONMapOnDemandLoader;
 import com.fortify.util.rest.json.preprocessor.IJSONMapPreProcessor;
 import com.fortify.util.rest.json.preprocessor.enrich.JSONMapEnrichWithOnDemandProperty;
+import com.fortify.util.rest.json.preprocessor.filter.AbstractJSONMapFilter;
 import com.fortify.util.rest.webtarget.IWebTargetUpdater;
 import com.fortify.util.rest.webtarget.IWebTargetUpdaterBuilder;
 import com.fortify.util.rest.webtarget.WebTargetPathUpdaterBuilder;
@@ -72,6 +77,14 @@ import lombok.Setter;
  * and the {@link com.fortify.util.rest.webtarget} package to generate requests based on configurable
  * search criteria. See for example the SSC REST client code for examples.</p>
  * 
+ * <p>When the query is built, any leading {@link AbstractJSONMapFilter} pre-processors that can be
+ * expressed as server-side query parameters are pushed down to the server through the
+ * {@link #pushDownFilter(Map)} method, which concrete implementations may override for endpoints
+ * that support server-side filtering. Pushed down filters reduce the number of records returned
+ * by the server, but are still evaluated on the client-side as well, and are listed by 
+ * {@link IRestConnectionQuery#explain()}. Pushing down filters doesn't modify the configuration
+ * of this builder.</p>
+ * 
  * @author Ruud Senden
  *
  * @param <ConnType> Concrete {@link IRestConnection} type
@@ -88,7 +101,17 @@ public abstract class AbstractRestConnectionQueryBuilder<ConnType extends IRestC
 	
 	private final List<IJSONMapPreProcessor> preProcessors = new ArrayList<>();
 	private int maxResults = -1;
+	private int pageSize = -1;
+	private AdaptivePaging adaptivePaging = null;
 	private boolean useCache;
+	private boolean useLazyJSONMaps;
+	private boolean learnFieldProjection;
+	private boolean optimizePreProcessorOrder;
+	private int parallelism = 1;
+	private boolean keepOrder = true;
+	private String keysetPagingProperty = null;
+	private final List<IWebTargetUpdater> shards = new ArrayList<>();
+	private Comparator<JSONMap> shardMergeComparator = null;
 	private final boolean pagingSupported;
 	@Setter(AccessLevel.PROTECTED) private String httpMethod = HttpMethod.GET;
 	@Setter(AccessLevel.PROTECTED) private Entity<?> entity = null;
@@ -114,11 +137,128 @@ public abstract class AbstractRestConnectionQueryBuilder<ConnType extends IRestC
 		return _this();
 	}
 	
+	/**
+	 * Configure the (initial) page size for this query. If not configured, 
+	 * the default page size defined by {@link PagingData} will be used.
+	 */
+	public T pageSize(int pageSize) {
+		this.pageSize = pageSize;
+		return _this();
+	}
+	
+	/**
+	 * Configure the {@link AdaptivePaging} policy for this query, tuning the page size 
+	 * between pages toward the policy's target response time and size, starting from 
+	 * the configured {@link #pageSize(int)}. Passing null disables adaptive paging.
+	 */
+	public T adaptivePaging(AdaptivePaging adaptivePaging) {
+		this.adaptivePaging = adaptivePaging;
+		return _this();
+	}
+	
 	public T useCache(boolean useCache) {
 		this.useCache = useCache;
 		return _this();
 	}
 	
+	/**
+	 * Enable or disable lazy records. If enabled, each response is loaded as raw bytes,
+	 * and each record is returned as a {@link com.fortify.util.rest.json.LazyJSONMap} that
+	 * only decodes its properties upon first access. This is only supported by 
+	 * {@link AbstractRestConnectionQuery} implementations that return a non-null value
+	 * for {@link AbstractRestConnectionQuery#getDataPropertyName()}.
+	 */
+	public T useLazyJSONMaps(boolean useLazyJSONMaps) {
+		this.useLazyJSONMaps = useLazyJSONMaps;
+		return _this();
+	}
+	
+	/**
+	 * Enable or disable learning field projection. If enabled, the properties accessed
+	 * by the configured pre-processors and processor while processing the first page
+	 * are recorded, and any subsequent pages are requested with only these properties
+	 * through {@link AbstractRestConnectionQuery#updateWebTargetWithFields(javax.ws.rs.client.WebTarget, java.util.Collection)}.
+	 * If any other property is accessed on a projected record, the full record is
+	 * re-fetched. This is only supported for queries that support paging, and is
+	 * ignored if {@link #useLazyJSONMaps(boolean)} is enabled.
+	 */
+	public T learnFieldProjection(boolean learnFieldProjection) {
+		this.learnFieldProjection = learnFieldProjection;
+		return _this();
+	}
+	
+	/**
+	 * Enable or disable cost-based ordering of the configured pre-processors. If enabled,
+	 * the cost and selectivity of each filter are measured while processing results, and
+	 * consecutive filters are periodically reordered to have cheap, selective filters 
+	 * invoked first. Any other pre-processors, like enrichers, stay in place, and filters
+	 * are never moved across these. Filters that have filter listeners configured are
+	 * never reordered.
+	 */
+	public T optimizePreProcessorOrder(boolean optimizePreProcessorOrder) {
+		this.optimizePreProcessorOrder = optimizePreProcessorOrder;
+		return _this();
+	}
+	
+	/**
+	 * Configure parallel pre-processing. If the given parallelism is larger than 1, the 
+	 * configured pre-processors are invoked for all records on each page by a pool of 
+	 * worker threads, whereas the processor passed to {@link IRestConnectionQuery#processAll(com.fortify.util.rest.json.processor.IJSONMapProcessor)}
+	 * is always invoked from the calling thread. If keepOrder is true, records are passed
+	 * to the processor in the original order; otherwise records are passed to the processor 
+	 * as soon as they have been pre-processed. Pre-processors must be thread-safe when 
+	 * using parallel pre-processing. Note that records exceeding the configured maximum 
+	 * number of results may be pre-processed, but these will never be passed to the processor.
+	 */
+	public T parallelPreProcessing(int parallelism, boolean keepOrder) {
+		this.parallelism = parallelism;
+		this.keepOrder = keepOrder;
+		return _this();
+	}
+	
+	/**
+	 * Enable keyset paging on the given key property, or disable keyset paging if null.
+	 * With keyset paging, results are ordered by the given key property, and each page
+	 * is requested with a condition to only return records with a key value higher than
+	 * the last record on the previous page, instead of a page start offset. This avoids 
+	 * deep-offset slowdowns on large result sets, and duplicate or skipped records if 
+	 * data changes while paging. The key property must be unique and sortable; usually
+	 * this is 'id'. Keyset paging must be supported by the query implementation through
+	 * {@link AbstractRestConnectionQuery#updateWebTargetWithKeysetPagingData(javax.ws.rs.client.WebTarget, String, PagingData)}.
+	 * Any ordering configured on this builder is replaced by ordering on the key property.
+	 */
+	public T keysetPaging(String keyProperty) {
+		this.keysetPagingProperty = keyProperty;
+		return _this();
+	}
+	
+	/**
+	 * Add a shard to this query. If any shards have been added, the query is executed as 
+	 * a number of concurrent sub-queries, one for each shard, with the given {@link IWebTargetUpdater}
+	 * adding a server-side filter, like an id range, date range or partitioning attribute, 
+	 * to the query target. The server-side filters for all shards must be disjoint, and 
+	 * together cover all results of the query. The results from all shards are recombined 
+	 * as configured through {@link #shardMergeOrder(Comparator)}. Adaptive paging, lazy
+	 * JSONMaps and learning field projection are not applied to sharded queries.
+	 */
+	public T shard(IWebTargetUpdater shard) {
+		this.shards.add(shard);
+		return _this();
+	}
+	
+	/**
+	 * Configure the order in which the results from all shards configured through 
+	 * {@link #shard(IWebTargetUpdater)} are recombined. If the results of each shard
+	 * are returned in the order defined by the given {@link Comparator}, for example
+	 * when the query specifies a server-side ordering, shard results are recombined
+	 * using a k-way merge, such that all results are returned in that same order. If
+	 * null (default), results are processed in the order in which pages are loaded. 
+	 */
+	public T shardMergeOrder(Comparator<JSONMap> shardMergeComparator) {
+		this.shardMergeComparator = shardMergeComparator;
+		return _this();
+	}
+	
 	@SuppressWarnings("unchecked")
 	protected T _this() {
 		return (T)this;
@@ -150,6 +290,43 @@ public abstract class AbstractRestConnectionQueryBuilder<ConnType extends IRestC
 	
 	protected abstract IJSONMapOnDemandLoader createOnDemandLoader(String uri);
 	
+	/**
+	 * Concrete implementations may override this method to push down the given
+	 * and-ed field-to-value equality constraints to server-side query parameters.
+	 * Implementations should only do so if the server-side parameters don't exclude any
+	 * records matching the given constraints, and return an {@link IWebTargetUpdater} 
+	 * that adds the corresponding query parameters to the target of the query, with a 
+	 * {@link Object#toString()} implementation that describes these parameters. 
+	 * Implementations must not modify the configuration of this builder. This default
+	 * implementation returns null, indicating that the constraints were not pushed down.
+	 * 
+	 * @param equalityConstraints
+	 * @return {@link IWebTargetUpdater} for adding the server-side query parameters, or null if not pushed down 
+	 */
+	protected IWebTargetUpdater pushDownFilter(Map<String, String> equalityConstraints) {
+		return null;
+	}
+	
+	/**
+	 * Get {@link IWebTargetUpdater} instances for pushing down the configured 
+	 * {@link AbstractJSONMapFilter} pre-processors to server-side query parameters, 
+	 * if possible. This only considers filters that are not preceded by other 
+	 * pre-processor types, as these may modify the properties being filtered on. 
+	 * This method is invoked when the query is built.
+	 */
+	final List<IWebTargetUpdater> getPushDownUpdaters() {
+		List<IWebTargetUpdater> result = new ArrayList<>();
+		for ( IJSONMapPreProcessor preProcessor : preProcessors ) {
+			if ( !(preProcessor instanceof AbstractJSONMapFilter) ) { break; }
+			Map<String, String> constraints = ((AbstractJSONMapFilter)preProcessor).getPushDownConstraints();
+			IWebTargetUpdater updater = constraints==null ? null : pushDownFilter(constraints);
+			if ( updater!=null ) {
+				result.add(new PushedDownFilter(preProcessor, updater));
+			}
+		}
+		return result;
+	}
+	
 	protected <B extends IWebTargetUpdaterBuilder> B add(B builder) {
 		webTargetUpdaterBuilders.add(builder);
 		return builder;
@@ -166,5 +343,39 @@ public abstract class AbstractRestConnectionQueryBuilder<ConnType extends IRestC
 		return result;
 	}
 
+	/**
+	 * Build the query for the current configuration, and return the number of
+	 * results as returned by {@link IRestConnectionQuery#count()}.
+	 * @return
+	 */
+	public int count() {
+		return build().count();
+	}
+
 	public abstract IRestConnectionQuery build();
-}
\ No newline at end of file
+	
+	/**
+	 * {@link IWebTargetUpdater} implementation that delegates to the {@link IWebTargetUpdater}
+	 * returned by {@link AbstractRestConnectionQueryBuilder#pushDownFilter(Map)}, describing 
+	 * both the original filter and the corresponding server-side query parameters.
+	 */
+	private static final class PushedDownFilter implements IWebTargetUpdater {
+		private final IJSONMapPreProcessor filter;
+		private final IWebTargetUpdater updater;
+		
+		private PushedDownFilter(IJSONMapPreProcessor filter, IWebTargetUpdater updater) {
+			this.filter = filter;
+			this.updater = updater;
+		}
+		
+		@Override
+		public WebTarget update(WebTarget target) {
+			return updater.update(target);
+		}
+		
+		@Override
+		public String toString() {
+			return filter+" => "+updater;
+		}
+	}
+}
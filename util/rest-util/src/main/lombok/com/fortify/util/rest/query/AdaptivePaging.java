@@ -0,0 +1,110 @@
+/*******************************************************************************
+ * (c) Copyright 2017 EntIT Software LLC, a Micro Focus company
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a 
+ * copy of this software and associated documentation files (the 
+ * "Software"), to deal in the Software without restriction, including without 
+ * limitation the rights to use, copy, modify, merge, publish, distribute, 
+ * sublicense, and/or sell copies of the Software, and to permit persons to 
+ * whom the Software is furnished to do so, subject to the following 
+ * conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included 
+ * in all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY 
+ * KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE 
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR 
+ * PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE 
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, 
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF 
+ * CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN 
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS 
+ * IN THE SOFTWARE.
+ ******************************************************************************/
+package com.fortify.util.rest.query;
+
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * <p>This class describes an adaptive paging policy, that tunes the page size between
+ * consecutive page requests toward a target response time and a target response size.
+ * Narrow responses (for example when only requesting a few fields) will quickly grow 
+ * toward larger pages, reducing the number of round trips, whereas wide responses will
+ * shrink toward smaller pages, reducing the amount of memory needed for each page.</p>
+ * 
+ * <p>After each page, the time and number of bytes per record are used to calculate the 
+ * page size that would meet both targets. To avoid oscillation, the page size changes by 
+ * at most a factor of two between pages, and always stays between the configured minimum
+ * and maximum page sizes, as well as the maximum page size supported by the remote system.
+ * Adaptive paging can be enabled for individual queries through 
+ * {@link AbstractRestConnectionQueryBuilder#adaptivePaging(AdaptivePaging)}.</p>
+ * 
+ * @author Ruud Senden
+ *
+ */
+@Getter @ToString
+public class AdaptivePaging {
+	private long targetResponseTimeMillis = 2000;
+	private long targetResponseBytes = 4*1024*1024;
+	private int minPageSize = 10;
+	private int maxPageSize = 1000;
+	
+	/**
+	 * Configure the target response time; default is 2000 milliseconds
+	 */
+	public AdaptivePaging targetResponseTimeMillis(long targetResponseTimeMillis) {
+		this.targetResponseTimeMillis = targetResponseTimeMillis;
+		return this;
+	}
+	
+	/**
+	 * Configure the target response size; default is 4MB
+	 */
+	public AdaptivePaging targetResponseBytes(long targetResponseBytes) {
+		this.targetResponseBytes = targetResponseBytes;
+		return this;
+	}
+	
+	/**
+	 * Configure the minimum page size; default is 10
+	 */
+	public AdaptivePaging minPageSize(int minPageSize) {
+		this.minPageSize = minPageSize;
+		return this;
+	}
+	
+	/**
+	 * Configure the maximum page size; default is 1000
+	 */
+	public AdaptivePaging maxPageSize(int maxPageSize) {
+		this.maxPageSize = maxPageSize;
+		return this;
+	}
+	
+	/**
+	 * Calculate the page size for the next page, based on the given metrics for the 
+	 * current page. If the response size is not known, responseBytes should be 
+	 * negative, in which case only the response time target is taken into account.
+	 * @param currentPageSize Page size used for the current page
+	 * @param records Number of records returned for the current page
+	 * @param responseNanos Response time for the current page, in nanoseconds
+	 * @param responseBytes Response size for the current page, or -1 if unknown
+	 * @return Page size for the next page
+	 */
+	public int calculatePageSize(int currentPageSize, int records, long responseNanos, long responseBytes) {
+		if ( records <= 0 ) {
+			return currentPageSize;
+		}
+		double idealPageSize = Double.MAX_VALUE;
+		if ( targetResponseTimeMillis > 0 && responseNanos > 0 ) {
+			idealPageSize = Math.min(idealPageSize, targetResponseTimeMillis*1000000d*records/responseNanos);
+		}
+		if ( targetResponseBytes > 0 && responseBytes > 0 ) {
+			idealPageSize = Math.min(idealPageSize, (double)targetResponseBytes*records/responseBytes);
+		}
+		long result = (long)Math.max(currentPageSize/2d, Math.min(currentPageSize*2d, idealPageSize));
+		return (int)Math.max(minPageSize, Math.min(maxPageSize, result));
+	}
+}
@@ -0,0 +1,297 @@
+/*******************************************************************************
+ * (c) Copyright 2017 EntIT Software LLC, a Micro Focus company
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a 
+ * copy of this software and associated documentation files (the 
+ * "Software"), to deal in the Software without restriction, including without 
+ * limitation the rights to use, copy, modify, merge, publish, distribute, 
+ * sublicense, and/or sell copies of the Software, and to permit persons to 
+ * whom the Software is furnished to do so, subject to the following 
+ * conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included 
+ * in all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY 
+ * KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE 
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR 
+ * PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE 
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, 
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF 
+ * CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN 
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS 
+ * IN THE SOFTWARE.
+ ******************************************************************************/
+package com.fortify.util.rest.query;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.fortify.util.rest.connection.IRestConnection;
+import com.fortify.util.rest.json.JSONList;
+import com.fortify.util.rest.json.JSONMap;
+import com.fortify.util.rest.json.processor.AbstractJSONMapProcessor;
+import com.fortify.util.rest.json.processor.IJSONMapProcessor;
+
+import lombok.Data;
+import lombok.Getter;
+import lombok.extern.apachecommons.CommonsLog;
+
+/**
+ * <p>This class executes a child query for every record returned by a parent query,
+ * for example a query for all issues for every application version, or all 
+ * vulnerabilities for every release. Child queries are executed concurrently on a 
+ * bounded number of worker threads; by default the parallelism is equal to
+ * {@link IRestConnection#getMaxConcurrentRequests()}, and any explicitly configured 
+ * parallelism is capped to this value to stay within the connection pool limits.
+ * Rate limits are handled by the connection itself.</p>
+ * 
+ * <p>The records returned by all child queries are merged into a single 
+ * {@link IJSONMapProcessor}, which is always invoked on the calling thread, so the
+ * processor doesn't need to be thread-safe. Each record is enriched with its parent 
+ * record, stored in the property returned by {@link #parentPropertyName(String)}.
+ * Records from different child queries may be interleaved, and 
+ * {@link IJSONMapProcessor#notifyNextPage(PagingData)} is not invoked.</p>
+ * 
+ * <p>Failures of individual child queries don't affect any of the other child queries;
+ * they are logged and returned in the {@link FanOutResult}. Any exception thrown by the
+ * given {@link IJSONMapProcessor}, or any {@link Error} thrown by a child query, aborts 
+ * all running child queries and is rethrown to the caller.</p>
+ * 
+ * <p>Example usage:</p>
+ * <pre>
+ * FanOutResult result = new FanOutQueryExecutor(conn, api.queryApplicationVersions().build(), new IChildQueryFactory() {
+ *     public IRestConnectionQuery createChildQuery(JSONMap parent) {
+ *         return issueAPI.queryIssues(parent.get("id", String.class)).build();
+ *     }
+ * }).processAll(processor);
+ * </pre>
+ * 
+ * @author Ruud Senden
+ *
+ */
+@CommonsLog
+public class FanOutQueryExecutor {
+	public static final String DEFAULT_PARENT_PROPERTY_NAME = "parent";
+	private static final int QUEUE_CAPACITY = 1000;
+	private static final AtomicInteger EXECUTOR_COUNT = new AtomicInteger();
+	private final IRestConnection conn;
+	private final IRestConnectionQuery parentQuery;
+	private final IChildQueryFactory childQueryFactory;
+	private int parallelism = 0;
+	private String parentPropertyName = DEFAULT_PARENT_PROPERTY_NAME;
+	
+	/**
+	 * Create a new {@link FanOutQueryExecutor} instance for executing the 
+	 * child queries created by the given {@link IChildQueryFactory} for each
+	 * record returned by the given parent query. The given connection is used 
+	 * to determine the maximum parallelism.
+	 * @param conn
+	 * @param parentQuery
+	 * @param childQueryFactory
+	 */
+	public FanOutQueryExecutor(IRestConnection conn, IRestConnectionQuery parentQuery, IChildQueryFactory childQueryFactory) {
+		this.conn = conn;
+		this.parentQuery = parentQuery;
+		this.childQueryFactory = childQueryFactory;
+	}
+	
+	/**
+	 * Configure the number of child queries to be executed concurrently. This
+	 * is capped to {@link IRestConnection#getMaxConcurrentRequests()}.
+	 * @param parallelism
+	 * @return
+	 */
+	public FanOutQueryExecutor parallelism(int parallelism) {
+		this.parallelism = parallelism;
+		return this;
+	}
+	
+	/**
+	 * Configure the property name under which the parent record is stored
+	 * in each child record, or null to not store the parent record. Defaults
+	 * to {@value #DEFAULT_PARENT_PROPERTY_NAME}.
+	 * @param parentPropertyName
+	 * @return
+	 */
+	public FanOutQueryExecutor parentPropertyName(String parentPropertyName) {
+		this.parentPropertyName = parentPropertyName;
+		return this;
+	}
+	
+	/**
+	 * Execute the parent query, and execute the child query for each parent record,
+	 * passing all child records to the given {@link IJSONMapProcessor}.
+	 * @param processor
+	 * @return {@link FanOutResult} describing the outcome of the child queries
+	 */
+	public FanOutResult processAll(IJSONMapProcessor processor) {
+		JSONList parents = parentQuery.getAll();
+		List<JSONMap> parentMaps = parents.asValueType(JSONMap.class);
+		FanOutResult result = new FanOutResult(parentMaps.size());
+		if ( parentMaps.isEmpty() ) { return result; }
+		
+		BlockingQueue<Object> queue = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+		ExecutorService executor = createExecutorService(Math.min(getEffectiveParallelism(), parentMaps.size()));
+		try {
+			for ( JSONMap parent : parentMaps ) {
+				executor.execute(new ChildQueryTask(parent, queue));
+			}
+			int remaining = parentMaps.size();
+			while ( remaining > 0 ) {
+				Object item = queue.take();
+				if ( item instanceof ChildQueryCompletion ) {
+					remaining--;
+					result.addCompletion((ChildQueryCompletion)item);
+				} else {
+					result.recordCount++;
+					processor.process((JSONMap)item);
+				}
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new RuntimeException("Interrupted while executing child queries", e);
+		} finally {
+			executor.shutdownNow();
+		}
+		return result;
+	}
+	
+	private int getEffectiveParallelism() {
+		int max = conn.getMaxConcurrentRequests();
+		return parallelism <= 0 ? max : Math.min(parallelism, max);
+	}
+	
+	private static final ExecutorService createExecutorService(int threads) {
+		final String namePrefix = "fanout-"+EXECUTOR_COUNT.incrementAndGet()+"-";
+		return Executors.newFixedThreadPool(threads, new ThreadFactory() {
+			private final AtomicInteger threadCount = new AtomicInteger();
+			@Override
+			public Thread newThread(Runnable r) {
+				Thread thread = new Thread(r, namePrefix+threadCount.incrementAndGet());
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+	}
+	
+	/**
+	 * Task for executing the child query for a single parent record, 
+	 * putting all child records on the given queue, followed by a
+	 * {@link ChildQueryCompletion} instance. The completion is always
+	 * queued, even if the child query fails with an {@link Error}, to
+	 * avoid the calling thread waiting forever.
+	 */
+	private final class ChildQueryTask implements Runnable {
+		private final JSONMap parent;
+		private final BlockingQueue<Object> queue;
+		
+		private ChildQueryTask(JSONMap parent, BlockingQueue<Object> queue) {
+			this.parent = parent;
+			this.queue = queue;
+		}
+
+		@Override
+		public void run() {
+			Throwable failure = null;
+			try {
+				childQueryFactory.createChildQuery(parent).processAll(new AbstractJSONMapProcessor() {
+					@Override
+					public void process(JSONMap json) {
+						if ( parentPropertyName != null ) {
+							json.put(parentPropertyName, parent);
+						}
+						put(json);
+					}
+				});
+			} catch (ChildQueryInterruptedException e) {
+				return;
+			} catch (Throwable t) {
+				failure = t;
+			}
+			try {
+				queue.put(new ChildQueryCompletion(parent, failure));
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+		
+		private void put(JSONMap json) {
+			try {
+				queue.put(json);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new ChildQueryInterruptedException();
+			}
+		}
+	}
+	
+	/**
+	 * Thrown when a child query task is interrupted because
+	 * the fan-out operation was aborted.
+	 */
+	private static final class ChildQueryInterruptedException extends RuntimeException {
+		private static final long serialVersionUID = 1L;
+	}
+	
+	@Data
+	private static final class ChildQueryCompletion {
+		private final JSONMap parent;
+		private final Throwable failure;
+	}
+	
+	/**
+	 * Describes the failure of the child query for a single parent record.
+	 */
+	@Data
+	public static final class ChildQueryFailure {
+		private final JSONMap parent;
+		private final Exception exception;
+	}
+	
+	/**
+	 * Describes the outcome of a fan-out operation.
+	 */
+	public static final class FanOutResult {
+		/** The number of parent records returned by the parent query */
+		@Getter private final int parentCount;
+		/** The number of child records passed to the processor */
+		@Getter private int recordCount;
+		private final List<ChildQueryFailure> failures = new ArrayList<>();
+		
+		private FanOutResult(int parentCount) {
+			this.parentCount = parentCount;
+		}
+		
+		private void addCompletion(ChildQueryCompletion completion) {
+			Throwable failure = completion.getFailure();
+			if ( failure instanceof Error ) {
+				throw (Error)failure;
+			} else if ( failure != null ) {
+				log.warn("Error executing child query for parent "+completion.getParent(), failure);
+				failures.add(new ChildQueryFailure(completion.getParent(), (Exception)failure));
+			}
+		}
+		
+		/**
+		 * @return The failures of individual child queries, if any
+		 */
+		public List<ChildQueryFailure> getFailures() {
+			return Collections.unmodifiableList(failures);
+		}
+		
+		/**
+		 * @return true if any of the child queries has failed
+		 */
+		public boolean hasFailures() {
+			return !failures.isEmpty();
+		}
+	}
+}
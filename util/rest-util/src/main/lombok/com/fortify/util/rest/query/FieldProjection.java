@@ -0,0 +1,198 @@
+/*******************************************************************************
+ * (c) Copyright 2017 EntIT Software LLC, a Micro Focus company
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a 
+ * copy of this software and associated documentation files (the 
+ * "Software"), to deal in the Software without restriction, including without 
+ * limitation the rights to use, copy, modify, merge, publish, distribute, 
+ * sublicense, and/or sell copies of the Software, and to permit persons to 
+ * whom the Software is furnished to do so, subject to the following 
+ * conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included 
+ * in all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY 
+ * KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE 
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR 
+ * PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE 
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, 
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF 
+ * CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN 
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS 
+ * IN THE SOFTWARE.
+ ******************************************************************************/
+package com.fortify.util.rest.query;
+
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.ws.rs.client.WebTarget;
+
+import com.fortify.util.rest.json.JSONList;
+import com.fortify.util.rest.json.JSONMap;
+
+/**
+ * <p>This class implements the learning field projection mode, as enabled through 
+ * {@link AbstractRestConnectionQueryBuilder#learnFieldProjection(boolean)}. All records 
+ * on the first (sampling) page are wrapped in a {@link ProjectedJSONMap} that records which 
+ * top-level properties are accessed by the configured pre-processors and processor. Any 
+ * subsequent pages are requested with only these properties, through 
+ * {@link AbstractRestConnectionQuery#updateWebTargetWithFields(WebTarget, java.util.Collection)}.
+ * If available, the 'id' property is always included to allow for matching full and
+ * projected records.</p>
+ * 
+ * <p>If a property that was not requested is accessed on a projected record, the
+ * corresponding page is re-fetched without projection (once per page), and the missing 
+ * properties are copied from the corresponding full record. The accessed property is then 
+ * added to the projection for any subsequent pages. If all properties of a record are 
+ * accessed, for example when iterating over its entries, projection is disabled for any
+ * subsequent pages. For projected records, such bulk access re-fetches the corresponding
+ * page (once per page) to report the full record.</p>
+ * 
+ * <p>Projection is also disabled if no properties were accessed while processing the 
+ * sampling page, for example if records are only collected for later processing.</p>
+ * 
+ * @author Ruud Senden
+ *
+ */
+final class FieldProjection {
+	private static final String ID_FIELD = "id";
+	private final AbstractRestConnectionQuery<?> query;
+	private final Set<String> availableFields = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+	private final Set<String> accessedFields = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+	private final Set<String> absentFields = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+	private volatile boolean learning = true;
+	private volatile boolean disabled = false;
+	private Set<String> pageFields = null;
+	private FullPage fullPage = null;
+	
+	FieldProjection(AbstractRestConnectionQuery<?> query) {
+		this.query = query;
+	}
+	
+	/**
+	 * Update the given {@link WebTarget} for the next page to only request the
+	 * properties learned so far. While learning, or if projection has been disabled,
+	 * the given {@link WebTarget} is returned as-is.
+	 */
+	WebTarget updateWebTarget(WebTarget pagingTarget) {
+		this.pageFields = null;
+		this.fullPage = null;
+		if ( learning || disabled ) { return pagingTarget; }
+		Set<String> fields = new LinkedHashSet<>();
+		if ( availableFields.contains(ID_FIELD) ) { fields.add(ID_FIELD); }
+		if ( query.getKeysetPagingProperty() != null ) { fields.add(query.getKeysetPagingProperty()); }
+		for ( String field : accessedFields ) {
+			if ( availableFields.contains(field) ) { fields.add(field); }
+		}
+		WebTarget result = query.updateWebTargetWithFields(pagingTarget, fields);
+		if ( result==pagingTarget ) {
+			// Field selection not supported by the query implementation
+			disabled = true;
+		} else {
+			this.pageFields = Collections.unmodifiableSet(fields);
+			this.fullPage = new FullPage(pagingTarget);
+		}
+		return result;
+	}
+	
+	/**
+	 * Wrap the given record from the current page, if applicable. Records on
+	 * a projected page are always wrapped, even if projection was disabled 
+	 * while processing this page, to allow for loading missing properties.
+	 */
+	JSONMap wrap(JSONMap record, int index) {
+		if ( pageFields != null ) {
+			return new ProjectedJSONMap(this, record, pageFields, fullPage, index);
+		} else if ( learning && !disabled ) {
+			availableFields.addAll(record.keySet());
+			return new ProjectedJSONMap(this, record);
+		}
+		return record;
+	}
+	
+	/**
+	 * Indicate that all records on the current page have been processed.
+	 */
+	void endPage() {
+		if ( learning ) {
+			learning = false;
+			if ( accessedFields.isEmpty() ) { disabled = true; }
+		}
+	}
+	
+	void fieldAccessed(String field) {
+		accessedFields.add(field);
+	}
+	
+	void fieldAbsent(String field) {
+		absentFields.add(field);
+	}
+	
+	boolean isFieldAbsent(String field) {
+		return absentFields.contains(field);
+	}
+	
+	void allFieldsAccessed() {
+		disabled = true;
+	}
+	
+	/**
+	 * This class lazily loads the non-projected version of a single page,
+	 * to provide the full records for the projected records on that page.
+	 */
+	final class FullPage {
+		private final WebTarget target;
+		private List<JSONMap> records = null;
+		
+		private FullPage(WebTarget target) {
+			this.target = target;
+		}
+		
+		/**
+		 * Get the full record corresponding to the given projected record, preferably
+		 * at the given index on the page. 
+		 * @throws IllegalStateException if no single matching full record can be found
+		 */
+		synchronized JSONMap getFullRecord(JSONMap projected, Set<String> fields, int index) {
+			if ( records == null ) {
+				JSONList list = query.getJSONList(target);
+				records = list.asValueType(JSONMap.class);
+				for ( JSONMap record : records ) {
+					availableFields.addAll(record.keySet());
+				}
+			}
+			if ( index < records.size() && isMatching(records.get(index), projected, fields) ) {
+				return records.get(index);
+			}
+			JSONMap result = null;
+			for ( JSONMap record : records ) {
+				if ( isMatching(record, projected, fields) ) {
+					if ( result != null ) {
+						throw new IllegalStateException("Unable to uniquely identify full record for projected record "+projected);
+					}
+					result = record;
+				}
+			}
+			if ( result == null ) {
+				throw new IllegalStateException("Unable to find full record for projected record "+projected);
+			}
+			return result;
+		}
+
+		private boolean isMatching(JSONMap full, JSONMap projected, Set<String> fields) {
+			for ( String field : fields ) {
+				Object projectedValue = projected.get(field);
+				Object fullValue = full.get(field);
+				if ( projectedValue==null ? fullValue!=null : !projectedValue.equals(fullValue) ) {
+					return false;
+				}
+			}
+			return true;
+		}
+	}
+}
@@ -24,6 +24,8 @@
  ******************************************************************************/
 package com.fortify.util.rest.query;
 
+import java.util.Map;
+
 import com.fortify.util.rest.json.JSONList;
 import com.fortify.util.rest.json.JSONMap;
 import com.fortify.util.rest.json.processor.IJSONMapProcessor;
@@ -58,5 +60,41 @@ public interface IRestConnectionQuery {
 	 * @return
 	 */
 	JSONMap getUnique();
+	
+	/**
+	 * Get the number of results for this query. If supported by the remote system, 
+	 * implementations should retrieve this number without loading all results.
+	 * @return
+	 */
+	int count();
+	
+	/**
+	 * Get the number of results for this query, grouped by the value of the given
+	 * property path. If supported by the remote system, implementations should 
+	 * retrieve these numbers without loading all results.
+	 * @param propertyPath
+	 * @return {@link Map} from property value to number of results
+	 */
+	Map<Object, Integer> groupBy(String propertyPath);
+
+	/**
+	 * Get an {@link ITypedRestConnectionQuery} instance that executes the same
+	 * REST API call as this query, but binds each individual result directly to
+	 * an instance of the given type. Implementations will usually restrict the
+	 * fields returned by the remote system to the properties declared by the
+	 * given type, if supported by the remote system.
+	 * @param type
+	 * @return
+	 */
+	<T> ITypedRestConnectionQuery<T> as(Class<T> type);
+	
+	/**
+	 * Get a human-readable description of how this query will be executed,
+	 * listing the request target, the filters that were pushed down to 
+	 * server-side query parameters, and the pre-processors that will be 
+	 * evaluated on the client-side.
+	 * @return
+	 */
+	String explain();
 
 }
\ No newline at end of file
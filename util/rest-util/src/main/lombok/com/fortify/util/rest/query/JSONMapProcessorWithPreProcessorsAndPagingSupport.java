@@ -24,7 +24,14 @@
  ******************************************************************************/
 package com.fortify.util.rest.query;
 
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 
 import org.apache.commons.collections.CollectionUtils;
 
@@ -38,6 +45,11 @@ import com.fortify.util.rest.json.processor.IJSONMapProcessor;
  * {@link IJSONMapProcessor} instances, updating the configured {@link PagingData}
  * instance, and handling the maximum number of results.
  * 
+ * If configured through {@link #parallel(ExecutorService, boolean)}, the
+ * {@link IJSONMapPreProcessor} instances are invoked in parallel for all
+ * records on a page, whereas the {@link PagingData} instance is updated, and
+ * the {@link IJSONMapProcessor} is invoked, on the calling thread only.
+ * 
  * @author Ruud Senden
  *
  */
@@ -45,6 +57,9 @@ class JSONMapProcessorWithPreProcessorsAndPagingSupport implements IJSONMapProce
 	private final List<IJSONMapPreProcessor> preProcessors;
 	private final IJSONMapProcessor processor;
 	private final PagingData pagingData;
+	private final PreProcessorChainOptimizer preProcessorChainOptimizer;
+	private ExecutorService executor = null;
+	private boolean keepOrder = true;
 	
 	/**
 	 * Constructor for configuring a {@link List} of {@link IJSONMapPreProcessor} instances,
@@ -56,11 +71,132 @@ class JSONMapProcessorWithPreProcessorsAndPagingSupport implements IJSONMapProce
 	 * @param pagingData
 	 */
 	public JSONMapProcessorWithPreProcessorsAndPagingSupport(List<IJSONMapPreProcessor> preProcessors, IJSONMapProcessor processor, PagingData pagingData) {
+		this(preProcessors, processor, pagingData, false);
+	}
+	
+	/**
+	 * Constructor for configuring a {@link List} of {@link IJSONMapPreProcessor} instances,
+	 * an {@link IJSONMapProcessor} instance, the {@link PagingData} for the current
+	 * query, and whether the order of the {@link IJSONMapPreProcessor} instances should
+	 * be optimized using a {@link PreProcessorChainOptimizer}.
+	 * 
+	 * @param preProcessors
+	 * @param processor
+	 * @param pagingData
+	 * @param optimizePreProcessorOrder
+	 */
+	public JSONMapProcessorWithPreProcessorsAndPagingSupport(List<IJSONMapPreProcessor> preProcessors, IJSONMapProcessor processor, PagingData pagingData, boolean optimizePreProcessorOrder) {
 		this.preProcessors = preProcessors;
 		this.processor = processor;
 		this.pagingData = pagingData;
+		this.preProcessorChainOptimizer = optimizePreProcessorOrder && preProcessors != null 
+				? PreProcessorChainOptimizer.create(preProcessors) : null;
 	}
 
+	/**
+	 * Configure the {@link ExecutorService} for invoking the configured {@link IJSONMapPreProcessor}
+	 * instances in parallel for all records passed to {@link #processPage(List)}, and whether 
+	 * the original record order should be retained when invoking the configured {@link IJSONMapProcessor}. 
+	 * The {@link PreProcessorChainOptimizer}, if configured, is not used for parallel 
+	 * pre-processing, as it isn't thread-safe. Passing a null {@link ExecutorService}
+	 * disables parallel pre-processing.
+	 * 
+	 * @param executor
+	 * @param keepOrder
+	 * @return This instance
+	 */
+	JSONMapProcessorWithPreProcessorsAndPagingSupport parallel(ExecutorService executor, boolean keepOrder) {
+		this.executor = executor;
+		this.keepOrder = keepOrder;
+		return this;
+	}
+	
+	/**
+	 * Process all records on a single page, until the maximum number of results
+	 * has been reached. Depending on configuration, this either calls 
+	 * {@link #process(JSONMap)} for each record, or invokes the configured 
+	 * {@link IJSONMapPreProcessor} instances in parallel.
+	 * 
+	 * @param records
+	 */
+	void processPage(List<JSONMap> records) {
+		if ( executor == null ) {
+			for ( JSONMap json : records ) {
+				if ( pagingData.isMaxResultsReached() ) { break; }
+				process(json);
+			}
+		} else {
+			processPageInParallel(records);
+		}
+	}
+	
+	/**
+	 * Pre-process the given records in parallel, in batches of at most the remaining
+	 * maximum number of results, so we don't pre-process (and potentially load on-demand
+	 * data for) many more records than needed. As records may be filtered out by the
+	 * pre-processors, another batch is submitted if the maximum number of results
+	 * hasn't been reached after processing a batch.
+	 */
+	private void processPageInParallel(List<JSONMap> records) {
+		int offset = 0;
+		while ( offset < records.size() && !pagingData.isMaxResultsReached() ) {
+			int batchSize = getMaxBatchSize(records.size()-offset);
+			processBatchInParallel(records.subList(offset, offset+batchSize));
+			offset += batchSize;
+		}
+	}
+	
+	private int getMaxBatchSize(int available) {
+		int maxResults = pagingData.getMaxResults();
+		return maxResults < 0 ? available : Math.min(available, maxResults-pagingData.getProcessedTotalNotFiltered());
+	}
+	
+	/**
+	 * Submit pre-processing tasks for all given records to the configured {@link ExecutorService},
+	 * and then process the results either in the original order, or in completion order. Any 
+	 * remaining tasks are cancelled once the maximum number of results has been reached.
+	 */
+	private void processBatchInParallel(List<JSONMap> records) {
+		CompletionService<PreProcessed> completionService = new ExecutorCompletionService<>(executor);
+		List<Future<PreProcessed>> futures = new ArrayList<>(records.size());
+		for ( final JSONMap json : records ) {
+			futures.add(completionService.submit(new Callable<PreProcessed>() {
+				@Override
+				public PreProcessed call() {
+					return new PreProcessed(json, preProcessSequential(json));
+				}
+			}));
+		}
+		try {
+			for ( int i = 0 ; i < futures.size() && !pagingData.isMaxResultsReached() ; i++ ) {
+				PreProcessed preProcessed = getResult(keepOrder ? futures.get(i) : completionService.take());
+				pagingData.addProcessed(1);
+				if ( !pagingData.isMaxResultsReached() && preProcessed.included ) {
+					pagingData.addProcessedNotFiltered(1);
+					processor.process(preProcessed.json);
+				}
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new RuntimeException("Interrupted while pre-processing records", e);
+		} finally {
+			for ( Future<PreProcessed> future : futures ) {
+				future.cancel(false);
+			}
+		}
+	}
+	
+	private static final PreProcessed getResult(Future<PreProcessed> future) throws InterruptedException {
+		try {
+			return future.get();
+		} catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+			if ( cause instanceof RuntimeException ) { throw (RuntimeException)cause; }
+			if ( cause instanceof Error ) { throw (Error)cause; }
+			throw new RuntimeException("Error pre-processing record", cause);
+		}
+	}
+	
 	/**
 	 * Process the given {@link JSONMap} and update the configured {@link PagingData}
 	 * accordingly. This method checks whether the maximum number of results has not 
@@ -84,11 +220,17 @@ class JSONMapProcessorWithPreProcessorsAndPagingSupport implements IJSONMapProce
 	 * Invoke all of the configured {@link IJSONMapPreProcessor} instances.
 	 * If any of them returns false, this method stops processing any remaining
 	 * {@link IJSONMapPreProcessor} instances and returns false as well, essentially
-	 * filtering out/ignoring the given {@link JSONMap} instance.
+	 * filtering out/ignoring the given {@link JSONMap} instance. If configured,
+	 * the {@link PreProcessorChainOptimizer} determines the invocation order.
 	 * @param json
 	 * @return
 	 */
 	private boolean preProcess(JSONMap json) {
+		if ( preProcessorChainOptimizer != null ) { return preProcessorChainOptimizer.preProcess(json); }
+		return preProcessSequential(json);
+	}
+	
+	private boolean preProcessSequential(JSONMap json) {
 		boolean result = true;
 		if ( CollectionUtils.isNotEmpty(preProcessors) ) {
 			for ( IJSONMapPreProcessor preProcessor : preProcessors ) {
@@ -107,9 +249,17 @@ class JSONMapProcessorWithPreProcessorsAndPagingSupport implements IJSONMapProce
 	public void notifyNextPage(PagingData pagingData) {
 		processor.notifyNextPage(pagingData);
 	}
-
-	
 	
-	
-
+	/**
+	 * Result of pre-processing a single record
+	 */
+	private static final class PreProcessed {
+		private final JSONMap json;
+		private final boolean included;
+		
+		private PreProcessed(JSONMap json, boolean included) {
+			this.json = json;
+			this.included = included;
+		}
+	}
 }
@@ -42,8 +42,11 @@ public class PagingData {
 	private int processedTotalNotFiltered = 0;
 	private int totalAvailable = -1;
 	private int pageSize = 50;
+	private int maxPageSize = Integer.MAX_VALUE;
 	private int maxResults = -1;
 	private int nextPageSize = -1;
+	private AdaptivePaging adaptivePaging = null;
+	private Object lastKeyValue = null;
 	
 	/**
 	 * Get the start position for the next page to be loaded.
@@ -55,6 +58,17 @@ public class PagingData {
 		return processedTotal;
 	}
 	
+	/**
+	 * Get the key value of the last record on the previous page, or null
+	 * if no page has been loaded yet. {@link AbstractRestConnectionQuery}
+	 * implementations that support keyset paging will add a condition to
+	 * paged REST requests to only return records with a higher key value.
+	 * @return
+	 */
+	public Object getLastKeyValue() {
+		return lastKeyValue;
+	}
+	
 	/**
 	 * Get the size for the next page to be loaded.
 	 * {@link AbstractRestConnectionQuery} implementations will
@@ -93,23 +107,47 @@ public class PagingData {
 	 * page.
 	 */
 	int calculateNextPageSize() {
-		if ( isMaxResultsReached() || (processedCurrentPage>-1 && processedCurrentPage < pageSize) ) {
-			// If we've loaded all required results, or the current page size was smaller than expected 
+		int effectivePageSize = Math.min(pageSize, maxPageSize);
+		if ( isMaxResultsReached() || (processedCurrentPage>-1 && processedCurrentPage < nextPageSize) ) {
+			// If we've loaded all required results, or the current page size was smaller than requested 
 			// (meaning no more results), return 0.
 			nextPageSize = 0;
 		} else if ( maxResults < 0 || processedTotalNotFiltered < processedTotal ) {
 			// If no max results is configured, or if results are being filtered, simply return configured page size
-			nextPageSize = pageSize;
+			nextPageSize = effectivePageSize;
 		} else {
 			// For non-filtered results, return either configured page size, or remaining
 			// number of results to be loaded if this is smaller than configured page
 			// size.
-			nextPageSize = Math.min(pageSize, maxResults - processedTotalNotFiltered );
+			nextPageSize = Math.min(effectivePageSize, maxResults - processedTotalNotFiltered );
 		}
 		processedCurrentPage = 0;
 		return nextPageSize;
 	}
 	
+	/**
+	 * Package-private method for reporting the response time and size for the
+	 * current page. If adaptive paging has been configured, this will update the
+	 * page size to be used for the next page. This method must be called after
+	 * processing each page, and before calling {@link #calculateNextPageSize()}.
+	 * @param responseNanos
+	 * @param responseBytes Response size, or -1 if unknown
+	 */
+	void addPageMetrics(long responseNanos, long responseBytes) {
+		if ( adaptivePaging != null && processedCurrentPage > 0 && processedCurrentPage >= nextPageSize ) {
+			pageSize = adaptivePaging.calculatePageSize(nextPageSize, processedCurrentPage, responseNanos, responseBytes);
+		}
+	}
+	
+	/**
+	 * Package-private method for recording the key value of the last record 
+	 * on the current page, if keyset paging has been configured.
+	 * @param lastKeyValue
+	 */
+	void setLastKeyValue(Object lastKeyValue) {
+		this.lastKeyValue = lastKeyValue;
+	}
+	
 	/**
 	 * Package-private method for updating the number
 	 * of processed results.
@@ -146,4 +184,22 @@ public class PagingData {
 		this.pageSize = pageSize;
 		return this;
 	}
+	
+	/**
+	 * Configure the maximum page size supported by the remote system; 
+	 * the page size will never exceed this maximum.
+	 */
+	public PagingData maxPageSize(int maxPageSize) {
+		this.maxPageSize = maxPageSize;
+		return this;
+	}
+	
+	/**
+	 * Configure the {@link AdaptivePaging} policy for tuning the page size
+	 * between pages, or null to use a fixed page size.
+	 */
+	public PagingData adaptivePaging(AdaptivePaging adaptivePaging) {
+		this.adaptivePaging = adaptivePaging;
+		return this;
+	}
 }
\ No newline at end of file
@@ -0,0 +1,154 @@
+/*******************************************************************************
+ * (c) Copyright 2017 EntIT Software LLC, a Micro Focus company
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a 
+ * copy of this software and associated documentation files (the 
+ * "Software"), to deal in the Software without restriction, including without 
+ * limitation the rights to use, copy, modify, merge, publish, distribute, 
+ * sublicense, and/or sell copies of the Software, and to permit persons to 
+ * whom the Software is furnished to do so, subject to the following 
+ * conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included 
+ * in all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY 
+ * KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE 
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR 
+ * PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE 
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, 
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF 
+ * CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN 
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS 
+ * IN THE SOFTWARE.
+ ******************************************************************************/
+package com.fortify.util.rest.query;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+import com.fortify.util.rest.json.JSONMap;
+import com.fortify.util.rest.json.preprocessor.IJSONMapPreProcessor;
+import com.fortify.util.rest.json.preprocessor.filter.AbstractJSONMapFilter;
+
+/**
+ * <p>This package-private class is used by {@link JSONMapProcessorWithPreProcessorsAndPagingSupport}
+ * to invoke the configured {@link IJSONMapPreProcessor} instances in a cost-based order, as enabled
+ * through {@link AbstractRestConnectionQueryBuilder#optimizePreProcessorOrder(boolean)}.</p>
+ * 
+ * <p>Only {@link AbstractJSONMapFilter} instances without filter listeners are considered to be 
+ * independent, and only consecutive runs of such filters are reordered. Any other pre-processors, 
+ * like enrichers that subsequent filters may depend on, stay in place and act as a barrier.</p>
+ * 
+ * <p>For each reorderable filter, the average invocation time and the fraction of rejected records 
+ * are measured. Every {@value #REORDER_INTERVAL} records, each run of filters is sorted by average 
+ * cost divided by rejection rate, such that cheap and selective filters are invoked first. Filters 
+ * that haven't been invoked yet are moved to the front of their run to have them measured.</p>
+ * 
+ * @author Ruud Senden
+ *
+ */
+final class PreProcessorChainOptimizer {
+	private static final int REORDER_INTERVAL = 64;
+	private static final Comparator<Entry> RANK_COMPARATOR = new Comparator<Entry>() {
+		@Override
+		public int compare(Entry e1, Entry e2) {
+			return Double.compare(e1.getRank(), e2.getRank());
+		}
+	};
+	private final Entry[] entries;
+	private final int[][] runs;
+	private int processed = 0;
+	
+	private PreProcessorChainOptimizer(Entry[] entries, int[][] runs) {
+		this.entries = entries;
+		this.runs = runs;
+	}
+	
+	/**
+	 * Create a new {@link PreProcessorChainOptimizer} for the given pre-processors, or
+	 * return null if the given pre-processors don't contain any reorderable filters.
+	 */
+	static final PreProcessorChainOptimizer create(List<IJSONMapPreProcessor> preProcessors) {
+		Entry[] entries = new Entry[preProcessors.size()];
+		List<int[]> runs = new ArrayList<>();
+		int runStart = -1;
+		for ( int i = 0 ; i <= entries.length ; i++ ) {
+			boolean reorderable = false;
+			if ( i < entries.length ) {
+				IJSONMapPreProcessor preProcessor = preProcessors.get(i);
+				reorderable = preProcessor instanceof AbstractJSONMapFilter 
+						&& !((AbstractJSONMapFilter)preProcessor).hasFilterListeners();
+				entries[i] = new Entry(preProcessor, reorderable);
+			}
+			if ( reorderable && runStart < 0 ) {
+				runStart = i;
+			} else if ( !reorderable && runStart >= 0 ) {
+				if ( i-runStart > 1 ) { runs.add(new int[] {runStart, i}); }
+				runStart = -1;
+			}
+		}
+		return runs.isEmpty() ? null : new PreProcessorChainOptimizer(entries, runs.toArray(new int[runs.size()][]));
+	}
+	
+	/**
+	 * Invoke the pre-processors in the current order, returning false as soon
+	 * as any of the pre-processors returns false.
+	 */
+	boolean preProcess(JSONMap json) {
+		boolean result = true;
+		for ( Entry entry : entries ) {
+			if ( !entry.preProcess(json) ) { result = false; break; }
+		}
+		if ( ++processed % REORDER_INTERVAL == 0 ) {
+			reorder();
+		}
+		return result;
+	}
+	
+	private void reorder() {
+		for ( int[] run : runs ) {
+			// Arrays.sort is stable for objects, so equally ranked filters keep their order 
+			Arrays.sort(entries, run[0], run[1], RANK_COMPARATOR);
+		}
+	}
+	
+	/**
+	 * Pre-processor with runtime statistics
+	 */
+	private static final class Entry {
+		private final IJSONMapPreProcessor preProcessor;
+		private final boolean reorderable;
+		private long invocations = 0;
+		private long rejections = 0;
+		private long nanos = 0;
+		
+		private Entry(IJSONMapPreProcessor preProcessor, boolean reorderable) {
+			this.preProcessor = preProcessor;
+			this.reorderable = reorderable;
+		}
+		
+		private boolean preProcess(JSONMap json) {
+			if ( !reorderable ) { return preProcessor.preProcess(json); }
+			long start = System.nanoTime();
+			boolean result = preProcessor.preProcess(json);
+			nanos += System.nanoTime()-start;
+			invocations++;
+			if ( !result ) { rejections++; }
+			return result;
+		}
+		
+		/**
+		 * Rank this entry by average cost per invocation divided by (smoothed)
+		 * rejection rate; lower ranks should be invoked first.
+		 */
+		private double getRank() {
+			if ( invocations == 0 ) { return -1; }
+			double averageNanos = (double)nanos/invocations;
+			double rejectionRate = (rejections+1.0)/(invocations+2.0);
+			return averageNanos/rejectionRate;
+		}
+	}
+}
@@ -0,0 +1,203 @@
+/*******************************************************************************
+ * (c) Copyright 2017 EntIT Software LLC, a Micro Focus company
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a 
+ * copy of this software and associated documentation files (the 
+ * "Software"), to deal in the Software without restriction, including without 
+ * limitation the rights to use, copy, modify, merge, publish, distribute, 
+ * sublicense, and/or sell copies of the Software, and to permit persons to 
+ * whom the Software is furnished to do so, subject to the following 
+ * conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included 
+ * in all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY 
+ * KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE 
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR 
+ * PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE 
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, 
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF 
+ * CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN 
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS 
+ * IN THE SOFTWARE.
+ ******************************************************************************/
+package com.fortify.util.rest.query;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.Set;
+
+import com.fortify.util.rest.json.JSONMap;
+
+/**
+ * <p>This {@link JSONMap} extension is used by {@link FieldProjection} to record
+ * which top-level properties are accessed, and to load any properties that were 
+ * not included in the projected response upon first explicit access to such a
+ * property, for example through {@link #get(Object)}. Bulk accessors like 
+ * {@link #entrySet()}, {@link #keySet()}, {@link #values()} and {@link #size()},
+ * as well as {@link #toString()}, {@link #equals(Object)} and {@link #hashCode()},
+ * load all missing properties for the current record, and cause subsequent pages 
+ * to be requested without field projection.</p>
+ * 
+ * <p>Serializing an instance of this class results in a plain {@link JSONMap} containing
+ * all properties.</p>
+ * 
+ * @author Ruud Senden
+ *
+ */
+final class ProjectedJSONMap extends JSONMap {
+	private static final long serialVersionUID = 1L;
+	private transient FieldProjection projection;
+	private transient Set<String> projectedFields;
+	private transient FieldProjection.FullPage fullPage;
+	private transient JSONMap original;
+	private transient int index;
+	private transient boolean allFieldsAccessed;
+	
+	/**
+	 * Create a new instance for the given full record, only recording 
+	 * property access.
+	 */
+	ProjectedJSONMap(FieldProjection projection, JSONMap record) {
+		this(projection, record, null, null, -1);
+	}
+	
+	/**
+	 * Create a new instance for the given projected record, recording property
+	 * access and loading any missing properties from the given {@link FieldProjection.FullPage}.
+	 */
+	ProjectedJSONMap(FieldProjection projection, JSONMap record, Set<String> projectedFields, FieldProjection.FullPage fullPage, int index) {
+		super(record.size());
+		for ( Map.Entry<String, Object> entry : record.entrySet() ) {
+			super.put(entry.getKey(), entry.getValue());
+		}
+		this.projection = projection;
+		this.projectedFields = projectedFields;
+		this.fullPage = fullPage;
+		this.original = projectedFields==null ? null : record;
+		this.index = index;
+	}
+	
+	@Override
+	public Object get(Object key) {
+		fieldAccessed(key);
+		return super.get(key);
+	}
+	
+	@Override
+	public Object getOrDefault(Object key, Object defaultValue) {
+		fieldAccessed(key);
+		return super.getOrDefault(key, defaultValue);
+	}
+	
+	@Override
+	public boolean containsKey(Object key) {
+		fieldAccessed(key);
+		return super.containsKey(key);
+	}
+	
+	@Override
+	public Object remove(Object key) {
+		fieldAccessed(key);
+		return super.remove(key);
+	}
+	
+	@Override
+	public Set<Map.Entry<String, Object>> entrySet() {
+		allFieldsAccessed();
+		return super.entrySet();
+	}
+	
+	@Override
+	public Set<String> keySet() {
+		allFieldsAccessed();
+		return super.keySet();
+	}
+	
+	@Override
+	public Collection<Object> values() {
+		allFieldsAccessed();
+		return super.values();
+	}
+	
+	@Override
+	public int size() {
+		allFieldsAccessed();
+		return super.size();
+	}
+	
+	@Override
+	public boolean isEmpty() {
+		allFieldsAccessed();
+		return super.isEmpty();
+	}
+	
+	@Override
+	public String toString() {
+		allFieldsAccessed();
+		return super.toString();
+	}
+	
+	@Override
+	public boolean equals(Object o) {
+		allFieldsAccessed();
+		return super.equals(o);
+	}
+	
+	@Override
+	public int hashCode() {
+		allFieldsAccessed();
+		return super.hashCode();
+	}
+	
+	private Object writeReplace() {
+		if ( projectedFields != null ) { loadAllFields(null); }
+		return new JSONMap(this);
+	}
+	
+	private void fieldAccessed(Object key) {
+		if ( projection != null && key instanceof String ) {
+			String field = (String)key;
+			projection.fieldAccessed(field);
+			if ( projectedFields != null && !projectedFields.contains(field) 
+					&& !super.containsKey(field) && !projection.isFieldAbsent(field) ) {
+				loadAllFields(field);
+			}
+		}
+	}
+	
+	/**
+	 * Record that all fields have been accessed, such that subsequent pages are
+	 * loaded without field projection, and load any missing fields for this record
+	 * such that bulk accessors report the full record.
+	 */
+	private void allFieldsAccessed() {
+		if ( projection != null && !allFieldsAccessed ) {
+			projection.allFieldsAccessed();
+			allFieldsAccessed = true;
+		}
+		if ( projectedFields != null ) { loadAllFields(null); }
+	}
+	
+	/**
+	 * Copy all properties that were not included in the projected response
+	 * from the full record. Properties that were included in the projected
+	 * response, or that have been added by pre-processors, are left as-is.
+	 */
+	private void loadAllFields(String missingField) {
+		JSONMap full = fullPage.getFullRecord(original, projectedFields, index);
+		for ( Map.Entry<String, Object> entry : full.entrySet() ) {
+			String key = entry.getKey();
+			if ( !original.containsKey(key) && !super.containsKey(key) ) {
+				super.put(key, entry.getValue());
+			}
+		}
+		if ( missingField != null && projection != null && !full.containsKey(missingField) ) {
+			projection.fieldAbsent(missingField);
+		}
+		this.projectedFields = null;
+		this.fullPage = null;
+		this.original = null;
+	}
+}
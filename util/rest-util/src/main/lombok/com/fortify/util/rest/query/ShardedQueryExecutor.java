@@ -0,0 +1,303 @@
+/*******************************************************************************
+ * (c) Copyright 2017 EntIT Software LLC, a Micro Focus company
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a 
+ * copy of this software and associated documentation files (the 
+ * "Software"), to deal in the Software without restriction, including without 
+ * limitation the rights to use, copy, modify, merge, publish, distribute, 
+ * sublicense, and/or sell copies of the Software, and to permit persons to 
+ * whom the Software is furnished to do so, subject to the following 
+ * conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included 
+ * in all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY 
+ * KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE 
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR 
+ * PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE 
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, 
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF 
+ * CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN 
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS 
+ * IN THE SOFTWARE.
+ ******************************************************************************/
+package com.fortify.util.rest.query;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import javax.ws.rs.client.WebTarget;
+
+import com.fortify.util.rest.json.JSONMap;
+import com.fortify.util.rest.webtarget.IWebTargetUpdater;
+
+/**
+ * <p>This package-private class is used by {@link AbstractRestConnectionQuery} to execute
+ * a single logical query as a number of disjoint sub-queries, as configured through
+ * {@link AbstractRestConnectionQueryBuilder#shard(IWebTargetUpdater)}. Each shard applies
+ * a server-side filter, like an id range, date range or partitioning attribute, to the 
+ * query target, and all shards are loaded page by page concurrently.</p>
+ * 
+ * <p>If a merge order has been configured through {@link AbstractRestConnectionQueryBuilder#shardMergeOrder(Comparator)},
+ * the shard results are recombined using a k-way merge, assuming that each shard returns its
+ * results in that same order. Otherwise, pages are processed in the order in which they 
+ * are loaded.</p>
+ * 
+ * <p>The number of concurrent requests is limited to {@link com.fortify.util.rest.connection.IRestConnection#getMaxConcurrentRequests()}.
+ * Without a merge order, at most that many shards are loaded concurrently, and any remaining
+ * shards are queued until a thread becomes available. A k-way merge needs the first results
+ * of every shard before it can produce any results though, so with a merge order every shard
+ * is assigned its own thread, and page requests are limited through a {@link Semaphore}
+ * instead. Threads waiting for their shard results to be consumed don't hold a permit.</p>
+ * 
+ * <p>Each shard keeps at most {@value #MAX_QUEUED_PAGES} loaded pages that haven't been 
+ * processed yet, to limit memory usage if shards are loaded faster than results can be 
+ * processed. If the maximum number of results has been reached, or if processing fails, 
+ * any shards still loading are interrupted.</p> 
+ * 
+ * @author Ruud Senden
+ *
+ */
+final class ShardedQueryExecutor {
+	private static final int MAX_QUEUED_PAGES = 2;
+	private static final List<JSONMap> END_OF_SHARD = new ArrayList<>(0);
+	private static final AtomicInteger EXECUTOR_COUNT = new AtomicInteger();
+	private final AbstractRestConnectionQuery<?> query;
+	private final List<IWebTargetUpdater> shards;
+	private final Comparator<JSONMap> mergeComparator;
+	private final AtomicReference<Throwable> failure = new AtomicReference<>();
+	private final int maxConcurrentRequests;
+	private final Semaphore requestPermits;
+	
+	ShardedQueryExecutor(AbstractRestConnectionQuery<?> query, List<IWebTargetUpdater> shards, Comparator<JSONMap> mergeComparator) {
+		this.query = query;
+		this.shards = shards;
+		this.mergeComparator = mergeComparator;
+		this.maxConcurrentRequests = Math.max(1, query.getConn().getMaxConcurrentRequests());
+		this.requestPermits = mergeComparator!=null && shards.size()>maxConcurrentRequests ? new Semaphore(maxConcurrentRequests) : null;
+	}
+	
+	/**
+	 * Load all shards for the given {@link WebTarget}, and process the results using
+	 * the given {@link JSONMapProcessorWithPreProcessorsAndPagingSupport} until the 
+	 * maximum number of results configured on the given {@link PagingData} has been 
+	 * reached.
+	 */
+	void processAll(WebTarget target, PagingData pagingData, JSONMapProcessorWithPreProcessorsAndPagingSupport processor) {
+		ExecutorService executor = createExecutorService(mergeComparator==null ? Math.min(shards.size(), maxConcurrentRequests) : shards.size());
+		try {
+			List<BlockingQueue<List<JSONMap>>> queues = new ArrayList<>(shards.size());
+			BlockingQueue<List<JSONMap>> sharedQueue = mergeComparator==null ? new LinkedBlockingQueue<List<JSONMap>>(MAX_QUEUED_PAGES*shards.size()) : null;
+			for ( IWebTargetUpdater shard : shards ) {
+				BlockingQueue<List<JSONMap>> queue = sharedQueue!=null ? sharedQueue : new LinkedBlockingQueue<List<JSONMap>>(MAX_QUEUED_PAGES);
+				queues.add(queue);
+				executor.execute(new ShardLoader(shard.update(target), queue));
+			}
+			if ( mergeComparator==null ) {
+				processUnordered(sharedQueue, pagingData, processor);
+			} else {
+				processMerged(queues, pagingData, processor);
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new RuntimeException("Interrupted while loading shards", e);
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+	
+	/**
+	 * Process all pages from the given queue in the order in which they were loaded,
+	 * until all shards have been loaded or the maximum number of results has been 
+	 * reached.
+	 */
+	private void processUnordered(BlockingQueue<List<JSONMap>> queue, PagingData pagingData, JSONMapProcessorWithPreProcessorsAndPagingSupport processor) throws InterruptedException {
+		int remainingShards = shards.size();
+		while ( remainingShards > 0 && !pagingData.isMaxResultsReached() ) {
+			List<JSONMap> page = take(queue);
+			if ( page == END_OF_SHARD ) {
+				remainingShards--;
+			} else {
+				processor.notifyNextPage(pagingData);
+				processor.processPage(page);
+			}
+		}
+	}
+	
+	/**
+	 * Merge the results from the given per-shard queues according to the configured
+	 * merge order, and process the merged results in batches of the configured page
+	 * size, until all shards have been loaded or the maximum number of results has 
+	 * been reached.
+	 */
+	private void processMerged(List<BlockingQueue<List<JSONMap>>> queues, PagingData pagingData, JSONMapProcessorWithPreProcessorsAndPagingSupport processor) throws InterruptedException {
+		PriorityQueue<ShardCursor> cursors = new PriorityQueue<>(queues.size(), new Comparator<ShardCursor>() {
+			@Override
+			public int compare(ShardCursor c1, ShardCursor c2) {
+				return mergeComparator.compare(c1.current(), c2.current());
+			}
+		});
+		for ( BlockingQueue<List<JSONMap>> queue : queues ) {
+			ShardCursor cursor = new ShardCursor(queue);
+			if ( cursor.next() ) { cursors.add(cursor); }
+		}
+		int batchSize = Math.max(1, Math.min(pagingData.getPageSize(), pagingData.getMaxPageSize()));
+		List<JSONMap> batch = new ArrayList<>(batchSize);
+		while ( !cursors.isEmpty() && !pagingData.isMaxResultsReached() ) {
+			ShardCursor cursor = cursors.poll();
+			batch.add(cursor.current());
+			if ( cursor.next() ) { cursors.add(cursor); }
+			if ( batch.size() >= batchSize || cursors.isEmpty() ) {
+				processor.notifyNextPage(pagingData);
+				processor.processPage(batch);
+				batch = new ArrayList<>(batchSize);
+			}
+		}
+	}
+	
+	private List<JSONMap> take(BlockingQueue<List<JSONMap>> queue) throws InterruptedException {
+		List<JSONMap> page = queue.take();
+		Throwable t = failure.get();
+		if ( page == END_OF_SHARD && t != null ) {
+			if ( t instanceof RuntimeException ) { throw (RuntimeException)t; }
+			if ( t instanceof Error ) { throw (Error)t; }
+			throw new RuntimeException("Error loading shard", t);
+		}
+		return page;
+	}
+	
+	private static final ExecutorService createExecutorService(int threads) {
+		final String prefix = "shard-"+EXECUTOR_COUNT.incrementAndGet()+"-";
+		final AtomicInteger threadCount = new AtomicInteger();
+		return Executors.newFixedThreadPool(threads, new ThreadFactory() {
+			@Override
+			public Thread newThread(Runnable r) {
+				Thread thread = new Thread(r, prefix+threadCount.incrementAndGet());
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+	}
+	
+	/**
+	 * Load all pages for a single shard, adding each page to the given queue,
+	 * followed by {@link ShardedQueryExecutor#END_OF_SHARD}. Any failure is 
+	 * recorded before {@link ShardedQueryExecutor#END_OF_SHARD} is queued, 
+	 * such that the consuming thread never waits for a failed shard.
+	 */
+	private final class ShardLoader implements Runnable {
+		private final WebTarget target;
+		private final BlockingQueue<List<JSONMap>> queue;
+		
+		private ShardLoader(WebTarget target, BlockingQueue<List<JSONMap>> queue) {
+			this.target = target;
+			this.queue = queue;
+		}
+
+		@Override
+		public void run() {
+			try {
+				load();
+			} catch ( InterruptedException e ) {
+				Thread.currentThread().interrupt();
+			} catch ( Throwable t ) {
+				failure.compareAndSet(null, t);
+			} finally {
+				putEndOfShard();
+			}
+		}
+		
+		private void load() throws InterruptedException {
+			// Results are only filtered on the client-side after merging, so each shard never
+			// needs to load more than the maximum number of results if there are no client-side filters
+			PagingData pagingData = query.createPagingData(query.hasClientSideFilters() ? -1 : query.getMaxResults());
+			if ( !query.isPagingSupported() ) {
+				putPage(getAll());
+			} else {
+				while ( pagingData.calculateNextPageSize() > 0 && !Thread.currentThread().isInterrupted() ) {
+					List<JSONMap> page = getPage(pagingData);
+					pagingData.addProcessed(page.size());
+					pagingData.addProcessedNotFiltered(page.size());
+					putPage(page);
+				}
+			}
+		}
+		
+		private List<JSONMap> getAll() throws InterruptedException {
+			acquireRequestPermit();
+			try {
+				return query.getJSONList(target).asValueType(JSONMap.class);
+			} finally {
+				releaseRequestPermit();
+			}
+		}
+		
+		private List<JSONMap> getPage(PagingData pagingData) throws InterruptedException {
+			acquireRequestPermit();
+			try {
+				return query.getPage(target, pagingData);
+			} finally {
+				releaseRequestPermit();
+			}
+		}
+		
+		private void acquireRequestPermit() throws InterruptedException {
+			if ( requestPermits != null ) { requestPermits.acquire(); }
+		}
+		
+		private void releaseRequestPermit() {
+			if ( requestPermits != null ) { requestPermits.release(); }
+		}
+		
+		private void putPage(List<JSONMap> page) throws InterruptedException {
+			if ( !page.isEmpty() ) { queue.put(page); }
+		}
+		
+		private void putEndOfShard() {
+			try {
+				queue.put(END_OF_SHARD);
+			} catch ( InterruptedException e ) {
+				// Only interrupted if processing has been aborted, so nobody is waiting for this shard
+				Thread.currentThread().interrupt();
+			}
+		}
+	}
+	
+	/**
+	 * Iterate over all results loaded for a single shard 
+	 */
+	private final class ShardCursor {
+		private final BlockingQueue<List<JSONMap>> queue;
+		private List<JSONMap> page = null;
+		private int index = 0;
+		
+		private ShardCursor(BlockingQueue<List<JSONMap>> queue) {
+			this.queue = queue;
+		}
+		
+		/**
+		 * Move to the next result, returning false if there are no more results
+		 */
+		private boolean next() throws InterruptedException {
+			if ( page != null && ++index < page.size() ) { return true; }
+			page = take(queue);
+			index = 0;
+			return page != END_OF_SHARD;
+		}
+		
+		private JSONMap current() {
+			return page.get(index);
+		}
+	}
+}
@@ -0,0 +1,250 @@
+/*******************************************************************************
+ * (c) Copyright 2017 EntIT Software LLC, a Micro Focus company
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a 
+ * copy of this software and associated documentation files (the 
+ * "Software"), to deal in the Software without restriction, including without 
+ * limitation the rights to use, copy, modify, merge, publish, distribute, 
+ * sublicense, and/or sell copies of the Software, and to permit persons to 
+ * whom the Software is furnished to do so, subject to the following 
+ * conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included 
+ * in all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY 
+ * KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE 
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR 
+ * PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE 
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, 
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF 
+ * CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN 
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS 
+ * IN THE SOFTWARE.
+ ******************************************************************************/
+package com.fortify.util.rest.query;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+
+import javax.ws.rs.client.WebTarget;
+import javax.ws.rs.core.Response;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.BeanDescription;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.introspect.BeanPropertyDefinition;
+import com.fortify.util.rest.json.JSONMap;
+import com.fortify.util.rest.json.preprocessor.IJSONMapPreProcessor;
+import com.fortify.util.rest.json.processor.AbstractJSONMapProcessor;
+import com.fortify.util.rest.json.processor.IJSONMapProcessor;
+
+/**
+ * <p>This package-private class provides the {@link ITypedRestConnectionQuery} implementation
+ * returned by {@link AbstractRestConnectionQuery#as(Class)}. It executes the same (paged) requests
+ * as the originating query, but rather than loading each full response as a {@link JSONMap}, it 
+ * streams the response and binds each element of the data property (see 
+ * {@link AbstractRestConnectionQuery#getDataPropertyName()}) directly to the configured type.
+ * All other response properties are collected into a {@link JSONMap} that is used for updating
+ * the {@link PagingData}.</p>
+ * 
+ * <p>Responses are parsed and bound using the connection's {@link ObjectMapper} (see 
+ * {@link com.fortify.util.rest.connection.IRestConnection#getObjectMapper()}), so any 
+ * modules or date formats configured on the connection are taken into account. Only 
+ * the properties declared by the configured type are bound; any other properties are
+ * ignored. If the originating query doesn't have any {@link IJSONMapPreProcessor} instances
+ * configured, the declared property names are also passed to 
+ * {@link AbstractRestConnectionQuery#updateWebTargetWithFields(WebTarget, java.util.Collection)}
+ * to allow the remote system to omit all other properties from the response. If pre-processors 
+ * are configured, each element is first loaded as a {@link JSONMap} and pre-processed as usual, 
+ * before being converted to the configured type.</p>
+ * 
+ * <p>Note that responses are never cached, even if caching has been enabled on the 
+ * originating query.</p>
+ * 
+ * @author Ruud Senden
+ *
+ * @param <T> Type of the individual results
+ */
+class TypedRestConnectionQuery<T> implements ITypedRestConnectionQuery<T> {
+	private final AbstractRestConnectionQuery<?> query;
+	private final ObjectMapper mapper;
+	private final Class<T> type;
+	private final ObjectReader reader;
+	private final Set<String> fields;
+	
+	TypedRestConnectionQuery(AbstractRestConnectionQuery<?> query, Class<T> type) {
+		this.query = query;
+		this.type = type;
+		this.mapper = query.getConn().getObjectMapper();
+		this.reader = mapper.readerFor(type).without(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
+		this.fields = query.getPreProcessors().isEmpty() ? getDeclaredPropertyNames(mapper, type) : null;
+	}
+	
+	@Override
+	public void processAll(Consumer<? super T> processor) {
+		processAll(query.createPagingData(query.getMaxResults()), processor);
+	}
+
+	@Override
+	public List<T> getAll() {
+		final List<T> result = new ArrayList<>();
+		processAll(new Consumer<T>() {
+			@Override
+			public void accept(T obj) {
+				result.add(obj);
+			}
+		});
+		return result;
+	}
+
+	@Override
+	public T getUnique() {
+		final List<T> list = new ArrayList<>();
+		processAll(query.createPagingData(Math.min(2, query.getMaxResults())), new Consumer<T>() {
+			@Override
+			public void accept(T obj) {
+				list.add(obj);
+			}
+		});
+		if ( list.size() == 0 ) {
+			return null;
+		}
+		if ( list.size() > 1 ) {
+			throw new IllegalStateException("More than one object found: "+list);
+		}
+		return list.get(0);
+	}
+	
+	/**
+	 * Get the property names declared by the given type, or null if the given
+	 * type accepts arbitrary properties.
+	 * @param mapper
+	 * @param type
+	 * @return
+	 */
+	private static final Set<String> getDeclaredPropertyNames(ObjectMapper mapper, Class<?> type) {
+		if ( Map.class.isAssignableFrom(type) || JsonNode.class.isAssignableFrom(type) || Object.class.equals(type) ) {
+			return null;
+		}
+		BeanDescription description = mapper.getDeserializationConfig().introspect(mapper.constructType(type));
+		if ( description.findAnySetterAccessor() != null ) {
+			return null;
+		}
+		Set<String> result = new LinkedHashSet<>();
+		for ( BeanPropertyDefinition property : description.findProperties() ) {
+			if ( property.couldDeserialize() ) {
+				result.add(property.getName());
+			}
+		}
+		return result.isEmpty() ? null : Collections.unmodifiableSet(result);
+	}
+	
+	private void processAll(PagingData pagingData, Consumer<? super T> processor) {
+		query.initRequest();
+		WebTarget target = query.getWebTarget();
+		if ( fields != null ) {
+			target = query.updateWebTargetWithFields(target, fields);
+		}
+		IJSONMapProcessor jsonMapProcessor = getJSONMapProcessor(pagingData, processor);
+		if ( !query.isPagingSupported() ) {
+			processSingleRequest(target, pagingData, processor, jsonMapProcessor);
+		} else {
+			while (pagingData.calculateNextPageSize() > 0) {
+				WebTarget pagingTarget = query.updateWebTargetWithPagingData(target, pagingData);
+				long start = System.nanoTime();
+				JSONMap envelope = processSingleRequest(pagingTarget, pagingData, processor, jsonMapProcessor);
+				pagingData.addPageMetrics(System.nanoTime()-start, -1);
+				query.updatePagingDataFromEnvelope(pagingData, envelope);
+			}
+		}
+	}
+	
+	/**
+	 * Get the {@link IJSONMapProcessor} used for pre-processing and converting
+	 * individual results if the originating query has any {@link IJSONMapPreProcessor} 
+	 * instances configured, or null otherwise.
+	 */
+	private IJSONMapProcessor getJSONMapProcessor(PagingData pagingData, final Consumer<? super T> processor) {
+		if ( query.getPreProcessors().isEmpty() ) {
+			return null;
+		}
+		return new JSONMapProcessorWithPreProcessorsAndPagingSupport(query.getPreProcessors(), new AbstractJSONMapProcessor() {
+			@Override
+			public void process(JSONMap json) {
+				try {
+					processor.accept(reader.<T>readValue(mapper.<JsonNode>valueToTree(json)));
+				} catch (IOException e) {
+					throw new RuntimeException("Error converting JSON object to "+type.getName(), e);
+				}
+			}
+		}, pagingData, query.isOptimizePreProcessorOrder());
+	}
+	
+	/**
+	 * Execute a single request, binding all elements of the data property, and 
+	 * returning all other response properties as a {@link JSONMap}. 
+	 */
+	private JSONMap processSingleRequest(WebTarget target, PagingData pagingData, Consumer<? super T> processor, IJSONMapProcessor jsonMapProcessor) {
+		Response response = query.executeRequestForResponse(target);
+		try ( JsonParser parser = mapper.getFactory().createParser(response.readEntity(InputStream.class)) ) {
+			return parseResponse(parser, pagingData, processor, jsonMapProcessor);
+		} catch (IOException e) {
+			throw new RuntimeException("Error parsing response for "+target.getUri(), e);
+		} finally {
+			response.close();
+		}
+	}
+
+	private JSONMap parseResponse(JsonParser parser, PagingData pagingData, Consumer<? super T> processor, IJSONMapProcessor jsonMapProcessor) throws IOException {
+		if ( parser.nextToken() != JsonToken.START_OBJECT ) {
+			throw new IllegalStateException("Response doesn't contain a JSON object");
+		}
+		String dataPropertyName = query.getDataPropertyName();
+		JSONMap envelope = new JSONMap();
+		while ( parser.nextToken() == JsonToken.FIELD_NAME ) {
+			String name = parser.getCurrentName();
+			JsonToken token = parser.nextToken();
+			if ( !dataPropertyName.equals(name) ) {
+				envelope.put(name, mapper.readValue(parser, Object.class));
+			} else if ( token == JsonToken.START_ARRAY ) {
+				while ( parser.nextToken() != JsonToken.END_ARRAY ) {
+					processValue(parser, pagingData, processor, jsonMapProcessor);
+				}
+			} else if ( token != JsonToken.VALUE_NULL ) {
+				processValue(parser, pagingData, processor, jsonMapProcessor);
+			}
+		}
+		return envelope;
+	}
+	
+	/**
+	 * Process the value at the current parser position, either by binding it
+	 * directly to the configured type, or by pre-processing it as a {@link JSONMap}
+	 * first. Once the maximum number of results has been reached, any remaining
+	 * values are skipped without being bound.
+	 */
+	private void processValue(JsonParser parser, PagingData pagingData, Consumer<? super T> processor, IJSONMapProcessor jsonMapProcessor) throws IOException {
+		if ( pagingData.isMaxResultsReached() ) {
+			parser.skipChildren();
+		} else if ( jsonMapProcessor != null ) {
+			jsonMapProcessor.process(mapper.readValue(parser, JSONMap.class));
+		} else {
+			T value = reader.readValue(parser);
+			pagingData.addProcessed(1);
+			pagingData.addProcessedNotFiltered(1);
+			processor.accept(value);
+		}
+	}
+}
@@ -0,0 +1,89 @@
+/*******************************************************************************
+ * (c) Copyright 2017 EntIT Software LLC, a Micro Focus company
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a 
+ * copy of this software and associated documentation files (the 
+ * "Software"), to deal in the Software without restriction, including without 
+ * limitation the rights to use, copy, modify, merge, publish, distribute, 
+ * sublicense, and/or sell copies of the Software, and to permit persons to 
+ * whom the Software is furnished to do so, subject to the following 
+ * conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included 
+ * in all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY 
+ * KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE 
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR 
+ * PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE 
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, 
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF 
+ * CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN 
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS 
+ * IN THE SOFTWARE.
+ ******************************************************************************/
+package com.fortify.util.rest.sync;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.fortify.util.rest.json.JSONMap;
+import com.fortify.util.rest.json.JSONMapPath;
+
+/**
+ * Abstract base class for {@link IIncrementalSyncSource} implementations, 
+ * calculating the parent watermark from the values of a configurable list 
+ * of (simple) parent property paths, like last scan dates or scan id's.
+ * Subclasses should generate checkpoint keys that start with the prefix
+ * returned by {@link #getCheckpointKeyPrefix()}.
+ * 
+ * @author Ruud Senden
+ *
+ */
+public abstract class AbstractIncrementalSyncSource implements IIncrementalSyncSource {
+	private final List<JSONMapPath> watermarkPaths;
+	
+	/**
+	 * Create a new instance using the given parent property paths for 
+	 * calculating the watermark. If no paths are given, the watermark 
+	 * will always be null, and all parent records will be synchronized
+	 * on every run. 
+	 * @param watermarkPaths
+	 */
+	protected AbstractIncrementalSyncSource(String... watermarkPaths) {
+		this.watermarkPaths = new ArrayList<>(watermarkPaths.length);
+		for ( String path : watermarkPaths ) {
+			this.watermarkPaths.add(JSONMapPath.compile(path));
+		}
+	}
+	
+	/**
+	 * @return Prefix for all checkpoint keys generated by this source
+	 */
+	protected abstract String getCheckpointKeyPrefix();
+	
+	/**
+	 * Check whether the given key starts with {@link #getCheckpointKeyPrefix()}
+	 */
+	@Override
+	public boolean isOwnCheckpointKey(String key) {
+		return key.startsWith(getCheckpointKeyPrefix());
+	}
+	
+	/**
+	 * Get the watermark for the given parent record, consisting of the values 
+	 * for all configured watermark paths, or null if none of these paths 
+	 * have a value.
+	 */
+	@Override
+	public String getWatermark(JSONMap parent) {
+		StringBuilder sb = new StringBuilder();
+		boolean hasValue = false;
+		for ( JSONMapPath path : watermarkPaths ) {
+			Object value = path.get(parent);
+			hasValue |= value!=null;
+			sb.append(value).append('|');
+		}
+		return hasValue ? sb.toString() : null;
+	}
+}
@@ -0,0 +1,186 @@
+/*******************************************************************************
+ * (c) Copyright 2017 EntIT Software LLC, a Micro Focus company
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a 
+ * copy of this software and associated documentation files (the 
+ * "Software"), to deal in the Software without restriction, including without 
+ * limitation the rights to use, copy, modify, merge, publish, distribute, 
+ * sublicense, and/or sell copies of the Software, and to permit persons to 
+ * whom the Software is furnished to do so, subject to the following 
+ * conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included 
+ * in all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY 
+ * KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE 
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR 
+ * PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE 
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, 
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF 
+ * CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN 
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS 
+ * IN THE SOFTWARE.
+ ******************************************************************************/
+package com.fortify.util.rest.sync;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import lombok.extern.apachecommons.CommonsLog;
+
+/**
+ * {@link ISyncCheckpointStore} implementation that stores each checkpoint
+ * in a separate binary file in a given directory. File names are derived from
+ * the checkpoint key by escaping any characters other than lower-case letters, digits,
+ * '.' and '-' as '_' followed by the hexadecimal UTF-8 bytes, so distinct keys always 
+ * map to distinct file names, even on case-insensitive file systems, and keys can be
+ * recovered from file names. Checkpoints are written to a temporary file first, and 
+ * then atomically moved into place, so an interrupted synchronization run never leaves 
+ * a corrupted checkpoint behind.
+ * 
+ * @author Ruud Senden
+ *
+ */
+@CommonsLog
+public class FileSyncCheckpointStore implements ISyncCheckpointStore {
+	private static final int FORMAT_VERSION = 1;
+	private static final String FILE_SUFFIX = ".checkpoint";
+	private static final char ESCAPE_CHAR = '_';
+	private final Path directory;
+	
+	public FileSyncCheckpointStore(Path directory) {
+		this.directory = directory;
+	}
+
+	@Override
+	public SyncCheckpoint load(String key) {
+		Path file = getFile(key);
+		try ( DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file))) ) {
+			if ( in.readInt() != FORMAT_VERSION ) {
+				throw new IllegalStateException("Unsupported checkpoint format in "+file);
+			}
+			String watermark = in.readBoolean() ? in.readUTF() : null;
+			int count = in.readInt();
+			Map<String, Long> fingerprints = new HashMap<>(Math.max(16, count*4/3+1));
+			for ( int i = 0 ; i < count ; i++ ) {
+				fingerprints.put(in.readUTF(), in.readLong());
+			}
+			return new SyncCheckpoint(watermark, fingerprints);
+		} catch (NoSuchFileException e) {
+			return null;
+		} catch (IOException e) {
+			throw new RuntimeException("Error reading checkpoint from "+file, e);
+		}
+	}
+
+	@Override
+	public void save(String key, SyncCheckpoint checkpoint) {
+		Path file = getFile(key);
+		try {
+			Files.createDirectories(directory);
+			Path tempFile = Files.createTempFile(directory, "checkpoint-", ".tmp");
+			try {
+				try ( DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tempFile))) ) {
+					out.writeInt(FORMAT_VERSION);
+					out.writeBoolean(checkpoint.getWatermark()!=null);
+					if ( checkpoint.getWatermark()!=null ) { out.writeUTF(checkpoint.getWatermark()); }
+					out.writeInt(checkpoint.getFingerprints().size());
+					for ( Map.Entry<String, Long> entry : checkpoint.getFingerprints().entrySet() ) {
+						out.writeUTF(entry.getKey());
+						out.writeLong(entry.getValue());
+					}
+				}
+				Files.move(tempFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+			} finally {
+				Files.deleteIfExists(tempFile);
+			}
+		} catch (IOException e) {
+			throw new RuntimeException("Error writing checkpoint to "+file, e);
+		}
+	}
+	
+	@Override
+	public void delete(String key) {
+		Path file = getFile(key);
+		try {
+			Files.deleteIfExists(file);
+		} catch (IOException e) {
+			throw new RuntimeException("Error deleting checkpoint "+file, e);
+		}
+	}
+	
+	@Override
+	public Set<String> keys() {
+		Set<String> result = new HashSet<>();
+		if ( Files.isDirectory(directory) ) {
+			try ( DirectoryStream<Path> files = Files.newDirectoryStream(directory, "*"+FILE_SUFFIX) ) {
+				for ( Path file : files ) {
+					String key = decodeKey(file.getFileName().toString());
+					if ( key != null ) { result.add(key); }
+				}
+			} catch (IOException e) {
+				throw new RuntimeException("Error listing checkpoints in "+directory, e);
+			}
+		}
+		return result;
+	}
+	
+	private Path getFile(String key) {
+		return directory.resolve(encodeKey(key)+FILE_SUFFIX);
+	}
+	
+	private static final String encodeKey(String key) {
+		StringBuilder sb = new StringBuilder(key.length()+16);
+		for ( byte b : key.getBytes(StandardCharsets.UTF_8) ) {
+			if ( (b >= 'a' && b <= 'z') || (b >= '0' && b <= '9') || b == '.' || b == '-' ) {
+				sb.append((char)b);
+			} else {
+				sb.append(ESCAPE_CHAR).append(String.format("%02x", b & 0xff));
+			}
+		}
+		return sb.toString();
+	}
+	
+	/**
+	 * Decode the checkpoint key from the given file name, returning null
+	 * if the given file name wasn't generated by {@link #encodeKey(String)}.
+	 */
+	private static final String decodeKey(String fileName) {
+		String encoded = fileName.substring(0, fileName.length()-FILE_SUFFIX.length());
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream(encoded.length());
+		try {
+			for ( int i = 0 ; i < encoded.length() ; i++ ) {
+				char c = encoded.charAt(i);
+				if ( c == ESCAPE_CHAR ) {
+					bytes.write(Integer.parseInt(encoded.substring(i+1, i+3), 16));
+					i += 2;
+				} else {
+					bytes.write(c);
+				}
+			}
+		} catch (NumberFormatException | IndexOutOfBoundsException e) {
+			bytes = null;
+		}
+		String key = bytes==null ? null : new String(bytes.toByteArray(), StandardCharsets.UTF_8);
+		if ( key == null || !encoded.equals(encodeKey(key)) ) {
+			log.warn("Ignoring unexpected file "+fileName+" in checkpoint directory");
+			return null;
+		}
+		return key;
+	}
+}
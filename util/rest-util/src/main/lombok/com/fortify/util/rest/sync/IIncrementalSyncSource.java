@@ -0,0 +1,82 @@
+/*******************************************************************************
+ * (c) Copyright 2017 EntIT Software LLC, a Micro Focus company
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a 
+ * copy of this software and associated documentation files (the 
+ * "Software"), to deal in the Software without restriction, including without 
+ * limitation the rights to use, copy, modify, merge, publish, distribute, 
+ * sublicense, and/or sell copies of the Software, and to permit persons to 
+ * whom the Software is furnished to do so, subject to the following 
+ * conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included 
+ * in all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY 
+ * KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE 
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR 
+ * PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE 
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, 
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF 
+ * CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN 
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS 
+ * IN THE SOFTWARE.
+ ******************************************************************************/
+package com.fortify.util.rest.sync;
+
+import com.fortify.util.rest.json.JSONMap;
+import com.fortify.util.rest.query.IRestConnectionQuery;
+
+/**
+ * Interface describing a source of child records to be synchronized 
+ * by {@link IncrementalSync}, for example issues for SSC application 
+ * versions or vulnerabilities for FoD releases.
+ * 
+ * @author Ruud Senden
+ *
+ */
+public interface IIncrementalSyncSource {
+	/**
+	 * @return Query returning all parent records to be synchronized
+	 */
+	public IRestConnectionQuery createParentQuery();
+	
+	/**
+	 * @param parent
+	 * @return Unique checkpoint key for the given parent record
+	 */
+	public String getCheckpointKey(JSONMap parent);
+	
+	/**
+	 * Check whether the given checkpoint key may have been produced by 
+	 * {@link #getCheckpointKey(JSONMap)} for this source. {@link IncrementalSync}
+	 * only considers checkpoints with such keys when removing checkpoints for 
+	 * parent records that no longer exist, allowing multiple sources to share 
+	 * a single {@link ISyncCheckpointStore}, provided that their keys don't overlap.
+	 * @param key
+	 * @return true if the given key belongs to this source, false otherwise
+	 */
+	public boolean isOwnCheckpointKey(String key);
+	
+	/**
+	 * Get the watermark for the given parent record. If the watermark is equal
+	 * to the watermark stored in the previous checkpoint, the parent record is 
+	 * considered unchanged and its child query will not be executed. If this 
+	 * method returns null, the child query will always be executed.
+	 * @param parent
+	 * @return
+	 */
+	public String getWatermark(JSONMap parent);
+	
+	/**
+	 * @param parent
+	 * @return Query returning all child records for the given parent record
+	 */
+	public IRestConnectionQuery createChildQuery(JSONMap parent);
+	
+	/**
+	 * @param record
+	 * @return Unique id for the given child record
+	 */
+	public String getRecordId(JSONMap record);
+}
@@ -0,0 +1,64 @@
+/*******************************************************************************
+ * (c) Copyright 2017 EntIT Software LLC, a Micro Focus company
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a 
+ * copy of this software and associated documentation files (the 
+ * "Software"), to deal in the Software without restriction, including without 
+ * limitation the rights to use, copy, modify, merge, publish, distribute, 
+ * sublicense, and/or sell copies of the Software, and to permit persons to 
+ * whom the Software is furnished to do so, subject to the following 
+ * conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included 
+ * in all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY 
+ * KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE 
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR 
+ * PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE 
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, 
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF 
+ * CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN 
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS 
+ * IN THE SOFTWARE.
+ ******************************************************************************/
+package com.fortify.util.rest.sync;
+
+import java.util.Set;
+
+/**
+ * Interface for loading and saving {@link SyncCheckpoint} instances. A checkpoint
+ * store can be shared by multiple {@link IIncrementalSyncSource} instances, provided
+ * that their checkpoint keys don't overlap; {@link IncrementalSync} only deletes 
+ * checkpoints for which {@link IIncrementalSyncSource#isOwnCheckpointKey(String)}
+ * returns true.
+ * 
+ * @author Ruud Senden
+ *
+ */
+public interface ISyncCheckpointStore {
+	/**
+	 * Load the checkpoint for the given key
+	 * @param key
+	 * @return Previously saved {@link SyncCheckpoint}, or null if not available
+	 */
+	public SyncCheckpoint load(String key);
+	
+	/**
+	 * Save the checkpoint for the given key, replacing any previously saved checkpoint
+	 * @param key
+	 * @param checkpoint
+	 */
+	public void save(String key, SyncCheckpoint checkpoint);
+	
+	/**
+	 * Delete the checkpoint for the given key, if it exists
+	 * @param key
+	 */
+	public void delete(String key);
+	
+	/**
+	 * @return The keys of all checkpoints that have been saved
+	 */
+	public Set<String> keys();
+}
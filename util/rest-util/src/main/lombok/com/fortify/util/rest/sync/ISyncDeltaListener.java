@@ -0,0 +1,59 @@
+/*******************************************************************************
+ * (c) Copyright 2017 EntIT Software LLC, a Micro Focus company
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a 
+ * copy of this software and associated documentation files (the 
+ * "Software"), to deal in the Software without restriction, including without 
+ * limitation the rights to use, copy, modify, merge, publish, distribute, 
+ * sublicense, and/or sell copies of the Software, and to permit persons to 
+ * whom the Software is furnished to do so, subject to the following 
+ * conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included 
+ * in all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY 
+ * KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE 
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR 
+ * PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE 
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, 
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF 
+ * CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN 
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS 
+ * IN THE SOFTWARE.
+ ******************************************************************************/
+package com.fortify.util.rest.sync;
+
+import com.fortify.util.rest.json.JSONMap;
+
+/**
+ * Interface for receiving the deltas produced by {@link IncrementalSync}.
+ * 
+ * @author Ruud Senden
+ *
+ */
+public interface ISyncDeltaListener {
+	/**
+	 * Invoked for every child record that wasn't present during the previous synchronization
+	 * @param parent
+	 * @param record
+	 */
+	public void onInsert(JSONMap parent, JSONMap record);
+	
+	/**
+	 * Invoked for every child record that has changed since the previous synchronization
+	 * @param parent
+	 * @param record
+	 */
+	public void onUpdate(JSONMap parent, JSONMap record);
+	
+	/**
+	 * Invoked for every child record that was present during the previous synchronization,
+	 * but is no longer returned by the child query. If the parent record itself is no 
+	 * longer returned by the parent query, this method is invoked for all child records 
+	 * of that parent, with a null parent.
+	 * @param parent Parent record, or null if the parent record no longer exists
+	 * @param recordId
+	 */
+	public void onRemove(JSONMap parent, String recordId);
+}
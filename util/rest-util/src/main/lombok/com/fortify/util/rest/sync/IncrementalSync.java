@@ -0,0 +1,248 @@
+/*******************************************************************************
+ * (c) Copyright 2017 EntIT Software LLC, a Micro Focus company
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a 
+ * copy of this software and associated documentation files (the 
+ * "Software"), to deal in the Software without restriction, including without 
+ * limitation the rights to use, copy, modify, merge, publish, distribute, 
+ * sublicense, and/or sell copies of the Software, and to permit persons to 
+ * whom the Software is furnished to do so, subject to the following 
+ * conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included 
+ * in all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY 
+ * KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE 
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR 
+ * PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE 
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, 
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF 
+ * CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN 
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS 
+ * IN THE SOFTWARE.
+ ******************************************************************************/
+package com.fortify.util.rest.sync;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import com.fortify.util.rest.json.JSONMap;
+import com.fortify.util.rest.json.JSONMapPath;
+import com.fortify.util.rest.json.ondemand.IJSONMapOnDemandLoader;
+import com.fortify.util.rest.json.processor.AbstractJSONMapProcessor;
+
+import lombok.Getter;
+import lombok.extern.apachecommons.CommonsLog;
+
+/**
+ * <p>This class incrementally synchronizes the child records for all parent records 
+ * returned by an {@link IIncrementalSyncSource}, for example all issues for all SSC 
+ * application versions. For every parent record, a {@link SyncCheckpoint} is persisted 
+ * through an {@link ISyncCheckpointStore}, containing the parent watermark and a 
+ * fingerprint for each child record.</p>
+ * 
+ * <p>On each run, parent records for which the watermark hasn't changed since the 
+ * previous run are skipped entirely, without executing the corresponding child query.
+ * For all other parent records, the child query is executed and each child record is 
+ * compared against the fingerprints from the previous checkpoint, producing insert, 
+ * update and remove deltas through an {@link ISyncDeltaListener}. By default the 
+ * fingerprint is calculated from all properties of a child record (excluding any 
+ * on-demand properties that haven't been loaded yet); {@link #fingerprintPaths(String...)}
+ * allows for restricting the fingerprint to specific properties.</p>
+ * 
+ * <p>The checkpoint for a parent record is only saved after all deltas for that parent
+ * record have been passed to the {@link ISyncDeltaListener}. If a run fails half-way, 
+ * the next run will reproduce any deltas for the failed parent record, so listeners 
+ * should be able to handle receiving the same delta more than once.</p>
+ * 
+ * <p>Once all parent records have been synchronized successfully, any checkpoints owned
+ * by the current source (see {@link IIncrementalSyncSource#isOwnCheckpointKey(String)})
+ * for parent records that are no longer returned by the parent query are removed from 
+ * the {@link ISyncCheckpointStore}, after producing a remove delta for each of their 
+ * child records. Checkpoints belonging to other sources sharing the same store are left
+ * untouched.</p>
+ * 
+ * @author Ruud Senden
+ *
+ */
+@CommonsLog
+public class IncrementalSync {
+	private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+	private static final long FNV_PRIME = 0x100000001b3L;
+	private final IIncrementalSyncSource source;
+	private final ISyncCheckpointStore checkpointStore;
+	private List<JSONMapPath> fingerprintPaths = null;
+	
+	public IncrementalSync(IIncrementalSyncSource source, ISyncCheckpointStore checkpointStore) {
+		this.source = source;
+		this.checkpointStore = checkpointStore;
+	}
+	
+	/**
+	 * Restrict child record fingerprints to the given (simple) property paths. For 
+	 * example, SSC issues could be fingerprinted using only the <code>revision</code>
+	 * and <code>scanStatus</code> properties.
+	 * @param paths
+	 * @return
+	 */
+	public IncrementalSync fingerprintPaths(String... paths) {
+		List<JSONMapPath> result = new ArrayList<>(paths.length);
+		for ( String path : paths ) {
+			result.add(JSONMapPath.compile(path));
+		}
+		this.fingerprintPaths = result;
+		return this;
+	}
+	
+	/**
+	 * Synchronize all parent records, passing the resulting deltas to the given
+	 * {@link ISyncDeltaListener}.
+	 * @param listener
+	 * @return {@link SyncResult} describing the outcome of this synchronization run
+	 */
+	public SyncResult sync(ISyncDeltaListener listener) {
+		SyncResult result = new SyncResult();
+		Set<String> parentKeys = new HashSet<>();
+		for ( JSONMap parent : source.createParentQuery().getAll().asValueType(JSONMap.class) ) {
+			String key = source.getCheckpointKey(parent);
+			parentKeys.add(key);
+			String watermark = source.getWatermark(parent);
+			SyncCheckpoint previous = checkpointStore.load(key);
+			if ( previous != null && watermark != null && watermark.equals(previous.getWatermark()) ) {
+				log.debug("Skipping unchanged parent "+key);
+				result.skippedParents++;
+			} else {
+				checkpointStore.save(key, syncParent(parent, watermark, previous, listener, result));
+				result.syncedParents++;
+			}
+		}
+		removeVanishedParents(parentKeys, listener, result);
+		return result;
+	}
+	
+	/**
+	 * Produce remove deltas for all child records of parent records that were 
+	 * synchronized previously by the current source but are no longer returned 
+	 * by the parent query, and delete the corresponding checkpoints.
+	 */
+	private void removeVanishedParents(Set<String> parentKeys, ISyncDeltaListener listener, SyncResult result) {
+		for ( String key : checkpointStore.keys() ) {
+			if ( !parentKeys.contains(key) && source.isOwnCheckpointKey(key) ) {
+				SyncCheckpoint previous = checkpointStore.load(key);
+				if ( previous != null ) {
+					for ( String id : previous.getFingerprints().keySet() ) {
+						result.removed++;
+						listener.onRemove(null, id);
+					}
+				}
+				log.debug("Removing checkpoint for vanished parent "+key);
+				checkpointStore.delete(key);
+				result.removedParents++;
+			}
+		}
+	}
+
+	private SyncCheckpoint syncParent(final JSONMap parent, String watermark, SyncCheckpoint previous, final ISyncDeltaListener listener, final SyncResult result) {
+		final Map<String, Long> previousFingerprints = previous==null ? new HashMap<String, Long>() : previous.getFingerprints();
+		final Map<String, Long> fingerprints = new HashMap<>(Math.max(16, previousFingerprints.size()*4/3+1));
+		source.createChildQuery(parent).processAll(new AbstractJSONMapProcessor() {
+			@Override
+			public void process(JSONMap record) {
+				String id = source.getRecordId(record);
+				long fingerprint = getFingerprint(record);
+				fingerprints.put(id, fingerprint);
+				Long previousFingerprint = previousFingerprints.get(id);
+				if ( previousFingerprint == null ) {
+					result.inserted++;
+					listener.onInsert(parent, record);
+				} else if ( previousFingerprint != fingerprint ) {
+					result.updated++;
+					listener.onUpdate(parent, record);
+				} else {
+					result.unchanged++;
+				}
+			}
+		});
+		for ( String id : previousFingerprints.keySet() ) {
+			if ( !fingerprints.containsKey(id) ) {
+				result.removed++;
+				listener.onRemove(parent, id);
+			}
+		}
+		return new SyncCheckpoint(watermark, fingerprints);
+	}
+	
+	private long getFingerprint(JSONMap record) {
+		if ( fingerprintPaths == null ) {
+			return hash(FNV_OFFSET_BASIS, record);
+		}
+		long hash = FNV_OFFSET_BASIS;
+		for ( JSONMapPath path : fingerprintPaths ) {
+			hash = hash(hash, path.get(record));
+		}
+		return hash;
+	}
+	
+	/**
+	 * Calculate a 64-bit FNV-1a hash for the given value, recursively
+	 * including the contents of any maps and collections.
+	 */
+	private static final long hash(long hash, Object value) {
+		if ( value instanceof Map ) {
+			hash = hash(hash, '{');
+			for ( Map.Entry<?, ?> entry : ((Map<?, ?>)value).entrySet() ) {
+				if ( !(entry.getValue() instanceof IJSONMapOnDemandLoader) ) {
+					hash = hash(hash, String.valueOf(entry.getKey()));
+					hash = hash(hash, entry.getValue());
+				}
+			}
+			return hash(hash, '}');
+		} else if ( value instanceof Iterable ) {
+			hash = hash(hash, '[');
+			for ( Object entry : (Iterable<?>)value ) {
+				hash = hash(hash, entry);
+			}
+			return hash(hash, ']');
+		} else {
+			return hash(hash(hash, value==null ? "\u0000" : value.toString()), ',');
+		}
+	}
+	
+	private static final long hash(long hash, String value) {
+		for ( int i = 0 ; i < value.length() ; i++ ) {
+			hash = hash(hash, value.charAt(i));
+		}
+		return hash;
+	}
+	
+	private static final long hash(long hash, char c) {
+		return (hash ^ c) * FNV_PRIME;
+	}
+	
+	/**
+	 * Describes the outcome of a synchronization run.
+	 */
+	@Getter
+	public static final class SyncResult {
+		private int syncedParents;
+		private int skippedParents;
+		private int removedParents;
+		private int inserted;
+		private int updated;
+		private int removed;
+		private int unchanged;
+		
+		private SyncResult() {}
+		
+		@Override
+		public String toString() {
+			return String.format("parents synced=%d, skipped=%d, removed=%d; records inserted=%d, updated=%d, removed=%d, unchanged=%d", 
+					syncedParents, skippedParents, removedParents, inserted, updated, removed, unchanged);
+		}
+	}
+}
@@ -0,0 +1,60 @@
+/*******************************************************************************
+ * (c) Copyright 2017 EntIT Software LLC, a Micro Focus company
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a 
+ * copy of this software and associated documentation files (the 
+ * "Software"), to deal in the Software without restriction, including without 
+ * limitation the rights to use, copy, modify, merge, publish, distribute, 
+ * sublicense, and/or sell copies of the Software, and to permit persons to 
+ * whom the Software is furnished to do so, subject to the following 
+ * conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included 
+ * in all copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY 
+ * KIND, EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE 
+ * WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR 
+ * PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE 
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, 
+ * DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF 
+ * CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN 
+ * CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS 
+ * IN THE SOFTWARE.
+ ******************************************************************************/
+package com.fortify.util.rest.sync;
+
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * This immutable class describes the synchronization state for a single parent 
+ * record, consisting of the parent watermark at the time of the last successful
+ * synchronization, and a fingerprint for each child record that was synchronized.
+ * 
+ * @author Ruud Senden
+ *
+ */
+public final class SyncCheckpoint {
+	private final String watermark;
+	private final Map<String, Long> fingerprints;
+	
+	public SyncCheckpoint(String watermark, Map<String, Long> fingerprints) {
+		this.watermark = watermark;
+		this.fingerprints = Collections.unmodifiableMap(fingerprints);
+	}
+	
+	/**
+	 * @return The parent watermark at the time of the last successful synchronization, may be null
+	 */
+	public String getWatermark() {
+		return watermark;
+	}
+	
+	/**
+	 * @return Unmodifiable {@link Map} containing the fingerprint for each child record id
+	 */
+	public Map<String, Long> getFingerprints() {
+		return fingerprints;
+	}
+}